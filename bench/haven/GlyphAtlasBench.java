@@ -0,0 +1,62 @@
+package haven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the labels of {@link #LABELS} gobs, as quality and timer
+ * overlays produce them: rendering each string through AWT as
+ * {@link Text.Foundry#render} does, against laying it out from the
+ * {@link GlyphAtlas} (what a GPU label costs on the CPU) and composing
+ * it into an image from the atlas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GlyphAtlasBench {
+    static final int LABELS = 300;
+    static final Color COL = new Color(215, 235, 240);
+
+    Text.Foundry fnd;
+    GlyphAtlas atlas;
+    String[] labels;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fnd = new Text.Foundry(new Font("SansSerif", Font.PLAIN, 12));
+        atlas = fnd.atlas();
+        labels = new String[LABELS];
+        for (int i = 0; i < LABELS; i++)
+            labels[i] = (i % 2 == 0) ? ("Q" + (10 + (i % 90))) : String.format("%.2f", i * 0.37);
+    }
+
+    @Benchmark
+    public int awt() {
+        int r = 0;
+        for (String s : labels)
+            r += fnd.render(s, COL).img.getWidth();
+        return r;
+    }
+
+    @Benchmark
+    public int layout() {
+        int r = 0;
+        for (String s : labels)
+            r += atlas.layout(s).sz.x;
+        return r;
+    }
+
+    @Benchmark
+    public int compose() {
+        int r = 0;
+        for (String s : labels)
+            r += atlas.compose(atlas.layout(s), COL).getWidth();
+        return r;
+    }
+}
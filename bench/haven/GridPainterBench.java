@@ -0,0 +1,101 @@
+package haven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Minimap rendering of 1,000 stored grids of {@link MCache#cmaps} tiles:
+ * full paints against incremental repaints after {@link #CHANGES} tiles
+ * and heights of every grid changed, each serially and spread over the
+ * common fork-join pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridPainterBench {
+    static final int GRIDS = 1000;
+    static final int IDS = 24;
+    static final int CHANGES = 8;
+
+    GridPainter.Sample[] samples, changed;
+    GridPainter.Painted[] painted;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        TileTexCache.Tex[] texes = new TileTexCache.Tex[IDS];
+        for (int t = 0; t < IDS; t++) {
+            int[] px = new int[32 * 32];
+            for (int i = 0; i < px.length; i++)
+                px[i] = 0xff000000 | rnd.nextInt(0x1000000);
+            texes[t] = new TileTexCache.Tex(32, 32, px);
+        }
+        Coord sz = MCache.cmaps;
+        samples = new GridPainter.Sample[GRIDS];
+        changed = new GridPainter.Sample[GRIDS];
+        painted = new GridPainter.Painted[GRIDS];
+        for (int g = 0; g < GRIDS; g++) {
+            int[] tiles = new int[sz.x * sz.y];
+            float[] z = new float[sz.x * sz.y];
+            /* Patches of one tile type over rolling terrain, as real grids */
+            for (int y = 0; y < sz.y; y++) {
+                for (int x = 0; x < sz.x; x++) {
+                    tiles[x + (y * sz.x)] = ((x / 12) * 7 + (y / 9) * 3 + g) % IDS;
+                    z[x + (y * sz.x)] = (float) (Math.sin((x + g) * 0.1) * 30 + Math.cos(y * 0.07) * 20) + rnd.nextFloat();
+                }
+            }
+            samples[g] = sample(sz, tiles, z, texes);
+            for (int i = 0; i < CHANGES; i++) {
+                int o = rnd.nextInt(tiles.length);
+                tiles[o] = rnd.nextInt(IDS);
+                z[o] += 10;
+            }
+            changed[g] = sample(sz, tiles, z, texes);
+            painted[g] = GridPainter.paint(samples[g], null);
+        }
+    }
+
+    private static GridPainter.Sample sample(Coord sz, int[] tiles, float[] z, TileTexCache.Tex[] texes) {
+        GridPainter.Sample s = new GridPainter.Sample(sz, Coord.z, false, 1);
+        for (int y = 0; y < sz.y; y++) {
+            for (int x = 0; x < sz.x; x++)
+                s.tile(x, y, tiles[x + (y * sz.x)]);
+        }
+        s.heights(z);
+        for (int t : s.ids())
+            s.tileinfo(t, texes[t], t, ((t % 3) == 0) ? 12.0 : Double.NaN);
+        return s;
+    }
+
+    @Benchmark
+    public int fullSerial() {
+        int n = 0;
+        for (int g = 0; g < GRIDS; g++)
+            n += GridPainter.paint(changed[g], null).painted;
+        return n;
+    }
+
+    @Benchmark
+    public int fullParallel() {
+        return IntStream.range(0, GRIDS).parallel().map(g -> GridPainter.paint(changed[g], null).painted).sum();
+    }
+
+    @Benchmark
+    public int incrementalSerial() {
+        int n = 0;
+        for (int g = 0; g < GRIDS; g++)
+            n += GridPainter.paint(changed[g], painted[g]).painted;
+        return n;
+    }
+
+    @Benchmark
+    public int incrementalParallel() {
+        return IntStream.range(0, GRIDS).parallel().map(g -> GridPainter.paint(changed[g], painted[g]).painted).sum();
+    }
+}
@@ -0,0 +1,129 @@
+package haven;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame pose work of 1,000 animated gobs sharing one skeleton of
+ * {@link #BONES} bones: building global transforms, blending towards an
+ * old pose, and a full rebuild from animation tracks where the gobs play
+ * {@link #ANIMS} looping animations, with and without the shared pose
+ * cache. Pose cache stats are printed per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkeletonPoseBench {
+    static final int GOBS = 1000;
+    static final int BONES = 40;
+    static final int ANIMS = 8;
+    static final float LEN = 2.0f;
+
+    Skeleton skel;
+    Skeleton.Pose[] poses, old;
+    Skeleton.PoseMod[][] shared, unshared;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        List<Skeleton.Bone> bones = new ArrayList<>(BONES);
+        for (int i = 0; i < BONES; i++) {
+            Skeleton.Bone b = new Skeleton.Bone("b" + i, new Coord3f(rnd.nextFloat(), rnd.nextFloat(), rnd.nextFloat()),
+                                                new Coord3f(0, 0, 1), rnd.nextFloat() * 3.0f);
+            if (i > 0)
+                b.parent = bones.get(rnd.nextInt(i));
+            bones.add(b);
+        }
+        skel = new Skeleton(bones);
+
+        Skeleton.Track[][] anims = new Skeleton.Track[ANIMS][];
+        for (int a = 0; a < ANIMS; a++)
+            anims[a] = tracks(rnd);
+
+        poses = new Skeleton.Pose[GOBS];
+        old = new Skeleton.Pose[GOBS];
+        shared = new Skeleton.PoseMod[GOBS][];
+        unshared = new Skeleton.PoseMod[GOBS][];
+        for (int i = 0; i < GOBS; i++) {
+            poses[i] = skel.new Pose(skel.bindpose);
+            old[i] = skel.new Pose(skel.bindpose);
+            Skeleton.Track[] anim = anims[i % ANIMS];
+            shared[i] = new Skeleton.PoseMod[] {skel.new TrackMod(Skeleton.ModOwner.nil, anim, new Skeleton.FxTrack[0], LEN, WrapMode.LOOP) {
+                public Object shareid() {
+                    return anim;
+                }
+            }};
+            unshared[i] = new Skeleton.PoseMod[] {skel.new TrackMod(Skeleton.ModOwner.nil, anim, new Skeleton.FxTrack[0], LEN, WrapMode.LOOP)};
+        }
+        for (int i = 0; i < GOBS; i++) {
+            poses[i].build(unshared[i], null, 0);
+            old[i].build(unshared[(i + 1) % GOBS], null, 0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println("\nPose cache: " + skel.posecache().stats());
+    }
+
+    private static Skeleton.Track[] tracks(Random rnd) {
+        Skeleton.Track[] ret = new Skeleton.Track[BONES];
+        for (int b = 0; b < BONES; b++) {
+            Skeleton.Track.Frame[] frames = new Skeleton.Track.Frame[4];
+            for (int f = 0; f < frames.length; f++) {
+                float[] rot = {rnd.nextFloat(), rnd.nextFloat() - 0.5f, rnd.nextFloat() - 0.5f, rnd.nextFloat() - 0.5f};
+                float n = (float) Math.sqrt((rot[0] * rot[0]) + (rot[1] * rot[1]) + (rot[2] * rot[2]) + (rot[3] * rot[3]));
+                for (int k = 0; k < 4; k++)
+                    rot[k] /= n;
+                frames[f] = new Skeleton.Track.Frame(f * LEN / frames.length, new float[] {rnd.nextFloat(), rnd.nextFloat(), rnd.nextFloat()}, rot);
+            }
+            ret[b] = new Skeleton.Track("b" + b, frames);
+        }
+        return ret;
+    }
+
+    /* Every gob advances by one frame of a 60 FPS client. */
+    private static void tick(Skeleton.PoseMod[][] mods) {
+        for (Skeleton.PoseMod[] m : mods)
+            m[0].tick(1.0f / 60.0f);
+    }
+
+    @Benchmark
+    public int gbuild() {
+        for (Skeleton.Pose p : poses)
+            p.gbuild();
+        return poses[0].seq;
+    }
+
+    @Benchmark
+    public int blend() {
+        for (int i = 0; i < GOBS; i++) {
+            poses[i].blend(old[i], 0.5f);
+            poses[i].gbuild();
+        }
+        return poses[0].seq;
+    }
+
+    @Benchmark
+    public int rebuildUnshared() {
+        tick(unshared);
+        for (int i = 0; i < GOBS; i++)
+            poses[i].build(unshared[i], null, 0);
+        return poses[0].seq;
+    }
+
+    @Benchmark
+    public int rebuildShared() {
+        tick(shared);
+        for (int i = 0; i < GOBS; i++)
+            poses[i].build(shared[i], null, 0);
+        return poses[0].seq;
+    }
+}
@@ -0,0 +1,88 @@
+package haven.render;
+
+import haven.Coord3f;
+import nurgling.headless.HeadlessEnvironment;
+import org.openjdk.jmh.annotations.*;
+/* Named explicitly, as haven.render.State would win over the wildcard. */
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tree lock traffic of a gob tick in headless mode: every worker thread
+ * adds a handful of overlay-like nodes under its own gob slot, moves them
+ * and removes them again, either slot by slot or through a
+ * {@link RenderTree.Batch}. The tree has a {@link HeadlessEnvironment} draw
+ * list attached as client, like a headless MapView. Lock wait and hold
+ * totals are printed per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class RenderTreeLockBench {
+    static final int OVERLAYS = 8;
+
+    RenderTree tree;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tree = new RenderTree();
+        tree.add(new HeadlessEnvironment().drawlist(), Rendered.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        System.out.println("\nTree lock: " + tree.lockstats());
+    }
+
+    @State(Scope.Thread)
+    public static class Gob {
+        RenderTree.Slot slot;
+        RenderTree.Batch batch = new RenderTree.Batch();
+        float x = 0;
+
+        @Setup(Level.Trial)
+        public void setup(RenderTreeLockBench bench) {
+            slot = bench.tree.add(new RenderTree.Node() {});
+        }
+    }
+
+    private static List<RenderTree.Slot> addOverlays(Gob gob) {
+        List<RenderTree.Slot> added = new ArrayList<>(OVERLAYS);
+        for (int i = 0; i < OVERLAYS; i++) {
+            added.add(gob.slot.add(new RenderTree.Node() {}));
+        }
+        return added;
+    }
+
+    @Benchmark
+    public void perSlot(Gob gob) {
+        List<RenderTree.Slot> added = addOverlays(gob);
+        Pipe.Op loc = Location.xlate(new Coord3f(gob.x++, 0, 0));
+        for (RenderTree.Slot s : added) {
+            s.ostate(loc);
+        }
+        for (RenderTree.Slot s : added) {
+            s.remove();
+        }
+    }
+
+    @Benchmark
+    public void batched(Gob gob) {
+        List<RenderTree.Slot> added = addOverlays(gob);
+        Pipe.Op loc = Location.xlate(new Coord3f(gob.x++, 0, 0));
+        for (RenderTree.Slot s : added) {
+            gob.batch.ostate(s, loc, null);
+        }
+        for (RenderTree.Slot s : added) {
+            gob.batch.remove(s);
+        }
+        gob.batch.apply();
+    }
+}
@@ -0,0 +1,55 @@
+package nurgling;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Option reads through {@link NConfig#get}, as overlays and sprites do
+ * on every frame and tick: a round of {@link #KEYS}, the options read
+ * most often while drawing the map, from one thread and from several
+ * at once, since every read takes the lock of the option table. The
+ * reads go to the global configuration; the per-session one bound to
+ * a UI thread needs a running session, and is the same table lookup
+ * once found. Creating the configuration loads its fonts, so the
+ * {@code bench} target puts the resource jars on the class path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NConfigBench {
+    static final NConfig.Key[] KEYS = {
+        NConfig.Key.showCropStage, NConfig.Key.miningol, NConfig.Key.showTroughRadius,
+        NConfig.Key.showMoundBedRadius, NConfig.Key.showBeehiveRadius, NConfig.Key.shortWalls,
+        NConfig.Key.gridbox, NConfig.Key.showSpeedometer, NConfig.Key.showBB,
+        NConfig.Key.highlightRockTiles, NConfig.Key.treeScaleMinThreshold, NConfig.Key.treeDisplayScale,
+    };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        NConfig.getGlobalInstance();
+    }
+
+    private static int round() {
+        int r = 0;
+        for (NConfig.Key key : KEYS) {
+            if (NConfig.get(key) != null)
+                r++;
+        }
+        return r;
+    }
+
+    @Benchmark
+    public int get() {
+        return round();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int getContended() {
+        return round();
+    }
+}
@@ -0,0 +1,76 @@
+package nurgling.cookbook;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-k queries against a store of 100k synthetic recipes shaped like real
+ * ones: one to four ingredients from a few hundred names, and a handful of
+ * the eighteen FEP attributes per recipe.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecipeStoreBench {
+    static final String[] ATTRS = {"Strength", "Agility", "Intelligence", "Constitution",
+            "Perception", "Charisma", "Dexterity", "Will", "Psyche"};
+
+    @Param({"100000"})
+    public int recipes;
+
+    RecipeStore store;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        store = new RecipeStore();
+        for (int i = 0; i < recipes; i++) {
+            Map<String, Recipe.IngredientInfo> ings = new HashMap<>();
+            int ni = 1 + rnd.nextInt(4);
+            for (int j = 0; j < ni; j++) {
+                ings.put("Ingredient " + rnd.nextInt(400), new Recipe.IngredientInfo(100.0 / ni, "gfx/invobjs/x" + j));
+            }
+            Map<String, Recipe.Fep> feps = new HashMap<>();
+            int nf = 1 + rnd.nextInt(5);
+            for (int j = 0; j < nf; j++) {
+                String name = ATTRS[rnd.nextInt(ATTRS.length)] + " +" + (1 + rnd.nextInt(2));
+                feps.put(name, new Recipe.Fep(rnd.nextDouble() * 20, 1.0 / nf));
+            }
+            store.put(new Recipe("hash" + i, "Recipe " + i, "gfx/invobjs/food" + (i % 50),
+                    1 + rnd.nextDouble() * 20, 100 + rnd.nextInt(900), ings, feps));
+        }
+    }
+
+    @Benchmark
+    public List<Recipe> singleFep() {
+        return store.topK(new RecipeStore.Query().weight("Strength +2", 1f), 20);
+    }
+
+    @Benchmark
+    public List<Recipe> weightedPerHunger() {
+        return store.topK(new RecipeStore.Query()
+                .weight("Strength +2", 2f).weight("Constitution +1", 1f).weight("Will +2", 0.5f)
+                .perHunger(true), 100);
+    }
+
+    @Benchmark
+    public List<Recipe> ingredientFilter() {
+        return store.topK(new RecipeStore.Query()
+                .weight("Agility +2", 1f)
+                .withIngredient("ingredient 12")
+                .withoutIngredient("ingredient 3"), 20);
+    }
+
+    @Benchmark
+    public int count() {
+        return store.count(new RecipeStore.Query().withIngredient("ingredient 7"));
+    }
+}
@@ -0,0 +1,101 @@
+package nurgling.navigation;
+
+import haven.Coord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static nurgling.navigation.ChunkNavConfig.*;
+
+/**
+ * Tile-level routing across recorded chunks, as the global navigator
+ * plans a walk to a far area: a {@link #side} by {@link #side} block
+ * of surface chunks, each with {@link #blocked} percent of its cells
+ * taken by clusters of obstacles and its edges walkable wherever the
+ * border cells are, searched with {@link UnifiedTilePathfinder} from
+ * one corner of the block to the other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnifiedTilePathfinderBench {
+    @Param({"1", "3"})
+    public int side;
+
+    @Param({"10"})
+    public int blocked;
+
+    ChunkNavGraph graph;
+    long startId, targetId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(42);
+        ChunkNavData[][] chunks = new ChunkNavData[side][side];
+        for (int gx = 0; gx < side; gx++) {
+            for (int gy = 0; gy < side; gy++) {
+                ChunkNavData c = new ChunkNavData(1000L + gx * side + gy, new Coord(gx, gy), new Coord(gx, gy).mul(CHUNK_SIZE));
+                c.instanceId = 1;
+                fill(c, rnd);
+                chunks[gx][gy] = c;
+            }
+        }
+        graph = new ChunkNavGraph();
+        for (int gx = 0; gx < side; gx++) {
+            for (int gy = 0; gy < side; gy++) {
+                ChunkNavData c = chunks[gx][gy];
+                if (gy > 0) c.neighborNorth = chunks[gx][gy - 1].gridId;
+                if (gy < side - 1) c.neighborSouth = chunks[gx][gy + 1].gridId;
+                if (gx > 0) c.neighborWest = chunks[gx - 1][gy].gridId;
+                if (gx < side - 1) c.neighborEast = chunks[gx + 1][gy].gridId;
+                graph.addChunk(c);
+            }
+        }
+        for (ChunkNavData c : graph.getAllChunks())
+            graph.updateConnections(c);
+        startId = chunks[0][0].gridId;
+        targetId = chunks[side - 1][side - 1].gridId;
+    }
+
+    void fill(ChunkNavData c, Random rnd) {
+        for (int x = 0; x < CELLS_PER_EDGE; x++) {
+            for (int y = 0; y < CELLS_PER_EDGE; y++) {
+                c.walkability[x][y] = 0;
+                c.observed[x][y] = true;
+            }
+        }
+        int clusters = (CELLS_PER_EDGE * CELLS_PER_EDGE * blocked) / (100 * 8);
+        for (int k = 0; k < clusters; k++) {
+            int x = rnd.nextInt(CELLS_PER_EDGE), y = rnd.nextInt(CELLS_PER_EDGE);
+            for (int d = 0; d < 8; d++) {
+                c.walkability[x][y] = 2;
+                x = Math.max(0, Math.min(CELLS_PER_EDGE - 1, x + rnd.nextInt(3) - 1));
+                y = Math.max(0, Math.min(CELLS_PER_EDGE - 1, y + rnd.nextInt(3) - 1));
+            }
+        }
+        /* Keep the corners the search starts and ends on open. */
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                c.walkability[x][y] = 0;
+                c.walkability[CELLS_PER_EDGE - 1 - x][CELLS_PER_EDGE - 1 - y] = 0;
+            }
+        }
+        c.recomputeSectionCounts();
+        for (int i = 0; i < CELLS_PER_EDGE; i++) {
+            c.northEdge[i].walkable = c.walkability[i][0] <= 1;
+            c.southEdge[i].walkable = c.walkability[i][CELLS_PER_EDGE - 1] <= 1;
+            c.westEdge[i].walkable = c.walkability[0][i] <= 1;
+            c.eastEdge[i].walkable = c.walkability[CELLS_PER_EDGE - 1][i] <= 1;
+        }
+    }
+
+    @Benchmark
+    public int route() {
+        UnifiedTilePathfinder.UnifiedPath p = new UnifiedTilePathfinder(graph).findPath(startId, new Coord(1, 1), targetId, new Coord(CHUNK_SIZE - 2, CHUNK_SIZE - 2));
+        return (p == null) ? -1 : p.size();
+    }
+}
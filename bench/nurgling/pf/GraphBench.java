@@ -0,0 +1,62 @@
+package nurgling.pf;
+
+import haven.Coord;
+import haven.Coord2d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local pathfinding as a bot walk does it: an {@link NPFMap} around a
+ * walk of {@link #dist} world units, with {@link #blocked} percent of
+ * its cells taken by gob hitboxes (in small clusters, as trees, rocks
+ * and stockpiles leave them), searched from one corner to the other
+ * with {@link Graph}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBench {
+    @Param({"100", "300"})
+    public int dist;
+
+    @Param({"15"})
+    public int blocked;
+
+    NPFMap map;
+    short[][] vals;
+    Coord start, goal;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        Coord2d src = new Coord2d(1000, 1000);
+        map = new NPFMap(src, src.add(dist, dist * 0.5), 1);
+        int n = map.getSize();
+        NPFMap.Cell[][] cells = map.getCells();
+        int clusters = (n * n * blocked) / (100 * 6);
+        for (int k = 0; k < clusters; k++) {
+            int x = 1 + rnd.nextInt(n - 2), y = 1 + rnd.nextInt(n - 2);
+            for (int d = 0; d < 6; d++) {
+                cells[x][y].val = 1;
+                x = Math.max(1, Math.min(n - 2, x + rnd.nextInt(3) - 1));
+                y = Math.max(1, Math.min(n - 2, y + rnd.nextInt(3) - 1));
+            }
+        }
+        start = new Coord(2, 2);
+        goal = new Coord(n - 3, n - 3);
+        cells[start.x][start.y].val = 0;
+        cells[goal.x][goal.y].val = 0;
+    }
+
+    @Benchmark
+    public int search() {
+        Graph g = new Graph(map, start, goal);
+        g.run();
+        return g.path.size();
+    }
+}
@@ -0,0 +1,104 @@
+package nurgling.tools;
+
+import haven.Coord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Saving and loading the explored area of a long-played character:
+ * {@link #grids} grids over {@link #SEGMENTS} segments, each explored in
+ * a few view-sized rectangles. Compares rewriting the whole JSON document
+ * against saving the {@link #DIRTY} grids touched since the last save to
+ * the binary store, and loading everything from JSON against loading the
+ * one segment on screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExploredAreaBench {
+    static final int SEGMENTS = 4;
+    static final int DIRTY = 50;
+
+    @Param({"20000"})
+    public int grids;
+
+    Path dir;
+    Map<ExploredArea.GridKey, long[]> all;
+    Map<Long, Map<Coord, long[]>> bySegment;
+    Map<Coord, long[]> dirty;
+    ExploredStore store;
+    String jsonPath;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Random rnd = new Random(1);
+        dir = Files.createTempDirectory("explored-bench");
+        all = new HashMap<>();
+        bySegment = new HashMap<>();
+        for (int i = 0; i < grids; i++) {
+            long seg = rnd.nextInt(SEGMENTS);
+            Coord gc = new Coord(rnd.nextInt(400) - 200, rnd.nextInt(400) - 200);
+            long[] mask = new long[ExploredStore.WORDS];
+            for (int r = 0; r < 3; r++) {
+                int x0 = rnd.nextInt(100), y0 = rnd.nextInt(100);
+                for (int y = y0; y < Math.min(y0 + 40, 100); y++) {
+                    for (int x = x0; x < Math.min(x0 + 40, 100); x++)
+                        mask[(x + y * 100) >>> 6] |= 1L << (x + y * 100);
+                }
+            }
+            all.put(new ExploredArea.GridKey(seg, gc), mask);
+            bySegment.computeIfAbsent(seg, k -> new HashMap<>()).put(gc, mask);
+        }
+        store = new ExploredStore(dir.resolve("store"));
+        for (Map.Entry<Long, Map<Coord, long[]>> e : bySegment.entrySet())
+            store.save(e.getKey(), e.getValue());
+        List<Coord> keys = new ArrayList<>(bySegment.get(0L).keySet());
+        dirty = new HashMap<>();
+        for (int i = 0; i < DIRTY; i++)
+            dirty.put(keys.get(i), bySegment.get(0L).get(keys.get(i)));
+        jsonPath = dir.resolve("explored.nurgling.json").toString();
+        NFileUtils.writeAtomically(jsonPath, ExploredArea.gridsToJson(all).toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void jsonSaveAll() throws IOException {
+        NFileUtils.writeAtomically(jsonPath, ExploredArea.gridsToJson(all).toString());
+    }
+
+    @Benchmark
+    public boolean binarySaveDirty() throws IOException {
+        return store.save(0, dirty);
+    }
+
+    @Benchmark
+    public int jsonLoadAll() {
+        return ExploredArea.gridsFromJson(NFileUtils.readWithBackupFallback(jsonPath)).size();
+    }
+
+    @Benchmark
+    public int binaryLoadSegment() throws IOException {
+        return store.load(0).size();
+    }
+}
@@ -0,0 +1,150 @@
+package nurgling.tools;
+
+import haven.Coord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The free-space questions a bot asks of its open containers every polling tick: the first free
+ * 1x2 place, how many 2x2 items fit and how many cells are free, over {@link #containers} open
+ * inventories of 16x16 cells, each two thirds full of 1x1 and 1x2 items. Compares rebuilding the
+ * cell matrix from the item list for each question, as NInventory did, against asking the
+ * occupancy bitboard kept up to date as items come and go.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryOccupancyBench {
+    static final int W = 16, H = 16;
+
+    @Param({"30"})
+    public int containers;
+
+    /** Per container, its items as x, y, w, h. */
+    int[][][] items;
+    InventoryOccupancy[] occ;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        items = new int[containers][][];
+        occ = new InventoryOccupancy[containers];
+        for (int c = 0; c < containers; c++) {
+            InventoryOccupancy o = occ[c] = new InventoryOccupancy(W, H);
+            int n = 0;
+            int[][] list = new int[W * H][];
+            for (int y = 0; y < H; y++) {
+                for (int x = 0; x < W; x++) {
+                    if (!o.isFree(x, y) || (rnd.nextInt(3) == 0))
+                        continue;
+                    int h = ((y + 1 < H) && o.isFree(x, y + 1) && rnd.nextBoolean()) ? 2 : 1;
+                    o.place(n, x, y, 1, h);
+                    list[n++] = new int[] {x, y, 1, h};
+                }
+            }
+            items[c] = Arrays.copyOf(list, n);
+        }
+    }
+
+    @Benchmark
+    public int matrixRebuild() {
+        int r = 0;
+        for (int[][] list : items) {
+            Coord f = find(matrix(list), 2, 1);
+            r += (f == null) ? 0 : f.x;
+            r += count(matrix(list), 2, 2);
+            r += free(matrix(list));
+        }
+        return r;
+    }
+
+    @Benchmark
+    public int bitboard() {
+        int r = 0;
+        for (InventoryOccupancy o : occ) {
+            Coord f = o.findFree(1, 2);
+            r += (f == null) ? 0 : f.x;
+            r += o.countFree(2, 2);
+            r += o.freeCells();
+        }
+        return r;
+    }
+
+    static short[][] matrix(int[][] list) {
+        short[][] m = new short[H][W];
+        for (int[] it : list) {
+            for (int j = 0; j < it[3]; j++) {
+                for (int i = 0; i < it[2]; i++) {
+                    if ((it[1] + j < H) && (it[0] + i < W))
+                        m[it[1] + j][it[0] + i] = 1;
+                }
+            }
+        }
+        return m;
+    }
+
+    /* As the old NInventory.findFreeCoord, size as (rows, columns) */
+    static Coord find(short[][] m, int rows, int cols) {
+        for (int i = 0; i <= H - cols; i++) {
+            for (int j = 0; j <= W - rows; j++) {
+                if (m[i][j] == 0) {
+                    boolean free = true;
+                    for (int k = i; k < i + rows; k++) {
+                        for (int n = j; n < j + cols; n++) {
+                            if ((n >= W) || (k >= H) || (m[k][n] != 0)) {
+                                free = false;
+                                break;
+                            }
+                        }
+                    }
+                    if (free)
+                        return new Coord(j, i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /* As the old NInventory.calcNumberFreeCoord */
+    static int count(short[][] m, int rows, int cols) {
+        int n = 0;
+        for (int i = 0; i <= H - rows; i++) {
+            for (int j = 0; j <= W - cols; j++) {
+                boolean free = true;
+                for (int k = i; k < i + rows; k++) {
+                    for (int c = j; c < j + cols; c++) {
+                        if (m[k][c] != 0) {
+                            free = false;
+                            break;
+                        }
+                    }
+                }
+                if (free) {
+                    n++;
+                    for (int k = i; k < i + rows; k++) {
+                        for (int c = j; c < j + cols; c++)
+                            m[k][c] = 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    static int free(short[][] m) {
+        int n = 0;
+        for (short[] row : m) {
+            for (short c : row) {
+                if (c == 0)
+                    n++;
+            }
+        }
+        return n;
+    }
+}
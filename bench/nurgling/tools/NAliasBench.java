@@ -0,0 +1,106 @@
+package nurgling.tools;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name matching over a gob population, as {@link Finder} and the
+ * overlays do it every frame: {@link #gobs} gobs whose resource names
+ * are drawn from {@link #names} distinct names (trees, bushes, rocks,
+ * animals, buildings, containers), each tested against a set of
+ * aliases like the ones bots and overlays hold. With few distinct
+ * names every lookup is served from the shared match cache; past its
+ * capacity most lookups fall through to substring matching. The
+ * {@code fresh} case builds the alias per query, as most call sites
+ * do, paying for its construction and for hashing its key lists into
+ * the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NAliasBench {
+    static final String[] TREES = {"oak", "birch", "pine", "spruce", "maple", "linden", "alder", "ash", "elm", "willow", "appletree", "cherry", "plumtree", "yew", "larch"};
+    static final String[] BUSHES = {"arrowwood", "blackberrybush", "raspberrybush", "elderberrybush", "gooseberrybush", "hazel", "teabush", "blackcurrant", "redcurrant", "mastic"};
+    static final String[] ROCKS = {"granite", "basalt", "limestone", "sandstone", "gneiss", "quartz", "flint", "marble", "schist", "dolomite"};
+    static final String[] KRITTER = {"cattle", "sheep", "goat", "pig", "horse", "boar", "fox", "rabbit", "badger", "bear", "wolf", "lynx", "moose", "reddeer", "chicken"};
+    static final String[] OBJS = {"cupboard", "chest", "largechest", "crate", "barrel", "stockpile-board", "stockpile-block", "cheeserack", "dframe", "htable", "cauldron", "oven", "kiln", "smelter", "palisadeseg", "polebigdoor"};
+
+    static final String[][] ALIASES = {
+        {"trees"}, {"bushes"}, {"bumlings"}, {"kritter"},
+        {"cupboard", "chest", "crate", "barrel"},
+        {"stockpile"}, {"gfx/terobjs/cheeserack"}, {"dframe", "htable"},
+        {"cattle", "sheep", "goat", "pig"}, {"dead", "knock"},
+        {"palisade", "brickwall", "polewall"}, {"oven", "kiln", "smelter"},
+    };
+    static final String[][] EXCEPTIONS = {
+        {"log", "stump", "old"}, {"log", "stump"}, {}, {"dead"},
+        {}, {}, {}, {}, {}, {}, {"door"}, {},
+    };
+
+    @Param({"200", "5000"})
+    public int names;
+
+    @Param({"2000"})
+    public int gobs;
+
+    String[] population;
+    NAlias[] aliases;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(1);
+        String[] distinct = new String[names];
+        for (int i = 0; i < names; i++) {
+            String base;
+            switch (rnd.nextInt(5)) {
+                case 0: base = "gfx/terobjs/trees/" + pick(rnd, TREES) + (rnd.nextInt(4) == 0 ? (rnd.nextBoolean() ? "log" : "stump") : ""); break;
+                case 1: base = "gfx/terobjs/bushes/" + pick(rnd, BUSHES); break;
+                case 2: base = "gfx/terobjs/bumlings/" + pick(rnd, ROCKS) + rnd.nextInt(4); break;
+                case 3: { String k = pick(rnd, KRITTER); base = "gfx/kritter/" + k + "/" + k; break; }
+                default: base = "gfx/terobjs/" + pick(rnd, OBJS); break;
+            }
+            /* Past the handful of real variants, keep the names distinct. */
+            distinct[i] = (i < 200) ? base : base + "-" + i;
+        }
+        population = new String[gobs];
+        for (int i = 0; i < gobs; i++)
+            population[i] = distinct[rnd.nextInt(names)];
+        aliases = new NAlias[ALIASES.length];
+        for (int i = 0; i < ALIASES.length; i++)
+            aliases[i] = new NAlias(Arrays.asList(ALIASES[i]), Arrays.asList(EXCEPTIONS[i]));
+    }
+
+    static String pick(Random rnd, String[] from) {
+        return from[rnd.nextInt(from.length)];
+    }
+
+    @Benchmark
+    public int held() {
+        int r = 0;
+        for (String name : population) {
+            for (NAlias a : aliases) {
+                if (NParser.checkName(name, a))
+                    r++;
+            }
+        }
+        return r;
+    }
+
+    @Benchmark
+    public int fresh() {
+        int r = 0;
+        for (String name : population) {
+            for (int i = 0; i < ALIASES.length; i++) {
+                if (NParser.checkName(name, new NAlias(Arrays.asList(ALIASES[i]), Arrays.asList(EXCEPTIONS[i]))))
+                    r++;
+            }
+        }
+        return r;
+    }
+}
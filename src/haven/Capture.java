@@ -0,0 +1,336 @@
+package haven;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+/*
+ * Binary session captures: every inbound rel message, object delta
+ * and map data message of a session, with the time it arrived,
+ * written to a gzipped file for replaying offline.
+ *
+ * This is the compact counterpart of Transport.Callback.Recorder,
+ * meant for long captures of busy areas, where the text recording
+ * grows to gigabytes. A capture is the magic "HCAP" and a version
+ * byte, then records of
+ *
+ *   uvarint  microseconds since the previous record
+ *   byte     kind (K_*)
+ *
+ * followed by, for K_RMSG, the message type byte and the length
+ * prefixed payload; for K_MAP, the length prefixed payload; for
+ * K_OBJD, a flag byte (OF_*), the object ID, frame, initframe if
+ * OF_INIT is set, the number of attributes and each attribute's
+ * type and length prefixed payload, all as uvarints.
+ */
+public class Capture {
+    public static final byte[] MAGIC = {'H', 'C', 'A', 'P'};
+    public static final int VERSION = 1;
+    public static final int K_CLOSE = 0, K_RMSG = 1, K_OBJD = 2, K_MAP = 3;
+    public static final int OF_INIT = 1, OF_VIRT = 2, OF_OLD = 4, OF_REM = 8;
+
+    public static class Writer implements Transport.Callback {
+	public final DataOutputStream out;
+	private final long epoch;
+	private long last, lastflush;
+
+	public Writer(OutputStream out) throws IOException {
+	    this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out, 65536, true), 65536));
+	    this.out.write(MAGIC);
+	    this.out.write(VERSION);
+	    this.epoch = this.last = this.lastflush = System.nanoTime();
+	}
+
+	public Writer(Path path) throws IOException {
+	    this(Files.newOutputStream(path));
+	}
+
+	private void uvar(long v) throws IOException {
+	    while((v & ~0x7fL) != 0) {
+		out.write((int)((v & 0x7f) | 0x80));
+		v >>>= 7;
+	    }
+	    out.write((int)v);
+	}
+
+	private void blob(byte[] b) throws IOException {
+	    uvar(b.length);
+	    out.write(b);
+	}
+
+	private void head(int kind) throws IOException {
+	    long now = System.nanoTime();
+	    uvar((now - last) / 1000);
+	    /* Keep the rounding from drifting over long captures. */
+	    last += ((now - last) / 1000) * 1000;
+	    out.write(kind);
+	}
+
+	/* Flush about once a second, so a capture of a session that
+	 * crashes is still readable up to the crash. */
+	private void tail() throws IOException {
+	    if(last - lastflush > 1000000000L) {
+		out.flush();
+		lastflush = last;
+	    }
+	}
+
+	public synchronized void closed() {
+	    try {
+		head(K_CLOSE);
+		out.close();
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	}
+
+	public synchronized void handle(PMessage msg) {
+	    try {
+		head(K_RMSG);
+		out.write(msg.type);
+		blob(msg.bytes());
+		tail();
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	}
+
+	public synchronized void handle(OCache.ObjDelta msg) {
+	    try {
+		head(K_OBJD);
+		int fl = (msg.fl & (OF_VIRT | OF_OLD));
+		if(msg.initframe > 0) fl |= OF_INIT;
+		if(msg.rem) fl |= OF_REM;
+		out.write(fl);
+		uvar(msg.id);
+		uvar(msg.frame & 0xffffffffL);
+		if(msg.initframe > 0)
+		    uvar(msg.initframe);
+		uvar(msg.attrs.size());
+		for(OCache.AttrDelta attr : msg.attrs) {
+		    uvar(attr.type);
+		    blob(attr.bytes());
+		}
+		tail();
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	}
+
+	public synchronized void mapdata(Message msg) {
+	    try {
+		head(K_MAP);
+		blob(msg.bytes());
+		tail();
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	}
+
+	public double elapsed() {
+	    return((last - epoch) / 1e9);
+	}
+    }
+
+    /*
+     * Plays a capture back into the callbacks of a Session. start()
+     * plays it in real time on a thread of its own, as
+     * Transport.Playback does; otherwise the owner drives it with
+     * advance(), which delivers everything captured up to a given
+     * point of capture time on the calling thread, so that a loop
+     * stepping capture time by a fixed amount per frame sees the
+     * same messages in the same frames on every run.
+     */
+    public static class Replay implements Transport {
+	private final DataInputStream in;
+	private final Collection<Callback> cbs = new ArrayList<>();
+	private long time = 0, next = -1;
+	private boolean done = false;
+	public int rmsgs = 0, objds = 0, maps = 0;
+
+	public Replay(InputStream in) throws IOException {
+	    this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 65536), 65536));
+	    byte[] magic = new byte[MAGIC.length];
+	    this.in.readFully(magic);
+	    if(!Arrays.equals(magic, MAGIC))
+		throw(new IOException("not a session capture"));
+	    int ver = this.in.read();
+	    if(ver != VERSION)
+		throw(new IOException("unknown session capture version: " + ver));
+	}
+
+	public Replay(Path path) throws IOException {
+	    this(Files.newInputStream(path));
+	}
+
+	public Replay add(Callback cb) {
+	    this.cbs.add(cb);
+	    return(this);
+	}
+
+	/* Ends the replay where it is, as a connection closing would. */
+	public synchronized void close() {
+	    finish();
+	}
+
+	public void queuemsg(PMessage pmsg) {}
+	public void send(PMessage msg) {}
+
+	private long uvar() throws IOException {
+	    long ret = 0;
+	    for(int sh = 0; ; sh += 7) {
+		int b = in.readUnsignedByte();
+		ret |= (long)(b & 0x7f) << sh;
+		if((b & 0x80) == 0)
+		    return(ret);
+	    }
+	}
+
+	private byte[] blob() throws IOException {
+	    byte[] ret = new byte[Utils.iv(uvar())];
+	    in.readFully(ret);
+	    return(ret);
+	}
+
+	/* Capture time, in microseconds, of the next record, or -1
+	 * at the end of the capture. */
+	private long peek() throws IOException {
+	    if((next < 0) && !done) {
+		long dt;
+		try {
+		    dt = uvar();
+		} catch(EOFException e) {
+		    /* A capture cut short by a crash ends without a
+		     * close record. */
+		    finish();
+		    return(-1);
+		}
+		next = time + dt;
+	    }
+	    return(next);
+	}
+
+	private void finish() {
+	    if(done)
+		return;
+	    done = true;
+	    for(Callback cb : cbs)
+		cb.closed();
+	    try {
+		in.close();
+	    } catch(IOException e) {
+	    }
+	}
+
+	private void deliver() throws IOException {
+	    time = next;
+	    next = -1;
+	    int kind = in.readUnsignedByte();
+	    switch(kind) {
+	    case K_CLOSE:
+		finish();
+		break;
+	    case K_RMSG: {
+		int type = in.readUnsignedByte();
+		byte[] buf = blob();
+		rmsgs++;
+		for(Callback cb : cbs)
+		    cb.handle(new PMessage(type, buf));
+		break;
+	    }
+	    case K_OBJD: {
+		int fl = in.readUnsignedByte();
+		long id = uvar();
+		int frame = (int)uvar();
+		int initframe = ((fl & OF_INIT) != 0) ? (int)uvar() : 0;
+		int n = (int)uvar();
+		int[] types = new int[n];
+		byte[][] attrs = new byte[n][];
+		for(int i = 0; i < n; i++) {
+		    types[i] = (int)uvar();
+		    attrs[i] = blob();
+		}
+		objds++;
+		for(Callback cb : cbs) {
+		    OCache.ObjDelta delta = new OCache.ObjDelta(fl & (OF_VIRT | OF_OLD), id, frame);
+		    delta.initframe = initframe;
+		    delta.rem = (fl & OF_REM) != 0;
+		    for(int i = 0; i < n; i++)
+			delta.attrs.add(new OCache.AttrDelta(delta, types[i], attrs[i]));
+		    cb.handle(delta);
+		}
+		break;
+	    }
+	    case K_MAP: {
+		byte[] buf = blob();
+		maps++;
+		for(Callback cb : cbs)
+		    cb.mapdata(new MessageBuf(buf));
+		break;
+	    }
+	    default:
+		throw(new IOException("unexpected capture record kind: " + kind));
+	    }
+	}
+
+	/* Delivers every record captured up to t seconds into the
+	 * capture. Returns false once the capture has ended. */
+	public synchronized boolean advance(double t) {
+	    long lim = (long)(t * 1e6);
+	    try {
+		while(!done) {
+		    long nt = peek();
+		    if((nt < 0) || (nt > lim))
+			break;
+		    deliver();
+		}
+	    } catch(EOFException e) {
+		finish();
+	    } catch(IOException e) {
+		finish();
+		throw(new RuntimeException(e));
+	    }
+	    return(!done);
+	}
+
+	/* Capture time, in seconds, of the last delivered record. */
+	public synchronized double time() {
+	    return(time / 1e6);
+	}
+
+	public synchronized boolean done() {
+	    return(done);
+	}
+
+	private void play() {
+	    double epoch = Utils.rtime();
+	    try {
+		while(true) {
+		    long nt;
+		    synchronized(this) {
+			nt = peek();
+		    }
+		    if(nt < 0)
+			break;
+		    double now = Utils.rtime() - epoch;
+		    if(nt / 1e6 > now)
+			Thread.sleep((long)Math.ceil((nt / 1e6 - now) * 1000));
+		    if(!advance(nt / 1e6))
+			break;
+		}
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    } catch(InterruptedException e) {
+	    } finally {
+		synchronized(this) {
+		    finish();
+		}
+	    }
+	}
+
+	public void start() {
+	    new HackThread(this::play, "Capture playback thread").start();
+	}
+    }
+}
@@ -0,0 +1,100 @@
+package haven;
+
+import java.util.*;
+import java.io.*;
+import java.nio.file.*;
+import java.awt.Color;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Append-only store of the chat messages a channel has dropped from
+ * memory, so that they can be read back when scrolled to. Each
+ * message is kept as the rich-text source it was rendered from and
+ * its text color. The data file holds the records back to back, and
+ * the index file each record's offset as a 64-bit integer, so any
+ * run of records is found with two seeks and nothing per message is
+ * kept in memory. Both are temporary files, removed at close or
+ * exit.
+ */
+public class ChatArchive implements Closeable {
+    private final Path dpath, ipath;
+    private final RandomAccessFile data, index;
+    private int count = 0;
+
+    public static class Entry {
+	public final String text;
+	public final Color col;
+
+	public Entry(String text, Color col) {
+	    this.text = text;
+	    this.col = col;
+	}
+    }
+
+    public ChatArchive() throws IOException {
+	dpath = Files.createTempFile("chat", ".log");
+	ipath = Files.createTempFile("chat", ".idx");
+	dpath.toFile().deleteOnExit();
+	ipath.toFile().deleteOnExit();
+	data = new RandomAccessFile(dpath.toFile(), "rw");
+	index = new RandomAccessFile(ipath.toFile(), "rw");
+    }
+
+    /* Appends a message and returns its number. */
+    public synchronized int add(String text, Color col) throws IOException {
+	byte[] enc = text.getBytes(UTF_8);
+	byte[] rec = new byte[9 + enc.length];
+	rec[0] = (byte)((col == null) ? 0 : 1);
+	Utils.int32e((col == null) ? 0 : col.getRGB(), rec, 1);
+	Utils.int32e(enc.length, rec, 5);
+	System.arraycopy(enc, 0, rec, 9, enc.length);
+	long off = data.length();
+	data.seek(off);
+	data.write(rec);
+	index.seek((long)count * 8);
+	index.writeLong(off);
+	return(count++);
+    }
+
+    public synchronized int size() {
+	return(count);
+    }
+
+    /* Reads back messages from (inclusive) to to (exclusive). */
+    public synchronized List<Entry> get(int from, int to) throws IOException {
+	from = Math.max(from, 0);
+	to = Math.min(to, count);
+	List<Entry> ret = new ArrayList<>(Math.max(to - from, 0));
+	if(from >= to)
+	    return(ret);
+	index.seek((long)from * 8);
+	long start = index.readLong();
+	long end = (to < count) ? readoff(to) : data.length();
+	byte[] buf = new byte[Utils.iv(end - start)];
+	data.seek(start);
+	data.readFully(buf);
+	for(int p = 0; p < buf.length;) {
+	    boolean hascol = buf[p] != 0;
+	    int rgb = Utils.int32d(buf, p + 1);
+	    int len = Utils.int32d(buf, p + 5);
+	    ret.add(new Entry(new String(buf, p + 9, len, UTF_8), hascol ? new Color(rgb, true) : null));
+	    p += 9 + len;
+	}
+	return(ret);
+    }
+
+    private long readoff(int n) throws IOException {
+	index.seek((long)n * 8);
+	return(index.readLong());
+    }
+
+    public synchronized void close() {
+	try {
+	    data.close();
+	    index.close();
+	    Files.deleteIfExists(dpath);
+	    Files.deleteIfExists(ipath);
+	} catch(IOException e) {
+	}
+    }
+}
@@ -127,7 +127,15 @@ public class ChatUI extends Widget
     }
 
     public static abstract class Channel extends Widget {
+	public static final Config.Variable<Integer> memlines = Config.Variable.propi("haven.chatlines", 500);
+	/* The messages held in memory, the newest maxmem or so of
+	 * them, plus any scrolled back to. Older ones are moved to the
+	 * archive, and read back from it when scrolled to. */
 	public final List<RenderedMessage> rmsgs = new ArrayList<>();
+	public int maxmem = memlines.get();
+	private int base = 0;
+	private ChatArchive archive = null;
+	private boolean archfail = false;
 	public int urgency = 0;
 	private final Scrollbar sb;
 	public final IButton cb;
@@ -279,6 +287,8 @@ public class ChatUI extends Widget
 	    public final int idx;
 	    private Indir<Text> data;
 	    private Text text;
+	    private String src;
+	    private Color col;
 	    RenderedMessage snext = null, sprev = null;
 	    double lseen = 0;
 	    int w, y;
@@ -324,6 +334,7 @@ public class ChatUI extends Widget
 		lseen = ui.lasttick;
 		if(text == null) {
 		    text = data().get();
+		    keepsrc(text);
 		} else {
 		    sunlink();
 		}
@@ -331,6 +342,24 @@ public class ChatUI extends Widget
 		return(text);
 	    }
 
+	    /* What the archive needs to render the message again. */
+	    private void keepsrc(Text text) {
+		src = text.text;
+		col = null;
+		if(text instanceof RichText) {
+		    for(RichText.Part part = ((RichText)text).parts; part != null; part = part.next) {
+			if(part instanceof RichText.TextPart) {
+			    Object fg = ((RichText.TextPart)part).ti().getAttribute(TextAttribute.FOREGROUND);
+			    if(fg instanceof Color)
+				col = (Color)fg;
+			    break;
+			}
+		    }
+		} else {
+		    src = RichText.Parser.quote(src);
+		}
+	    }
+
 	    private Coord sz = null;
 	    public int h() {
 		if(sz == null)
@@ -381,6 +410,23 @@ public class ChatUI extends Widget
 	    }
 	}
 
+	public static class ArchivedMessage extends Message {
+	    public final String src;
+	    public final Color col;
+
+	    public ArchivedMessage(String src, Color col) {
+		this.src = src;
+		this.col = col;
+	    }
+
+	    public Indir<Text> render(int w) {
+		if(col == null)
+		    return(() -> fnd.render(src, w));
+		else
+		    return(() -> fnd.render(src, w, TextAttribute.FOREGROUND, col));
+	    }
+	}
+
 	public static class SimpleMessage extends Message {
 	    public String text;
 	    public final Color col;
@@ -409,7 +455,7 @@ public class ChatUI extends Widget
 
 	public void append(Message msg, int urgency) {
 	    synchronized(rmsgs) {
-		RenderedMessage rm = new RenderedMessage(msg, rmsgs.size(), iw());
+		RenderedMessage rm = new RenderedMessage(msg, base + rmsgs.size(), iw());
 		if(rmsgs.isEmpty()) {
 		    rm.y = 0;
 		} else {
@@ -421,6 +467,7 @@ public class ChatUI extends Widget
 		sb.max = rm.y + rm.h() - ih();
 		if(b)
 		    sb.val = sb.max;
+		trim();
 	    }
 	    getparent(ChatUI.class).notify(this, msg, urgency);
 	    updurgency(Math.max(this.urgency, urgency));
@@ -434,6 +481,77 @@ public class ChatUI extends Widget
 	    append(new SimpleMessage(line, col));
 	}
 
+	/* Number of messages ever appended to this channel. */
+	public int count() {
+	    synchronized(rmsgs) {
+		return(base + rmsgs.size());
+	    }
+	}
+
+	/* The message numbered idx, if it is held in memory. */
+	public RenderedMessage rendered(int idx) {
+	    synchronized(rmsgs) {
+		int i = idx - base;
+		return(((i >= 0) && (i < rmsgs.size())) ? rmsgs.get(i) : null);
+	    }
+	}
+
+	/* Moves the oldest messages beyond maxmem to the archive,
+	 * unless they are in view or selected. */
+	private void trim() {
+	    while(!archfail && (rmsgs.size() > Math.max(maxmem, 1))) {
+		RenderedMessage rm = rmsgs.get(0);
+		if(rm.y + rm.h() > sb.val)
+		    break;
+		if((selstart != null) && (selstart.rm.idx <= rm.idx))
+		    break;
+		try {
+		    if(archive == null)
+			archive = new ChatArchive();
+		    if(rm.idx >= archive.size())
+			archive.add((rm.src == null) ? "" : rm.src, rm.col);
+		} catch(IOException e) {
+		    new Warning(e, "could not archive chat messages, keeping them in memory").issue();
+		    archfail = true;
+		    break;
+		}
+		rm.invalidate();
+		rmsgs.remove(0);
+		base++;
+	    }
+	    if(!rmsgs.isEmpty())
+		sb.min = rmsgs.get(0).y;
+	}
+
+	/* Reads up to n archived messages back in front of the held
+	 * ones. */
+	private void restore(int n) {
+	    synchronized(rmsgs) {
+		if((archive == null) || (base == 0))
+		    return;
+		int from = Math.max(base - n, 0);
+		List<ChatArchive.Entry> ents;
+		try {
+		    ents = archive.get(from, base);
+		} catch(IOException e) {
+		    new Warning(e, "could not read archived chat messages").issue();
+		    return;
+		}
+		List<RenderedMessage> add = new ArrayList<>(ents.size());
+		for(ChatArchive.Entry ent : ents)
+		    add.add(new RenderedMessage(new ArchivedMessage(ent.text, ent.col), from + add.size(), iw()));
+		int y = rmsgs.isEmpty() ? 0 : rmsgs.get(0).y;
+		for(int i = add.size() - 1; i >= 0; i--) {
+		    RenderedMessage rm = add.get(i);
+		    y -= rm.h();
+		    rm.y = y;
+		}
+		rmsgs.addAll(0, add);
+		base = from;
+		sb.min = y;
+	    }
+	}
+
 	public int iw() {
 	    return(sz.x - sb.sz.x);
 	}
@@ -547,6 +665,8 @@ public class ChatUI extends Widget
 
 	public void tick(double dt) {
 	    super.tick(dt);
+	    if((sb.val <= sb.min) && (base > 0))
+		restore(50);
 	    double ty = sb.val;
 	    dy = ty + (Math.pow(2, -dt * 40) * (dy - ty));
 	}
@@ -622,11 +742,11 @@ public class ChatUI extends Widget
 	};
 
 	public CharPos charat(Coord c) {
-	    if(c.y < -sb.val) {
-		synchronized(rmsgs) {
-		    if(rmsgs.isEmpty())
-			return(null);
-		    RenderedMessage rm = rmsgs.get(0);
+	    synchronized(rmsgs) {
+		if(rmsgs.isEmpty())
+		    return(null);
+		RenderedMessage rm = rmsgs.get(0);
+		if(sb.val + c.y < rm.y) {
 		    if(!(rm.text() instanceof RichText))
 			return(null);
 		    RichText.TextPart fp = null;
@@ -739,7 +859,7 @@ public class ChatUI extends Widget
 	    StringBuilder buf = new StringBuilder();
 	    synchronized(rmsgs) {
 		for(int mi = start.rm.idx; mi <= end.rm.idx; mi++) {
-		    RenderedMessage rm = rmsgs.get(mi);
+		    RenderedMessage rm = rmsgs.get(mi - base);
 		    if(!(rm.text() instanceof RichText))
 			continue;
 		    RichText rt = (RichText)rm.text();
@@ -873,6 +993,15 @@ public class ChatUI extends Widget
 	    }
 	}
 
+	public void destroy() {
+	    synchronized(rmsgs) {
+		if(archive != null)
+		    archive.close();
+		archive = null;
+	    }
+	    super.destroy();
+	}
+
 	public abstract String name();
 
 	public boolean selmousedown(Coord c, int btn) {return(false);}
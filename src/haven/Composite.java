@@ -92,6 +92,8 @@ public class Composite extends Drawable implements EquipTarget {
 	    try {
 		comp.chmod(nmod);
 		nmod = null;
+		/* Nurgling: overlay tasks may be waiting for the model */
+		gob.ngob.overlayWork(nurgling.NGob.OW_TASKS);
 	    } catch(Loading l) {
 	    }
 	}
@@ -68,12 +68,7 @@ public class Composited implements RenderTree.Node, EquipTarget {
 	}
 
 	private void rebuild() {
-	    pose.reset();
-	    for(PoseMod m : mods)
-		m.apply(pose);
-	    if(ipold > 0.0f)
-		pose.blend(old, ipold);
-	    pose.gbuild();
+	    pose.build(mods, old, ipold);
 	}
 
 	public void set(float ipol) {
@@ -130,8 +130,19 @@ public class Connection implements Transport {
 	}
 
 	public synchronized byte[] decrypt(byte[] msg) throws DecryptException {
+	    byte[] ret = new byte[Math.max(msg.length - 3 - 16, 0)];
+	    int len = decrypt(msg, 0, msg.length, ret);
+	    return((len == ret.length) ? ret : Arrays.copyOf(ret, len));
+	}
+
+	/* Decrypts len bytes of msg from off into the start of out,
+	 * which must hold at least len - 19 bytes, and returns the
+	 * length of the plaintext. */
+	public synchronized int decrypt(byte[] msg, int off, int len, byte[] out) throws DecryptException {
+	    if(len < 3)
+		throw(new DecryptException("short packet"));
 	    long mseq = rseqs.last();
-	    long loseq = (msg[0] & 0xff) | ((msg[1] & 0xff) << 8) | ((msg[2] & 0xff) << 16);
+	    long loseq = (msg[off] & 0xff) | ((msg[off + 1] & 0xff) << 8) | ((msg[off + 2] & 0xff) << 16);
 	    long seq = (mseq & ~0xffffffL) | loseq;
 	    if((Utils.sb(seq - mseq, 24) > 0) && (seq < mseq))
 		seq += 0x1000000L;
@@ -146,10 +157,10 @@ public class Connection implements Transport {
 	    } catch(InvalidKeyException | InvalidAlgorithmParameterException e) {
 		throw(new AssertionError(e));
 	    }
-	    byte[] ret;
+	    int ret;
 	    try {
-		ret = cipher.doFinal(msg, 3, msg.length - 3);
-	    } catch(IllegalBlockSizeException e) {
+		ret = cipher.doFinal(msg, off + 3, len - 3, out, 0);
+	    } catch(IllegalBlockSizeException | ShortBufferException e) {
 		throw(new AssertionError(e));
 	    } catch(BadPaddingException e) {
 		throw(new DecryptException("decryption failed", e));
@@ -170,9 +181,15 @@ public class Connection implements Transport {
 	    return(ret);
 	}
 
+	/* As recv(), the returned message is a view of a buffer
+	 * reused by the next call. */
+	private final byte[] decbuf = new byte[65536];
 	public PMessage decrypt(MessageBuf msg) throws DecryptException {
-	    byte[] dec = decrypt(msg.bytes());
-	    return(new PMessage(dec[0], dec, 1, dec.length - 1));
+	    int len = decrypt(msg.rbuf, msg.rh, msg.rt - msg.rh, decbuf);
+	    msg.rh = msg.rt;
+	    if(len < 1)
+		throw(new DecryptException("empty packet"));
+	    return(new PMessage(decbuf[0], decbuf, 1, len - 1));
 	}
     }
 
@@ -283,6 +300,11 @@ public class Connection implements Transport {
 	return(alive && (worker != null));
     }
 
+    /* Datagrams are read into this one buffer, and the message
+     * recv() returns is a view of it, good until the next call.
+     * Everything a received message is handed to on the worker
+     * thread copies out what it keeps, as MSG_REL and MSG_OBJDATA
+     * parsing and MCache.mapdata() do. */
     private final ByteBuffer recvbuf = ByteBuffer.allocate(65536);
     private PMessage recv() throws IOException {
 	recvbuf.clear();
@@ -294,11 +316,10 @@ public class Connection implements Transport {
 	} else {
 	    recvbuf.flip();
 	    byte type = recvbuf.get();
-	    byte[] buf = new byte[recvbuf.remaining()];
-	    recvbuf.get(buf);
+	    int len = recvbuf.remaining();
 	    stats.prx++;
-	    stats.brx += buf.length;
-	    return(new PMessage(type, buf));
+	    stats.brx += len;
+	    return(new PMessage(type, recvbuf.array(), recvbuf.arrayOffset() + recvbuf.position(), len));
 	}
     }
 
@@ -458,28 +479,43 @@ public class Connection implements Transport {
 	private double now, lasttx;
 	private short rseq, ackseq;
 	private double acktime = -1;
-	private byte[] fragbuf = null;
-	private int fragtype;
+	/* Fragments of the rel message being reassembled, appended to a
+	 * buffer grown geometrically and kept for the next message. */
+	private byte[] fragbuf = new byte[1024];
+	private int fraglen = 0, fragtype = -1;
+
+	private void fragadd(Message msg) {
+	    while(msg.underflow(65536));
+	    int len = msg.rt - msg.rh;
+	    if(fraglen + len > fragbuf.length)
+		fragbuf = Arrays.copyOf(fragbuf, Math.max(fragbuf.length * 2, fraglen + len));
+	    System.arraycopy(msg.rbuf, msg.rh, fragbuf, fraglen, len);
+	    fraglen += len;
+	    msg.rh = msg.rt;
+	}
 
 	private void handlerel(PMessage msg) {
 	    if(msg.type == RMessage.RMSG_FRAGMENT) {
 		int head = msg.uint8();
 		if((head & 0x80) == 0) {
-		    if(fragbuf != null)
+		    if(fragtype >= 0)
 			throw(new Session.MessageException("Got start fragment while still defragmenting", msg));
-		    fragbuf = msg.bytes();
+		    fraglen = 0;
+		    fragadd(msg);
 		    fragtype = head;
 		} else {
 		    if((head == 0x80) || (head == 0x81)) {
-			byte[] frag = msg.bytes();
-			byte[] curbuf = fragbuf;
-			byte[] newbuf = new byte[curbuf.length + frag.length];
-			System.arraycopy(curbuf, 0, newbuf, 0, curbuf.length);
-			System.arraycopy(frag, 0, newbuf, curbuf.length, frag.length);
-			fragbuf = newbuf;
+			if(fragtype < 0)
+			    throw(new Session.MessageException("Got continuation fragment while not defragmenting", msg));
+			fragadd(msg);
 			if(head == 0x81) {
-			    PMessage nmsg = new PMessage(fragtype, fragbuf);
-			    fragbuf = null;
+			    /* The message is passed on and may be kept, so it
+			     * gets its own copy. */
+			    PMessage nmsg = new PMessage(fragtype, Arrays.copyOf(fragbuf, fraglen));
+			    fragtype = -1;
+			    fraglen = 0;
+			    if(fragbuf.length > (1 << 20))
+				fragbuf = new byte[1024];
 			    handlerel(nmsg);
 			}
 		    } else {
@@ -76,6 +76,13 @@ public class Defrag {
 	add(blob, 0, blob.length, off);
     }
 
+    /* Adds the rest of msg without copying it out first. */
+    public void add(Message msg, int off) {
+	while(msg.underflow(65536));
+	add(msg.rbuf, msg.rh, msg.rt - msg.rh, off);
+	msg.rh = msg.rt;
+    }
+
     public boolean done() {
 	for(int i = 0; i < ms1.length; i++) {
 	    if(ms1[i] != -1)
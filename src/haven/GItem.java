@@ -365,6 +365,8 @@ public abstract class GItem extends AWidget implements ItemInfo.SpriteOwner, GSp
 		spr = this.spr = GSprite.create(this, res.get(), sdt.clone());
 	    } catch(Loading l) {
 	    }
+	    if((spr != null) && (parent instanceof Inventory))
+		((Inventory)parent).itemresized(this);
 	}
 	return(spr);
     }
@@ -411,6 +413,8 @@ public abstract class GItem extends AWidget implements ItemInfo.SpriteOwner, GSp
 		sdt = (args.length > 1) ? new MessageBuf((byte[])args[1]) : MessageBuf.nil;
 		spr = null;
 	    }
+	    if(parent instanceof Inventory)
+		((Inventory)parent).itemresized(this);
 	} else if(name == "tt") {
 	    info = null;
 	    rawinfo = new ItemInfo.Raw(args);
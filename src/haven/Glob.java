@@ -234,7 +234,11 @@ public class Glob {
 		double years = (n < a.length) ? Utils.dv(a[n++]) : 0.5;
 		double ym = (n < a.length) ? Utils.dv(a[n++]) : 0.5;
 		double md = (n < a.length) ? Utils.dv(a[n++]) : 0.5;
+		Astronomy prev = ast;
 		ast = new Astronomy(dt, mp, yt, night, mc, is, sp, sd, years, ym, md);
+		/* Nurgling: LP markers depend on the season */
+		if((prev == null) || (prev.is != is))
+		    nurgling.tools.HarvestState.seasonChanged();
 	    } else if(t == "light") {
 		synchronized(this) {
 		    tlightamb = (Color)a[n++];
@@ -0,0 +1,505 @@
+package haven;
+
+import java.util.*;
+import java.awt.Font;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.FontMetrics;
+import java.awt.font.TextAttribute;
+import java.awt.image.*;
+import haven.render.*;
+import haven.render.DataBuffer;
+
+/*
+ * Glyphs of a Text.Foundry, rasterized once each into a shared
+ * texture, so that labels which change often or come in great
+ * numbers can be drawn without rendering each string through AWT
+ * and uploading it as a texture of its own.
+ *
+ * Glyphs are drawn white, so that their alpha is their coverage,
+ * and packed in shelves onto a page 512 pixels wide which grows
+ * downwards as needed. A string is laid out once, into its glyphs
+ * and their pen positions, and kept in a small LRU cache. A Label
+ * draws a laid out string as one quad per glyph, all in a single
+ * draw call against the page texture, tinted with its color;
+ * compose() blits the same glyphs into an image instead, for
+ * callers that need one, and gives the same pixels as
+ * Foundry.render().
+ *
+ * An atlas may also be made to outline its glyphs as
+ * PUtils.BlurFurn outlines a string, by baking, next to each glyph,
+ * its coverage grown and blurred. A label then draws the outlines of
+ * all its glyphs in the outline color first and the glyphs over
+ * them. Since the blur is taken per glyph rather than over the whole
+ * string, outlines differ from BlurFurn's slightly where those of
+ * neighbouring glyphs overlap.
+ *
+ * Adding glyphs uploads only the rows of the page they were drawn
+ * into; only a page that has grown is uploaded anew.
+ *
+ * Only strings that AWT would render glyph by glyph can be laid out
+ * this way. Complex scripts, surrogate pairs, kerned or ligated
+ * fonts, and glyphs that no longer fit on a full page, are left to
+ * Foundry.render(), which tex() falls back to by itself.
+ */
+public class GlyphAtlas {
+    public static final int WIDTH = 512, MAXHEIGHT = 2048, LAYOUTS = 1024;
+    public final Font font;
+    public final boolean aa;
+    public final FontMetrics m;
+    public final int grad, brad;
+    private final int ascent, height, marg;
+    private final Map<Character, Glyph> glyphs = new HashMap<>();
+    private final Map<String, Layout> layouts = new LinkedHashMap<String, Layout>(16, 0.75f, true) {
+	    protected boolean removeEldestEntry(Map.Entry<String, Layout> eldest) {
+		return(size() > LAYOUTS);
+	    }
+	};
+    private final boolean simple;
+    private BufferedImage page;
+    private WritableRaster raster;
+    private int shx = 0, shy = 0, shh = 0;
+    private Texture2D tex = null;
+    private ColorTex st = null;
+    /* The rows of the page changed since it was last uploaded. */
+    private int dirty0 = 0, dirty1 = 0;
+
+    public static class Glyph {
+	public final char c;
+	public final int adv;
+	/* Offset from the pen position at the top of the line, and
+	 * place on the page; an empty glyph has a zero size. */
+	public final int ox, oy, x, y, w, h;
+	/* Place of the outline on the page, if the atlas outlines its
+	 * glyphs. It is offset from the glyph by the outline margin. */
+	public final int olx, oly, olw, olh;
+
+	Glyph(char c, int adv, int ox, int oy, int x, int y, int w, int h, int olx, int oly, int olw, int olh) {
+	    this.c = c; this.adv = adv;
+	    this.ox = ox; this.oy = oy;
+	    this.x = x; this.y = y; this.w = w; this.h = h;
+	    this.olx = olx; this.oly = oly; this.olw = olw; this.olh = olh;
+	}
+    }
+
+    public static class Layout {
+	public final String text;
+	public final Glyph[] glyphs;
+	/* Pen positions, including the outline margin. */
+	public final int[] pen;
+	public final Coord sz;
+
+	Layout(String text, Glyph[] glyphs, int[] pen, Coord sz) {
+	    this.text = text;
+	    this.glyphs = glyphs;
+	    this.pen = pen;
+	    this.sz = sz;
+	}
+    }
+
+    /* An atlas whose glyphs are outlined as by a PUtils.BlurFurn
+     * with the same grad and brad. */
+    public GlyphAtlas(Font font, boolean aa, int grad, int brad) {
+	this.font = font;
+	this.aa = aa;
+	this.grad = grad;
+	this.brad = brad;
+	this.marg = grad + brad;
+	Graphics2D g = TexI.mkbuf(new Coord(1, 1)).createGraphics();
+	g.setFont(font);
+	this.m = g.getFontMetrics();
+	g.dispose();
+	this.ascent = m.getLeading() + m.getAscent();
+	this.height = m.getHeight();
+	Map<TextAttribute, ?> attrs = font.getAttributes();
+	this.simple = (attrs.get(TextAttribute.KERNING) == null) && (attrs.get(TextAttribute.LIGATURES) == null);
+	int rows = (marg > 0) ? 8 : 4;
+	this.page = TexI.mkbuf(new Coord(WIDTH, Tex.nextp2(Math.max((height + (marg * 2)) * rows, 64))));
+	this.raster = page.getRaster();
+	/* Most labels are mostly ASCII, so have it ready rather than
+	 * growing the page, and uploading it, a glyph at a time. */
+	for(char c = 0x20; c < 0x7f; c++)
+	    glyph(c);
+    }
+
+    public GlyphAtlas(Font font, boolean aa) {
+	this(font, aa, 0, 0);
+    }
+
+    public GlyphAtlas(Text.Foundry fnd) {
+	this(fnd.font, fnd.aa);
+    }
+
+    public boolean outlined() {
+	return(marg > 0);
+    }
+
+    private Glyph rasterize(char c) {
+	int adv = m.charWidth(c);
+	/* Glyphs may reach outside of their advance and line, so
+	 * draw with a margin and crop to what was drawn. */
+	int pad = height;
+	int cw = adv + (pad * 2), ch = height + (pad * 2);
+	BufferedImage buf = TexI.mkbuf(new Coord(cw, ch));
+	Graphics2D g = buf.createGraphics();
+	if(aa)
+	    Utils.AA(g);
+	g.setFont(font);
+	g.setColor(Color.WHITE);
+	g.drawString(String.valueOf(c), pad, pad + ascent);
+	g.dispose();
+	WritableRaster src = buf.getRaster();
+	int x0 = cw, y0 = ch, x1 = -1, y1 = -1;
+	int[] a = new int[cw];
+	for(int y = 0; y < ch; y++) {
+	    src.getSamples(0, y, cw, 1, 3, a);
+	    for(int x = 0; x < cw; x++) {
+		if(a[x] != 0) {
+		    if(x < x0) x0 = x;
+		    if(x > x1) x1 = x;
+		    if(y < y0) y0 = y;
+		    if(y > y1) y1 = y;
+		}
+	    }
+	}
+	if(x1 < 0)
+	    return(new Glyph(c, adv, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0));
+	int w = x1 + 1 - x0, h = y1 + 1 - y0;
+	Raster crop = src.createChild(x0, y0, w, h, 0, 0, null);
+	Coord olpos = Coord.z;
+	int olw = 0, olh = 0;
+	if(marg > 0) {
+	    /* The same mask as BlurFurn's, of this glyph alone, white
+	     * so that its alpha is the outline's coverage. */
+	    WritableRaster ol = PUtils.blurmask(crop, grad, brad, Color.WHITE);
+	    olw = ol.getWidth();
+	    olh = ol.getHeight();
+	    if((olpos = place(olw, olh)) == null)
+		return(null);
+	    raster.setRect(olpos.x, olpos.y, ol);
+	    changed(olpos.y, olpos.y + olh);
+	}
+	Coord pos = place(w, h);
+	if(pos == null)
+	    return(null);
+	raster.setRect(pos.x, pos.y, crop);
+	changed(pos.y, pos.y + h);
+	return(new Glyph(c, adv, x0 - pad, y0 - pad, pos.x, pos.y, w, h, olpos.x, olpos.y, olw, olh));
+    }
+
+    private void changed(int y0, int y1) {
+	if(dirty1 <= dirty0) {
+	    dirty0 = y0;
+	    dirty1 = y1;
+	} else {
+	    dirty0 = Math.min(dirty0, y0);
+	    dirty1 = Math.max(dirty1, y1);
+	}
+    }
+
+    /* Finds room for a w by h glyph, with a pixel of clearance so
+     * that filtering never bleeds between glyphs. */
+    private Coord place(int w, int h) {
+	if(w + 1 > WIDTH)
+	    return(null);
+	if(shx + w + 1 > WIDTH) {
+	    shy += shh;
+	    shx = 0;
+	    shh = 0;
+	}
+	while(shy + h + 1 > page.getHeight()) {
+	    if(page.getHeight() * 2 > MAXHEIGHT)
+		return(null);
+	    BufferedImage npage = TexI.mkbuf(new Coord(WIDTH, page.getHeight() * 2));
+	    npage.getRaster().setRect(raster);
+	    page = npage;
+	    raster = npage.getRaster();
+	}
+	Coord ret = Coord.of(shx, shy);
+	shx += w + 1;
+	shh = Math.max(shh, h + 1);
+	return(ret);
+    }
+
+    private Glyph glyph(char c) {
+	Glyph ret = glyphs.get(c);
+	if(ret == null) {
+	    if((ret = rasterize(c)) == null)
+		return(null);
+	    glyphs.put(c, ret);
+	}
+	return(ret);
+    }
+
+    private boolean simple(String text) {
+	if(!simple)
+	    return(false);
+	for(int i = 0; i < text.length(); i++) {
+	    if(Character.isSurrogate(text.charAt(i)))
+		return(false);
+	}
+	char[] cs = text.toCharArray();
+	return(!Font.textRequiresLayout(cs, 0, cs.length));
+    }
+
+    /* Returns the layout of text, or null if it cannot be drawn
+     * from the atlas. */
+    public synchronized Layout layout(String text) {
+	Layout ret = layouts.get(text);
+	if(ret != null)
+	    return(ret);
+	if(!simple(text))
+	    return(null);
+	Glyph[] gs = new Glyph[text.length()];
+	int[] pen = new int[text.length()];
+	int x = marg;
+	for(int i = 0; i < gs.length; i++) {
+	    if((gs[i] = glyph(text.charAt(i))) == null)
+		return(null);
+	    pen[i] = x;
+	    x += gs[i].adv;
+	}
+	ret = new Layout(text, gs, pen, Coord.of(Math.max(m.stringWidth(text), 1) + (marg * 2), height + (marg * 2)));
+	layouts.put(text, ret);
+	return(ret);
+    }
+
+    private FillBuffer fill(Texture.Image<?> img, Environment env, int from, int to) {
+	FillBuffer buf = env.fillbuf(img, from, to);
+	synchronized(this) {
+	    /* The page may have grown since the texture was made,
+	     * but only ever at the bottom. */
+	    buf.push().put(((DataBufferByte)raster.getDataBuffer()).getData(), from, to - from);
+	}
+	return(buf);
+    }
+
+    /* The page as a texture. Rows changed since the last call are
+     * uploaded through out; a page that has grown since is
+     * replaced by a new texture. */
+    public ColorTex st(Render out) {
+	Texture2D upd;
+	int from, to;
+	synchronized(this) {
+	    if((tex == null) || (tex.h != page.getHeight())) {
+		if(st != null)
+		    st.data.dispose();
+		VectorFormat fmt = new VectorFormat(4, NumberFormat.UNORM8);
+		tex = new Texture2D(WIDTH, page.getHeight(), DataBuffer.Usage.STATIC, fmt, fmt,
+				    (img, env) -> (img.level == 0) ? fill(img, env, 0, img.size()) : null);
+		tex.desc(this);
+		Texture2D.Sampler2D data = new Texture2D.Sampler2D(tex);
+		data.magfilter(Texture.Filter.NEAREST).minfilter(Texture.Filter.NEAREST);
+		st = new ColorTex(data);
+		dirty0 = dirty1 = 0;
+		return(st);
+	    }
+	    if(dirty1 <= dirty0)
+		return(st);
+	    upd = tex;
+	    from = dirty0 * WIDTH * 4;
+	    to = dirty1 * WIDTH * 4;
+	    dirty0 = dirty1 = 0;
+	}
+	/* Outside the lock, since the renderer may have to prepare
+	 * the texture, which fills it from the page in turn. */
+	out.update(upd.image(0), (DataBuffer.PartFiller<Texture.Image<Texture2D>>)this::fill, from, to);
+	return(st);
+    }
+
+    /* Blits one glyph, or its outline, from the page into dst at
+     * (gx, gy), source over what is already there, as a label is
+     * blended when drawn. */
+    private void blit(WritableRaster dst, int px, int py, int pw, int ph, int gx, int gy, Color col) {
+	int r = col.getRed(), g = col.getGreen(), b = col.getBlue(), ca = col.getAlpha();
+	int x0 = Math.max(gx, 0), x1 = Math.min(gx + pw, dst.getWidth());
+	int y0 = Math.max(gy, 0), y1 = Math.min(gy + ph, dst.getHeight());
+	int w = x1 - x0;
+	if(w <= 0)
+	    return;
+	int[] cov = new int[w], dc = new int[w * 4];
+	for(int y = y0; y < y1; y++) {
+	    raster.getSamples(px + (x0 - gx), py + (y - gy), w, 1, 3, cov);
+	    dst.getPixels(x0, y, w, 1, dc);
+	    for(int o = 0; o < w; o++) {
+		if(cov[o] == 0)
+		    continue;
+		int sa = (cov[o] * ca + 127) / 255, pa = dc[(o * 4) + 3];
+		int p = o * 4;
+		if(pa == 0) {
+		    dc[p] = r; dc[p + 1] = g; dc[p + 2] = b;
+		    dc[p + 3] = sa;
+		} else {
+		    /* The color blended as PUtils.alphablit blends
+		     * it, which keeps a single color exact. */
+		    dc[p] = ((r * sa) + (dc[p] * (255 - sa))) / 255;
+		    dc[p + 1] = ((g * sa) + (dc[p + 1] * (255 - sa))) / 255;
+		    dc[p + 2] = ((b * sa) + (dc[p + 2] * (255 - sa))) / 255;
+		    dc[p + 3] = sa + ((pa * (255 - sa) + 127) / 255);
+		}
+	    }
+	    dst.setPixels(x0, y, w, 1, dc);
+	}
+    }
+
+    /* Draws a layout into a new image, colored as Foundry.render()
+     * would have colored it, and outlined in ocol as BlurFurn would
+     * have outlined it, if the atlas outlines its glyphs and ocol is
+     * not null. */
+    public BufferedImage compose(Layout l, Color col, Color ocol) {
+	BufferedImage ret = TexI.mkbuf(l.sz);
+	WritableRaster dst = ret.getRaster();
+	synchronized(this) {
+	    if((marg > 0) && (ocol != null)) {
+		for(int i = 0; i < l.glyphs.length; i++) {
+		    Glyph gl = l.glyphs[i];
+		    blit(dst, gl.olx, gl.oly, gl.olw, gl.olh, l.pen[i] + gl.ox - marg, gl.oy, ocol);
+		}
+	    }
+	    for(int i = 0; i < l.glyphs.length; i++) {
+		Glyph gl = l.glyphs[i];
+		blit(dst, gl.x, gl.y, gl.w, gl.h, l.pen[i] + gl.ox, marg + gl.oy, col);
+	    }
+	}
+	return(ret);
+    }
+
+    public BufferedImage compose(Layout l, Color col) {
+	return(compose(l, col, null));
+    }
+
+    /* Renders text into an image, through the atlas if possible. */
+    public BufferedImage render(String text, Color col, Text.Foundry fallback) {
+	Layout l = layout(text);
+	if(l == null)
+	    return(fallback.render(text, col).img);
+	return(compose(l, col));
+    }
+
+    /* Renders text into an image, outlined, through the atlas if
+     * possible; fallback is the furnace that outlines it otherwise. */
+    public BufferedImage render(String text, Color col, Color ocol, Text.Forge fallback) {
+	Layout l = layout(text);
+	if(l == null)
+	    return(fallback.render(text).img);
+	return(compose(l, col, ocol));
+    }
+
+    /* Returns a texture of text in the given color, drawn from the
+     * atlas if possible, and rendered by fallback if not. */
+    public Tex tex(String text, Color col, Text.Foundry fallback) {
+	Layout l = layout(text);
+	if(l == null)
+	    return(new TexI(fallback.render(text, col).img));
+	return(new Label(l, col));
+    }
+
+    /* Like tex(text, col, fallback), but outlined in ocol; fallback
+     * is the furnace that outlines it otherwise. */
+    public Tex tex(String text, Color col, Color ocol, Text.Forge fallback) {
+	Layout l = layout(text);
+	if(l == null)
+	    return(new TexI(fallback.render(text).img));
+	return(new Label(l, col, ocol));
+    }
+
+    public class Label implements Tex {
+	public final Layout layout;
+	public final Color col, ocol;
+
+	public Label(Layout layout, Color col, Color ocol) {
+	    this.layout = layout;
+	    this.col = col;
+	    this.ocol = ocol;
+	}
+
+	public Label(Layout layout, Color col) {
+	    this(layout, col, null);
+	}
+
+	public Coord sz() {return(layout.sz);}
+
+	/* The quads of either the outlines or the glyphs of the
+	 * layout, mapped onto the destination quad as TexI would map
+	 * the label, and clipped to the requested part. */
+	private int quads(float[] data, boolean outline, Coord tdim, float[] gc, float[] tc) {
+	    float ix = 1.0f / tdim.x, iy = 1.0f / tdim.y;
+	    float sx = (gc[2] - gc[0]) / (tc[2] - tc[0]), sy = (gc[5] - gc[1]) / (tc[5] - tc[1]);
+	    float cl = Math.min(tc[0], tc[2]), cr = Math.max(tc[0], tc[2]);
+	    float cu = Math.min(tc[1], tc[5]), cb = Math.max(tc[1], tc[5]);
+	    Layout l = layout;
+	    int p = 0;
+	    for(int i = 0; i < l.glyphs.length; i++) {
+		Glyph gl = l.glyphs[i];
+		float x0, y0, x1, y1, u0, v0;
+		if(outline) {
+		    if(gl.olw == 0)
+			continue;
+		    x0 = l.pen[i] + gl.ox - marg; y0 = gl.oy;
+		    x1 = x0 + gl.olw; y1 = y0 + gl.olh;
+		    u0 = gl.olx - x0; v0 = gl.oly - y0;
+		} else {
+		    if(gl.w == 0)
+			continue;
+		    x0 = l.pen[i] + gl.ox; y0 = marg + gl.oy;
+		    x1 = x0 + gl.w; y1 = y0 + gl.h;
+		    u0 = gl.x - x0; v0 = gl.y - y0;
+		}
+		x0 = Math.max(x0, cl); x1 = Math.min(x1, cr);
+		y0 = Math.max(y0, cu); y1 = Math.min(y1, cb);
+		if((x0 >= x1) || (y0 >= y1))
+		    continue;
+		float gx0 = gc[0] + (x0 - tc[0]) * sx, gx1 = gc[0] + (x1 - tc[0]) * sx;
+		float gy0 = gc[1] + (y0 - tc[1]) * sy, gy1 = gc[1] + (y1 - tc[1]) * sy;
+		float tu0 = (x0 + u0) * ix, tu1 = (x1 + u0) * ix;
+		float tv0 = (y0 + v0) * iy, tv1 = (y1 + v0) * iy;
+		p = vertex(data, p, gx0, gy0, tu0, tv0);
+		p = vertex(data, p, gx1, gy0, tu1, tv0);
+		p = vertex(data, p, gx0, gy1, tu0, tv1);
+		p = vertex(data, p, gx1, gy0, tu1, tv0);
+		p = vertex(data, p, gx1, gy1, tu1, tv1);
+		p = vertex(data, p, gx0, gy1, tu0, tv1);
+	    }
+	    return(p);
+	}
+
+	private void draw(GOut g, ColorTex st, Color cur, Color col, float[] data, int n) {
+	    if(n == 0)
+		return;
+	    g.chcolor((cur.getRed() * col.getRed()) / 255, (cur.getGreen() * col.getGreen()) / 255,
+		      (cur.getBlue() * col.getBlue()) / 255, (cur.getAlpha() * col.getAlpha()) / 255);
+	    g.usestate(st);
+	    g.drawt(Model.Mode.TRIANGLES, data, n / 4);
+	}
+
+	public void render(GOut g, float[] gc, float[] tc) {
+	    ColorTex st = st(g.out);
+	    Coord tdim = st.data.tex.sz();
+	    int n = layout.glyphs.length * 24;
+	    BaseColor prev = g.curstate(BaseColor.slot);
+	    Color cur = g.getcolor();
+	    /* Each pass has a vertex array of its own, since drawt()
+	     * may read it only once the frame is rendered. */
+	    if((marg > 0) && (ocol != null)) {
+		float[] data = new float[n];
+		draw(g, st, cur, ocol, data, quads(data, true, tdim, gc, tc));
+	    }
+	    float[] data = new float[n];
+	    draw(g, st, cur, col, data, quads(data, false, tdim, gc, tc));
+	    g.usestate(ColorTex.slot);
+	    if(prev == null)
+		g.chcolor();
+	    else
+		g.usestate(prev);
+	}
+
+	public String toString() {
+	    return("#<glyph-label " + layout.text + ">");
+	}
+    }
+
+    private static int vertex(float[] data, int p, float x, float y, float u, float v) {
+	data[p++] = x; data[p++] = y; data[p++] = u; data[p++] = v;
+	return(p);
+    }
+}
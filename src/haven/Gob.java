@@ -808,6 +808,19 @@ public class Gob implements RenderTree.Node, Sprite.Owner, Skeleton.ModOwner, Eq
 	    return;
 	}
 	if(!Utils.eq(nst, curstate)) {
+	    RenderTree.Batch batch = RenderTree.Batch.current();
+	    if(batch != null) {
+		Runnable retry = () -> {
+		    synchronized(this) {
+			if(curstate == nst)
+			    curstate = null;
+		    }
+		};
+		for(RenderTree.Slot slot : slots)
+		    batch.ostate(slot, nst, retry);
+		this.curstate = nst;
+		return;
+	    }
 	    try {
 		for(RenderTree.Slot slot : slots)
 		    slot.ostate(nst);
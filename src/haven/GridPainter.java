@@ -0,0 +1,293 @@
+package haven;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * Paints map tiles into ARGB pixels the way the minimap draws them:
+ * texture colors, tiles broken by ridges darkened, and black outlines
+ * where a tile borders a higher ranked one. Tiles are first copied into
+ * a Sample of plain arrays, so that painting can run on any thread.
+ *
+ * Given the previous paint of the same area, only the pixels that the
+ * changed tiles and heights can reach are painted again, which gives the
+ * same result as painting everything: a tile reaches two pixels out at
+ * most, through the ridge shading of its neighbors.
+ */
+public class GridPainter {
+    /* Tiler could not be had; keeps ridge shading off the tile and its
+     * neighbors, as the renderers did when looking it up threw. */
+    public static final double NOTILER = Double.NEGATIVE_INFINITY;
+    /* Past this fraction of dirty pixels, paint everything instead. */
+    private static final double MAXDIRTY = 0.5;
+    private static final int BLACK = 0xff000000;
+    private static final int NEARF = 255 - (int)(0.1 * 255);
+
+    public static class Sample {
+	public final Coord sz, toff;
+	public final boolean uniform;
+	public final int edgelo;
+	final int[] tiles;
+	float[] z = null;
+	TileTexCache.Tex[] texes = new TileTexCache.Tex[0];
+	int[] rank = new int[0];
+	double[] breakz = new double[0];
+	boolean[] info = new boolean[0];
+
+	/* An area of sz tiles, with textures sampled at tile coordinates
+	 * offset by toff. Outlines are drawn from edgelo tiles inside
+	 * the area border and out. */
+	public Sample(Coord sz, Coord toff, boolean uniform, int edgelo) {
+	    this.sz = sz;
+	    this.toff = toff;
+	    this.uniform = uniform;
+	    this.edgelo = edgelo;
+	    this.tiles = new int[(sz.x + 2) * (sz.y + 2)];
+	    Arrays.fill(tiles, -1);
+	}
+
+	/* x and y run from -1 to sz inclusive. The ring outside the area
+	 * is only looked at as neighbors of the area's own tiles, and is
+	 * left as -1 (no tile) unless set. */
+	public void tile(int x, int y, int t) {
+	    tiles[(x + 1) + ((y + 1) * (sz.x + 2))] = t;
+	}
+
+	public int tile(int x, int y) {
+	    return(tiles[(x + 1) + ((y + 1) * (sz.x + 2))]);
+	}
+
+	/* Vertex heights of the area, by row; ridges are only shaded
+	 * when these are given. */
+	public void heights(float[] z) {
+	    this.z = Arrays.copyOf(z, sz.x * sz.y);
+	}
+
+	/* Every tile id in the sample, ascending. Each of them needs its
+	 * tileinfo() before painting. */
+	public int[] ids() {
+	    BitSet ids = new BitSet();
+	    for(int t : tiles) {
+		if(t >= 0)
+		    ids.set(t);
+	    }
+	    grow(ids.length());
+	    return(ids.stream().toArray());
+	}
+
+	/* How to draw tile id t: its texture or null, its rank for
+	 * outlines, and the ridge break height from Ridges.breakz(),
+	 * which is NaN for non-ridge tiles. */
+	public void tileinfo(int t, TileTexCache.Tex tex, int rank, double breakz) {
+	    grow(t + 1);
+	    this.texes[t] = tex;
+	    this.rank[t] = rank;
+	    this.breakz[t] = breakz;
+	    this.info[t] = true;
+	}
+
+	private void grow(int n) {
+	    if(n > info.length) {
+		texes = Arrays.copyOf(texes, n);
+		rank = Arrays.copyOf(rank, n);
+		breakz = Arrays.copyOf(breakz, n);
+		info = Arrays.copyOf(info, n);
+	    }
+	}
+
+	int rank(int t) {
+	    return((t < 0) ? t : rank[t]);
+	}
+
+	/* Whether unchanged tiles paint the same in both samples. */
+	boolean compatible(Sample o) {
+	    if(!sz.equals(o.sz) || !toff.equals(o.toff) || (uniform != o.uniform) || (edgelo != o.edgelo))
+		return(false);
+	    if((z == null) != (o.z == null))
+		return(false);
+	    for(int t = 0; t < Math.min(info.length, o.info.length); t++) {
+		if(!info[t] || !o.info[t])
+		    continue;
+		if((texes[t] != o.texes[t]) || (rank[t] != o.rank[t]) || (Double.compare(breakz[t], o.breakz[t]) != 0))
+		    return(false);
+	    }
+	    return(true);
+	}
+    }
+
+    public static class Painted {
+	public final Sample s;
+	public final int[] px;
+	/* Number of pixels painted to make this. */
+	public final int painted;
+
+	Painted(Sample s, int[] px, int painted) {
+	    this.s = s;
+	    this.px = px;
+	    this.painted = painted;
+	}
+
+	public BufferedImage img() {
+	    BufferedImage buf = TexI.mkbuf(s.sz);
+	    buf.setRGB(0, 0, s.sz.x, s.sz.y, px, 0, s.sz.x);
+	    return(buf);
+	}
+    }
+
+    /* The pixels to paint: those marked, all within a bounding box. */
+    private static class Dirty {
+	final int w, h;
+	final boolean[] px, near;
+	int n = 0, x0, y0, x1 = -1, y1 = -1;
+
+	Dirty(int w, int h) {
+	    this.w = w;
+	    this.h = h;
+	    this.px = new boolean[w * h];
+	    /* Centers whose ridge shading touches a marked pixel */
+	    this.near = new boolean[w * h];
+	    this.x0 = w;
+	    this.y0 = h;
+	}
+
+	/* Everything a tile or vertex at (cx, cy) can reach. */
+	void mark(int cx, int cy) {
+	    for(int y = Math.max(cy - 3, 0); y <= Math.min(cy + 3, h - 1); y++) {
+		for(int x = Math.max(cx - 3, 0); x <= Math.min(cx + 3, w - 1); x++) {
+		    int i = x + (y * w);
+		    near[i] = true;
+		    if((Math.abs(x - cx) <= 2) && (Math.abs(y - cy) <= 2) && !px[i]) {
+			px[i] = true;
+			n++;
+		    }
+		}
+	    }
+	    x0 = Math.max(Math.min(x0, cx - 3), 0); x1 = Math.min(Math.max(x1, cx + 3), w - 1);
+	    y0 = Math.max(Math.min(y0, cy - 3), 0); y1 = Math.min(Math.max(y1, cy + 3), h - 1);
+	}
+    }
+
+    /* Paint s, reusing prev where it agrees with s. prev may be null. */
+    public static Painted paint(Sample s, Painted prev) {
+	int w = s.sz.x, h = s.sz.y;
+	Dirty d = null;
+	if((prev != null) && s.compatible(prev.s)) {
+	    d = diff(s, prev.s);
+	    if(d.n == 0)
+		return(new Painted(s, prev.px, 0));
+	    if(d.n > (w * h) * MAXDIRTY)
+		d = null;
+	}
+	int x0 = 0, y0 = 0, x1 = w - 1, y1 = h - 1;
+	int[] px;
+	if(d == null) {
+	    px = new int[w * h];
+	} else {
+	    px = prev.px.clone();
+	    x0 = d.x0; y0 = d.y0; x1 = d.x1; y1 = d.y1;
+	}
+	for(int y = y0; y <= y1; y++) {
+	    for(int x = x0, i = x0 + (y * w); x <= x1; x++, i++) {
+		if((d == null) || d.px[i])
+		    px[i] = base(s, x, y);
+	    }
+	}
+	if(s.z != null) {
+	    for(int cy = Math.max(y0, 1); cy <= Math.min(y1, h - 2); cy++) {
+		for(int cx = Math.max(x0, 1); cx <= Math.min(x1, w - 2); cx++) {
+		    if(((d == null) || d.near[cx + (cy * w)]) && broken(s, cx, cy)) {
+			for(int y = cy - 1; y <= cy + 1; y++) {
+			    for(int x = cx - 1; x <= cx + 1; x++) {
+				int i = x + (y * w);
+				if((d == null) || d.px[i])
+				    px[i] = darken(px[i], (x == cx) && (y == cy));
+			    }
+			}
+		    }
+		}
+	    }
+	}
+	for(int y = Math.max(y0, s.edgelo); y <= Math.min(y1, h - 1 - s.edgelo); y++) {
+	    for(int x = Math.max(x0, s.edgelo); x <= Math.min(x1, w - 1 - s.edgelo); x++) {
+		int i = x + (y * w);
+		if((d != null) && !d.px[i])
+		    continue;
+		int r = s.rank(s.tile(x, y));
+		if((s.rank(s.tile(x - 1, y)) > r) ||
+		   (s.rank(s.tile(x + 1, y)) > r) ||
+		   (s.rank(s.tile(x, y - 1)) > r) ||
+		   (s.rank(s.tile(x, y + 1)) > r))
+		    px[i] = BLACK;
+	    }
+	}
+	return(new Painted(s, px, (d == null) ? (w * h) : d.n));
+    }
+
+    /* Mark the pixels that differing tiles and heights can reach. */
+    private static Dirty diff(Sample s, Sample o) {
+	int w = s.sz.x, h = s.sz.y, mw = w + 2;
+	Dirty d = new Dirty(w, h);
+	for(int i = 0; (i = mismatch(s.tiles, o.tiles, i)) >= 0; i++)
+	    d.mark((i % mw) - 1, (i / mw) - 1);
+	if(s.z != null) {
+	    for(int i = 0; (i = mismatch(s.z, o.z, i)) >= 0; i++)
+		d.mark(i % w, i / w);
+	}
+	return(d);
+    }
+
+    private static int mismatch(int[] a, int[] b, int from) {
+	int r = Arrays.mismatch(a, from, a.length, b, from, b.length);
+	return((r < 0) ? r : (from + r));
+    }
+
+    private static int mismatch(float[] a, float[] b, int from) {
+	int r = Arrays.mismatch(a, from, a.length, b, from, b.length);
+	return((r < 0) ? r : (from + r));
+    }
+
+    private static int base(Sample s, int x, int y) {
+	int t = s.tile(x, y);
+	if(t < 0)
+	    return(0);
+	TileTexCache.Tex tex = s.texes[t];
+	if(tex == null)
+	    return(0);
+	if(s.uniform)
+	    return(tex.uniform);
+	return(tex.get(x + s.toff.x, y + s.toff.y));
+    }
+
+    /* As Ridges.brokenp() */
+    private static boolean broken(Sample s, int cx, int cy) {
+	int t = s.tile(cx, cy);
+	if(t < 0)
+	    return(false);
+	double bz = s.breakz[t];
+	if(Double.isNaN(bz) || (bz == NOTILER))
+	    return(false);
+	for(int i = 0; i < 4; i++) {
+	    int nt = s.tile(cx + Coord.uecw[i].x, cy + Coord.uecw[i].y);
+	    if((nt < 0) || (s.breakz[nt] == NOTILER))
+		return(false);
+	    if(!Double.isNaN(s.breakz[nt]))
+		bz = Math.min(bz, s.breakz[nt]);
+	}
+	int w = s.sz.x, o = cx + (cy * w);
+	double z00 = s.z[o], z10 = s.z[o + 1], z11 = s.z[o + w + 1], z01 = s.z[o + w];
+	return((Math.abs(z10 - z00) > bz) || (Math.abs(z11 - z10) > bz) ||
+	       (Math.abs(z01 - z11) > bz) || (Math.abs(z00 - z01) > bz));
+    }
+
+    /* As Utils.blendcol() towards black, by 1 for the broken tile itself
+     * and 0.1 around it. */
+    private static int darken(int rgb, boolean center) {
+	if(center)
+	    return(BLACK);
+	int r = (((rgb >> 16) & 0xff) * NEARF) / 255;
+	int g = (((rgb >>  8) & 0xff) * NEARF) / 255;
+	int b = (((rgb >>  0) & 0xff) * NEARF) / 255;
+	return(BLACK | (r << 16) | (g << 8) | b);
+    }
+}
@@ -128,7 +128,9 @@ public class Inventory extends Widget implements DTarget {
 	Coord c = (Coord)args[0];
 	if(child instanceof GItem) {
 	    GItem i = (GItem)child;
-	    wmap.put(i, add(new NWItem(i), c.mul(sqsz).add(1, 1)));
+	    WItem w = add(new NWItem(i), c.mul(sqsz).add(1, 1));
+	    wmap.put(i, w);
+	    itemchanged(i, w);
 	}
     }
     
@@ -137,8 +139,20 @@ public class Inventory extends Widget implements DTarget {
 	if(w instanceof GItem) {
 	    GItem i = (GItem)w;
 	    ui.destroy(wmap.remove(i));
+	    itemchanged(i, null);
 	}
     }
+
+    /* Called as an item is added, gets or changes its sprite, and
+     * is removed, when w is null. */
+    protected void itemchanged(GItem item, WItem w) {
+    }
+
+    void itemresized(GItem item) {
+	WItem w = wmap.get(item);
+	if(w != null)
+	    itemchanged(item, w);
+    }
     
     public boolean drop(Coord cc, Coord ul) {
 	Coord dc;
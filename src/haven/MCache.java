@@ -72,6 +72,10 @@ public class MCache implements MapSource {
     Session sess;
     Set<LocalOverlay> ols = new HashSet<>();
     public volatile int olseq = 0, chseq = 0;
+    /* Bumped whenever the set of loaded grids or their contents changes
+     * (grid filled, trimmed or all dropped), for consumers that index
+     * per-grid data and only need to revisit it on load/unload. */
+    public volatile int gridseq = 0;
     Map<Integer, Defrag> fragbufs = new TreeMap<Integer, Defrag>();
 
     /**
@@ -438,6 +442,64 @@ public class MCache implements MapSource {
 	}
     }
 
+    /*
+     * What a refill of a grid changed, for rebuilding only the cuts,
+     * of the grid itself and of its neighbours, whose meshes read any
+     * of it. A cut's mesh reads the tiles around it one tile out, for
+     * transitions, and the heights of the vertices one out on the
+     * near sides and two out on the far ones, for normals.
+     */
+    public static class GridDelta {
+	/* Summed-area table of changed tiles, (cmaps.x + 1) wide. */
+	private final int[] sat;
+
+	private GridDelta(int[] sat) {
+	    this.sat = sat;
+	}
+
+	/* A delta in which everything changed. */
+	public static GridDelta all() {
+	    return(new GridDelta(null));
+	}
+
+	public GridDelta(int[] otiles, float[] oz, int[] tiles, float[] z) {
+	    int w = cmaps.x + 1;
+	    int[] sat = new int[w * (cmaps.y + 1)];
+	    for(int y = 0; y < cmaps.y; y++) {
+		for(int x = 0, row = 0; x < cmaps.x; x++) {
+		    int i = x + (y * cmaps.x);
+		    if((otiles[i] != tiles[i]) || (Float.floatToIntBits(oz[i]) != Float.floatToIntBits(z[i])))
+			row++;
+		    sat[(x + 1) + ((y + 1) * w)] = sat[(x + 1) + (y * w)] + row;
+		}
+	    }
+	    this.sat = sat;
+	}
+
+	/* Whether anything in the given area, in tile coordinates of
+	 * the changed grid, changed. */
+	public boolean changed(Area a) {
+	    a = a.overlap(Area.sized(cmaps));
+	    if(a == null)
+		return(false);
+	    if(sat == null)
+		return(true);
+	    int w = cmaps.x + 1;
+	    return(sat[a.br.x + (a.br.y * w)] - sat[a.ul.x + (a.br.y * w)] - sat[a.br.x + (a.ul.y * w)] + sat[a.ul.x + (a.ul.y * w)] > 0);
+	}
+
+	/* Whether the cut cc of the grid at go, in grids from the
+	 * changed one, must be rebuilt. */
+	public boolean affects(Coord go, Coord cc) {
+	    Coord ul = go.mul(cmaps).add(cc.mul(cutsz));
+	    return(changed(Area.corn(ul.sub(1, 1), ul.add(cutsz).add(2, 2))));
+	}
+
+	public boolean any() {
+	    return(changed(Area.sized(cmaps)));
+	}
+    }
+
     public class Grid implements MapSource {
 	public final Coord gc, ul;
 	public final int tiles[] = new int[cmaps.x * cmaps.y];
@@ -800,15 +862,13 @@ public class MCache implements MapSource {
 	}
 
 
-		public void ivneigh(Coord nc) {
-	    Coord cc = new Coord();
-	    for(cc.y = 0; cc.y < cutn.y; cc.y++) {
-		for(cc.x = 0; cc.x < cutn.x; cc.x++) {
-		    if((((nc.x < 0) && (cc.x == 0)) || ((nc.x > 0) && (cc.x == cutn.x - 1)) || (nc.x == 0)) &&
-		       (((nc.y < 0) && (cc.y == 0)) || ((nc.y > 0) && (cc.y == cutn.y - 1)) || (nc.y == 0)))
-		    {
-			geticut(Coord.of(cc)).invalidate();
-		    }
+	/* The neighbouring grid in direction nc was refilled. */
+	public void ivneigh(Coord nc, GridDelta d) {
+	    for(int y = 0; y < cutn.y; y++) {
+		for(int x = 0; x < cutn.x; x++) {
+		    Coord cc = Coord.of(x, y);
+		    if(d.affects(nc.inv(), cc))
+			geticut(cc).invalidate();
 		}
 	    }
 	}
@@ -830,18 +890,25 @@ public class MCache implements MapSource {
 	}
 	
 	private void invalidate() {
+	    invalidate(GridDelta.all());
+	}
+
+	private void invalidate(GridDelta d) {
 	    for(int y = 0; y < cutn.y; y++) {
 		for(int x = 0; x < cutn.x; x++) {
-		    geticut(Coord.of(x, y)).invalidate();
+		    if(d.affects(Coord.z, Coord.of(x, y)))
+			geticut(Coord.of(x, y)).invalidate();
 		}
 	    }
+	    if(!d.any())
+		return;
 	    for(Coord ic : new Coord[] {
 		    Coord.of(-1, -1), Coord.of( 0, -1), Coord.of( 1, -1),
 		    Coord.of(-1,  0),                   Coord.of( 1,  0),
 		    Coord.of(-1,  1), Coord.of( 0,  1), Coord.of( 1,  1)}) {
 		Grid ng = grids.get(gc.add(ic));
 		if(ng != null)
-		    ng.ivneigh(ic.inv());
+		    ng.ivneigh(ic.inv(), d);
 	    }
 	}
 
@@ -1061,12 +1128,24 @@ public class MCache implements MapSource {
 
 	public void fill(Message msg) {
 	    int ver = msg.uint8();
+	    /* The server resends grids whole, mostly unchanged, as
+	     * the player moves back and forth, so keep what they were
+	     * to rebuild only the cuts that the changes reach. */
+	    long oid = id;
+	    int[] otiles = (seq < 0) ? null : tiles.clone();
+	    float[] oz = (seq < 0) ? null : z.clone();
 	    if(ver == 1) {
 		subfill(msg);
 	    } else {
 		throw(new RuntimeException("Unknown map data version " + ver));
 	    }
-	    invalidate();
+	    if((otiles == null) || (id != oid))
+		invalidate();
+	    else
+		invalidate(new GridDelta(otiles, oz, tiles, z));
+	    /* Overlays are refilled whole, and are rebuilt from the
+	     * meshes whether or not those are. */
+	    olseq = -1;
 	    seq++;
 	}
 
@@ -1399,6 +1478,7 @@ public class MCache implements MapSource {
 		    req.remove(c);
 		    olseq++;
 		    chseq++;
+		    gridseq++;
 		    gridwait.wnotify();
 		}
 	    }
@@ -1416,7 +1496,7 @@ public class MCache implements MapSource {
 		fragbuf = new Defrag(len);
 		fragbufs.put(pktid, fragbuf);
 	    }
-	    fragbuf.add(msg.bytes(), off);
+	    fragbuf.add(msg, off);
 	    fragbuf.last = now;
 	    if(fragbuf.done()) {
 		mapdata2(fragbuf.msg());
@@ -1488,6 +1568,7 @@ public class MCache implements MapSource {
 		    g.dispose();
 		grids.clear();
 		req.clear();
+		gridseq++;
 	    }
 	    gridwait.wnotify();
 	}
@@ -1503,6 +1584,7 @@ public class MCache implements MapSource {
 		    if((gc.x < ul.x) || (gc.y < ul.y) || (gc.x > lr.x) || (gc.y > lr.y)) {
 			g.dispose();
 			i.remove();
+			gridseq++;
 		    }
 		}
 		for(Iterator<Coord> i = req.keySet().iterator(); i.hasNext();) {
@@ -48,6 +48,7 @@ public class MapFile {
     public final Collection<Marker> markers = new ArrayList<>();
     public volatile int markerseq = 0;
     public final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    public final MapTileIndex tindex = new MapTileIndex(this::indextiles);
     private final Random rnd = new Random();
 
     public MapFile(ResCache store, String filename) {
@@ -94,6 +95,7 @@ public class MapFile {
 	try {
 	    fp = file.sfetch("index");
 	} catch(FileNotFoundException e) {
+	    file.loadtindex();
 	    return(file);
 	}
 	try(StreamMessage data = new StreamMessage(fp)) {
@@ -111,6 +113,7 @@ public class MapFile {
 	} catch(Message.BinError e) {
 	    throw(new IOException(String.format("error when loading index: %s", e), e));
 	}
+	file.loadtindex();
 	return(file);
     }
 
@@ -140,6 +143,102 @@ public class MapFile {
 	}
     }
 
+    private void tdirty() {
+	synchronized(procmon) {
+	    tdirty = true;
+	    process();
+	}
+    }
+
+    private void loadtindex() {
+	try(StreamMessage data = new StreamMessage(sfetch("tindex"))) {
+	    tindex.load(data);
+	} catch(FileNotFoundException e) {
+	} catch(IOException | Message.BinError e) {
+	    warn(e, "error when loading tile index: %s", e);
+	}
+	reindex();
+    }
+
+    private void savetindex() {
+	OutputStream fp;
+	try {
+	    fp = sstore("tindex");
+	} catch(IOException e) {
+	    throw(new StreamMessage.IOError(e));
+	}
+	try(StreamMessage out = new StreamMessage(fp)) {
+	    tindex.save(out);
+	}
+    }
+
+    static MapTileIndex.Tiles tiles(DataGrid g) {
+	String[] sets = new String[g.tilesets.length];
+	for(int i = 0; i < sets.length; i++)
+	    sets[i] = g.tilesets[i].res.name;
+	return(new MapTileIndex.Tiles(sets, g.tiles));
+    }
+
+    private MapTileIndex.Tiles indextiles(long id) {
+	Grid g;
+	lock.readLock().lock();
+	try {
+	    g = Grid.load(this, id);
+	} finally {
+	    lock.readLock().unlock();
+	}
+	return((g == null) ? null : tiles(g));
+    }
+
+    /* Indexes, in the background and a grid at a time, the grids
+     * missing from the tile index as loaded, which are those stored
+     * before the file had one or after it was last saved. */
+    private void reindex() {
+	Thread th = new HackThread(() -> {
+		Collection<Long> segs;
+		lock.readLock().lock();
+		try {
+		    segs = new ArrayList<>(knownsegs);
+		} finally {
+		    lock.readLock().unlock();
+		}
+		for(long sid : segs) {
+		    Collection<Long> ids = new ArrayList<>();
+		    lock.readLock().lock();
+		    try {
+			Segment seg = segments.get(sid);
+			if(seg != null)
+			    ids.addAll(seg.map.values());
+		    } finally {
+			lock.readLock().unlock();
+		    }
+		    for(long id : ids) {
+			if(tindex.has(id))
+			    continue;
+			MapTileIndex.Tiles t = indextiles(id);
+			if(t == null)
+			    continue;
+			lock.readLock().lock();
+			try {
+			    /* Grids stored or moved meanwhile have been
+			     * indexed already, and under the write lock. */
+			    GridInfo info = gridinfo.get(id);
+			    if((info != null) && !tindex.has(id))
+				tindex.put(id, info.seg, info.sc, t);
+			} finally {
+			    lock.readLock().unlock();
+			}
+		    }
+		    tdirty();
+		}
+		tindex.complete = true;
+		tdirty();
+	    }, "Map tile indexer");
+	th.setDaemon(true);
+	th.setPriority(Thread.MIN_PRIORITY);
+	th.start();
+    }
+
     public static class GridInfo {
 	public final long id, seg;
 	public final Coord sc;
@@ -222,6 +321,8 @@ public class MapFile {
     private final Collection<Pair<MCache, Collection<MCache.Grid>>> updqueue = new HashSet<>();
     private final Collection<Segment> dirty = new HashSet<>();
     private boolean gdirty = false;
+    private boolean tdirty = false;
+    private long tsaved = 0;
     private class Processor extends HackThread {
 	Processor() {
 	    super("Mapfile processor");
@@ -244,8 +345,14 @@ public class MapFile {
 			} else if(gdirty) {
 			    task = locked(MapFile.this::save, lock.readLock());
 			    gdirty = false;
+			} else if(tdirty && (now - tsaved > 30000)) {
+			    /* The tile index changes with every stored
+			     * grid, so write it out only now and then. */
+			    task = MapFile.this::savetindex;
+			    tdirty = false;
+			    tsaved = now;
 			} else {
-			    if(now - last > 10000) {
+			    if((now - last > 10000) && !tdirty) {
 				processor = null;
 				return;
 			    }
@@ -493,82 +600,31 @@ public class MapFile {
 	    return(zmap[c.x + (c.y * cmaps.x)]);
 	}
 
-	private BufferedImage tiletex(int t, BufferedImage[] texes, boolean[] cached) {
-	    if(!cached[t]) {
-		Resource r = null;
-		try {
-		    r = tilesets[t].res.get();
-		} catch(Loading l) {
-		    throw(l);
-		} catch(Exception e) {
-		    warn(e, "could not load tileset resource %s(v%d): %s", tilesets[t].res.name, tilesets[t].res.ver, e);
-		}
-		if(r != null) {
-		    Resource.Image ir = r.layer(Resource.imgc);
-		    if(ir != null) {
-			texes[t] = ir.img;
-		    }
-		}
-		cached[t] = true;
+	private TileTexCache.Tex tiletex(int t) {
+	    try {
+		return(TileTexCache.global.get(tilesets[t].res));
+	    } catch(Loading l) {
+		throw(l);
+	    } catch(Exception e) {
+		warn(e, "could not load tileset resource %s(v%d): %s", tilesets[t].res.name, tilesets[t].res.ver, e);
+		return(null);
 	    }
-	    return(texes[t]);
 	}
 
-	public BufferedImage render(Coord off) {
-	    BufferedImage[] texes = new BufferedImage[tilesets.length];
-	    boolean[] cached = new boolean[tilesets.length];
-	    WritableRaster buf = PUtils.imgraster(cmaps);
-	    Coord c = new Coord();
-	    
-	    // Cache for biome colors (for uniformBiomeColors)
-	    int[] biomeColors = null;
-	    if((Boolean) NConfig.get(NConfig.Key.uniformBiomeColors)) {
-		biomeColors = new int[tilesets.length];
-		Arrays.fill(biomeColors, -1); // -1 means "not loaded yet"
-	    }
-	    
-	    for(c.y = 0; c.y < cmaps.y; c.y++) {
-		for(c.x = 0; c.x < cmaps.x; c.x++) {
-		    int t = gettile(c);
-		    BufferedImage tex = tiletex(t, texes, cached);
-		    int rgb = 0;
-		    if(tex != null) {
-			if((Boolean) NConfig.get(NConfig.Key.uniformBiomeColors)) {
-			    // Get cached color or load it from position (0,0)
-			    if(biomeColors[t] == -1) {
-				int color = tex.getRGB(0, 0);
-				// Force alpha channel to maximum (opaque)
-				biomeColors[t] = (color & 0x00FFFFFF) | 0xFF000000;
-			    }
-			    rgb = biomeColors[t];
-			} else {
-			    // Normal behavior - get color from current texture coordinates
-			    rgb = tex.getRGB(Utils.floormod(c.x + off.x, tex.getWidth()),
-					     Utils.floormod(c.y + off.y, tex.getHeight()));
-			}
-		    }
-		    buf.setSample(c.x, c.y, 0, (rgb & 0x00ff0000) >>> 16);
-		    buf.setSample(c.x, c.y, 1, (rgb & 0x0000ff00) >>>  8);
-		    buf.setSample(c.x, c.y, 2, (rgb & 0x000000ff) >>>  0);
-		    buf.setSample(c.x, c.y, 3, (rgb & 0xff000000) >>> 24);
-		}
+	/* Paint this grid, reusing what is still valid of prev. */
+	public GridPainter.Painted paint(Coord off, GridPainter.Painted prev) {
+	    GridPainter.Sample s = new GridPainter.Sample(cmaps, off, (Boolean) NConfig.get(NConfig.Key.uniformBiomeColors), 1);
+	    for(int y = 0; y < cmaps.y; y++) {
+		for(int x = 0; x < cmaps.x; x++)
+		    s.tile(x, y, tiles[x + (y * cmaps.x)]);
 	    }
-	    for(c.y = 1; c.y < cmaps.y - 1; c.y++) {
-		for(c.x = 1; c.x < cmaps.x - 1; c.x++) {
-		    int p = tilesets[gettile(c)].prio;
-		    if((tilesets[gettile(c.add(-1, 0))].prio > p) ||
-		       (tilesets[gettile(c.add( 1, 0))].prio > p) ||
-		       (tilesets[gettile(c.add(0, -1))].prio > p) ||
-		       (tilesets[gettile(c.add(0,  1))].prio > p))
-		    {
-			buf.setSample(c.x, c.y, 0, 0);
-			buf.setSample(c.x, c.y, 1, 0);
-			buf.setSample(c.x, c.y, 2, 0);
-			buf.setSample(c.x, c.y, 3, 255);
-		    }
-		}
-	    }
-	    return(PUtils.rasterimg(buf));
+	    for(int t : s.ids())
+		s.tileinfo(t, tiletex(t), tilesets[t].prio, Double.NaN);
+	    return(GridPainter.paint(s, prev));
+	}
+
+	public BufferedImage render(Coord off) {
+	    return(paint(off, null).img());
 	}
 
 	private static Color olcol(MCache.OverlayInfo olid) {
@@ -1551,7 +1607,9 @@ public class MapFile {
 	    Coord dc = sc.sub(soff);
 	    dst.include(id, dc);
 	    gridinfo.put(id, new GridInfo(id, dst.id, dc));
+	    tindex.move(id, dst.id, dc);
 	}
+	tdirty();
 	boolean mf = false;
 	for(Marker mark : markers) {
 	    if(mark.seg == src.id) {
@@ -1613,6 +1671,8 @@ public class MapFile {
 			sg = sg.mergeprev(prev);
 		    sg.save(MapFile.this);
 		    seg.include(sg, info.sc);
+		    tindex.put(sg.id, seg.id, info.sc, tiles(sg));
+		    tdirty();
 		}
 		if(seg.id != mseg) {
 		    if(merge == null)
@@ -1640,7 +1700,9 @@ public class MapFile {
 		    sg.save(MapFile.this);
 		    seg.include(sg, sc);
 		    gridinfo.put(g.id, new GridInfo(g.id, seg.id, sc));
+		    tindex.put(sg.id, seg.id, sc, tiles(sg));
 		}
+		tdirty();
 	    }
 	    if(merge != null) {
 		for(Pair<Long, Coord> mel : merge) {
@@ -1962,6 +2024,11 @@ public class MapFile {
 			rseg.include(rgrid, nc);
 			gridinfo.put(rgrid.id, new GridInfo(rgrid.id, rseg.id, nc));
 		    }
+		    GridInfo ninfo = gridinfo.get(rgrid.id);
+		    if(ninfo != null) {
+			tindex.put(rgrid.id, ninfo.seg, ninfo.sc, tiles(rgrid));
+			tdirty();
+		    }
 		} finally {
 		    lock.writeLock().unlock();
 		}
@@ -123,10 +123,11 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	public final boolean[] split = new boolean[bs.l];
 
 	public MapSurface() {
+	    boolean flat = (Boolean) NConfig.get(NConfig.Key.flatsurface);
 	    for(int y = vs.ul.y; y < vs.br.y; y++) {
 		for(int x = vs.ul.x; x < vs.br.x; x++) {
 			Vertex v = new Vertex(x * (float)tilesz.x, y * -(float)tilesz.y, (float)map.getfz(ul.add(x, y)));
-			if((Boolean) NConfig.get(NConfig.Key.flatsurface))
+			if(flat)
 				v.z = 0;
 			surf[vs.o(x, y)] = v;
 		}
@@ -327,6 +328,9 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	MapMesh m = new MapMesh(mc, ul, sz, rnd);
 	Coord c = new Coord();
 	rnd = m.rnd();
+	/* Read once, rather than per tile from every builder thread. */
+	boolean flat = (Boolean) NConfig.get(NConfig.Key.flatsurface);
+	boolean trans = !(Boolean) NConfig.get(NConfig.Key.disableTileTransitions);
 	
 	for(c.y = 0; c.y < sz.y; c.y++) {
 	    for(c.x = 0; c.x < sz.x; c.x++) {
@@ -344,7 +348,7 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	    for(c.x = 0; c.x < sz.x; c.x++) {
 		Coord gc = c.add(ul);
 		long ns = rnd.nextLong();
-		if((Boolean) NConfig.get(NConfig.Key.flatsurface)) {
+		if(flat) {
 			Tiler t = mc.tiler(mc.gettile(gc));
 			if (t instanceof TerrainTile.RidgeTile) {
 				if (m.data(Ridges.id).model(c)) {
@@ -361,7 +365,7 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		else {
 			mc.tiler(mc.gettile(gc)).lay(m, rnd, c, gc);
 		}
-		if (!(Boolean)NConfig.get(NConfig.Key.disableTileTransitions)) {
+		if (trans) {
 			dotrans(m, rnd, c, gc);
 		}
 		rnd.setSeed(ns);
@@ -608,12 +612,11 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	if(olvert == null)
 	    olvert = makeolvbuf();
 	class Buf implements Tiler.MCons {
-	    short[] fl = new short[16];
+	    short[] fl = MeshPool.shorts(sz.x * sz.y * 6);
 	    int fn = 0;
 
 	    public void faces(MapMesh m, Tiler.MPart d) {
-		while(fn + d.f.length > fl.length)
-		    fl = Utils.extend(fl, fl.length * 2);
+		fl = MeshPool.grow(fl, fn, fn + d.f.length);
 		for(int fi : d.f)
 		    fl[fn++] = (short)olvert.vl[d.v[fi].vi];
 	    }
@@ -631,11 +634,13 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		}
 	    }
 	}
-	if(buf.fn == 0)
+	short[] fl = Arrays.copyOf(buf.fl, buf.fn);
+	MeshPool.release(buf.fl);
+	if(fl.length == 0)
 	    return(null);
 	haven.render.Model mod = new haven.render.Model(haven.render.Model.Mode.TRIANGLES, olvert.dat,
-							new haven.render.Model.Indices(buf.fn, NumberFormat.UINT16, DataBuffer.Usage.STATIC,
-										       DataBuffer.Filler.of(Arrays.copyOf(buf.fl, buf.fn))));
+							new haven.render.Model.Indices(fl.length, NumberFormat.UINT16, DataBuffer.Usage.STATIC,
+										       DataBuffer.Filler.of(fl)));
 	return(new ShallowWrap(mod, new OLOrder(id)));
     }
 
@@ -644,7 +649,7 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	    olvert = makeolvbuf();
 	class Buf implements Tiler.MCons {
 	    int mask;
-	    short[] fl = new short[16];
+	    short[] fl = MeshPool.shorts((sz.x + sz.y) * 8);
 	    int fn = 0;
 
 	    public void faces(MapMesh m, Tiler.MPart d) {
@@ -655,8 +660,7 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		    if(d.tcy[i] == 1.0f) ef[i] |= 4;
 		    if(d.tcx[i] == 0.0f) ef[i] |= 8;
 		}
-		while(fn + (d.f.length * 2) > fl.length)
-		    fl = Utils.extend(fl, fl.length * 2);
+		fl = MeshPool.grow(fl, fn, fn + (d.f.length * 2));
 		for(int i = 0; i < d.f.length; i += 3) {
 		    for(int a = 0; a < 3; a++) {
 			int b = (a + 1) % 3;
@@ -684,11 +688,13 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		    map.tiler(map.gettile(t)).lay(this, t.sub(a.ul), t, buf, false);
 	    }
 	}
-	if(buf.fn == 0)
+	short[] fl = Arrays.copyOf(buf.fl, buf.fn);
+	MeshPool.release(buf.fl);
+	if(fl.length == 0)
 	    return(null);
 	haven.render.Model mod = new haven.render.Model(haven.render.Model.Mode.LINES, olvert.dat,
-							new haven.render.Model.Indices(buf.fn, NumberFormat.UINT16, DataBuffer.Usage.STATIC,
-										       DataBuffer.Filler.of(Arrays.copyOf(buf.fl, buf.fn))));
+							new haven.render.Model.Indices(fl.length, NumberFormat.UINT16, DataBuffer.Usage.STATIC,
+										       DataBuffer.Filler.of(fl)));
 	return(new ShallowWrap(mod, Pipe.Op.compose(new OLOrder(id), new States.LineWidth(2))));
     }
 
@@ -710,40 +716,36 @@ public class MapMesh implements RenderTree.Node, Disposable {
 	class Buf implements Tiler.MCons {
 	    final float tpx = 1.0f / sz.x, tpy = 1.0f / sz.y;
 	    final Pipe.Op state;
-	    int vn = 0, in = 0, vl = sz.x * sz.y * 4;
-	    float[] pos = new float[vl * 3];
-	    float[] col = new float[vl * 2];
-	    short[] ind = new short[sz.x * sz.y * 6];
+	    int vn = 0, in = 0;
+	    float[] pos = MeshPool.floats(sz.x * sz.y * 4 * 3);
+	    float[] col = MeshPool.floats(sz.x * sz.y * 4 * 2);
+	    short[] ind = MeshPool.shorts(sz.x * sz.y * 6);
 
 	    Buf(Pipe.Op state) {
 		this.state = state;
 	    }
 
 	    public void faces(MapMesh m, Tiler.MPart d) {
-		if(vn + d.v.length > vl) {
-		    vl *= 2;
-		    pos = Utils.extend(pos, vl * 3);
-		    col = Utils.extend(col, vl * 2);
-		}
+		pos = MeshPool.grow(pos, vn * 3, (vn + d.v.length) * 3);
+		col = MeshPool.grow(col, vn * 2, (vn + d.v.length) * 2);
 		float cx = (float)d.lc.x / (float)m.sz.x, cy = (float)d.lc.y / (float)m.sz.y;
 		for(int i = 0; i < d.v.length; i++) {
 		    int pb = (vn + i) * 3, cb = (vn + i) * 2;
 		    pos[pb + 0] = d.v[i].x; pos[pb + 1] = d.v[i].y; pos[pb + 2] = d.v[i].z;
 		    col[cb + 0] = cx + (d.tcx[i] * tpx); col[cb + 1] = cy + (d.tcy[i] * tpy);
 		}
-		if(in + d.f.length > ind.length)
-		    ind = Utils.extend(ind, ind.length * 2);
+		ind = MeshPool.grow(ind, in, in + d.f.length);
 		for(int fi : d.f)
 		    ind[in++] = (short)(vn + fi);
 		vn += d.v.length;
 	    }
 
 	    FastMesh mesh() {
-		float[] pos = this.pos, col = this.col;
-		short[] ind = this.ind;
-		if(pos.length != this.vn * 3) pos = Utils.extend(pos, this.vn * 3);
-		if(col.length != this.vn * 2) col = Utils.extend(col, this.vn * 2);
-		if(ind.length != this.in) ind = Utils.extend(ind, this.in);
+		float[] pos = Arrays.copyOf(this.pos, this.vn * 3), col = Arrays.copyOf(this.col, this.vn * 2);
+		short[] ind = Arrays.copyOf(this.ind, this.in);
+		MeshPool.release(this.pos);
+		MeshPool.release(this.col);
+		MeshPool.release(this.ind);
 		VertexBuf.VertexData posa = new VertexBuf.VertexData(FloatBuffer.wrap(pos));
 		ClickLocation.LocData loca = new ClickLocation.LocData(FloatBuffer.wrap(col));
 		ShortBuffer indb = ShortBuffer.wrap(ind);
@@ -765,17 +767,14 @@ public class MapMesh implements RenderTree.Node, Disposable {
     private static final VertexArray.Layout gridfmt = new VertexArray.Layout(new VertexArray.Layout.Input(Homo3D.vertex, new VectorFormat(3, NumberFormat.FLOAT32), 0, 0, 12));
     private RenderTree.Node consgrid() {
 	class Buf implements Tiler.MCons {
-	    int vn = 0, in = 0, vl = sz.x * sz.y * 4;
-	    float[] pos = new float[vl * 3];
-	    short[] ind = new short[sz.x * sz.y * 8];
+	    int vn = 0, in = 0;
+	    float[] pos = MeshPool.floats(sz.x * sz.y * 4 * 3);
+	    short[] ind = MeshPool.shorts(sz.x * sz.y * 8);
 
 	    int getvert(Tiler.MPart d, int i, int[] imap) {
 		if(imap[i] >= 0)
 		    return(imap[i]);
-		if(vn >= vl) {
-		    vl *= 2;
-		    pos = Utils.extend(pos, vl * 3);
-		}
+		pos = MeshPool.grow(pos, vn * 3, (vn + 1) * 3);
 		int pb = vn * 3;
 		pos[pb + 0] = d.v[i].x; pos[pb + 1] = d.v[i].y; pos[pb + 2] = d.v[i].z;
 		return(imap[i] = vn++);
@@ -795,8 +794,7 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		    for(int a = 0; a < 3; a++) {
 			int b = (a + 1) % 3;
 			if((ef[d.f[i + a]] & ef[d.f[i + b]]) != 0) {
-			    if(in + 2 > ind.length)
-				ind = Utils.extend(ind, ind.length * 2);
+			    ind = MeshPool.grow(ind, in, in + 2);
 			    ind[in++] = (short)getvert(d, d.f[i + a], imap);
 			    ind[in++] = (short)getvert(d, d.f[i + b], imap);
 			}
@@ -812,10 +810,10 @@ public class MapMesh implements RenderTree.Node, Disposable {
 		map.tiler(map.gettile(gc)).lay(this, c, gc, buf, false);
 	    }
 	}
-	float[] pos = buf.pos;
-	short[] ind = buf.ind;
-	if(pos.length != buf.vn * 3) pos = Utils.extend(pos, buf.vn * 3);
-	if(ind.length != buf.in) ind = Utils.extend(ind, buf.in);
+	float[] pos = Arrays.copyOf(buf.pos, buf.vn * 3);
+	short[] ind = Arrays.copyOf(buf.ind, buf.in);
+	MeshPool.release(buf.pos);
+	MeshPool.release(buf.ind);
 	VertexArray vdat = new VertexArray(gridfmt, new VertexArray.Buffer(pos.length * 4, DataBuffer.Usage.STATIC, DataBuffer.Filler.of(pos)));
 	return(new haven.render.Model(haven.render.Model.Mode.LINES, vdat, new haven.render.Model.Indices(ind.length, NumberFormat.UINT16, DataBuffer.Usage.STATIC, DataBuffer.Filler.of(ind))));
     }
@@ -28,7 +28,6 @@ package haven;
 
 import nurgling.NConfig;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 
 public interface MapSource {
@@ -37,92 +36,54 @@ public interface MapSource {
     public Tileset tileset(int t);
     public Tiler tiler(int t);
 
-    static BufferedImage tileimg(MapSource m, BufferedImage[] texes, int t) {
-	BufferedImage img = texes[t];
-	if(img == null) {
-	    Tileset set = m.tileset(t);
-	    if(set == null)
-		return(null);
-	    Resource r = set.getres();
-	    Resource.Image ir = r.layer(Resource.imgc);
-	    if(ir == null)
-		return(null);
-	    img = ir.img;
-	    texes[t] = img;
-	}
+    static TileTexCache.Tex tileimg(MapSource m, int t) {
+	Tileset set = m.tileset(t);
+	if(set == null)
+	    return(null);
 	// NOTE: Tile highlighting now uses overlay mechanism (TileHighlight.olrender)
 	// instead of replacing tile textures
-	return(img);
+	return(TileTexCache.global.get(set.getres()));
     }
 
-    public static BufferedImage drawmap(MapSource m, Area a) {
+    public static GridPainter.Sample sample(MapSource m, Area a) {
 	Coord sz = a.sz();
-	BufferedImage[] texes = new BufferedImage[256];
-	BufferedImage buf = TexI.mkbuf(sz);
-	Coord c = new Coord();
-	for(c.y = 0; c.y < sz.y; c.y++) {
-	    for(c.x = 0; c.x < sz.x; c.x++) {
-		int t = m.gettile(a.ul.add(c));
-		if(t < 0) {
-		    buf.setRGB(c.x, c.y, 0);
-		    continue;
-		}
-		BufferedImage tex = tileimg(m, texes, t);
-		int rgb = 0;
-		if(tex != null) {
-		    // Check if uniform biome colors is enabled
-		    boolean uniformColors = false;
-		    if(NConfig.get(NConfig.Key.uniformBiomeColors) instanceof Boolean) {
-		        uniformColors = (Boolean) NConfig.get(NConfig.Key.uniformBiomeColors);
-		    }
-		    if(uniformColors) {
-		        // Always use color from pixel (0,0) for uniform biome colors
-		        int color = tex.getRGB(0, 0);
-		        // Force full opacity
-		        rgb = (color & 0x00FFFFFF) | 0xFF000000;
-		    } else {
-		        // Use normal texture coordinates
-		        rgb = tex.getRGB(Utils.floormod(c.x + a.ul.x, tex.getWidth()),
-		                         Utils.floormod(c.y + a.ul.y, tex.getHeight()));
-		    }
-		}
-		buf.setRGB(c.x, c.y, rgb);
-	    }
+	// Check if uniform biome colors is enabled
+	boolean uniformColors = false;
+	if(NConfig.get(NConfig.Key.uniformBiomeColors) instanceof Boolean) {
+	    uniformColors = (Boolean) NConfig.get(NConfig.Key.uniformBiomeColors);
 	}
-	for(c.y = 1; c.y < sz.y - 1; c.y++) {
-	    for(c.x = 1; c.x < sz.x - 1; c.x++) {
-		int t = m.gettile(a.ul.add(c));
-		if(t < 0)
-		    continue;
-		try {
-		    Tiler tl = m.tiler(t);
-		    if(tl instanceof haven.resutil.Ridges.RidgeTile) {
-			if(haven.resutil.Ridges.brokenp(m, a.ul.add(c))) {
-			    for(int y = c.y - 1; y <= c.y + 1; y++) {
-				for(int x = c.x - 1; x <= c.x + 1; x++) {
-				    Color cc = new Color(buf.getRGB(x, y));
-				    buf.setRGB(x, y, Utils.blendcol(cc, Color.BLACK, ((x == c.x) && (y == c.y))?1:0.1).getRGB());
-				}
-			    }
-			}
-		    }
-		} catch(RuntimeException exc) {
-		    /* XXX: Tileset resources loaded from cache can contain outdated
-		     * and illegal references. Catching them and ignoring them here
-		     * seems like an ugly hack, but what is the better alternative? */
-		}
+	GridPainter.Sample s = new GridPainter.Sample(sz, a.ul, uniformColors, 0);
+	float[] z = new float[sz.x * sz.y];
+	Coord c = new Coord();
+	for(c.y = -1; c.y <= sz.y; c.y++) {
+	    for(c.x = -1; c.x <= sz.x; c.x++) {
+		s.tile(c.x, c.y, m.gettile(a.ul.add(c)));
+		if((c.x >= 0) && (c.y >= 0) && (c.x < sz.x) && (c.y < sz.y))
+		    z[c.x + (c.y * sz.x)] = (float)m.getfz(a.ul.add(c));
 	    }
 	}
-	for(c.y = 0; c.y < sz.y; c.y++) {
-	    for(c.x = 0; c.x < sz.x; c.x++) {
-		int t = m.gettile(a.ul.add(c));
-		if((m.gettile(a.ul.add(c).add(-1, 0)) > t) ||
-		   (m.gettile(a.ul.add(c).add( 1, 0)) > t) ||
-		   (m.gettile(a.ul.add(c).add(0, -1)) > t) ||
-		   (m.gettile(a.ul.add(c).add(0,  1)) > t))
-		    buf.setRGB(c.x, c.y, Color.BLACK.getRGB());
+	s.heights(z);
+	for(int t : s.ids()) {
+	    double bz;
+	    try {
+		bz = haven.resutil.Ridges.breakz(m.tiler(t));
+	    } catch(RuntimeException exc) {
+		/* XXX: Tileset resources loaded from cache can contain outdated
+		 * and illegal references. Catching them and ignoring them here
+		 * seems like an ugly hack, but what is the better alternative? */
+		bz = GridPainter.NOTILER;
 	    }
+	    s.tileinfo(t, tileimg(m, t), t, bz);
 	}
-	return(buf);
+	return(s);
+    }
+
+    /* Paint area a of m, reusing what is still valid of prev. */
+    public static GridPainter.Painted paint(MapSource m, Area a, GridPainter.Painted prev) {
+	return(GridPainter.paint(sample(m, a), prev));
+    }
+
+    public static BufferedImage drawmap(MapSource m, Area a) {
+	return(paint(m, a, null).img());
     }
 }
@@ -0,0 +1,359 @@
+package haven;
+
+import java.util.*;
+import java.util.function.*;
+import static haven.MCache.cmaps;
+
+/*
+ * Index of where each tileset occurs in a map file, so that finding
+ * terrain does not mean loading and walking every grid of a segment.
+ *
+ * For every stored grid the index keeps its segment and segment
+ * coordinate, and for every tileset in it the number of tiles and a
+ * mask of which BLK-by-BLK blocks of the grid hold any of them. That
+ * is a hundred or so bytes per grid, little enough to keep for the
+ * whole file in memory and persist along with it. The exact
+ * tile-by-tile bitmasks of a grid are made from its stored tiles when
+ * a query gets down to it, and the most recently used are kept.
+ * Queries visit grids and blocks nearest first and stop as soon as
+ * nothing further out can be nearer, so they touch only the few grids
+ * around the answer.
+ */
+public class MapTileIndex {
+    public static final int VERSION = 1;
+    public static final int BLK = 10;
+    private static final int BW = cmaps.x / BLK, BH = cmaps.y / BLK;
+    private static final int MASKW = ((cmaps.x * cmaps.y) + 63) / 64;
+    private static final int KEEP = 128;
+    private final Function<Long, Tiles> loader;
+    private final Map<Long, Entry> grids = new HashMap<>();
+    private final Map<String, Map<Long, Set<Entry>>> sets = new HashMap<>();
+    private final Map<Long, long[][]> masks = new LinkedHashMap<Long, long[][]>(16, 0.75f, true) {
+	protected boolean removeEldestEntry(Map.Entry<Long, long[][]> eldest) {
+	    return(size() > KEEP);
+	}
+    };
+    /* Whether every grid of the file has been indexed; false until
+     * the grids stored while the index was not kept, as by clients
+     * before it or since it was last saved, have been added. */
+    public volatile boolean complete = false;
+    public volatile int seq = 0;
+
+    /* The tileset names of a grid, and its tiles as indices into
+     * them. */
+    public static class Tiles {
+	public final String[] sets;
+	public final int[] tiles;
+
+	public Tiles(String[] sets, int[] tiles) {
+	    this.sets = sets;
+	    this.tiles = tiles;
+	}
+    }
+
+    public static class Entry {
+	public final long id, seg;
+	public final Coord sc;
+	final String[] sets;
+	final int[] counts;
+	final long[] blocks;
+
+	Entry(long id, long seg, Coord sc, String[] sets, int[] counts, long[] blocks) {
+	    this.id = id; this.seg = seg; this.sc = sc;
+	    this.sets = sets; this.counts = counts; this.blocks = blocks;
+	}
+
+	int index(String set) {
+	    for(int i = 0; i < sets.length; i++) {
+		if(sets[i].equals(set))
+		    return(i);
+	    }
+	    return(-1);
+	}
+
+	public int count(String set) {
+	    int i = index(set);
+	    return((i < 0) ? 0 : counts[i]);
+	}
+
+	Coord ul() {
+	    return(sc.mul(cmaps));
+	}
+    }
+
+    public MapTileIndex(Function<Long, Tiles> loader) {
+	this.loader = loader;
+    }
+
+    /* Groups the tiles of a grid by tileset name, as the tilesets of
+     * a grid need not be distinct. */
+    private static Pair<String[], int[]> byname(Tiles t) {
+	Map<String, Integer> idx = new HashMap<>();
+	int[] map = new int[t.sets.length];
+	for(int i = 0; i < t.sets.length; i++) {
+	    Integer p = idx.get(t.sets[i]);
+	    if(p == null)
+		idx.put(t.sets[i], p = idx.size());
+	    map[i] = p;
+	}
+	String[] names = new String[idx.size()];
+	for(Map.Entry<String, Integer> e : idx.entrySet())
+	    names[e.getValue()] = e.getKey();
+	return(new Pair<>(names, map));
+    }
+
+    private static Entry summarize(long id, long seg, Coord sc, Tiles t) {
+	Pair<String[], int[]> nm = byname(t);
+	int n = nm.a.length;
+	int[] counts = new int[n];
+	long[] blocks = new long[n * 2];
+	for(int y = 0, i = 0; y < cmaps.y; y++) {
+	    for(int x = 0; x < cmaps.x; x++, i++) {
+		int s = nm.b[t.tiles[i]];
+		int b = (x / BLK) + ((y / BLK) * BW);
+		counts[s]++;
+		blocks[(s * 2) + (b >> 6)] |= 1L << (b & 63);
+	    }
+	}
+	return(new Entry(id, seg, sc, nm.a, counts, blocks));
+    }
+
+    private static long[][] masks(Entry e, Tiles t) {
+	Pair<String[], int[]> nm = byname(t);
+	long[][] ret = new long[e.sets.length][MASKW];
+	int[] map = new int[nm.a.length];
+	for(int i = 0; i < map.length; i++)
+	    map[i] = e.index(nm.a[i]);
+	for(int i = 0; i < t.tiles.length; i++) {
+	    int s = map[nm.b[t.tiles[i]]];
+	    if(s >= 0)
+		ret[s][i >> 6] |= 1L << (i & 63);
+	}
+	return(ret);
+    }
+
+    private void link(Entry e) {
+	for(String set : e.sets)
+	    sets.computeIfAbsent(set, k -> new HashMap<>()).computeIfAbsent(e.seg, k -> new HashSet<>()).add(e);
+    }
+
+    private void unlink(Entry e) {
+	for(String set : e.sets) {
+	    Map<Long, Set<Entry>> bs = sets.get(set);
+	    Set<Entry> es = (bs == null) ? null : bs.get(e.seg);
+	    if(es == null)
+		continue;
+	    es.remove(e);
+	    if(es.isEmpty()) {
+		bs.remove(e.seg);
+		if(bs.isEmpty())
+		    sets.remove(set);
+	    }
+	}
+    }
+
+    /* Indexes a grid as stored in segment seg at sc. */
+    public void put(long id, long seg, Coord sc, Tiles tiles) {
+	Entry e = summarize(id, seg, sc, tiles);
+	synchronized(this) {
+	    Entry prev = grids.put(id, e);
+	    if(prev != null)
+		unlink(prev);
+	    link(e);
+	    masks.remove(id);
+	    seq++;
+	}
+    }
+
+    /* Records that a grid has moved, as when segments are merged. */
+    public synchronized void move(long id, long seg, Coord sc) {
+	Entry prev = grids.get(id);
+	if(prev == null)
+	    return;
+	Entry e = new Entry(id, seg, sc, prev.sets, prev.counts, prev.blocks);
+	unlink(prev);
+	grids.put(id, e);
+	link(e);
+	seq++;
+    }
+
+    public synchronized boolean has(long id) {
+	return(grids.containsKey(id));
+    }
+
+    public synchronized Entry get(long id) {
+	return(grids.get(id));
+    }
+
+    public synchronized int size() {
+	return(grids.size());
+    }
+
+    /* The grids of a segment holding any tile of a tileset. */
+    public synchronized Collection<Entry> grids(long seg, String set) {
+	Map<Long, Set<Entry>> bs = sets.get(set);
+	Set<Entry> es = (bs == null) ? null : bs.get(seg);
+	return((es == null) ? Collections.emptyList() : new ArrayList<>(es));
+    }
+
+    private long[] mask(Entry e, int s) {
+	long[][] m;
+	synchronized(this) {
+	    m = masks.get(e.id);
+	}
+	if(m == null) {
+	    Tiles t = loader.apply(e.id);
+	    if((t == null) || (t.tiles.length != cmaps.x * cmaps.y))
+		return(null);
+	    m = masks(e, t);
+	    synchronized(this) {
+		/* Do not keep masks of a grid replaced meanwhile. */
+		if(grids.get(e.id) != null && grids.get(e.id).sets == e.sets)
+		    masks.put(e.id, m);
+	    }
+	}
+	return((s < m.length) ? m[s] : null);
+    }
+
+    /* Squared distance from c to the nearest tile of the rectangle
+     * of size sz at ul. */
+    private static long rdist(Coord c, int ulx, int uly, int szx, int szy) {
+	long dx = Math.max(Math.max(ulx - c.x, c.x - (ulx + szx - 1)), 0);
+	long dy = Math.max(Math.max(uly - c.y, c.y - (uly + szy - 1)), 0);
+	return((dx * dx) + (dy * dy));
+    }
+
+    private static long dist(Coord c, int x, int y) {
+	long dx = x - c.x, dy = y - c.y;
+	return((dx * dx) + (dy * dy));
+    }
+
+    private interface Visitor {
+	/* Returns the squared distance within which further tiles are
+	 * still wanted. */
+	public long tile(int x, int y, long d);
+    }
+
+    private void visit(long seg, String set, Coord tc, long lim, Visitor v) {
+	List<Entry> cand = new ArrayList<>(grids(seg, set));
+	long[] gd = new long[cand.size()];
+	Integer[] order = new Integer[cand.size()];
+	for(int i = 0; i < order.length; i++) {
+	    Coord ul = cand.get(i).ul();
+	    gd[i] = rdist(tc, ul.x, ul.y, cmaps.x, cmaps.y);
+	    order[i] = i;
+	}
+	Arrays.sort(order, (a, b) -> Long.compare(gd[a], gd[b]));
+	for(int gi : order) {
+	    if(gd[gi] > lim)
+		break;
+	    Entry e = cand.get(gi);
+	    int s = e.index(set);
+	    Coord ul = e.ul();
+	    long[] mask = null;
+	    for(int b = 0; b < BW * BH; b++) {
+		if((e.blocks[(s * 2) + (b >> 6)] & (1L << (b & 63))) == 0)
+		    continue;
+		int bx = (b % BW) * BLK, by = (b / BW) * BLK;
+		if(rdist(tc, ul.x + bx, ul.y + by, BLK, BLK) > lim)
+		    continue;
+		if(mask == null) {
+		    if((mask = mask(e, s)) == null)
+			break;
+		}
+		for(int y = by; y < by + BLK; y++) {
+		    for(int x = bx; x < bx + BLK; x++) {
+			int i = x + (y * cmaps.x);
+			if((mask[i >> 6] & (1L << (i & 63))) == 0)
+			    continue;
+			long d = dist(tc, ul.x + x, ul.y + y);
+			if(d <= lim)
+			    lim = v.tile(ul.x + x, ul.y + y, d);
+		    }
+		}
+	    }
+	}
+    }
+
+    /* The segment tile of tileset set nearest to tc, no further away
+     * than maxdist tiles, or null if there is none. */
+    public Coord nearest(long seg, String set, Coord tc, int maxdist) {
+	Coord[] ret = {null};
+	long[] best = {(long)maxdist * maxdist};
+	visit(seg, set, tc, best[0], (x, y, d) -> {
+		if((ret[0] == null) || (d < best[0])) {
+		    ret[0] = Coord.of(x, y);
+		    best[0] = d;
+		}
+		/* Only a strictly nearer tile could replace it. */
+		return(d - 1);
+	    });
+	return(ret[0]);
+    }
+
+    /* All segment tiles of tileset set within radius tiles of tc. */
+    public List<Coord> within(long seg, String set, Coord tc, int radius) {
+	List<Coord> ret = new ArrayList<>();
+	long lim = (long)radius * radius;
+	visit(seg, set, tc, lim, (x, y, d) -> {
+		ret.add(Coord.of(x, y));
+		return(lim);
+	    });
+	return(ret);
+    }
+
+    public synchronized void save(Message fp) {
+	fp.adduint8(VERSION);
+	ZMessage z = new ZMessage(fp);
+	Map<String, Integer> names = new HashMap<>();
+	for(Entry e : grids.values()) {
+	    for(String set : e.sets)
+		names.putIfAbsent(set, names.size());
+	}
+	String[] byidx = new String[names.size()];
+	for(Map.Entry<String, Integer> ent : names.entrySet())
+	    byidx[ent.getValue()] = ent.getKey();
+	z.addint32(byidx.length);
+	for(String set : byidx)
+	    z.addstring(set);
+	z.addint32(grids.size());
+	for(Entry e : grids.values()) {
+	    z.addint64(e.id).addint64(e.seg).addcoord(e.sc);
+	    z.adduint16(e.sets.length);
+	    for(int i = 0; i < e.sets.length; i++) {
+		z.addint32(names.get(e.sets[i]));
+		z.adduint16(e.counts[i]);
+		z.addint64(e.blocks[i * 2]).addint64(e.blocks[(i * 2) + 1]);
+	    }
+	}
+	z.finish();
+    }
+
+    public synchronized void load(Message fp) {
+	int ver = fp.uint8();
+	if(ver != VERSION)
+	    throw(new Message.FormatError("Unknown tile index version: " + ver));
+	Message z = new ZMessage(fp);
+	String[] names = new String[z.int32()];
+	for(int i = 0; i < names.length; i++)
+	    names[i] = z.string().intern();
+	for(int i = 0, no = z.int32(); i < no; i++) {
+	    long id = z.int64(), seg = z.int64();
+	    Coord sc = z.coord();
+	    int n = z.uint16();
+	    String[] sets = new String[n];
+	    int[] counts = new int[n];
+	    long[] blocks = new long[n * 2];
+	    for(int o = 0; o < n; o++) {
+		sets[o] = names[z.int32()];
+		counts[o] = z.uint16();
+		blocks[o * 2] = z.int64();
+		blocks[(o * 2) + 1] = z.int64();
+	    }
+	    Entry e = new Entry(id, seg, sc, sets, counts, blocks);
+	    grids.put(id, e);
+	    link(e);
+	}
+	seq++;
+    }
+}
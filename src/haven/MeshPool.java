@@ -0,0 +1,104 @@
+package haven;
+
+import java.util.*;
+
+/*
+ * Scratch arrays for building map meshes, kept in power-of-two size
+ * classes so that the per-cut builders, which grow their vertex and
+ * index arrays as tiles lay their faces and then copy out the part
+ * they used, do not allocate a new set for every cut and every
+ * rebuild. Arrays taken from the pool are not cleared; each class
+ * holds at most a few arrays, since cuts are built on no more
+ * threads than Defer runs.
+ */
+public class MeshPool {
+    public static final int MINCLASS = 6, MAXCLASS = 20, KEEP = 8;
+    private static final Deque<float[]>[] floats = classes();
+    private static final Deque<short[]>[] shorts = classes();
+
+    @SuppressWarnings("unchecked")
+    private static <T> Deque<T>[] classes() {
+	Deque<T>[] ret = new Deque[MAXCLASS + 1];
+	for(int i = MINCLASS; i <= MAXCLASS; i++)
+	    ret[i] = new ArrayDeque<>();
+	return(ret);
+    }
+
+    /* The size class of arrays of at least n elements, or -1 if
+     * there is none. */
+    static int sclass(int n) {
+	int c = Math.max(32 - Integer.numberOfLeadingZeros(Math.max(n, 1) - 1), MINCLASS);
+	return((c > MAXCLASS) ? -1 : c);
+    }
+
+    /* The size class an array of exactly n elements belongs to, or
+     * -1 if it was not taken from the pool. */
+    private static int owned(int n) {
+	if(Integer.bitCount(n) != 1)
+	    return(-1);
+	int c = Integer.numberOfTrailingZeros(n);
+	return(((c < MINCLASS) || (c > MAXCLASS)) ? -1 : c);
+    }
+
+    public static float[] floats(int n) {
+	int c = sclass(n);
+	if(c < 0)
+	    return(new float[n]);
+	float[] ret;
+	synchronized(floats[c]) {
+	    ret = floats[c].pollFirst();
+	}
+	return((ret == null) ? new float[1 << c] : ret);
+    }
+
+    public static short[] shorts(int n) {
+	int c = sclass(n);
+	if(c < 0)
+	    return(new short[n]);
+	short[] ret;
+	synchronized(shorts[c]) {
+	    ret = shorts[c].pollFirst();
+	}
+	return((ret == null) ? new short[1 << c] : ret);
+    }
+
+    public static void release(float[] a) {
+	int c = owned(a.length);
+	if(c < 0)
+	    return;
+	synchronized(floats[c]) {
+	    if(floats[c].size() < KEEP)
+		floats[c].addFirst(a);
+	}
+    }
+
+    public static void release(short[] a) {
+	int c = owned(a.length);
+	if(c < 0)
+	    return;
+	synchronized(shorts[c]) {
+	    if(shorts[c].size() < KEEP)
+		shorts[c].addFirst(a);
+	}
+    }
+
+    /* Returns an array of at least n elements holding the first
+     * used elements of a, releasing a if it had to be replaced. */
+    public static float[] grow(float[] a, int used, int n) {
+	if(a.length >= n)
+	    return(a);
+	float[] ret = floats(Math.max(n, a.length * 2));
+	System.arraycopy(a, 0, ret, 0, used);
+	release(a);
+	return(ret);
+    }
+
+    public static short[] grow(short[] a, int used, int n) {
+	if(a.length >= n)
+	    return(a);
+	short[] ret = shorts(Math.max(n, a.length * 2));
+	System.arraycopy(a, 0, ret, 0, used);
+	release(a);
+	return(ret);
+    }
+}
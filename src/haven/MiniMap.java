@@ -654,11 +654,12 @@ public class MiniMap extends Widget
 	}
 
 	private CachedImage img_c;
+	private volatile GridPainter.Painted lastimg;
 	public Tex img() {
 	    if(img_c == null) {
 		img_c = new CachedImage(grid -> {
 			if(grid instanceof MapFile.ZoomGrid) {
-			    return(Defer.later(() -> new TexI(grid.render(sc.mul(cmaps)))));
+			    return(Defer.later(() -> new TexI((lastimg = grid.paint(sc.mul(cmaps), lastimg)).img())));
 			} else {
 			    return(Defer.later(new Defer.Callable<Tex>() {
 				    MapFile.View view = new MapFile.View(seg);
@@ -671,7 +672,8 @@ public class MiniMap extends Widget
 						}
 					    }
 					    view.fin();
-					    return(new TexI(MapSource.drawmap(view, Area.sized(sc.mul(cmaps), cmaps))));
+					    lastimg = MapSource.paint(view, Area.sized(sc.mul(cmaps), cmaps), lastimg);
+					    return(new TexI(lastimg.img()));
 					}
 				    }
 				}));
@@ -645,12 +645,7 @@ public class ModSprite extends Sprite implements Sprite.CUpd, EquipTarget {
 	}
 
 	private void rebuild() {
-	    pose.reset();
-	    for(PoseMod m : mods)
-		m.apply(pose);
-	    if(ipold > 0)
-		pose.blend(oldpose, Utils.smoothstep(ipold));
-	    pose.gbuild();
+	    pose.build(mods, oldpose, (ipold > 0) ? Utils.smoothstep(ipold) : 0);
 	}
 
 	public class Applier implements Mod {
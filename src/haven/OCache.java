@@ -64,6 +64,7 @@ public class OCache implements Iterable<Gob> {
     private Glob glob;
     private final Collection<ChangeCallback> cbs = new WeakList<ChangeCallback>();
 	public final NPathVisualizer paths = new NPathVisualizer();
+    public final nurgling.tools.GobOverlayScheduler overlays;
     public interface ChangeCallback {
 	public void added(Gob ob);
 	public void removed(Gob ob);
@@ -71,6 +72,7 @@ public class OCache implements Iterable<Gob> {
 
     public OCache(Glob glob) {
 	this.glob = glob;
+	this.overlays = new nurgling.tools.GobOverlayScheduler(glob);
     }
 
     public synchronized void callback(ChangeCallback cb) {
@@ -117,15 +119,39 @@ public class OCache implements Iterable<Gob> {
 	    for(Gob g : this)
 		copy.add(g);
 	}
+	/* Each worker queues its slot removals and state changes in its
+	 * own batch, applied below with one tree lock per batch instead
+	 * of one per slot. */
+	Collection<RenderTree.Batch> batches = new ArrayList<>();
+	ThreadLocal<RenderTree.Batch> batchv = new ThreadLocal<>();
 	Consumer<Gob> task = g -> {
-	    synchronized(g) {
-		g.ctick(dt);
+	    RenderTree.Batch batch = batchv.get();
+	    if(batch == null) {
+		batch = new RenderTree.Batch();
+		synchronized(batches) {
+		    batches.add(batch);
+		}
+		batchv.set(batch);
+	    }
+	    try(RenderTree.Batch.Scope s = batch.enter()) {
+		synchronized(g) {
+		    g.ctick(dt);
+		}
 	    }
 	};
-	if(!Config.par.get())
-	    copy.forEach(task);
-	else
-	    copy.parallelStream().forEach(task);
+	try(CPUProfile.Current prof = CPUProfile.begin("gobs")) {
+	    if(!Config.par.get())
+		copy.forEach(task);
+	    else
+		copy.parallelStream().forEach(task);
+	}
+	try(CPUProfile.Current prof = CPUProfile.begin("rtree")) {
+	    for(RenderTree.Batch batch : batches)
+		batch.apply();
+	}
+	try(CPUProfile.Current prof = CPUProfile.begin("overlays")) {
+	    overlays.run();
+	}
 	paths.tick(dt);
     }
 
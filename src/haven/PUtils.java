@@ -350,6 +350,26 @@ public class PUtils {
 
 	public Coord tloff() {return(Coord.of(grad + brad));}
 	public Coord broff() {return(Coord.of(grad + brad));}
+
+	private GlyphAtlas atlas = null;
+
+	/* The glyphs of the underlying foundry, outlined as this
+	 * furnace outlines strings; see GlyphAtlas. */
+	public synchronized GlyphAtlas atlas() {
+	    if(atlas == null) {
+		Text.Foundry fnd = (Text.Foundry)back;
+		atlas = new GlyphAtlas(fnd.font, fnd.aa, grad, brad);
+	    }
+	    return(atlas);
+	}
+
+	/* Like render(text).tex(), but drawn from the atlas when the
+	 * text and the underlying forge allow it. */
+	public Tex tex(String text) {
+	    if(!(back instanceof Text.Foundry))
+		return(render(text).tex());
+	    return(atlas().tex(text, ((Text.Foundry)back).defcol, col, this));
+	}
     }
 
     public static class TexFurn extends Text.OffsetForge {
@@ -56,8 +56,13 @@ public class RUtils {
     public static void multirem(Collection<Slot> slots) {
 	if(slots == null)
 	    return;
-	for(Slot slot : slots)
-	    slot.remove();
+	RenderTree.Batch batch = RenderTree.Batch.current();
+	for(Slot slot : slots) {
+	    if(batch != null)
+		batch.remove(slot);
+	    else
+		slot.remove();
+	}
     }
 
     public static void readd(Collection<Slot> slots, Consumer<Slot> add, Runnable revert) {
@@ -75,7 +75,7 @@ public class Scrollbar extends Widget {
 	    int n = Math.max((eh + ch - 1) / ch, 2);
 	    for(int i = 0; i < n; i++)
 		g.image(schain, Coord.of(cx, ((eh - ch) * i) / (n - 1)));
-	    double a = (double)val / (double)(max - min);
+	    double a = (double)(val - min) / (double)(max - min);
 	    int fy = (int)((sz.y - sflarp.sz().y) * a);
 	    g.image(sflarp, new Coord(0, fy));
 	}
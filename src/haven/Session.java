@@ -35,6 +35,7 @@ import java.lang.ref.*;
 
 public class Session implements Resource.Resolver {
     public static final Config.Variable<java.nio.file.Path> record = Config.Variable.propp("haven.record", "");
+    public static final Config.Variable<java.nio.file.Path> capture = Config.Variable.propp("haven.capture", "");
     public static final int PVER = Utils.nonconst(31);
 
     public static final int MSG_SESS = 0;
@@ -305,6 +306,13 @@ public class Session implements Resource.Resolver {
 		throw(new RuntimeException(e));
 	    }
 	}
+	if(capture.get() != null) {
+	    try {
+		conn.add(new Capture.Writer(capture.get()));
+	    } catch(IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	}
 	sesskey = SignKey.JWK.ES256.generate();
 	queuemsg((PMessage)new PMessage(RMessage.RMSG_SESSKEY).addtto(SignKey.JWK.format(sesskey, true)));
     }
@@ -342,6 +350,13 @@ public class Session implements Resource.Resolver {
         }
     }
 
+    /* Whether the UI has taken every UI message received so far. */
+    public boolean uiidle() {
+	synchronized(uimsgs) {
+	    return(uimsgs.isEmpty());
+	}
+    }
+
     public PMessage getuimsg() throws InterruptedException {
 	synchronized(uimsgs) {
 	    while(true) {
@@ -191,14 +191,8 @@ public class SkelSprite extends Sprite implements Sprite.CUpd, EquipTarget, Spri
     }
     
     private void rebuild() {
-	pose.reset();
-	for(PoseMod m : mods)
-	    m.apply(pose);
-	if(ipold > 0) {
-	    float f = ipold * ipold * (3 - (2 * ipold));
-	    pose.blend(oldpose, f);
-	}
-	pose.gbuild();
+	float f = (ipold > 0) ? ipold * ipold * (3 - (2 * ipold)) : 0;
+	pose.build(mods, oldpose, f);
     }
 
     private static final Map<MeshAnim.Res, MeshAnim.Animation> nomaids = new HashMap<>();
@@ -34,6 +34,8 @@ public class Skeleton {
     public final Map<String, Bone> bones = new HashMap<String, Bone>();
     public final Bone[] blist; /* Topologically sorted */
     public final Pose bindpose;
+    private final int[] parents; /* Parent index per bone in blist, or -1 */
+    private final PoseCache poses = new PoseCache();
 
     public Skeleton(Collection<Bone> bones) {
 	Set<Bone> bset = new HashSet<Bone>(bones);
@@ -66,6 +68,9 @@ public class Skeleton {
 	    if(!f)
 		throw(new RuntimeException("Cyclical bone hierarchy"));
 	}
+	parents = new int[blist.length];
+	for(int i = 0; i < blist.length; i++)
+	    parents[i] = (blist[i].parent == null) ? -1 : blist[i].parent.idx;
 	bindpose = mkbindpose();
     }
     
@@ -92,27 +97,29 @@ public class Skeleton {
     }
     
     private static float[] qqmul(float[] d, float[] a, float[] b) {
-	float aw = a[0], ax = a[1], ay = a[2], az = a[3];
-	float bw = b[0], bx = b[1], by = b[2], bz = b[3];
-	d[0] = (aw * bw) - (ax * bx) - (ay * by) - (az * bz);
-	d[1] = (aw * bx) + (ax * bw) + (ay * bz) - (az * by);
-	d[2] = (aw * by) - (ax * bz) + (ay * bw) + (az * bx);
-	d[3] = (aw * bz) + (ax * by) - (ay * bx) + (az * bw);
+	qqmul(d, 0, a, 0, b, 0);
 	return(d);
     }
-    
-    private static float[] vqrot(float[] d, float[] v, float[] q) {
-	float vx = v[0], vy = v[1], vz = v[2];
-	float qw = q[0], qx = q[1], qy = q[2], qz = q[3];
-	/* I dearly wonder how the JIT's common-subexpression
-	 * eliminator does on these. */
-	d[0] = (qw * qw * vx) + (2 * qw * qy * vz) - (2 * qw * qz * vy) + (qx * qx * vx) +
-	    (2 * qx * qy * vy) + (2 * qx * qz * vz) - (qz * qz * vx) - (qy * qy * vx);
-	d[1] = (2 * qx * qy * vx) + (qy * qy * vy) + (2 * qy * qz * vz) + (2 * qw * qz * vx) -
-	    (qz * qz * vy) + (qw * qw * vy) - (2 * qw * qx * vz) - (qx * qx * vy);
-	d[2] = (2 * qx * qz * vx) + (2 * qy * qz * vy) + (qz * qz * vz) - (2 * qw * qy * vx) -
-	    (qy * qy * vz) + (2 * qw * qx * vy) - (qx * qx * vz) + (qw * qw * vz);
-	return(d);
+
+    /* The offset variants below let callers work without any
+     * temporary arrays. */
+    private static void qqmul(float[] d, int di, float[] a, int ai, float[] b, int bi) {
+	float aw = a[ai], ax = a[ai + 1], ay = a[ai + 2], az = a[ai + 3];
+	float bw = b[bi], bx = b[bi + 1], by = b[bi + 2], bz = b[bi + 3];
+	d[di    ] = (aw * bw) - (ax * bx) - (ay * by) - (az * bz);
+	d[di + 1] = (aw * bx) + (ax * bw) + (ay * bz) - (az * by);
+	d[di + 2] = (aw * by) - (ax * bz) + (ay * bw) + (az * bx);
+	d[di + 3] = (aw * bz) + (ax * by) - (ay * bx) + (az * bw);
+    }
+
+    /* d = (v rotated by q) + o */
+    private static void vqrotadd(float[] d, int di, float vx, float vy, float vz, float qw, float qx, float qy, float qz, float ox, float oy, float oz) {
+	d[di    ] = (qw * qw * vx) + (2 * qw * qy * vz) - (2 * qw * qz * vy) + (qx * qx * vx) +
+	    (2 * qx * qy * vy) + (2 * qx * qz * vz) - (qz * qz * vx) - (qy * qy * vx) + ox;
+	d[di + 1] = (2 * qx * qy * vx) + (qy * qy * vy) + (2 * qy * qz * vz) + (2 * qw * qz * vx) -
+	    (qz * qz * vy) + (qw * qw * vy) - (2 * qw * qx * vz) - (qx * qx * vy) + oy;
+	d[di + 2] = (2 * qx * qz * vx) + (2 * qy * qz * vy) + (qz * qz * vz) - (2 * qw * qy * vx) -
+	    (qy * qy * vz) + (2 * qw * qx * vy) - (qx * qx * vz) + (qw * qw * vz) + oz;
     }
     
     private static float[] vset(float[] d, float[] s) {
@@ -130,36 +137,18 @@ public class Skeleton {
 	return(d);
     }
     
-    private static float[] vinv(float[] d, float[] s) {
-	d[0] = -s[0];
-	d[1] = -s[1];
-	d[2] = -s[2];
-	return(d);
-    }
-    
-    private static float[] qinv(float[] d, float[] s) {
-	/* Assumes |s| = 1.0 */
-	d[0] = s[0];
-	d[1] = -s[1];
-	d[2] = -s[2];
-	d[3] = -s[3];
-	return(d);
-    }
-    
-    private static float[] vvadd(float[] d, float[] a, float[] b) {
-	float ax = a[0], ay = a[1], az = a[2];
-	float bx = b[0], by = b[1], bz = b[2];
-	d[0] = ax + bx;
-	d[1] = ay + by;
-	d[2] = az + bz;
+    private static float[] qqslerp(float[] d, float[] a, float[] b, float t) {
+	qqslerp(d, 0, a, 0, b, 0, t);
 	return(d);
     }
-    
-    private static float[] qqslerp(float[] d, float[] a, float[] b, float t) {
-	float aw = a[0], ax = a[1], ay = a[2], az = a[3];
-	float bw = b[0], bx = b[1], by = b[2], bz = b[3];
-	if((aw == bw) && (ax == bx) && (ay == by) && (az == bz))
-	    return(qset(d, a));
+
+    private static void qqslerp(float[] d, int di, float[] a, int ai, float[] b, int bi, float t) {
+	float aw = a[ai], ax = a[ai + 1], ay = a[ai + 2], az = a[ai + 3];
+	float bw = b[bi], bx = b[bi + 1], by = b[bi + 2], bz = b[bi + 3];
+	if((aw == bw) && (ax == bx) && (ay == by) && (az == bz)) {
+	    d[di] = aw; d[di + 1] = ax; d[di + 2] = ay; d[di + 3] = az;
+	    return;
+	}
 	float cos = (aw * bw) + (ax * bx) + (ay * by) + (az * bz);
 	if(cos < 0) {
 	    bw = -bw; bx = -bx; by = -by; bz = -bz;
@@ -176,11 +165,10 @@ public class Skeleton {
 	    d0 = (float)Math.sin((1.0f - t) * da) * nf;
 	    d1 = (float)Math.sin(t * da) * nf;
 	}
-	d[0] = (d0 * aw) + (d1 * bw);
-	d[1] = (d0 * ax) + (d1 * bx);
-	d[2] = (d0 * ay) + (d1 * by);
-	d[3] = (d0 * az) + (d1 * bz);
-	return(d);
+	d[di    ] = (d0 * aw) + (d1 * bw);
+	d[di + 1] = (d0 * ax) + (d1 * bx);
+	d[di + 2] = (d0 * ay) + (d1 * by);
+	d[di + 3] = (d0 * az) + (d1 * bz);
     }
 
     public Pose mkbindpose() {
@@ -229,20 +217,14 @@ public class Skeleton {
 	public void gbuild() {
 	    int nb = blist.length;
 	    for(int i = 0; i < nb; i++) {
-		Bone b = blist[i];
-		if(b.parent == null) {
-		    gpos[i][0] = lpos[i][0];
-		    gpos[i][1] = lpos[i][1];
-		    gpos[i][2] = lpos[i][2];
-		    grot[i][0] = lrot[i][0];
-		    grot[i][1] = lrot[i][1];
-		    grot[i][2] = lrot[i][2];
-		    grot[i][3] = lrot[i][3];
+		int pi = parents[i];
+		if(pi < 0) {
+		    vset(gpos[i], lpos[i]);
+		    qset(grot[i], lrot[i]);
 		} else {
-		    int pi = b.parent.idx;
-		    qqmul(grot[i], grot[pi], lrot[i]);
-		    vqrot(gpos[i], lpos[i], grot[pi]);
-		    vvadd(gpos[i], gpos[i], gpos[pi]);
+		    float[] lp = lpos[i], pr = grot[pi], pp = gpos[pi];
+		    qqmul(grot[i], pr, lrot[i]);
+		    vqrotadd(gpos[i], 0, lp[0], lp[1], lp[2], pr[0], pr[1], pr[2], pr[3], pp[0], pp[1], pp[2]);
 		}
 	    }
 	    seq++;
@@ -256,6 +238,27 @@ public class Skeleton {
 		lpos[i][2] = lpos[i][2] + ((o.lpos[i][2] - lpos[i][2]) * d);
 	    }
 	}
+
+	/**
+	 * Rebuild this pose from the bind pose and {@code mods}, blending
+	 * towards {@code old} by {@code ipol} if it is positive. Unblended
+	 * poses made only of shareable animations are looked up in, and
+	 * stored to, the skeleton's pose cache, so sprites playing the same
+	 * animations at the same phase compute them only once.
+	 */
+	public void build(PoseMod[] mods, Pose old, float ipol) {
+	    PoseCache.Key key = ((ipol <= 0) && (from == bindpose)) ? poses.key(mods) : null;
+	    if((key != null) && poses.fetch(key, this))
+		return;
+	    reset();
+	    for(PoseMod m : mods)
+		m.apply(this);
+	    if(ipol > 0)
+		blend(old, ipol);
+	    gbuild();
+	    if(key != null)
+		poses.store(key, this);
+	}
 	
 	/* XXX: It seems the return type of these should be something more generic. */
 	public Supplier<Pipe.Op> bonetrans(int bone) {
@@ -293,8 +296,7 @@ public class Skeleton {
 
 		    public Pipe.Op get() {
 			if(cseq != seq) {
-			    rot = qqmul(rot, grot[bone], qinv(rot, bindpose.grot[bone]));
-			    pos = vvadd(pos, gpos[bone], vqrot(pos, vinv(pos, bindpose.gpos[bone]), rot));
+			    boneoff(bone, pos, rot);
 			    Matrix4f xf = Transform.makexlate(new Matrix4f(), new Coord3f(pos[0], pos[1], pos[2]));
 			    if(rot[0] < 0.999999) {
 				float ang = (float)(Math.acos(rot[0]) * 2.0);
@@ -334,17 +336,32 @@ public class Skeleton {
 	    }
 	}
 
+	/* Offset of a bone from its bind pose: rot = grot * bindrot^-1,
+	 * xlate = gpos - (bindpos rotated by rot). */
+	private void boneoff(int bone, float[] xlate, float[] rot) {
+	    float[] gp = gpos[bone], gr = grot[bone], bp = bindpose.gpos[bone], br = bindpose.grot[bone];
+	    float aw = gr[0], ax = gr[1], ay = gr[2], az = gr[3];
+	    float bw = br[0], bx = -br[1], by = -br[2], bz = -br[3];
+	    rot[0] = (aw * bw) - (ax * bx) - (ay * by) - (az * bz);
+	    rot[1] = (aw * bx) + (ax * bw) + (ay * bz) - (az * by);
+	    rot[2] = (aw * by) - (ax * bz) + (ay * bw) + (az * bx);
+	    rot[3] = (aw * bz) + (ax * by) - (ay * bx) + (az * bw);
+	    vqrotadd(xlate, 0, -bp[0], -bp[1], -bp[2], rot[0], rot[1], rot[2], rot[3], gp[0], gp[1], gp[2]);
+	}
+
 	public void boneoff(int bone, float[] offtrans) {
-	    /* It would be nice if these "new float"s get
-	     * stack-allocated. */
-	    float[] rot = new float[4], xlate = new float[3];
-	    rot = qqmul(rot, grot[bone], qinv(rot, bindpose.grot[bone]));
-	    xlate = vvadd(xlate, gpos[bone], vqrot(xlate, vinv(xlate, bindpose.gpos[bone]), rot));
+	    float[] gp = gpos[bone], gr = grot[bone], bp = bindpose.gpos[bone], br = bindpose.grot[bone];
+	    float aw = gr[0], ax = gr[1], ay = gr[2], az = gr[3];
+	    float bw = br[0], bx = -br[1], by = -br[2], bz = -br[3];
+	    float rw = (aw * bw) - (ax * bx) - (ay * by) - (az * bz);
+	    float rx = (aw * bx) + (ax * bw) + (ay * bz) - (az * by);
+	    float ry = (aw * by) - (ax * bz) + (ay * bw) + (az * bx);
+	    float rz = (aw * bz) + (ax * by) - (ay * bx) + (az * bw);
 	    offtrans[3] = 0; offtrans[7] = 0; offtrans[11] = 0; offtrans[15] = 1;
-	    offtrans[12] = xlate[0]; offtrans[13] = xlate[1]; offtrans[14] = xlate[2];
+	    vqrotadd(offtrans, 12, -bp[0], -bp[1], -bp[2], rw, rx, ry, rz, gp[0], gp[1], gp[2]);
 	    /* I must admit I don't /quite/ understand why the
 	     * rotation needs to be inverted... */
-	    float w = -rot[0], x = rot[1], y = rot[2], z = rot[3];
+	    float w = -rw, x = rx, y = ry, z = rz;
 	    float xw = x * w * 2, xx = x * x * 2, xy = x * y * 2, xz = x * z * 2;
 	    float yw = y * w * 2, yy = y * y * 2, yz = y * z * 2;
 	    float zw = z * w * 2, zz = z * z * 2;
@@ -413,6 +430,108 @@ public class Skeleton {
 	}
     }
 
+    /* Recently built poses of this skeleton, keyed by the animations
+     * that produced them and their phase quantized to 1/RATE
+     * seconds. A pose is a pure function of those, so sprites playing
+     * the same animations in step can share one evaluation. */
+    public class PoseCache {
+	public static final int RATE = 60;
+	public static final int SIZE = 128;
+	/* Cached poses are kept flat, lpos, gpos, lrot and grot of
+	 * each bone in turn. */
+	private static final int STRIDE = 3 + 3 + 4 + 4;
+	private final Map<Key, float[]> cache = new LinkedHashMap<Key, float[]>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<Key, float[]> e) {
+		    return(size() > SIZE);
+		}
+	    };
+	private long hits, misses;
+
+	public class Key {
+	    private final Object[] ids;
+	    private final int[] phases;
+	    private final int hash;
+
+	    private Key(Object[] ids, int[] phases) {
+		this.ids = ids;
+		this.phases = phases;
+		int h = 0;
+		for(int i = 0; i < ids.length; i++)
+		    h = (h * 31 + System.identityHashCode(ids[i])) * 31 + phases[i];
+		this.hash = h;
+	    }
+
+	    public int hashCode() {
+		return(hash);
+	    }
+
+	    public boolean equals(Object o) {
+		if(!(o instanceof Key))
+		    return(false);
+		Key k = (Key)o;
+		if((k.hash != hash) || (k.ids.length != ids.length))
+		    return(false);
+		for(int i = 0; i < ids.length; i++) {
+		    if((k.ids[i] != ids[i]) || (k.phases[i] != phases[i]))
+			return(false);
+		}
+		return(true);
+	    }
+	}
+
+	/* Returns null if any of the mods can't be shared. */
+	public Key key(PoseMod[] mods) {
+	    Object[] ids = new Object[mods.length];
+	    int[] phases = new int[mods.length];
+	    for(int i = 0; i < mods.length; i++) {
+		if((ids[i] = mods[i].shareid()) == null)
+		    return(null);
+		phases[i] = mods[i].sharephase();
+	    }
+	    return(new Key(ids, phases));
+	}
+
+	public boolean fetch(Key key, Pose p) {
+	    float[] buf;
+	    synchronized(this) {
+		if((buf = cache.get(key)) == null) {
+		    misses++;
+		    return(false);
+		}
+		hits++;
+	    }
+	    for(int i = 0, o = 0; i < blist.length; i++, o += STRIDE) {
+		System.arraycopy(buf, o,      p.lpos[i], 0, 3);
+		System.arraycopy(buf, o + 3,  p.gpos[i], 0, 3);
+		System.arraycopy(buf, o + 6,  p.lrot[i], 0, 4);
+		System.arraycopy(buf, o + 10, p.grot[i], 0, 4);
+	    }
+	    p.seq++;
+	    return(true);
+	}
+
+	public void store(Key key, Pose p) {
+	    float[] buf = new float[blist.length * STRIDE];
+	    for(int i = 0, o = 0; i < blist.length; i++, o += STRIDE) {
+		System.arraycopy(p.lpos[i], 0, buf, o,      3);
+		System.arraycopy(p.gpos[i], 0, buf, o + 3,  3);
+		System.arraycopy(p.lrot[i], 0, buf, o + 6,  4);
+		System.arraycopy(p.grot[i], 0, buf, o + 10, 4);
+	    }
+	    synchronized(this) {
+		cache.put(key, buf);
+	    }
+	}
+
+	public synchronized String stats() {
+	    return(String.format("%d poses, %d hits, %d misses", cache.size(), hits, misses));
+	}
+    }
+
+    public PoseCache posecache() {
+	return(poses);
+    }
+
     public interface ModOwner extends OwnerContext {
 	public double getv();
 	public Collection<Location.Chain> getloc();
@@ -454,7 +573,7 @@ public class Skeleton {
 
 	public void apply(Pose p) {
 	    for(int i = 0; i < blist.length; i++) {
-		vvadd(p.lpos[i], p.lpos[i], lpos[i]);
+		p.lpos[i][0] += lpos[i][0]; p.lpos[i][1] += lpos[i][1]; p.lpos[i][2] += lpos[i][2];
 		qqmul(p.lrot[i], p.lrot[i], lrot[i]);
 	    }
 	}
@@ -463,6 +582,19 @@ public class Skeleton {
 	    return(false);
 	}
 
+	/**
+	 * Identity of the animation this mod plays, if the pose it produces
+	 * depends on nothing but that and {@link #sharephase()}; null if it
+	 * cannot be shared between sprites.
+	 */
+	public Object shareid() {
+	    return(null);
+	}
+
+	public int sharephase() {
+	    return(0);
+	}
+
 	public void age() {
 	}
 	
@@ -672,6 +804,7 @@ public class Skeleton {
 	protected boolean speedmod = false;
 	protected double nspeed = 0.0;
 	private boolean back = false;
+	private boolean stale = false;
 	
 	public TrackMod(ModOwner owner, Track[] tracks, FxTrack[] effects, float len, WrapMode mode) {
 	    super(owner);
@@ -696,6 +829,7 @@ public class Skeleton {
 	public void aupdate(float time) {
 	    if(time > len)
 		time = len;
+	    stale = false;
 	    reset();
 	    for(int i = 0; i < tracks.length; i++) {
 		Track t = tracks[i];
@@ -798,7 +932,9 @@ public class Skeleton {
 	    float ot = this.time;
 	    this.time = nt;
 	    if(!stat) {
-		aupdate(this.time);
+		/* Evaluated lazily in apply(), which is skipped
+		 * altogether when the pose comes from the cache. */
+		stale = true;
 		if(!back)
 		    playfx(ot, nt);
 		else
@@ -809,6 +945,16 @@ public class Skeleton {
 	    }
 	}
 
+	public void apply(Pose p) {
+	    if(stale)
+		aupdate(time);
+	    super.apply(p);
+	}
+
+	public int sharephase() {
+	    return((int)(time * PoseCache.RATE));
+	}
+
 	public void age() {
 	    switch(mode) {
 	    case PONGLOOP:
@@ -1199,6 +1345,10 @@ public class Skeleton {
 		    scale = skelscale(refskel, skel);
 	    }
 
+	    public Object shareid() {
+		return(ResPose.this);
+	    }
+
 	    public ResMod(ModOwner owner, Skeleton skel) {
 		this(owner, skel, defmode);
 	    }
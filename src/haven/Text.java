@@ -138,6 +138,7 @@ public class Text implements Disposable {
 	public final Color defcol;
 	public boolean aa = true;
 	private RichText.Foundry wfnd = null;
+	private GlyphAtlas atlas = null;
 		
 	public Foundry(Font f, Color defcol) {
 	    font = f;
@@ -162,9 +163,26 @@ public class Text implements Disposable {
 
 	public Foundry aa(boolean aa) {
 	    this.aa = aa;
+	    synchronized(this) {
+		atlas = null;
+	    }
 	    return(this);
 	}
 
+	/* The glyphs of this foundry, for drawing labels without
+	 * rendering each through AWT; see GlyphAtlas. */
+	public synchronized GlyphAtlas atlas() {
+	    if(atlas == null)
+		atlas = new GlyphAtlas(this);
+	    return(atlas);
+	}
+
+	/* Like render(text, c).tex(), but drawn from the atlas when
+	 * the text allows it, which costs no texture of its own. */
+	public Tex tex(String text, Color c) {
+	    return(atlas().tex(text, c, this));
+	}
+
 	public int height() {
 	    /* XXX? The only font which seems to have leading > 0 is
 	     * the Moderne Fraktur font, for which the leading is
@@ -136,12 +136,19 @@ public class TileHighlight {
          */
         private void fill(MapFile.DataGrid grid) {
             if(grid == null) {return;}
+            // Look each tileset up once rather than once per tile, and
+            // skip grids that hold none of the highlighted ones
+            boolean[] hl = new boolean[grid.tilesets.length];
+            boolean any = false;
+            synchronized (highlight) {
+                for (int i = 0; i < hl.length; i++)
+                    any |= hl[i] = highlight.contains(grid.tilesets[i].res.name);
+            }
+            if(!any) {return;}
             Coord c = new Coord(0, 0);
             for (c.x = 0; c.x < cmaps.x; c.x++) {
                 for (c.y = 0; c.y < cmaps.y; c.y++) {
-                    int tile = grid.gettile(c);
-                    MapFile.TileInfo tileset = grid.tilesets[tile];
-                    boolean v = isHighlighted(tileset.res.name);
+                    boolean v = hl[grid.gettile(c)];
                     set(c, v);
                     // Add 1-tile border around highlighted tiles for better visibility
                     if(v) { 
@@ -0,0 +1,74 @@
+package haven;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Tileset textures as flat ARGB arrays, shared by every map renderer in
+ * the process and keyed by resource name and version. Reading a pixel
+ * out of a BufferedImage goes through its color model each time, which
+ * dominated minimap rendering; these are unpacked once per tileset.
+ */
+public class TileTexCache {
+    public static final TileTexCache global = new TileTexCache();
+    private static final Tex none = new Tex(0, 0, new int[0]);
+    private final Map<String, Tex> cache = new ConcurrentHashMap<>();
+
+    public static class Tex {
+	public final int w, h;
+	public final int[] px;
+	/* Single color for the tile when biome colors are uniform: the
+	 * texture's first pixel, made opaque. */
+	public final int uniform;
+
+	public Tex(int w, int h, int[] px) {
+	    this.w = w;
+	    this.h = h;
+	    this.px = px;
+	    this.uniform = (px.length > 0) ? ((px[0] & 0x00ffffff) | 0xff000000) : 0;
+	}
+
+	public static Tex of(BufferedImage img) {
+	    int w = img.getWidth(), h = img.getHeight();
+	    return(new Tex(w, h, img.getRGB(0, 0, w, h, null, 0, w)));
+	}
+
+	public int get(int x, int y) {
+	    return(px[Utils.floormod(x, w) + (Utils.floormod(y, h) * w)]);
+	}
+    }
+
+    private static String key(String name, int ver) {
+	return(name + ":" + ver);
+    }
+
+    private Tex get(String key, Resource res) {
+	Tex ret = cache.get(key);
+	if(ret == null) {
+	    Resource.Image ir = res.layer(Resource.imgc);
+	    ret = (ir == null) ? none : Tex.of(ir.img);
+	    cache.putIfAbsent(key, ret);
+	}
+	return((ret == none) ? null : ret);
+    }
+
+    /* The texture of a loaded tileset resource, or null if it has none. */
+    public Tex get(Resource res) {
+	return(get(key(res.name, res.ver), res));
+    }
+
+    /* As get(Resource), but without loading a resource that has already
+     * been seen. Loading and other errors from loading it propagate. */
+    public Tex get(Resource.Saved res) {
+	String key = key(res.name, res.ver);
+	Tex ret = cache.get(key);
+	if(ret != null)
+	    return((ret == none) ? null : ret);
+	return(get(key, res.get()));
+    }
+
+    public int size() {
+	return(cache.size());
+    }
+}
@@ -288,6 +288,7 @@ public abstract class UILoop implements Console.Directory {
 	if((map != null) && (map.back != null)) {
 	    buf.add(String.format("Camera: %s", map.camstats()));
 	    buf.add(String.format("Mapview: %s", map.stats()));
+	    buf.add(String.format("Tree lock: %s", map.tree.lockstats()));
 	    // buf.add(String.format("Click: Map: %s, Obj: %s", map.clmaplist.stats(), map.clobjlist.stats()));
 	}
 	if((ui.sess != null) && (ui.sess.conn instanceof Connection))
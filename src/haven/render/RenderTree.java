@@ -28,6 +28,7 @@ package haven.render;
 
 import java.lang.ref.*;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.*;
 import haven.*;
 import nurgling.NUtils;
@@ -77,7 +78,7 @@ import static haven.Utils.eq;
  *   shared by several tree-slots.
  */
 public class RenderTree implements RenderList.Adapter, Disposable {
-    private final Lock lock = new ReentrantLock();
+    private final StatLock lock = new StatLock();
     private final TreeSlot root;
     private final List<Client<?>> clients = new ArrayList<>();
     private int nslots, nleaves;
@@ -91,6 +92,138 @@ public class RenderTree implements RenderList.Adapter, Disposable {
 	return(new Locked(this.lock));
     }
 
+    /*
+     * The tree lock, counting how long threads wait for it and how long
+     * the outermost holder keeps it. Reentrant acquisitions are not
+     * counted, so a batch applying many operations shows up as one hold.
+     */
+    private static class StatLock extends ReentrantLock {
+	final LongAdder acquired = new LongAdder(), contended = new LongAdder();
+	final LongAdder waitns = new LongAdder(), holdns = new LongAdder();
+	private long since;
+
+	public void lock() {
+	    if(!tryLock()) {
+		long st = System.nanoTime();
+		super.lock();
+		waitns.add(System.nanoTime() - st);
+		contended.increment();
+	    }
+	    if(getHoldCount() == 1) {
+		acquired.increment();
+		since = System.nanoTime();
+	    }
+	}
+
+	public void unlock() {
+	    if(getHoldCount() == 1)
+		holdns.add(System.nanoTime() - since);
+	    super.unlock();
+	}
+    }
+
+    /*
+     * Slot changes collected on one thread and applied later with a
+     * single acquisition of each tree's lock. OCache.ctick gives each
+     * tick worker its own batch; while a batch is entered on a thread,
+     * RUtils.multirem and Gob.updstate queue removals and object-state
+     * changes here instead of locking the tree once per slot. Adds are
+     * never deferred, since callers need the returned slot.
+     */
+    public static class Batch {
+	private static final ThreadLocal<Batch> current = new ThreadLocal<>();
+	private final Map<RenderTree, List<Runnable>> ops = new IdentityHashMap<>();
+	/* onloading callbacks of states that could not be applied, run
+	 * once no tree lock is held: they may take other locks, such as
+	 * a gob's monitor, that are otherwise taken before the tree's. */
+	private final List<Runnable> failed = new ArrayList<>();
+	private int n = 0;
+
+	/* The batch entered on this thread, if any. */
+	public static Batch current() {
+	    return(current.get());
+	}
+
+	public Scope enter() {
+	    return(new Scope(this));
+	}
+
+	public static class Scope implements AutoCloseable {
+	    private final Batch prev;
+
+	    private Scope(Batch b) {
+		prev = current.get();
+		current.set(b);
+	    }
+
+	    public void close() {
+		current.set(prev);
+	    }
+	}
+
+	private void defer(RenderTree tree, Runnable op) {
+	    ops.computeIfAbsent(tree, t -> new ArrayList<>()).add(op);
+	    n++;
+	}
+
+	public void remove(Slot slot) {
+	    if(!(slot instanceof TreeSlot)) {
+		slot.remove();
+		return;
+	    }
+	    TreeSlot ts = (TreeSlot)slot;
+	    defer(ts.tree, () -> {
+		    /* Already gone if its parent was removed in the meantime. */
+		    if((ts.parent != null) && (ts.pidx < 0))
+			return;
+		    ts.remove();
+		});
+	}
+
+	/* onloading runs if the state could not be applied yet, so the
+	 * caller can retry it on its next tick. It runs after the tree's
+	 * lock has been released. */
+	public void ostate(Slot slot, Pipe.Op state, Runnable onloading) {
+	    if(!(slot instanceof TreeSlot)) {
+		slot.ostate(state);
+		return;
+	    }
+	    TreeSlot ts = (TreeSlot)slot;
+	    defer(ts.tree, () -> {
+		    if((ts.parent != null) && (ts.pidx < 0))
+			return;
+		    try {
+			ts.ostate(state);
+		    } catch(Loading l) {
+			if(onloading != null)
+			    failed.add(onloading);
+		    }
+		});
+	}
+
+	public int size() {
+	    return(n);
+	}
+
+	/* Runs all queued operations, taking each tree's lock once. */
+	public void apply() {
+	    try {
+		for(Map.Entry<RenderTree, List<Runnable>> e : ops.entrySet()) {
+		    try(Locked lk = e.getKey().lock()) {
+			for(Runnable op : e.getValue())
+			    op.run();
+		    }
+		}
+		for(Runnable cb : failed)
+		    cb.run();
+	    } finally {
+		ops.clear();
+		failed.clear();
+		n = 0;
+	    }
+	}
+    }
+
     private static class Client<R> {
 	final Class<? extends R> type;
 	final RenderList<R> list;
@@ -928,4 +1061,15 @@ public class RenderTree implements RenderList.Adapter, Disposable {
     public String stats() {
 	return(String.format("%,d L / %,d N", nleaves, nslots));
     }
+
+    private long[] lastlock = new long[4];
+    /* Lock traffic since the previous call. */
+    public String lockstats() {
+	long a = lock.acquired.sum(), c = lock.contended.sum();
+	long w = lock.waitns.sum(), h = lock.holdns.sum();
+	String ret = String.format("%,d acq, %,d cont, wait %.2f ms, hold %.2f ms",
+				   a - lastlock[0], c - lastlock[1], (w - lastlock[2]) * 1e-6, (h - lastlock[3]) * 1e-6);
+	lastlock = new long[] {a, c, w, h};
+	return(ret);
+    }
 }
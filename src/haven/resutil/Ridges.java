@@ -765,6 +765,14 @@ public class Ridges implements MapMesh.ConsHooks {
 	return(false);
     }
 
+    /* The height difference that brokenp() takes to break a tile of
+     * tiler t, or NaN if t is not a ridge tile. */
+    public static double breakz(Tiler t) {
+	if(!(t instanceof RidgeTile))
+	    return(Double.NaN);
+	return(((RidgeTile)t).breakz() + EPSILON);
+    }
+
     public static float edgeoff(MCache map, Coord tc, int edge, boolean hi) {
 	Ridges r = map.getcut(tc.div(MCache.cutsz)).data(id);
 	tc = tc.mod(MCache.cutsz);
@@ -32,6 +32,7 @@ public class MultiClient extends BaseTest {
     public Collection<TestClient> clients = new HashSet<TestClient>();
     public int num, delay;
     public int started;
+    public java.nio.file.Path replay = null;
     
     public MultiClient(int num, int delay) {
 	this.num = num;
@@ -48,6 +49,7 @@ public class MultiClient extends BaseTest {
 		long timeout = 1000;
 		if((started < num) && (now - laststarted >= delay)) {
 		    TestClient c = new TestClient("test" + (started + 1));
+		    c.replay = replay;
 		    new CharSelector(c, null, null) {
 			public void succeed() {
 			    System.out.println("Selected character");
@@ -97,7 +99,7 @@ public class MultiClient extends BaseTest {
     }
     
     public static void usage() {
-	System.err.println("usage: MultiClient NUM [DELAY]");
+	System.err.println("usage: MultiClient NUM [DELAY [CAPTURE]]");
     }
 
     public static void main(String[] args) {
@@ -109,6 +111,9 @@ public class MultiClient extends BaseTest {
 	int delay = 0;
 	if(args.length > 1)
 	    delay = Integer.parseInt(args[1]);
-	new MultiClient(num, delay).start();
+	MultiClient test = new MultiClient(num, delay);
+	if(args.length > 2)
+	    test.replay = java.nio.file.Paths.get(args[2]);
+	test.start();
     }
 }
@@ -36,6 +36,7 @@ public class TestClient implements Runnable {
     public InetSocketAddress addr;
     public String user;
     public byte[] cookie;
+    public java.nio.file.Path replay = null;
     public ThreadGroup tg;
     public Thread me;
     public UI ui;
@@ -63,6 +64,19 @@ public class TestClient implements Runnable {
     }
     
     public void connect() throws InterruptedException {
+	if(replay != null) {
+	    /* Play a session capture instead of connecting, to
+	     * load-test the client without a server. */
+	    Capture.Replay conn;
+	    try {
+		conn = new Capture.Replay(replay);
+	    } catch(java.io.IOException e) {
+		throw(new RuntimeException(e));
+	    }
+	    sess = new Session(conn, new Session.User(user));
+	    conn.start();
+	    return;
+	}
 	sess = Session.connect(addr, new Session.User(user), false, cookie);
     }
     
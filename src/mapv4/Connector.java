@@ -1,5 +1,6 @@
 package mapv4;
 
+import haven.Config;
 import haven.Coord;
 import haven.MCache;
 import nurgling.NConfig;
@@ -7,207 +8,429 @@ import nurgling.NGameUI;
 import nurgling.NUtils;
 import nurgling.actions.Action;
 import nurgling.actions.Results;
-import nurgling.tasks.NTask;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.SocketTimeoutException;
-import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 public class Connector implements Action {
     private static final int MAX_QUEUE_SIZE = 1000;
-    private static final int CONNECT_TIMEOUT_MS = 10000;
-    private static final int READ_TIMEOUT_MS = 30000;
+    private static final int MAX_BATCH = 64;
+    private static final int MAX_IN_FLIGHT = 4;
     private static final int MAX_RETRY_ATTEMPTS = 3;
     private static final int INITIAL_RETRY_DELAY_MS = 1000;
+    private static final long OUTBOX_BYTES = 64L << 20;
+    private static final long OUTBOX_SEGMENT_BYTES = 4L << 20;
+    private static final long PROBE_INTERVAL_MS = 30000;
+    /** Outbox directories tried in turn; a client finding one locked by another process moves on to the next. */
+    private static final int OUTBOX_DIRS = 4;
+    /** Outbox keys of grid minimaps kept for an offline section; only sent once the server asks for them. */
+    private static final String STASH = "IMG ";
     
     NMappingClient parent;
     public final BlockingQueue<JSONObject> msgs = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
+    final Uploader uploader = new Uploader(MAX_IN_FLIGHT, INITIAL_RETRY_DELAY_MS);
     private long lastErrorTime = 0;
     private int consecutiveErrors = 0;
+    private Outbox outbox = null;
+    private volatile boolean online = true;
+    private long lastProbe = 0, outboxDropped = 0;
+    /** Outbox entries being sent; shared by all sessions using the same outbox. */
+    private Set<Long> replaying = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> stashed = new ConcurrentHashMap<>();
     
     public Connector(NMappingClient parent) {
         this.parent = parent;
     }
 
+    public Uploader.Stats stats() {
+        return uploader.stats;
+    }
+
+    /** Queue a message for sending, counting it as dropped if the queue is full. */
+    public boolean enqueue(JSONObject msg) {
+        if (msgs.offer(msg))
+            return true;
+        uploader.stats.dropped.incrementAndGet();
+        return false;
+    }
+
     @Override
     public Results run(NGameUI gui) throws InterruptedException {
-        while (!parent.done.get()) {
-            JSONObject msg = msgs.poll(1, TimeUnit.SECONDS);
-            if(msg != null) {
-                String header = (String) msg.get("header");
-                // Optional features - try once, don't disable automapper on failure
-                if (header.equals("OVERLAY")) {
-                    sendOptionalMsg(msg);
-                } else {
-                    sendMsgWithRetry(msg);
+        if (outbox == null)
+            outbox = openOutbox();
+        List<JSONObject> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (!parent.done.get()) {
+                boolean backlog = online && (outbox != null) && (outbox.size() > replaying.size());
+                JSONObject msg = msgs.poll(backlog ? 100 : 1000, TimeUnit.MILLISECONDS);
+                if (msg != null) {
+                    batch.clear();
+                    batch.add(msg);
+                    msgs.drainTo(batch, MAX_BATCH - 1);
+                    List<JSONObject> send = MessageBatcher.coalesce(batch);
+                    uploader.stats.merged.addAndGet(batch.size() - send.size());
+                    for (JSONObject m : send) {
+                        // While the server is unreachable, park what is worth keeping on disk
+                        if (!online && hold(m))
+                            continue;
+                        // Optional features - try once, don't disable automapper on failure
+                        if (m.getString("header").equals("OVERLAY"))
+                            uploader.submit(() -> request(m), 1).whenComplete((resp, err) -> optionalDone(resp));
+                        else
+                            uploader.submit(() -> request(m), MAX_RETRY_ATTEMPTS).whenComplete((resp, err) -> done(m, resp, err));
+                    }
                 }
+                replay();
             }
+        } finally {
+            closeOutbox();
         }
         return Results.SUCCESS();
     }
 
-    private void sendOptionalMsg(JSONObject msg) {
-        try {
-            String urlString = (String) msg.get("url");
-            final HttpURLConnection connection =
-                    (HttpURLConnection) URI.create(urlString).toURL().openConnection();
-            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-            connection.setReadTimeout(READ_TIMEOUT_MS);
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
-            connection.setDoOutput(true);
-            try (DataOutputStream out = new DataOutputStream(connection.getOutputStream())) {
-                final String json = msg.get("data").toString();
-                out.write(json.getBytes(StandardCharsets.UTF_8));
+    private Outbox openOutbox() {
+        for (int i = 0; i < OUTBOX_DIRS; i++) {
+            try {
+                Outbox ret = Outbox.open(NUtils.getDataFilePath((i == 0) ? "mapper-outbox" : ("mapper-outbox-" + i)), OUTBOX_BYTES, OUTBOX_SEGMENT_BYTES);
+                replaying = ret.inFlight();
+                uploader.stats.backlog.set(ret.size());
+                return ret;
+            } catch (Exception e) {
+                // Most likely held by another client; try the next one
             }
-            int respCode = connection.getResponseCode();
-            connection.disconnect();
+        }
+        // No durable outbox; undeliverable messages are lost as before
+        return null;
+    }
 
-            // 404 means endpoint not supported - disable for session
-            if (respCode == 404) {
-                parent.setOverlayUnsupported();
-            }
-        } catch (Exception ignored) {
-            // Network error - silently ignore, will retry on next grid
+    /**
+     * Let go of the shared outbox; other sessions may still be using it.
+     * Uploads finishing after this fail to store like any other I/O error.
+     */
+    private void closeOutbox() {
+        if (outbox == null)
+            return;
+        try {
+            outbox.close();
+        } catch (IOException ignored) {
         }
     }
 
+    /**
+     * Send the oldest stored messages, as many as there are free upload
+     * slots. While offline, only one is tried every {@link #PROBE_INTERVAL_MS}
+     * to find out whether the server is back.
+     */
+    private void replay() throws InterruptedException {
+        if ((outbox == null) || (outbox.size() == 0))
+            return;
+        int n;
+        if (online) {
+            n = MAX_IN_FLIGHT - replaying.size();
+        } else {
+            long now = System.currentTimeMillis();
+            if (!replaying.isEmpty() || (now - lastProbe < PROBE_INTERVAL_MS))
+                return;
+            lastProbe = now;
+            n = 1;
+        }
+        if (n <= 0)
+            return;
+        List<Outbox.Entry> next;
+        try {
+            next = outbox.oldest(n, k -> (k == null) || !k.startsWith(STASH), replaying);
+        } catch (IOException e) {
+            return;
+        }
+        for (Outbox.Entry e : next) {
+            JSONObject m;
+            try {
+                m = restore(e);
+            } catch (RuntimeException ex) {
+                // Unreadable entry, e.g. from an older client
+                forget(e);
+                continue;
+            }
+            replaying.add(e.id);
+            uploader.submit(() -> request(m), 1).whenComplete((resp, err) -> {
+                done(m, resp, err, e);
+                replaying.remove(e.id);
+            });
+        }
+    }
 
+    /** Store {@code msg} for later instead of sending it; false if it has to be sent now. */
+    private boolean hold(JSONObject msg) {
+        String header = msg.getString("header");
+        // Positions are stale by the time the server is back, and overlays
+        // are sent again with the next grid request anyway
+        if (header.equals("TRACKING") || header.equals("OVERLAY"))
+            return true;
+        store(msg);
+        if (header.equals("GRIDREQ"))
+            parent.requestor.stashSection((String[][]) msg.getJSONObject("data").get("grids"));
+        return true;
+    }
 
-    private void sendMsgWithRetry(JSONObject msg) {
-        for (int attempt = 0; attempt < MAX_RETRY_ATTEMPTS; attempt++) {
-            try {
-                boolean success = sendMsg(msg);
-                if (success) {
-                    consecutiveErrors = 0;
-                    NUtils.setAutoMapperState(true);
+    private void store(JSONObject msg) {
+        if (outbox == null)
+            return;
+        String header = msg.getString("header");
+        JSONObject data = msg.optJSONObject("data");
+        String key = null;
+        byte[] blob = null;
+        try {
+            switch (header) {
+                case "TRACKING":
+                case "OVERLAY":
                     return;
+                case "GRIDREQ":
+                    key = "REQ " + ((String[][]) data.get("grids"))[1][1];
+                    break;
+                case "GRIDUPLOAD": {
+                    key = "UP " + data.getString("gridID");
+                    blob = png(data);
+                    JSONObject bare = new JSONObject();
+                    bare.put("data", new JSONObject().put("gridID", data.getString("gridID")).put("hash", data.getLong("hash")));
+                    bare.put("reqMethod", msg.getString("reqMethod"));
+                    bare.put("url", msg.getString("url"));
+                    bare.put("header", header);
+                    msg = bare;
+                    break;
                 }
-            } catch (Exception e) {
-                handleError(e, attempt);
             }
-            
-            if (attempt < MAX_RETRY_ATTEMPTS - 1) {
-                try {
-                    long delay = INITIAL_RETRY_DELAY_MS * (1L << attempt);
-                    Thread.sleep(delay);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return;
+            outbox.put(key, msg.toString(), blob);
+        } catch (IOException | RuntimeException e) {
+            uploader.stats.dropped.incrementAndGet();
+        }
+        synced();
+    }
+
+    /** Turn a stored entry back into the message it was made from. */
+    private static JSONObject restore(Outbox.Entry e) {
+        JSONObject msg = new JSONObject(e.json);
+        JSONObject data = msg.optJSONObject("data");
+        switch (msg.getString("header")) {
+            case "GRIDREQ": {
+                JSONArray rows = data.getJSONArray("grids");
+                String[][] grids = new String[rows.length()][];
+                for (int i = 0; i < grids.length; i++) {
+                    JSONArray row = rows.getJSONArray(i);
+                    grids[i] = new String[row.length()];
+                    for (int j = 0; j < grids[i].length; j++)
+                        grids[i][j] = row.optString(j, null);
                 }
+                data.put("grids", grids);
+                break;
             }
+            case "GRIDUPLOAD":
+                data.put("png", e.blob);
+                break;
         }
-        
-        NUtils.setAutoMapperState(false);
+        return msg;
     }
-    
-    private boolean sendMsg(JSONObject msg) throws IOException {
-        int respCode = -1;
-        if(((String)msg.get("reqMethod")).equals("MULTI"))
-        {
-            JSONObject extraData = new JSONObject();
-            MultipartUtility multipart = new MultipartUtility((String) msg.get("url"), "utf-8");
-            multipart.addFormField("id", (String) ((JSONObject)msg.get("data")).get("gridID"));
+
+    /**
+     * Keep the minimap of a grid seen while the server was unreachable, so
+     * it can still be uploaded if the server asks for it once it is back.
+     */
+    public void stash(String gridID, long hash, BufferedImage image) {
+        if ((outbox == null) || Long.valueOf(hash).equals(stashed.get(gridID)))
+            return;
+        JSONObject msg = new JSONObject();
+        msg.put("data", new JSONObject().put("gridID", gridID).put("hash", hash));
+        msg.put("reqMethod", "MULTI");
+        msg.put("url", (String) NConfig.get(NConfig.Key.endpoint) + "/gridUpload");
+        msg.put("header", "GRIDUPLOAD");
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            outbox.put(STASH + gridID, msg.toString(), png.toByteArray());
+            stashed.put(gridID, hash);
+        } catch (IOException e) {
+            uploader.stats.dropped.incrementAndGet();
+        }
+        synced();
+    }
+
+    /** Queue a stashed minimap for upload now that the server asked for it. */
+    private void unstash(String gridID) {
+        if (outbox == null)
+            return;
+        try {
+            Outbox.Entry e = outbox.get(STASH + gridID);
+            if (e == null)
+                return;
+            outbox.put("UP " + gridID, e.json, e.blob);
+            outbox.remove(e.id);
+            stashed.remove(gridID);
+        } catch (IOException e) {
+            return;
+        }
+        synced();
+    }
+
+    private void forget(Outbox.Entry e) {
+        try {
+            outbox.remove(e.id);
+        } catch (IOException ignored) {
+        }
+        synced();
+    }
+
+    private void synced() {
+        Outbox box = outbox;
+        if (box == null)
+            return;
+        uploader.stats.backlog.set(box.size());
+        synchronized (this) {
+            long d = box.dropped();
+            uploader.stats.dropped.addAndGet(d - outboxDropped);
+            outboxDropped = d;
+        }
+    }
+
+    private HttpRequest request(JSONObject msg) throws IOException {
+        String url = msg.getString("url");
+        if (msg.getString("reqMethod").equals("MULTI")) {
+            JSONObject data = msg.getJSONObject("data");
+            Map<String, String> fields = new LinkedHashMap<>();
+            fields.put("id", data.getString("gridID"));
             if (Boolean.TRUE.equals(NConfig.get(NConfig.Key.kamiCompatMapper)))
-                multipart.addFormField("genus", NUtils.getGameUI().getGenus());
-            multipart.addFilePart("file", (InputStream) ((JSONObject)msg.get("data")).get("inputStream"), "minimap.png");
+                fields.put("genus", NUtils.getGameUI().getGenus());
+            JSONObject extraData = new JSONObject();
             extraData.put("season", NUtils.getGameUI().map.glob.ast.is);
-            multipart.addFormField("extraData", extraData.toString());
-            MultipartUtility.Response response = multipart.finish();
-            respCode = response.statusCode;
-        }
-        else {
-            String urlString = (String) msg.get("url");
-            final HttpURLConnection connection =
-                    (HttpURLConnection) URI.create(urlString).toURL().openConnection();
-            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-            connection.setReadTimeout(READ_TIMEOUT_MS);
-            
-            String reqMethod = (String) msg.get("reqMethod");
-            String header = (String) msg.get("header");
-            
-            if (reqMethod.equals("POST")) {
-                connection.setRequestMethod(reqMethod);
-                connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
-                connection.setDoOutput(true);
-                final String json = msg.get("data").toString();
-                
-                try (DataOutputStream out = new DataOutputStream(connection.getOutputStream())) {
-                    out.write(json.getBytes(StandardCharsets.UTF_8));
-                }
+            fields.put("extraData", extraData.toString());
+            return Uploader.multipart(url, fields, "file", "minimap.png", "image/png", png(data))
+                    .header("User-Agent", Config.confid)
+                    .build();
+        } else if (msg.getString("reqMethod").equals("POST")) {
+            return Uploader.json(url, msg.get("data").toString());
+        } else {
+            return Uploader.request(url).GET().build();
+        }
+    }
+
+    private static byte[] png(JSONObject data) throws IOException {
+        Object png = data.opt("png");
+        if (png instanceof byte[])
+            return (byte[]) png;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        ImageIO.write((BufferedImage) data.get("image"), "png", buf);
+        return buf.toByteArray();
+    }
+
+    private void optionalDone(HttpResponse<String> resp) {
+        // 404 means endpoint not supported - disable for session.
+        // Network errors are ignored, the next grid will try again.
+        if ((resp != null) && (resp.statusCode() == 404))
+            parent.setOverlayUnsupported();
+    }
+
+    private void done(JSONObject msg, HttpResponse<String> resp, Throwable err) {
+        done(msg, resp, err, null);
+    }
+
+    /**
+     * Handle the final answer to {@code msg}. Messages that could not be
+     * delivered are stored in the outbox, or left there if {@code from}
+     * says that is where they came from; the server is then considered
+     * offline until one gets through again.
+     */
+    private void done(JSONObject msg, HttpResponse<String> resp, Throwable err, Outbox.Entry from) {
+        if ((err != null) || (resp.statusCode() >= 500) || (resp.statusCode() == 429)) {
+            if (err != null)
+                handleError(Uploader.cause(err));
+            online = false;
+            if (from == null) {
+                store(msg);
+                if (msg.getString("header").equals("GRIDREQ"))
+                    parent.requestor.stashSection((String[][]) msg.getJSONObject("data").get("grids"));
+            }
+            NUtils.setAutoMapperState(false);
+            return;
+        }
+        if (from != null)
+            forget(from);
+        if (resp.statusCode() != 200) {
+            NUtils.setAutoMapperState(false);
+            return;
+        }
+        synchronized (this) {
+            consecutiveErrors = 0;
+        }
+        online = true;
+        NUtils.setAutoMapperState(true);
+        try {
+            String header = msg.getString("header");
+            if (header.equals("GRIDREQ")) {
+                gridRequested(msg, resp.body());
+            } else if (header.equals("GRIDUPLOAD")) {
+                JSONObject data = msg.getJSONObject("data");
+                parent.gridUploaded(data.getString("gridID"), data.getLong("hash"));
+            }
+        } catch (RuntimeException e) {
+            // The game session may be gone by the time the answer arrives
+        }
+    }
+
+    private void gridRequested(JSONObject msg, String response) {
+        JSONObject jo = new JSONObject(response);
+        JSONArray reqs = jo.optJSONArray("gridRequests");
+        String[][] grids = (String[][]) msg.getJSONObject("data").get("grids");
+        Long gridId = Long.valueOf(grids[1][1]);
+        NMappingClient.MapRef mapRef = new NMappingClient.MapRef(
+            jo.getLong("map"),
+            new Coord(jo.getJSONObject("coords").getInt("x"), jo.getJSONObject("coords").getInt("y")));
+        parent.cache.put(gridId, new NMappingClient.CacheEntry(mapRef));
+        NGameUI gui = NUtils.getGameUI();
+        boolean loaded = (gui != null) && (gui.map != null);
+        for (int i = 0; reqs != null && i < reqs.length(); i++) {
+            MCache.Grid g = loaded ? gui.map.glob.map.findGrid(Long.valueOf(reqs.getString(i))) : null;
+            if (g != null) {
+                parent.requestor.prepGrid(reqs.getString(i), g);
             } else {
-                connection.setRequestMethod("GET");
+                // Seen while offline and since unloaded
+                unstash(reqs.getString(i));
             }
-            
-            respCode = connection.getResponseCode();
-            if (respCode == 200) {
-                if (header.equals("GRIDREQ")) {
-                    try (DataInputStream dio = new DataInputStream(connection.getInputStream())) {
-                        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                        byte[] data = new byte[1024];
-                        int nRead;
-                        while ((nRead = dio.read(data, 0, data.length)) != -1) {
-                            buffer.write(data, 0, nRead);
-                        }
-                        String response = buffer.toString(StandardCharsets.UTF_8.name());
-                        JSONObject jo = new JSONObject(response);
-                        JSONArray reqs = jo.optJSONArray("gridRequests");
-                        Long gridId = Long.valueOf(((String[][]) ((JSONObject) msg.get("data")).get("grids"))[1][1]);
-                        NMappingClient.MapRef mapRef = new NMappingClient.MapRef(
-                            jo.getLong("map"), 
-                            new Coord(jo.getJSONObject("coords").getInt("x"), jo.getJSONObject("coords").getInt("y")));
-                        parent.cache.put(gridId, new NMappingClient.CacheEntry(mapRef));
-                        for (int i = 0; reqs != null && i < reqs.length(); i++) {
-                            MCache.Grid g = NUtils.getGameUI().map.glob.map.findGrid(Long.valueOf(reqs.getString(i)));
-                            if (g != null) {
-                                parent.requestor.prepGrid(reqs.getString(i), g);
-                            }
-                        }
+        }
+        if (!loaded)
+            return;
 
-                        // Trigger overlay upload for all loaded grids (3x3 around player)
-                        if ((Boolean) NConfig.get(NConfig.Key.sendOverlays) && parent.isOverlaySupported()) {
-                            String[][] allGridIds = (String[][]) ((JSONObject) msg.get("data")).get("grids");
-                            for (int row = 0; row < 3; row++) {
-                                for (int col = 0; col < 3; col++) {
-                                    try {
-                                        Long gid = Long.valueOf(allGridIds[row][col]);
-                                        MCache.Grid g = NUtils.getGameUI().map.glob.map.findGrid(gid);
-                                        if (g != null && g.ols != null && g.ols.length > 0) {
-                                            parent.requestor.sendOverlayUpdate(gid, g);
-                                        }
-                                    } catch (NumberFormatException ignored) {
-                                        // Invalid grid ID, skip
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } else if (header.equals("LOCATE")) {
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                        String resp = reader.lines().collect(Collectors.joining());
-                        String[] parts = resp.split(";");
-                        if (parts.length == 3) {
-                            // TODO: implement location handling
+        // Trigger overlay upload for all loaded grids (3x3 around player)
+        if ((Boolean) NConfig.get(NConfig.Key.sendOverlays) && parent.isOverlaySupported()) {
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 3; col++) {
+                    try {
+                        Long gid = Long.valueOf(grids[row][col]);
+                        MCache.Grid g = gui.map.glob.map.findGrid(gid);
+                        if (g != null && g.ols != null && g.ols.length > 0) {
+                            parent.requestor.sendOverlayUpdate(gid, g);
                         }
+                    } catch (NumberFormatException ignored) {
+                        // Invalid grid ID, skip
                     }
                 }
             }
-            connection.disconnect();
         }
-        return respCode == 200;
     }
     
-    private void handleError(Exception e, int attempt) {
+    private synchronized void handleError(IOException e) {
         consecutiveErrors++;
         long currentTime = System.currentTimeMillis();
         
@@ -217,10 +440,10 @@ public class Connector implements Action {
         lastErrorTime = currentTime;
         
         if (consecutiveErrors <= 3) {
-            String errorMsg = "Map Server error (attempt " + (attempt + 1) + "/" + MAX_RETRY_ATTEMPTS + ")";
-            if (e instanceof SocketTimeoutException) {
+            String errorMsg = "Map Server error (after " + MAX_RETRY_ATTEMPTS + " attempts)";
+            if (e instanceof HttpTimeoutException) {
                 errorMsg += ": timeout";
-            } else if (e instanceof IOException) {
+            } else {
                 errorMsg += ": connection failed";
             }
             NGameUI gui = NUtils.getGameUI();
@@ -0,0 +1,100 @@
+package mapv4;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds a drained run of connector messages into as few requests as the
+ * mapping server accepts.
+ *
+ * Position updates are a map of entity id to position, so several collapse
+ * into one carrying the latest position of every entity. Marker updates are
+ * arrays and are concatenated. Grid uploads, grid requests and overlay
+ * uploads answer for a single grid each, so those are only deduplicated:
+ * a later message for the same grid replaces the earlier one. Everything is
+ * sent in order of first appearance.
+ */
+final class MessageBatcher {
+    private MessageBatcher() {}
+
+    static List<JSONObject> coalesce(List<JSONObject> batch) {
+        Map<String, JSONObject> out = new LinkedHashMap<>();
+        int anon = 0;
+        for (JSONObject msg : batch) {
+            String header = msg.getString("header");
+            String url = msg.getString("url");
+            switch (header) {
+                case "TRACKING": {
+                    JSONObject prev = out.get("TRACKING " + url);
+                    if (prev == null)
+                        out.put("TRACKING " + url, prev = copy(msg, new JSONObject()));
+                    JSONObject data = prev.getJSONObject("data");
+                    JSONObject add = msg.getJSONObject("data");
+                    for (Iterator<String> it = add.keys(); it.hasNext(); ) {
+                        String k = it.next();
+                        data.put(k, add.get(k));
+                    }
+                    break;
+                }
+                case "MARKERS":
+                case "SMARKER":
+                case "PMARKER": {
+                    JSONObject prev = out.get("MARKERS " + url);
+                    if (prev == null) {
+                        JSONObject merged = copy(msg, new JSONArray());
+                        merged.put("header", "MARKERS");
+                        out.put("MARKERS " + url, prev = merged);
+                    }
+                    JSONArray data = prev.getJSONArray("data");
+                    JSONArray add = msg.getJSONArray("data");
+                    for (int i = 0; i < add.length(); i++)
+                        data.put(add.get(i));
+                    break;
+                }
+                default: {
+                    String grid = gridKey(header, msg.opt("data"));
+                    String key = (grid != null) ? header + " " + url + " " + grid : "#" + (anon++);
+                    // Replace in place, keeping the slot of the first occurrence
+                    out.put(key, msg);
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(out.values());
+    }
+
+    /** The grid a single-grid message is about, or null if it can't be merged. */
+    private static String gridKey(String header, Object data) {
+        if (!(data instanceof JSONObject))
+            return null;
+        JSONObject d = (JSONObject) data;
+        switch (header) {
+            case "GRIDUPLOAD":
+                return d.optString("gridID", null);
+            case "OVERLAY":
+                return d.optString("gridId", null);
+            case "GRIDREQ": {
+                Object grids = d.opt("grids");
+                return (grids instanceof String[][]) ? ((String[][]) grids)[1][1] : null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static JSONObject copy(JSONObject msg, Object data) {
+        JSONObject ret = new JSONObject();
+        for (Iterator<String> it = msg.keys(); it.hasNext(); ) {
+            String k = it.next();
+            ret.put(k, msg.get(k));
+        }
+        ret.put("data", data);
+        return ret;
+    }
+}
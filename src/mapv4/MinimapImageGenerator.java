@@ -2,111 +2,98 @@ package mapv4;
 
 import haven.*;
 import haven.resutil.Ridges;
-import nurgling.NConfig;
 import nurgling.NUtils;
 import nurgling.tasks.CheckGrid;
-import nurgling.tasks.NTask;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author APXEOLOG (Artyom Melnikov), at 28.01.2019
  */
 public class MinimapImageGenerator {
+    private static final int THREADS = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() / 2, 4));
+    private static final int KEEP = 64;
 
-    private static BufferedImage tileimg(int t, BufferedImage[] texes, MCache map) throws InterruptedException {
-        BufferedImage img = texes[t];
-        if (img == null) {
-            Resource r = map.tilesetr(t);
-            if (r == null)
-                return (null);
-            Resource.Image ir = r.layer(Resource.imgc);
-            if (ir == null)
-                return (null);
-            img = ir.img;
-            texes[t] = img;
-        }
-        return (img);
+    private static final ExecutorService pool;
+    static {
+        AtomicInteger n = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "minimap-render-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
-    public static BufferedImage drawmap(MCache map, MCache.Grid grid) throws InterruptedException {
-        BufferedImage[] texes = new BufferedImage[256];
-        BufferedImage buf = TexI.mkbuf(MCache.cmaps);
-        Coord c = new Coord();
-
-        try {
-            for (c.y = 0; c.y < MCache.cmaps.y; c.y++) {
-                for (c.x = 0; c.x < MCache.cmaps.x; c.x++) {
-                    BufferedImage tex = tileimg(grid.gettile(c), texes, map);
-                    int rgb = 0;
-                    if (tex != null) {
-                        // Always use original texture coordinates for server uploads
-                        // uniformBiomeColors setting is ignored here
-                        rgb = tex.getRGB(Utils.floormod(c.x, tex.getWidth()),
-                                         Utils.floormod(c.y, tex.getHeight()));
-                    }
-                    buf.setRGB(c.x, c.y, rgb);
+    /**
+     * Last paint of recently rendered grids by grid id, so a grid the
+     * server asks for again only repaints the tiles that changed.
+     */
+    private static final Map<Long, GridPainter.Painted> last = Collections.synchronizedMap(
+            new LinkedHashMap<Long, GridPainter.Painted>(KEEP, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Long, GridPainter.Painted> eldest) {
+                    return size() > KEEP;
                 }
-            }
+            });
 
+    public static BufferedImage drawmap(MCache map, MCache.Grid grid) throws InterruptedException {
+        try {
+            // Only the grid's own tiles are read, so one check covers them all
+            CheckGrid cg = new CheckGrid(grid.gc);
+            NUtils.addTask(cg);
+            if (cg.status())
+                return null;
 
-        for (c.y = 1; c.y < MCache.cmaps.y - 1; c.y++) {
-            for (c.x = 1; c.x < MCache.cmaps.x - 1; c.x++) {
-                int t = grid.gettile(c);
-                Tiler tl = map.tiler(t);
-                if (tl instanceof Ridges.RidgeTile) {
-                    Coord rc = grid.ul.add(c);
-                    Coord current = rc.div(MCache.cmaps);
-                    CheckGrid cg = new CheckGrid(current);
-                    NUtils.addTask(cg);
-                    if(cg.status())
-                        throw new InterruptedException();
-                    if (Ridges.brokenp(map, rc)) {
-                        for (int y = c.y - 1; y <= c.y + 1; y++) {
-                            for (int x = c.x - 1; x <= c.x + 1; x++) {
-                                Color cc = new Color(buf.getRGB(x, y));
-                                buf.setRGB(x, y, Utils.blendcol(cc, Color.BLACK, ((x == c.x) && (y == c.y)) ? 1 : 0.1).getRGB());
-                            }
-                        }
-                    }
-                }
+            // Always use original texture coordinates for server uploads
+            // uniformBiomeColors setting is ignored here
+            GridPainter.Sample s = new GridPainter.Sample(MCache.cmaps, Coord.z, false, 1);
+            for (int y = 0; y < MCache.cmaps.y; y++) {
+                for (int x = 0; x < MCache.cmaps.x; x++)
+                    s.tile(x, y, grid.tiles[x + (y * MCache.cmaps.x)]);
             }
-        }
-
-        for (c.y = 1; c.y < MCache.cmaps.y - 1; c.y++) {
-            for (c.x = 1; c.x < MCache.cmaps.x - 1; c.x++) {
-                int t = grid.gettile(c);
-                Coord r = c.add(grid.ul);
-
-                for(Coord test: tested) {
-                    Coord rc = r.add(test);
-                    Coord current = rc.div(MCache.cmaps);
-                    CheckGrid cg = new CheckGrid(current);
-                    NUtils.addTask(cg);
-                    if (cg.status())
-                        throw new InterruptedException();
-                }
-                NUtils.addTask(new CheckGrid(r.add(-1, 0).div(MCache.cmaps)));
-                NUtils.addTask(new CheckGrid(r.add(1, 0).div(MCache.cmaps)));
-                NUtils.addTask(new CheckGrid(r.add(0, -1).div(MCache.cmaps)));
-                NUtils.addTask(new CheckGrid(r.add(0, 1).div(MCache.cmaps)));
-                if ((map.gettile(r.add(-1, 0)) > t) ||
-                        (map.gettile(r.add(1, 0)) > t) ||
-                        (map.gettile(r.add(0, -1)) > t) ||
-                        (map.gettile(r.add(0, 1)) > t)) {
-                    buf.setRGB(c.x, c.y, Color.BLACK.getRGB());
-                }
+            s.heights(grid.z);
+            for (int t : s.ids()) {
+                Resource r = map.tilesetr(t);
+                s.tileinfo(t, (r == null) ? null : TileTexCache.global.get(r), t, Ridges.breakz(map.tiler(t)));
             }
-        }
-        }
-        catch (Exception e) {
+            GridPainter.Painted p = GridPainter.paint(s, last.get(grid.id));
+            last.put(grid.id, p);
+            return p.img();
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
             return (null);
         }
-        return buf;
     }
 
-    static private ArrayList<Coord> tested = new ArrayList<>(Arrays.asList(new Coord[]{new Coord(0,1),new Coord(1,0),new Coord(0,-1),new Coord(-1,0)}));
-}
\ No newline at end of file
+    /**
+     * {@link #drawmap} on the render pool. Completes with null if the grid
+     * could not be rendered yet.
+     */
+    public static CompletableFuture<BufferedImage> render(MCache map, MCache.Grid grid) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return drawmap(map, grid);
+            } catch (InterruptedException e) {
+                return null;
+            }
+        }, pool);
+    }
+
+    /** 64-bit hash of the pixels of a generated minimap, to tell unchanged grids apart. */
+    public static long contentHash(BufferedImage img) {
+        int[] px = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+        long h = 0xcbf29ce484222325L;
+        for (int p : px) {
+            h ^= p;
+            h *= 0x100000001b3L;
+        }
+        return h ^ ((long) img.getWidth() << 32) ^ img.getHeight();
+    }
+}
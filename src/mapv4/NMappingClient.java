@@ -23,6 +23,7 @@ public class NMappingClient {
     private Boolean autoMapper = null;
     public final Map<Long, CacheEntry> cache = new ConcurrentHashMap<>();
     private final Map<Long, Integer> overlayHashes = new ConcurrentHashMap<>();
+    private final Map<String, Long> gridHashes = new ConcurrentHashMap<>();
     private volatile boolean overlaySupported = true;
     public Thread reqTread = null;
     public Thread conTread = null;
@@ -157,6 +158,9 @@ public class NMappingClient {
     }
     
     private void cleanupCache() {
+        if (gridHashes.size() > MAX_CACHE_SIZE) {
+            gridHashes.clear();
+        }
         if(cache.size() <= MAX_CACHE_SIZE) {
             return;
         }
@@ -185,6 +189,16 @@ public class NMappingClient {
         return false;
     }
 
+    /** Whether a minimap with this content hash was already uploaded for the grid this session. */
+    public boolean isGridUploaded(String gridId, long hash) {
+        Long prev = gridHashes.get(gridId);
+        return prev != null && prev == hash;
+    }
+
+    public void gridUploaded(String gridId, long hash) {
+        gridHashes.put(gridId, hash);
+    }
+
     public boolean isOverlaySupported() {
         return overlaySupported;
     }
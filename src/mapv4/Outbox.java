@@ -0,0 +1,450 @@
+package mapv4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Durable store of automapper messages that could not be sent yet.
+ *
+ * Entries are appended to segment files ({@code outbox-N.log}) in a
+ * directory as CRC-checked records; removing an entry appends a deletion
+ * record. An entry may carry a key, and a later entry with the same key
+ * supersedes the earlier one, so re-queueing a newer image of a grid
+ * replaces the old image rather than adding to it. The live entries are
+ * rebuilt by replaying all segments on open; a torn or corrupt record ends
+ * its segment. Once more than half of the stored bytes are dead, the live
+ * entries are copied into fresh segments and the old ones deleted. Live
+ * data is capped at {@code maxBytes} by dropping the oldest entries.
+ *
+ * Each entry is a JSON text plus an optional binary blob (e.g. a PNG).
+ * Payloads stay on disk until read.
+ *
+ * A directory belongs to one instance at a time: sessions in this process
+ * share it through {@link #open}, and it holds a lock on {@code lock} in
+ * the directory so no other process appends to or compacts its segments.
+ */
+public class Outbox implements Closeable {
+    private static final byte PUT = 1, DEL = 2;
+    private static final int HEADER = 8;
+    private static final Pattern SEGMENT = Pattern.compile("outbox-(\\d+)\\.log");
+
+    /** Instances opened through {@link #open}, one per directory. */
+    private static final Map<Path, Outbox> open = new HashMap<>();
+
+    private final Path dir;
+    private final long maxBytes, segmentBytes;
+    private final FileChannel lockch;
+    private final FileLock lock;
+    /** Ids being sent by one of the sessions sharing this outbox. */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private int refs = 1;
+    private final List<Segment> segments = new ArrayList<>();
+    private final LinkedHashMap<Long, Loc> live = new LinkedHashMap<>();
+    private final Map<String, Long> byKey = new HashMap<>();
+    private long nextId = 1;
+    private long liveBytes = 0, totalBytes = 0, dropped = 0;
+
+    public static class Entry {
+        public final long id;
+        public final String key;
+        public final String json;
+        public final byte[] blob;
+
+        Entry(long id, String key, String json, byte[] blob) {
+            this.id = id;
+            this.key = key;
+            this.json = json;
+            this.blob = blob;
+        }
+    }
+
+    private static class Segment {
+        final int num;
+        final Path path;
+        final FileChannel ch;
+        long size;
+
+        Segment(int num, Path path) throws IOException {
+            this.num = num;
+            this.path = path;
+            this.ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = ch.size();
+        }
+    }
+
+    private static class Loc {
+        final long id;
+        final String key;
+        final Segment seg;
+        final long off;
+        final int len;
+
+        Loc(long id, String key, Segment seg, long off, int len) {
+            this.id = id;
+            this.key = key;
+            this.seg = seg;
+            this.off = off;
+            this.len = len;
+        }
+    }
+
+    public Outbox(Path dir, long maxBytes, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        lockch = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = trylock(lockch);
+            if (lock == null)
+                throw new IOException("outbox " + dir + " is in use");
+            load();
+        } catch (IOException | RuntimeException e) {
+            for (Segment seg : segments)
+                seg.ch.close();
+            // Closing the channel releases the lock, if it was taken
+            lockch.close();
+            throw e;
+        }
+    }
+
+    private static FileLock trylock(FileChannel ch) throws IOException {
+        try {
+            return ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another instance in this process
+            return null;
+        }
+    }
+
+    private void load() throws IOException {
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> ls = Files.newDirectoryStream(dir)) {
+            for (Path p : ls) {
+                Matcher m = SEGMENT.matcher(p.getFileName().toString());
+                if (m.matches())
+                    found.put(Integer.parseInt(m.group(1)), p);
+            }
+        }
+        for (Map.Entry<Integer, Path> f : found.entrySet()) {
+            Segment seg = new Segment(f.getKey(), f.getValue());
+            segments.add(seg);
+            replay(seg);
+            totalBytes += seg.size;
+        }
+        if (segments.isEmpty())
+            segments.add(new Segment(0, segpath(0)));
+        maybeCompact();
+    }
+
+    /**
+     * The outbox in {@code dir}, shared with any other session of this
+     * process that has it open. Each call must be matched by a
+     * {@link #close}. Fails if another process has the directory.
+     */
+    public static Outbox open(Path dir, long maxBytes, long segmentBytes) throws IOException {
+        Path key = dir.toAbsolutePath().normalize();
+        synchronized (open) {
+            Outbox box = open.get(key);
+            if (box != null) {
+                synchronized (box) {
+                    box.refs++;
+                }
+                return box;
+            }
+            box = new Outbox(key, maxBytes, segmentBytes);
+            open.put(key, box);
+            return box;
+        }
+    }
+
+    private Path segpath(int num) {
+        return dir.resolve("outbox-" + num + ".log");
+    }
+
+    private void replay(Segment seg) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEADER);
+        long off = 0;
+        while (off + HEADER <= seg.size) {
+            head.clear();
+            readFully(seg.ch, head, off);
+            head.flip();
+            int len = head.getInt();
+            int crc = head.getInt();
+            if ((len < 9) || (off + HEADER + len > seg.size))
+                break;
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(seg.ch, body, off + HEADER);
+            if (crc(body.array()) != crc)
+                break;
+            body.flip();
+            byte type = body.get();
+            long id = body.getLong();
+            if (type == PUT) {
+                String key = readKey(body);
+                apply(new Loc(id, key, seg, off, HEADER + len));
+            } else if (type == DEL) {
+                unlink(id);
+            } else {
+                break;
+            }
+            nextId = Math.max(nextId, id + 1);
+            off += HEADER + len;
+        }
+        if (off < seg.size) {
+            // Torn or corrupt tail; nothing after it can be trusted
+            seg.ch.truncate(off);
+            seg.size = off;
+        }
+    }
+
+    private void apply(Loc loc) {
+        unlink(loc.id);
+        if (loc.key != null) {
+            Long prev = byKey.put(loc.key, loc.id);
+            if (prev != null)
+                unlink(prev);
+        }
+        live.put(loc.id, loc);
+        liveBytes += loc.len;
+    }
+
+    private void unlink(long id) {
+        Loc loc = live.remove(id);
+        if (loc == null)
+            return;
+        liveBytes -= loc.len;
+        if ((loc.key != null) && Long.valueOf(id).equals(byKey.get(loc.key)))
+            byKey.remove(loc.key);
+    }
+
+    /**
+     * Store an entry, superseding any entry with the same non-null
+     * {@code key}. Returns its id.
+     */
+    public synchronized long put(String key, String json, byte[] blob) throws IOException {
+        long id = nextId++;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(json.length() + ((blob == null) ? 0 : blob.length) + 32);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeByte(PUT);
+        out.writeLong(id);
+        out.writeBoolean(key != null);
+        if (key != null) {
+            byte[] k = key.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(k.length);
+            out.write(k);
+        }
+        byte[] j = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(j.length);
+        out.write(j);
+        out.writeInt((blob == null) ? -1 : blob.length);
+        if (blob != null)
+            out.write(blob);
+        out.flush();
+        Segment seg = active(buf.size());
+        long off = append(seg, buf.toByteArray());
+        apply(new Loc(id, key, seg, off, HEADER + buf.size()));
+        while ((liveBytes > maxBytes) && (live.size() > 1)) {
+            delete(live.keySet().iterator().next());
+            dropped++;
+        }
+        maybeCompact();
+        return id;
+    }
+
+    public synchronized void remove(long id) throws IOException {
+        if (!live.containsKey(id))
+            return;
+        delete(id);
+        maybeCompact();
+    }
+
+    private void delete(long id) throws IOException {
+        ByteBuffer rec = ByteBuffer.allocate(9);
+        rec.put(DEL).putLong(id);
+        append(active(9), rec.array());
+        unlink(id);
+    }
+
+    public synchronized Entry get(String key) throws IOException {
+        Long id = byKey.get(key);
+        return (id == null) ? null : read(live.get(id));
+    }
+
+    /** Up to {@code n} of the oldest entries whose key passes {@code filter}, skipping ids in {@code skip}. */
+    public synchronized List<Entry> oldest(int n, Predicate<String> filter, Set<Long> skip) throws IOException {
+        List<Entry> ret = new ArrayList<>(Math.min(n, live.size()));
+        for (Loc loc : live.values()) {
+            if (ret.size() >= n)
+                break;
+            if (!skip.contains(loc.id) && filter.test(loc.key))
+                ret.add(read(loc));
+        }
+        return ret;
+    }
+
+    /**
+     * Ids currently being sent, shared by all sessions using this outbox
+     * so that each entry is only replayed by one of them at a time.
+     */
+    public Set<Long> inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int size() {
+        return live.size();
+    }
+
+    public synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    /** Entries dropped to stay within the size cap. */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized int segments() {
+        return segments.size();
+    }
+
+    private Entry read(Loc loc) throws IOException {
+        ByteBuffer rec = ByteBuffer.allocate(loc.len);
+        readFully(loc.seg.ch, rec, loc.off);
+        rec.position(HEADER + 9);
+        String key = readKey(rec);
+        byte[] j = new byte[rec.getInt()];
+        rec.get(j);
+        int bl = rec.getInt();
+        byte[] blob = null;
+        if (bl >= 0) {
+            blob = new byte[bl];
+            rec.get(blob);
+        }
+        return new Entry(loc.id, key, new String(j, StandardCharsets.UTF_8), blob);
+    }
+
+    private static String readKey(ByteBuffer body) {
+        if (body.get() == 0)
+            return null;
+        byte[] k = new byte[body.getShort() & 0xffff];
+        body.get(k);
+        return new String(k, StandardCharsets.UTF_8);
+    }
+
+    private Segment active(int len) throws IOException {
+        Segment seg = segments.get(segments.size() - 1);
+        if ((seg.size > 0) && (seg.size + HEADER + len > segmentBytes)) {
+            seg = new Segment(seg.num + 1, segpath(seg.num + 1));
+            segments.add(seg);
+        }
+        return seg;
+    }
+
+    private long append(Segment seg, byte[] body) throws IOException {
+        ByteBuffer rec = ByteBuffer.allocate(HEADER + body.length);
+        rec.putInt(body.length).putInt(crc(body)).put(body);
+        rec.flip();
+        long off = seg.size;
+        writeFully(seg.ch, rec, off);
+        seg.ch.force(false);
+        seg.size += rec.limit();
+        totalBytes += rec.limit();
+        return off;
+    }
+
+    private void maybeCompact() throws IOException {
+        long dead = totalBytes - liveBytes;
+        if ((dead > liveBytes) && (dead > segmentBytes / 2))
+            compact();
+    }
+
+    /**
+     * Copy the live entries into fresh segments and delete the old ones.
+     * Old segments go oldest first, so a crash half way never leaves a
+     * deletion record behind without the entry it deletes.
+     */
+    public synchronized void compact() throws IOException {
+        List<Segment> old = new ArrayList<>(segments);
+        int num = old.get(old.size() - 1).num + 1;
+        segments.clear();
+        segments.add(new Segment(num, segpath(num)));
+        List<Loc> locs = new ArrayList<>(live.values());
+        live.clear();
+        byKey.clear();
+        liveBytes = 0;
+        totalBytes = 0;
+        for (Loc loc : locs) {
+            ByteBuffer rec = ByteBuffer.allocate(loc.len);
+            readFully(loc.seg.ch, rec, loc.off);
+            Segment seg = active(loc.len - HEADER);
+            rec.flip();
+            long off = seg.size;
+            writeFully(seg.ch, rec, off);
+            seg.size += loc.len;
+            totalBytes += loc.len;
+            apply(new Loc(loc.id, loc.key, seg, off, loc.len));
+        }
+        for (Segment seg : segments)
+            seg.ch.force(false);
+        for (Segment seg : old) {
+            seg.ch.close();
+            Files.deleteIfExists(seg.path);
+        }
+    }
+
+    public void close() throws IOException {
+        synchronized (open) {
+            synchronized (this) {
+                if (--refs > 0)
+                    return;
+                open.remove(dir, this);
+                for (Segment seg : segments)
+                    seg.ch.close();
+                lock.release();
+                lockch.close();
+            }
+        }
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long off) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, off);
+            if (n < 0)
+                throw new IOException("unexpected end of outbox segment");
+            off += n;
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long off) throws IOException {
+        while (buf.hasRemaining())
+            off += ch.write(buf, off);
+    }
+}
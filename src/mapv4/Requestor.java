@@ -14,15 +14,12 @@ import nurgling.widgets.NAlarmWdg;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import javax.imageio.ImageIO;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
@@ -39,7 +36,8 @@ public class Requestor implements Action {
 
     public final BlockingQueue<MapperTask> list = new ArrayBlockingQueue<>(MAX_QUEUE_SIZE);
     private final List<MapperTask> deferred = new ArrayList<>();
-    private final Map<String, Integer> prepGridRetries = new HashMap<>();
+    private final Map<String, Integer> prepGridRetries = new ConcurrentHashMap<>();
+    private final Set<String> rendering = ConcurrentHashMap.newKeySet();
     private long lastCleanupTime = System.currentTimeMillis();
     private static final long CLEANUP_INTERVAL_MS = 5000; // Cleanup every 5 seconds
     NMappingClient parent;
@@ -159,7 +157,7 @@ public class Requestor implements Action {
                         msg.put("reqMethod", "POST");
                         msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/gridUpdate");
                         msg.put("header", "GRIDREQ");
-                        if (!parent.connector.msgs.offer(msg)) {
+                        if (!parent.connector.enqueue(msg)) {
                             // Queue is full, drop oldest non-critical message
                         }
                         break;
@@ -169,9 +167,13 @@ public class Requestor implements Action {
                         MCache.Grid g = (MCache.Grid)task.args[1];
                         NGameUI gameUI = NUtils.getGameUI();
                         if(g != null && gameUI != null && gameUI.map != null && gameUI.map.glob != null) {
-                            try {
-                                BufferedImage image = MinimapImageGenerator.drawmap(gameUI.map.glob.map, g);
-                                if(image == null) {
+                            // Rendered on the render pool so several grids are drawn at
+                            // once and this loop keeps serving other tasks meanwhile.
+                            if (!rendering.add(gridID))
+                                break;
+                            MinimapImageGenerator.render(gameUI.map.glob.map, g).whenComplete((image, err) -> {
+                                rendering.remove(gridID);
+                                if (image == null) {
                                     int retries = prepGridRetries.getOrDefault(gridID, 0);
                                     if (retries < PREPGRID_RETRY_LIMIT) {
                                         prepGridRetries.put(gridID, retries + 1);
@@ -179,33 +181,32 @@ public class Requestor implements Action {
                                     } else {
                                         prepGridRetries.remove(gridID);
                                     }
-                                    continue;
-                                }
-                                prepGridRetries.remove(gridID);
-                                
-                                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                                ImageIO.write(image, "png", outputStream);
-                                ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-                                
-                                JSONObject data = new JSONObject();
-                                data.put("inputStream", inputStream);
-                                data.put("gridID", gridID);
-                                JSONObject msg = new JSONObject();
-                                msg.put("data", data);
-                                msg.put("reqMethod", "MULTI");
-                                msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/gridUpload");
-                                msg.put("header", "GRIDUPLOAD");
-                                
-                                if (!parent.connector.msgs.offer(msg)) {
-                                    // Queue is full, image generation wasted but avoids blocking
+                                    return;
                                 }
-                            } catch (IOException e) {
-                                // Failed to generate image, don't retry
                                 prepGridRetries.remove(gridID);
-                            }
+                                uploadGrid(gridID, image);
+                            });
                         }
                         break;
                     }
+                    case "stashGrid": {
+                        String gridID = (String)task.args[0];
+                        MCache.Grid g;
+                        try {
+                            g = NUtils.getGameUI().map.glob.map.findGrid(Long.valueOf(gridID));
+                        } catch (NumberFormatException e) {
+                            break;
+                        }
+                        if (g == null)
+                            break;
+                        BufferedImage image = MinimapImageGenerator.drawmap(NUtils.getGameUI().map.glob.map, g);
+                        if (image == null)
+                            break;
+                        long hash = MinimapImageGenerator.contentHash(image);
+                        if (!parent.isGridUploaded(gridID, hash))
+                            parent.connector.stash(gridID, hash, image);
+                        break;
+                    }
                     case "track":
                     {
                         Gob player = NUtils.player();
@@ -291,7 +292,7 @@ public class Requestor implements Action {
                             msg.put("reqMethod", "POST");
                             msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/positionUpdate");
                             msg.put("header", "TRACKING");
-                            if (!parent.connector.msgs.offer(msg)) {
+                            if (!parent.connector.enqueue(msg)) {
                                 // Queue full, tracking update dropped
                             }
                         }
@@ -360,7 +361,7 @@ public class Requestor implements Action {
                         msg.put("reqMethod", "POST");
                         msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/markerUpdate");
                         msg.put("header", "MARKERS");
-                        if (!parent.connector.msgs.offer(msg)) {
+                        if (!parent.connector.enqueue(msg)) {
                             // Queue full, markers update dropped
                         }
                         break;
@@ -389,7 +390,7 @@ public class Requestor implements Action {
                             msg.put("reqMethod", "POST");
                             msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/markerUpdate");
                             msg.put("header", "SMARKER");
-                            if (!parent.connector.msgs.offer(msg)) {
+                            if (!parent.connector.enqueue(msg)) {
                                 // Queue full, marker update dropped
                             }
                         } catch (Exception ignored) {
@@ -436,7 +437,7 @@ public class Requestor implements Action {
                         msg.put("reqMethod", "POST");
                         msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/markerUpdate");
                         msg.put("header", "PMARKER");
-                        if (!parent.connector.msgs.offer(msg)) {
+                        if (!parent.connector.enqueue(msg)) {
                             // Queue full, marker update dropped
                         }
                         break;
@@ -479,7 +480,7 @@ public class Requestor implements Action {
                         msg.put("url", (String) NConfig.get(NConfig.Key.endpoint) + "/overlayUpload");
                         msg.put("header", "OVERLAY");
 
-                        if (!parent.connector.msgs.offer(msg)) {
+                        if (!parent.connector.enqueue(msg)) {
                             // Queue full, overlay update dropped
                         }
                         break;
@@ -502,6 +503,31 @@ public class Requestor implements Action {
         list.offer(new MapperTask("reqGrid", new Object[]{lastGC}));
     }
 
+    private void uploadGrid(String gridID, BufferedImage image) {
+        // The server asks again for grids it already has; skip
+        // the PNG encoding and upload if nothing changed.
+        long hash = MinimapImageGenerator.contentHash(image);
+        if (parent.isGridUploaded(gridID, hash)) {
+            parent.connector.stats().unchanged.incrementAndGet();
+            return;
+        }
+
+        // Encoded to PNG by the connector's upload pool
+        JSONObject data = new JSONObject();
+        data.put("image", image);
+        data.put("hash", hash);
+        data.put("gridID", gridID);
+        JSONObject msg = new JSONObject();
+        msg.put("data", data);
+        msg.put("reqMethod", "MULTI");
+        msg.put("url", (String)NConfig.get(NConfig.Key.endpoint) + "/gridUpload");
+        msg.put("header", "GRIDUPLOAD");
+
+        if (!parent.connector.enqueue(msg)) {
+            // Queue is full, image generation wasted but avoids blocking
+        }
+    }
+
     public void prepGrid(String string, MCache.Grid g) {
         // Avoid duplicate prepGrid tasks for same grid
         for(MapperTask task : list) {
@@ -512,6 +538,28 @@ public class Requestor implements Action {
         list.offer(new MapperTask("prepGrid", new Object[]{string, g}));
     }
 
+    /**
+     * Keep minimaps of the loaded grids of a section whose grid request
+     * could not reach the server, so they can still be uploaded later.
+     */
+    public void stashSection(String[][] grids) {
+        for (String[] row : grids) {
+            for (String gridID : row) {
+                if (gridID == null)
+                    continue;
+                boolean queued = false;
+                for (MapperTask task : list) {
+                    if (task.type.equals("stashGrid") && gridID.equals(task.args[0])) {
+                        queued = true;
+                        break;
+                    }
+                }
+                if (!queued)
+                    list.offer(new MapperTask("stashGrid", new Object[]{gridID}));
+            }
+        }
+    }
+
     public void track() {
         // Check if track task already exists to avoid duplicates
         for(MapperTask task : list) {
@@ -29,4 +29,11 @@ public class StatusWdg extends Widget {
         }
         super.draw(g);
     }
+
+    @Override
+    public Object tooltip(Coord c, Widget prev) {
+        if (ui.core == null || ui.core.mappingClient == null)
+            return null;
+        return "Automapper: " + ui.core.mappingClient.connector.stats().summary();
+    }
 }
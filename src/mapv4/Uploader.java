@@ -0,0 +1,190 @@
+package mapv4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous HTTP sender for the automapper.
+ *
+ * All requests go through one {@link HttpClient}, so connections to the
+ * mapping server are kept alive and reused. At most {@code maxInFlight}
+ * requests are outstanding at a time; {@link #submit} blocks the caller
+ * until a slot frees up, which holds the connector back and lets its queue
+ * build up into larger batches. Connection failures and 5xx/429 answers
+ * are retried with exponential backoff without holding up other requests.
+ */
+public class Uploader {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    public final Stats stats = new Stats();
+    private final long retryDelayMs;
+    private final Semaphore slots;
+    private final ExecutorService pool;
+    private final HttpClient client;
+
+    public Uploader(int maxInFlight, long retryDelayMs) {
+        this.retryDelayMs = retryDelayMs;
+        this.slots = new Semaphore(maxInFlight);
+        AtomicInteger n = new AtomicInteger();
+        this.pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "automapper-upload-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(pool)
+                .build();
+    }
+
+    public static class Stats {
+        public final AtomicLong sent = new AtomicLong();
+        public final AtomicLong failed = new AtomicLong();
+        public final AtomicLong retried = new AtomicLong();
+        public final AtomicLong dropped = new AtomicLong();
+        public final AtomicLong merged = new AtomicLong();
+        public final AtomicLong unchanged = new AtomicLong();
+        public final AtomicLong bytes = new AtomicLong();
+        public final AtomicInteger inflight = new AtomicInteger();
+        /** Messages waiting in the on-disk outbox. */
+        public final AtomicInteger backlog = new AtomicInteger();
+        private long lastSample = System.nanoTime(), lastSent = 0;
+        private double rate = 0;
+
+        /** Successful requests per second, averaged over at least the last second. */
+        public synchronized double rate() {
+            long now = System.nanoTime();
+            if (now - lastSample >= 1_000_000_000L) {
+                long s = sent.get();
+                rate = (s - lastSent) * 1e9 / (now - lastSample);
+                lastSent = s;
+                lastSample = now;
+            }
+            return rate;
+        }
+
+        public String summary() {
+            return String.format("%.1f req/s, %d sent (%d KB), %d failed, %d retried, %d dropped, %d merged, %d unchanged, %d in flight, %d waiting on disk",
+                    rate(), sent.get(), bytes.get() >> 10, failed.get(), retried.get(), dropped.get(), merged.get(),
+                    unchanged.get(), inflight.get(), backlog.get());
+        }
+    }
+
+    public static HttpRequest.Builder request(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT);
+    }
+
+    public static HttpRequest json(String url, String body) {
+        return request(url)
+                .header("Content-Type", "application/json;charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /** A multipart/form-data POST of text {@code fields} and one file part. */
+    public static HttpRequest.Builder multipart(String url, Map<String, String> fields, String fileField, String fileName,
+                                                String fileType, byte[] file) {
+        String boundary = "===" + System.nanoTime() + "===";
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(file.length + 512);
+        StringBuilder head = new StringBuilder();
+        for (Map.Entry<String, String> f : fields.entrySet()) {
+            head.append("--").append(boundary).append("\r\n");
+            head.append("Content-Disposition: form-data; name=\"").append(f.getKey()).append("\"\r\n");
+            head.append("Content-Type: text/plain; charset=utf-8\r\n\r\n");
+            head.append(f.getValue()).append("\r\n");
+        }
+        head.append("--").append(boundary).append("\r\n");
+        head.append("Content-Disposition: form-data; name=\"").append(fileField)
+                .append("\"; filename=\"").append(fileName).append("\"\r\n");
+        head.append("Content-Type: ").append(fileType).append("\r\n");
+        head.append("Content-Transfer-Encoding: binary\r\n\r\n");
+        byte[] h = head.toString().getBytes(StandardCharsets.UTF_8);
+        buf.write(h, 0, h.length);
+        buf.write(file, 0, file.length);
+        byte[] t = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        buf.write(t, 0, t.length);
+        return request(url)
+                .header("Content-Type", "multipart/form-data; boundary=\"" + boundary + "\"")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(buf.toByteArray()));
+    }
+
+    /**
+     * Send the request made by {@code build} once a slot is free, trying up
+     * to {@code attempts} times. {@code build} runs on the upload pool, so
+     * expensive payload encoding happens off the caller's thread as well.
+     * The future completes with the last response, or exceptionally if the
+     * request could not be built or the last attempt failed to connect.
+     */
+    public CompletableFuture<HttpResponse<String>> submit(Callable<HttpRequest> build, int attempts) throws InterruptedException {
+        slots.acquire();
+        stats.inflight.incrementAndGet();
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> counted = result.whenComplete((resp, err) -> {
+            stats.inflight.decrementAndGet();
+            slots.release();
+            if ((resp != null) && (resp.statusCode() / 100 == 2))
+                stats.sent.incrementAndGet();
+            else
+                stats.failed.incrementAndGet();
+        });
+        try {
+            pool.execute(() -> {
+                HttpRequest req;
+                try {
+                    req = build.call();
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                attempt(req, attempts, retryDelayMs, result);
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return counted;
+    }
+
+    private void attempt(HttpRequest req, int left, long delay, CompletableFuture<HttpResponse<String>> result) {
+        client.sendAsync(req, HttpResponse.BodyHandlers.ofString()).whenComplete((resp, err) -> {
+            if ((err == null) && !retryable(resp.statusCode())) {
+                req.bodyPublisher().ifPresent(b -> stats.bytes.addAndGet(Math.max(b.contentLength(), 0)));
+                result.complete(resp);
+            } else if (left <= 1) {
+                if (err != null)
+                    result.completeExceptionally((err instanceof CompletionException) ? err.getCause() : err);
+                else
+                    result.complete(resp);
+            } else {
+                stats.retried.incrementAndGet();
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, pool)
+                        .execute(() -> attempt(req, left - 1, delay * 2, result));
+            }
+        });
+    }
+
+    private static boolean retryable(int status) {
+        return (status >= 500) || (status == 429);
+    }
+
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    static IOException cause(Throwable t) {
+        while ((t instanceof CompletionException) || (t instanceof ExecutionException))
+            t = t.getCause();
+        return (t instanceof IOException) ? (IOException) t : new IOException(t);
+    }
+}
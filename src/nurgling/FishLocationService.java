@@ -3,22 +3,12 @@ package nurgling;
 import haven.*;
 import nurgling.profiles.ConfigFactory;
 import nurgling.profiles.ProfileAwareService;
-import nurgling.tools.NFileUtils;
+import nurgling.tools.LocationStore;
 import nurgling.tools.VSpec;
 import nurgling.widgets.NEquipory;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Stream;
 
 /**
  * Service for managing saved fish locations
@@ -26,8 +16,32 @@ import java.util.stream.Stream;
  * Supports world-specific profiles via ProfileAwareService
  */
 public class FishLocationService implements ProfileAwareService {
-    private final Map<String, FishLocation> fishLocations = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LocationStore<FishLocation> fishLocations = new LocationStore<>("fishLocations", 1, new LocationStore.Codec<FishLocation>() {
+        @Override
+        public String id(FishLocation v) {
+            return v.getLocationId();
+        }
+
+        @Override
+        public long segment(FishLocation v) {
+            return v.getSegmentId();
+        }
+
+        @Override
+        public Coord tile(FishLocation v) {
+            return v.getTileCoords();
+        }
+
+        @Override
+        public JSONObject toJson(FishLocation v) {
+            return v.toJson();
+        }
+
+        @Override
+        public FishLocation fromJson(JSONObject json) {
+            return new FishLocation(json);
+        }
+    });
     private String dataFile;
     private final NGameUI gui;
     private String genus;
@@ -69,12 +83,7 @@ public class FishLocationService implements ProfileAwareService {
 
     @Override
     public void save() {
-        lock.writeLock().lock();
-        try {
-            saveFishLocations();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        fishLocations.compact();
     }
 
     /**
@@ -128,16 +137,10 @@ public class FishLocationService implements ProfileAwareService {
                 System.err.println("Error getting time/moon phase: " + e);
             }
 
-            lock.writeLock().lock();
-            try {
-                FishLocation location = new FishLocation(segmentId, segmentCoord, fishName, fishResource,
-                    percentage, gameTime, moonPhase, equipment.fishingRod, equipment.hook, equipment.line, equipment.bait);
-                fishLocations.put(location.getLocationId(), location);
-                saveFishLocations();
-                gui.msg("Saved " + fishName + " location (" + percentage + ")", java.awt.Color.GREEN);
-            } finally {
-                lock.writeLock().unlock();
-            }
+            FishLocation location = new FishLocation(segmentId, segmentCoord, fishName, fishResource,
+                percentage, gameTime, moonPhase, equipment.fishingRod, equipment.hook, equipment.line, equipment.bait);
+            fishLocations.put(location);
+            gui.msg("Saved " + fishName + " location (" + percentage + ")", java.awt.Color.GREEN);
 
         } catch (Exception e) {
             System.err.println("Error saving fish location: " + e);
@@ -165,107 +168,53 @@ public class FishLocationService implements ProfileAwareService {
     }
 
     /**
-     * Get all fish locations for a segment (for map rendering)
+     * Get all fish locations for a segment (for map rendering).
+     * The returned list is immutable and safe to iterate without copying.
      */
     public List<FishLocation> getFishLocationsForSegment(long segmentId) {
-        lock.readLock().lock();
-        try {
-            List<FishLocation> result = new ArrayList<>();
-            for (FishLocation loc : fishLocations.values()) {
-                if (loc.getSegmentId() == segmentId) {
-                    result.add(loc);
-                }
-            }
-            return result;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return fishLocations.inSegment(segmentId);
     }
 
     /**
-     * Get all fish locations
+     * Get the fish locations of a segment within a tile rectangle, both corners inclusive
      */
-    public Collection<FishLocation> getAllFishLocations() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(fishLocations.values());
-        } finally {
-            lock.readLock().unlock();
-        }
+    public List<FishLocation> getFishLocationsInArea(long segmentId, Coord ul, Coord br) {
+        return fishLocations.inArea(segmentId, ul, br);
     }
 
     /**
-     * Remove a fish location
+     * Get the fish location of a segment nearest to a tile, no further than maxDist tiles away
      */
-    public boolean removeFishLocation(String locationId) {
-        lock.writeLock().lock();
-        try {
-            boolean removed = fishLocations.remove(locationId) != null;
-            if (removed) {
-                saveFishLocations();
-            }
-            return removed;
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public FishLocation getNearestFishLocation(long segmentId, Coord tc, double maxDist) {
+        return fishLocations.nearest(segmentId, tc, maxDist, null);
     }
 
     /**
-     * Load fish locations from JSON
+     * Get all fish locations
      */
-    private void loadFishLocations() {
-        lock.writeLock().lock();
-        try {
-            fishLocations.clear();
-            String content = NFileUtils.readWithBackupFallback(dataFile);
-            if (content != null && !content.isEmpty()) {
-                try {
-                    JSONObject main = new JSONObject(content);
-                    JSONArray array = main.getJSONArray("fishLocations");
-                    for (int i = 0; i < array.length(); i++) {
-                        FishLocation location = new FishLocation(array.getJSONObject(i));
-                        fishLocations.put(location.getLocationId(), location);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Failed to parse fish locations JSON: " + e.getMessage());
-                }
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
+    public Collection<FishLocation> getAllFishLocations() {
+        return fishLocations.all();
     }
 
     /**
-     * Save fish locations to JSON
+     * Remove a fish location
      */
-    private void saveFishLocations() {
-        // Called within write lock - don't lock again
-        try {
-            JSONObject main = new JSONObject();
-            JSONArray jLocations = new JSONArray();
-            for (FishLocation location : fishLocations.values()) {
-                jLocations.put(location.toJson());
-            }
-            main.put("fishLocations", jLocations);
-            main.put("version", 1);
-            main.put("lastSaved", java.time.Instant.now().toString());
+    public boolean removeFishLocation(String locationId) {
+        return fishLocations.remove(locationId) != null;
+    }
 
-            NFileUtils.writeAtomically(dataFile, main.toString(2));
-        } catch (IOException e) {
-            System.err.println("Failed to save fish locations: " + e.getMessage());
-        }
+    /**
+     * Load fish locations from the data file and its journal
+     */
+    private void loadFishLocations() {
+        fishLocations.open(dataFile);
     }
 
     /**
      * Dispose the service and cleanup resources
      */
     public void dispose() {
-        lock.writeLock().lock();
-        try {
-            saveFishLocations();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        fishLocations.close();
     }
 
     /**
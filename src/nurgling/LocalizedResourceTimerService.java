@@ -4,21 +4,11 @@ import haven.*;
 import haven.Locked;
 import nurgling.profiles.ConfigFactory;
 import nurgling.profiles.ProfileAwareService;
-import nurgling.tools.NFileUtils;
+import nurgling.tools.LocationStore;
 import nurgling.widgets.LocalizedResourceTimerDialog;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Stream;
 
 /**
  * Centralized service for all resource timer operations
@@ -26,8 +16,38 @@ import java.util.stream.Stream;
  * Supports world-specific profiles via ProfileAwareService
  */
 public class LocalizedResourceTimerService implements ProfileAwareService {
-    private final Map<String, LocalizedResourceTimer> timers = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LocationStore<LocalizedResourceTimer> timers = new LocationStore<>("timers", 1, new LocationStore.Codec<LocalizedResourceTimer>() {
+        @Override
+        public String id(LocalizedResourceTimer v) {
+            return v.getResourceId();
+        }
+
+        @Override
+        public long segment(LocalizedResourceTimer v) {
+            return v.getSegmentId();
+        }
+
+        @Override
+        public Coord tile(LocalizedResourceTimer v) {
+            return v.getTileCoords();
+        }
+
+        @Override
+        public JSONObject toJson(LocalizedResourceTimer v) {
+            return v.toJson();
+        }
+
+        @Override
+        public LocalizedResourceTimer fromJson(JSONObject json) {
+            return new LocalizedResourceTimer(json);
+        }
+
+        // Expired timers are neither loaded nor saved
+        @Override
+        public boolean keep(LocalizedResourceTimer v) {
+            return !v.isExpired();
+        }
+    });
     private String dataFile;
     private final NGameUI gui;
     private String genus;
@@ -69,12 +89,7 @@ public class LocalizedResourceTimerService implements ProfileAwareService {
 
     @Override
     public void save() {
-        lock.writeLock().lock();
-        try {
-            saveTimers();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        timers.compact();
     }
 
     /**
@@ -105,33 +120,21 @@ public class LocalizedResourceTimerService implements ProfileAwareService {
      */
     public void createTimer(long segmentId, haven.Coord tileCoords, String resourceName, 
                            String resourceType, long duration, String description) {
-        lock.writeLock().lock();
-        try {
-            LocalizedResourceTimer timer = new LocalizedResourceTimer(segmentId, tileCoords, resourceName,
-                                                   resourceType, duration, description);
-            timers.put(timer.getResourceId(), timer);
-            saveTimers();
-            refreshTimerWindow();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        LocalizedResourceTimer timer = new LocalizedResourceTimer(segmentId, tileCoords, resourceName,
+                                               resourceType, duration, description);
+        timers.put(timer);
+        refreshTimerWindow();
     }
     
     /**
      * Remove a timer
      */
     public boolean removeTimer(String resourceId) {
-        lock.writeLock().lock();
-        try {
-            boolean removed = timers.remove(resourceId) != null;
-            if (removed) {
-                saveTimers();
-                refreshTimerWindow();
-            }
-            return removed;
-        } finally {
-            lock.writeLock().unlock();
+        boolean removed = timers.remove(resourceId) != null;
+        if (removed) {
+            refreshTimerWindow();
         }
+        return removed;
     }
     
     /**
@@ -146,38 +149,29 @@ public class LocalizedResourceTimerService implements ProfileAwareService {
      * Get timer by resource ID
      */
     public LocalizedResourceTimer getTimer(String resourceId) {
-        lock.readLock().lock();
-        try {
-            return timers.get(resourceId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return timers.get(resourceId);
     }
     
     /**
      * Get all timers for display
      */
     public java.util.Collection<LocalizedResourceTimer> getAllTimers() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(timers.values());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return timers.all();
     }
     
     /**
-     * Get timers for a specific segment (for map display)
+     * Get timers for a specific segment (for map display).
+     * The returned list is immutable and safe to iterate without copying.
      */
     public java.util.List<LocalizedResourceTimer> getTimersForSegment(long segmentId) {
-        lock.readLock().lock();
-        try {
-            return timers.values().stream()
-                    .filter(timer -> timer.getSegmentId() == segmentId)
-                    .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return timers.inSegment(segmentId);
+    }
+    
+    /**
+     * Get the timers of a segment within a tile rectangle, both corners inclusive
+     */
+    public java.util.List<LocalizedResourceTimer> getTimersInArea(long segmentId, haven.Coord ul, haven.Coord br) {
+        return timers.inArea(segmentId, ul, br);
     }
     
     private static String generateResourceId(long segmentId, haven.Coord tileCoords, String resourceType) {
@@ -263,55 +257,10 @@ public class LocalizedResourceTimerService implements ProfileAwareService {
     }
     
     /**
-     * Load timers from JSON file
+     * Load timers from the data file and its journal
      */
     private void loadTimers() {
-        lock.writeLock().lock();
-        try {
-            timers.clear();
-            String content = NFileUtils.readWithBackupFallback(dataFile);
-            if (content != null && !content.isEmpty()) {
-                try {
-                    JSONObject main = new JSONObject(content);
-                    JSONArray array = main.getJSONArray("timers");
-                    for (int i = 0; i < array.length(); i++) {
-                        LocalizedResourceTimer timer = new LocalizedResourceTimer(array.getJSONObject(i));
-                        // Only load non-expired timers
-                        if (!timer.isExpired()) {
-                            timers.put(timer.getResourceId(), timer);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.println("Failed to parse resource timers JSON: " + e.getMessage());
-                }
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-    
-    /**
-     * Save timers to JSON file
-     */
-    private void saveTimers() {
-        // Called within write lock - don't lock again
-        try {
-            JSONObject main = new JSONObject();
-            JSONArray jTimers = new JSONArray();
-            for (LocalizedResourceTimer timer : timers.values()) {
-                // Only save non-expired timers
-                if (!timer.isExpired()) {
-                    jTimers.put(timer.toJson());
-                }
-            }
-            main.put("timers", jTimers);
-            main.put("version", 1);
-            main.put("lastSaved", java.time.Instant.now().toString());
-            
-            NFileUtils.writeAtomically(dataFile, main.toString(2));
-        } catch (IOException e) {
-            System.err.println("Failed to save resource timers: " + e.getMessage());
-        }
+        timers.open(dataFile);
     }
     
     /**
@@ -319,11 +268,6 @@ public class LocalizedResourceTimerService implements ProfileAwareService {
      */
     public void dispose() {
         // Save any remaining timers
-        lock.writeLock().lock();
-        try {
-            saveTimers();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        timers.close();
     }
 }
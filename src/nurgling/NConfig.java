@@ -10,6 +10,7 @@ import nurgling.sessions.SessionContext;
 import nurgling.sessions.SessionManager;
 import nurgling.sessions.ThreadLocalUI;
 import nurgling.tools.NFileUtils;
+import nurgling.tools.ExploredArea;
 import nurgling.widgets.NCornerMiniMap;
 import org.json.*;
 
@@ -917,6 +918,13 @@ public class NConfig
         return getProfileAwarePath("explored.nurgling.json");
     }
 
+    /**
+     * Gets the dynamic path for the binary explored area store directory
+     */
+    public String getExploredStorePath() {
+        return getProfileAwarePath("explored");
+    }
+
     /**
      * Gets the dynamic path for session explored configuration file
      */
@@ -1471,9 +1479,14 @@ public class NConfig
         {
             try
             {
-                String filePath = customPath == null ? getExploredPath() : customPath;
-                // Merge with existing data on disk to prevent data loss when multiple clients run
-                ((NCornerMiniMap)NUtils.getGameUI().mmap).exploredArea.mergeAndSaveToFile(filePath);
+                ExploredArea exploredArea = ((NCornerMiniMap)NUtils.getGameUI().mmap).exploredArea;
+                if (customPath != null) {
+                    NFileUtils.writeAtomically(customPath, exploredArea.toJson().toString());
+                } else if (!exploredArea.save()) {
+                    // Store busy or not open yet; try again after another debounce period
+                    this.lastExploredChangeTime = System.currentTimeMillis();
+                    return;
+                }
                 this.isExploredUpd = false;
                 this.lastExploredChangeTime = 0;
             }
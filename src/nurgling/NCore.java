@@ -863,8 +863,9 @@ public class NCore extends Widget
 
         final String syncProfile = profile;
 
-        // Start sync with 4 second interval. Conflict resolution (OCC + 3-way
-        // merge) happens in AreaService; this callback just applies results.
+        // Start sync; the 4 second interval is the fallback poll while the
+        // change feed is down. Conflict resolution (OCC + 3-way merge)
+        // happens in AreaService; this callback just applies results.
         databaseManager.getAreaService().startSync(syncProfile, 4,
             new nurgling.db.service.AreaService.AreaSyncCallback() {
                 @Override
@@ -67,6 +67,18 @@ public class NGItem extends GItem
         return false;
     }
 
+    /**
+     * Key for {@link TooltipCache}, or null if this item's tooltip depends on
+     * more than its own raw info (contents) and must not be shared.
+     */
+    public TooltipCache.Key tooltipKey()
+    {
+        if (rawinfo == null || contents != null)
+            return null;
+        Resource r = res.get();
+        return new TooltipCache.Key(r.name, rawinfo.data, ui != null && ui.modshift);
+    }
+
     public void consumedLongtip()
     {
         for (ItemInfo inf : info()) {
@@ -306,6 +306,8 @@ public class NGameUI extends GameUI
             localizedResourceTimerService.dispose();
         if(fishLocationService != null)
             fishLocationService.dispose();
+        if(treeLocationService != null)
+            treeLocationService.dispose();
         if(labeledMarkService != null)
             labeledMarkService.dispose();
         if(nurgling.NUtils.getUI().core!=null)
@@ -34,6 +34,7 @@ import java.awt.image.BufferedImage;
 import java.util.*;
 import java.lang.reflect.Field;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -70,6 +71,10 @@ public class NGob
     public Coord gcoord;
     private final Queue<DelayedOverlayTask> delayedOverlayTasks = new ConcurrentLinkedQueue<>();
 
+    /** Kinds of overlay work, for {@link #overlayWork(int)}: delayed overlay tasks, quest markers, LP marker. */
+    public static final int OW_TASKS = 1, OW_QUEST = 2, OW_LP = 4;
+    private final AtomicInteger overlayWork = new AtomicInteger();
+
     // The HarvestSpec (if any) covering this gob's resource, cached here since resolving it
     // (HarvestSpecs.forResource's 4-way match scan) is only actually needed when the gob's
     // Drawable/name changes (see updateHarvestOverlay()) - both this class's own tick() and
@@ -140,7 +145,6 @@ public class NGob
     private boolean cachedShortCupboards = false;
     private boolean cachedShortPalisades = false;
     private boolean cachedQuestNotified = false;
-    private boolean cachedLpassistent = false;
     private int cachedTreeDisplayScale = 100;
     private int cachedHideStockpileScale = 100;
     private int configCacheCounter = 0;
@@ -153,6 +157,8 @@ public class NGob
 
     public void changedPose(String currentPose)
     {
+        if (!delayedOverlayTasks.isEmpty())
+            overlayWork(OW_TASKS);
         if (name != null)
         {
             if (currentPose.contains("fgtidle"))
@@ -213,6 +219,54 @@ public class NGob
         }
     }
 
+    /** Queues a task to run once its condition holds, as soon as the scheduler gets to this gob. */
+    private void delay(DelayedOverlayTask task)
+    {
+        delayedOverlayTasks.add(task);
+        overlayWork(OW_TASKS);
+    }
+
+    /**
+     * Asks for this gob's overlays of the given kinds to be brought up to date. The work itself runs
+     * later from its session's {@link GobOverlayScheduler}, so whatever noticed the change only pays
+     * for setting a flag.
+     */
+    public void overlayWork(int kinds)
+    {
+        overlayWork.getAndUpdate(w -> w | kinds);
+        if (parent.glob != null)
+            parent.glob.oc.overlays.enqueue(parent);
+    }
+
+    /**
+     * Runs the overlay work asked for since the last run. Called by {@link GobOverlayScheduler} with
+     * the gob locked. Returns true if some of it has to wait - a task whose condition does not hold
+     * yet, or a resource still loading - so that it is retried later.
+     */
+    public boolean runOverlayWork()
+    {
+        int kinds = overlayWork.getAndSet(0);
+        int retry = 0;
+        if (NUtils.getGameUI() == null)
+        {
+            retry = kinds;
+        }
+        else
+        {
+            if ((kinds & OW_TASKS) != 0 && !runDelayedTasks())
+                retry |= OW_TASKS;
+            if ((kinds & OW_QUEST) != 0 && !updateQuestMarkers())
+                retry |= OW_QUEST;
+            if ((kinds & OW_LP) != 0 && !updateLpMarker())
+                retry |= OW_LP;
+        }
+        if (retry == 0)
+            return false;
+        final int r = retry;
+        overlayWork.getAndUpdate(w -> w | r);
+        return true;
+    }
+
     public NGob(Gob parent)
     {
         this.parent = parent;
@@ -236,7 +290,6 @@ public class NGob
             cachedShortCupboards = (Boolean) NConfig.get(NConfig.Key.shortCupboards);
             cachedShortPalisades = (Boolean) NConfig.get(NConfig.Key.shortPalisades);
             cachedQuestNotified = (Boolean) NConfig.get(NConfig.Key.questNotified);
-            cachedLpassistent = (Boolean) NConfig.get(NConfig.Key.lpassistent);
             cachedTreeDisplayScale = ((Number) NConfig.get(NConfig.Key.treeDisplayScale)).intValue();
             cachedHideStockpileScale = ((Number) NConfig.get(NConfig.Key.hideStockpileScale)).intValue();
             configCacheCounter = 1;
@@ -518,7 +571,7 @@ public class NGob
             tryCreateTempMark((GobIcon) a, parent);
             
             // Also add to delayed tasks as backup (for ring overlay and retry if immediate creation failed)
-            delayedOverlayTasks.add(new DelayedOverlayTask(
+            delay(new DelayedOverlayTask(
                     gob ->
                     {
                         return NUtils.getGameUI() != null && NUtils.getGameUI().mmap != null && NUtils.getGameUI().mmap.iconconf != null && ((GobIcon) a).res.isReady() && ((GobIcon) a).icon != null && (!(((GobIcon) a).icon instanceof Player) || (gob.getattr(Buddy.class) == null || gob.getattr(Buddy.class).buddy() != null));
@@ -567,7 +620,11 @@ public class NGob
     }
 
     public void refreshHarvestOverlay() {
-        if (parent.getattr(Drawable.class) != null) updateHarvestOverlay();
+        if (parent.getattr(Drawable.class) != null) {
+            updateHarvestOverlay();
+            // Whether the harvest overlay covers this gob decides whether it needs an LP marker.
+            overlayWork(OW_LP);
+        }
     }
 
     private void updateHarvestOverlay()
@@ -833,7 +890,7 @@ public class NGob
                     {
                         // Add delayed check to ensure this is not a mannequin and not the player
                         // Also check that Composite is fully loaded (like Hurricane does)
-                        delayedOverlayTasks.add(new DelayedOverlayTask(
+                        delay(new DelayedOverlayTask(
                                 gob -> {
                                     if (gob.pose() == null) return false;
                                     // Check that Composite attribute exists and is fully loaded
@@ -905,7 +962,7 @@ public class NGob
 
                         if (name.equals("gfx/borka/body"))
                         {
-                            delayedOverlayTasks.add(new DelayedOverlayTask(
+                            delay(new DelayedOverlayTask(
                                     gob -> gob.pose() != null,
                                     gob ->
                                     {
@@ -951,7 +1008,7 @@ public class NGob
 
             if (name != null && name.contains("kritter"))
             {
-                delayedOverlayTasks.add(new DelayedOverlayTask(
+                delay(new DelayedOverlayTask(
                         gob ->
                         {
                             String pose = gob.pose();
@@ -973,7 +1030,7 @@ public class NGob
             // Add clickable circle under small critters for easier targeting
             if (NCritterCircle.isCritter(name))
             {
-                delayedOverlayTasks.add(new DelayedOverlayTask(
+                delay(new DelayedOverlayTask(
                         gob ->
                         {
                             if (gob.findol(NCritterCircle.class) != null)
@@ -1005,6 +1062,9 @@ public class NGob
                 }
             }
 
+            // Quest markers go by the resource, and the LP marker by the drawable's state too.
+            overlayWork(OW_QUEST | OW_LP);
+
             // Now that name and hitBox are both settled, reconcile the gob's visibility. This also
             // covers drawable changes that move a gob between categories (a felled tree becoming a
             // log), where the render node was dropped under the old category's rules.
@@ -1095,25 +1155,8 @@ public class NGob
     {
         if (NUtils.getGameUI() != null)
         {
-            // Process delayed overlay tasks - limit to avoid performance issues
-            if (!delayedOverlayTasks.isEmpty()) {
-                Iterator<DelayedOverlayTask> it = delayedOverlayTasks.iterator();
-                int processedTasks = 0;
-                final int MAX_TASKS_PER_TICK = 5; // Limit processing to avoid lag
-                
-                while (it.hasNext() && processedTasks < MAX_TASKS_PER_TICK)
-                {
-                    DelayedOverlayTask task = it.next();
-                    if (task.condition.test(parent))
-                    {
-                        task.action.accept(parent);
-                        it.remove();
-                    }
-                    processedTasks++;
-                }
-            }
-
-
+            // Overlay tasks, quest markers and the LP marker are no longer polled from here: they
+            // run from GobOverlayScheduler when something they depend on changes (overlayWork()).
             if (hash == null)
             {
                 // Use the gob's OWN session map, not NUtils.getGameUI(). Gobs are ticked from
@@ -1165,61 +1208,104 @@ public class NGob
 //                    if (col != null) col.remove();
 //                }
 //            }
+        }
+    }
 
-            // Quest highlighting is per-session: resolve the gob's OWNING session rather than
-            // NUtils.getGameUI() (the on-screen session), because gob ticks run on pool threads
-            // with no UI binding. Reading a shared/active questinfo would highlight one character's
-            // quest targets in every session.
-            NGameUI questOwner = ownerGui(parent);
-            if (questOwner != null && questOwner.questinfo != null)
+    /** Runs the delayed tasks whose conditions hold. Returns true once none are left. */
+    private boolean runDelayedTasks()
+    {
+        Iterator<DelayedOverlayTask> it = delayedOverlayTasks.iterator();
+        while (it.hasNext())
+        {
+            DelayedOverlayTask task = it.next();
+            try
             {
-                NQuestInfo qi = questOwner.questinfo;
-                int nlu = qi.lastUpdate.get();
-                if (nlu > lastUpdate)
+                if (task.condition.test(parent))
                 {
-                    NQuestInfo.MarkerInfo markerInfo;
-                    if ((markerInfo = qi.getMarkerInfo(questOwner, parent)) != null)
-                    {
-                        parent.addcustomol(new NQuestGiver(parent, markerInfo));
-                    }
-                    if (cachedQuestNotified)
-                    {
-                        if (qi.isForageTarget(name))
-                        {
-                            parent.addcustomol(new NQuestTarget(parent, false, qi));
-                        } else if (qi.isHuntingTarget(name))
-                        {
-                            parent.addcustomol(new NQuestTarget(parent, true, qi));
-                        }
-                    }
-                    lastUpdate = nlu;
+                    task.action.accept(parent);
+                    it.remove();
                 }
             }
-            if (cachedLpassistent)
+            catch (Loading l)
+            {
+                // Try again on the next retry.
+            }
+        }
+        return delayedOverlayTasks.isEmpty();
+    }
+
+    /** Adds the quest markers for quest updates not yet seen. Returns false to be retried. */
+    private boolean updateQuestMarkers()
+    {
+        // Quest highlighting is per-session: resolve the gob's OWNING session rather than
+        // NUtils.getGameUI() (the on-screen session), because this runs from the owning session's
+        // tick, which may be a headless one. Reading a shared/active questinfo would highlight one
+        // character's quest targets in every session.
+        NGameUI questOwner = ownerGui(parent);
+        if (questOwner == null || questOwner.questinfo == null)
+            // Nothing to mark yet; the quest info's first update asks every gob again.
+            return true;
+        NQuestInfo qi = questOwner.questinfo;
+        int nlu = qi.lastUpdate.get();
+        if (nlu > lastUpdate)
+        {
+            try
             {
-                // NObjHarvestOl handles display itself (tints its own icon(s)) once this gob
-                // type's always-visible harvest overlay is on - don't show a second marker.
-                boolean covered = cachedHarvestSpec != null && Boolean.TRUE.equals(NConfig.get(cachedHarvestSpec.masterToggle()));
-                // Test for an existing marker before running the discovery scan, not after:
-                // addcustomol() discards a duplicate, but only once we've already paid for the
-                // scan and for constructing the marker (which resolves its icon). NLPassistant
-                // takes itself off again from its own tick() once nothing is left to find.
-                if (!covered && parent.findol(NLPassistant.class) == null)
+                NQuestInfo.MarkerInfo markerInfo;
+                if ((markerInfo = qi.getMarkerInfo(questOwner, parent)) != null)
+                {
+                    parent.addcustomol(new NQuestGiver(parent, markerInfo));
+                }
+                if (cachedQuestNotified)
                 {
-                    try
+                    if (qi.isForageTarget(name))
                     {
-                        if (LpExplorer.hasUndiscoveredProduct(parent))
-                        {
-                            parent.addcustomol(new NLPassistant(parent));
-                        }
-                    }
-                    catch (Loading l)
+                        parent.addcustomol(new NQuestTarget(parent, false, qi));
+                    } else if (qi.isHuntingTarget(name))
                     {
-                        // Sprite still loading, try again next tick.
+                        parent.addcustomol(new NQuestTarget(parent, true, qi));
                     }
                 }
             }
+            catch (Loading l)
+            {
+                return false;
+            }
+            lastUpdate = nlu;
+        }
+        return true;
+    }
+
+    /** Adds the LP assistant marker if this gob has products left to discover. Returns false to be retried. */
+    private boolean updateLpMarker()
+    {
+        if (!LpExplorer.isEnabled())
+            return true;
+        // NObjHarvestOl handles display itself (tints its own icon(s)) once this gob
+        // type's always-visible harvest overlay is on - don't show a second marker.
+        boolean covered = cachedHarvestSpec != null && Boolean.TRUE.equals(NConfig.get(cachedHarvestSpec.masterToggle()));
+        // Test for an existing marker before running the discovery scan, not after:
+        // addcustomol() discards a duplicate, but only once we've already paid for the
+        // scan and for constructing the marker (which resolves its icon). NLPassistant
+        // takes itself off again from its own tick() once nothing is left to find.
+        if (covered || parent.findol(NLPassistant.class) != null)
+            return true;
+        // Character info not received yet: nothing looks undiscovered, so ask again later.
+        if (!LpExplorer.hasCharInfo())
+            return false;
+        try
+        {
+            if (LpExplorer.hasUndiscoveredProduct(parent))
+            {
+                parent.addcustomol(new NLPassistant(parent));
+            }
+        }
+        catch (Loading l)
+        {
+            // Sprite still loading, try again later.
+            return false;
         }
+        return true;
     }
 
     public static Gob getDummy(Coord2d rc, double a, String resName)
@@ -49,7 +49,8 @@ public class NInventory extends Inventory
     private Widget dropperBtn;
     private Widget sortBtnRef;
     private Widget stackSortBtnRef;
-    short[][] oldinv = null;
+    /** Cells taken by this inventory's items, updated as items come, go and resolve their size. */
+    private final InventoryOccupancy occupancy;
     public Gob parentGob = null;
     long lastUpdate = 0;
     
@@ -132,6 +133,35 @@ public class NInventory extends Inventory
     public NInventory(Coord sz)
     {
         super(sz);
+        occupancy = new InventoryOccupancy(sz.x, sz.y);
+    }
+
+    @Override
+    protected void itemchanged(GItem item, WItem w) {
+        if (w == null) {
+            occupancy.remove(item);
+            return;
+        }
+        Coord c = w.c.div(Inventory.sqsz);
+        GSprite spr = item.spr;
+        if (spr == null) {
+            occupancy.place(item, c.x, c.y, 0, 0);
+        } else {
+            Coord size = spr.sz().div(UI.scale(32));
+            occupancy.place(item, c.x, c.y, size.x, size.y);
+        }
+    }
+
+    @Override
+    public void uimsg(String msg, Object... args) {
+        super.uimsg(msg, args);
+        if (msg == "sz") {
+            occupancy.reset(isz.x, isz.y);
+            for (WItem w : getTopLevelItems())
+                itemchanged(w.item, w);
+        } else if (msg == "mask") {
+            occupancy.mask(sqmask);
+        }
     }
 
     @Override
@@ -267,7 +297,7 @@ public class NInventory extends Inventory
     @Override
     public void draw(GOut g) {
         super.draw(g);
-        if((Boolean)NConfig.get(NConfig.Key.showInventoryNums) && oldinv != null) {
+        if((Boolean)NConfig.get(NConfig.Key.showInventoryNums) && occupancy.ready()) {
             drawSlotNumbers(g);
         }
     }
@@ -278,29 +308,20 @@ public class NInventory extends Inventory
         Coord coord = new Coord(0, 0);
         for (coord.y = 0; coord.y < isz.y; coord.y++) {
             for (coord.x = 0; coord.x < isz.x; coord.x++) {
-                // Check bounds to prevent ArrayIndexOutOfBoundsException
-                if (coord.y >= oldinv.length || coord.x >= oldinv[coord.y].length) {
-                    break;
-                }
-                if (oldinv[coord.y][coord.x] == 0 && counter <= MAX_SLOT_NUMBERS) {
+                if (occupancy.isFree(coord.x, coord.y) && counter <= MAX_SLOT_NUMBERS) {
                     TexI numTex = cachedSlotNumbers[counter];
                     Coord pos = coord.mul(sqsz).add(sqsz.div(2));
                     Coord sz = numTex.sz();
                     pos = pos.add((int)((double)sz.x * -0.5), (int)((double)sz.y * -0.5));
                     g.image(numTex, pos);
                 }
-                if (oldinv[coord.y][coord.x] != 2)
+                if (!occupancy.isBlocked(coord.x, coord.y))
                     counter++;
             }
         }
     }
 
 
-    // Simplified version - just updates inventory state, rendering happens in draw()
-    void updateInventoryState(short[][] inventory) {
-        oldinv = inventory.clone();
-    }
-
     @Override
     public void addchild(Widget child, Object... args) {
         super.addchild(child, args);
@@ -550,35 +571,6 @@ public class NInventory extends Inventory
         if(NUtils.getGameUI() == null)
             return;
         super.tick(dt);
-        if((Boolean)NConfig.get(NConfig.Key.showInventoryNums)) {
-            short[][] newInv = containerMatrix();
-            boolean isDiffrent = false;
-            if (newInv != null)
-                if (oldinv != null) {
-                    if (newInv.length != oldinv.length)
-                        isDiffrent = true;
-                    else {
-                        for (int i = 0; i < newInv.length; i++) {
-                            if (newInv[i].length != oldinv[i].length) {
-                                isDiffrent = true;
-                                break;
-                            }
-                            for (int j = 0; j < newInv[i].length; j++) {
-                                if (newInv[i][j] != oldinv[i][j]) {
-                                    isDiffrent = true;
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                } else {
-                    isDiffrent = true;
-                }
-            if (isDiffrent)
-                updateInventoryState(newInv);
-        }
-        else
-            oldinv = null;
         // Update embedded right panel periodically
         if (panelState != PANEL_CLOSED && rightPanel != null && rightPanel.visible) {
             if (NUtils.getTickId() % 10 == 0) {
@@ -1751,81 +1743,22 @@ public class NInventory extends Inventory
     }
     
 
+    /** The grid by row: 0 free, 1 taken, 2 masked; null while an item's size is not known yet. */
     public short[][] containerMatrix()
     {
-        short[][] ret = new short[isz.y][isz.x];
-        for (int x = 0; x < isz.x; x++)
-        {
-            for (int y = 0; y < isz.y; y++)
-            {
-                if (sqmask == null || !sqmask[y * isz.x + x])
-                {
-                    ret[y][x] = 0; // Пустая ячейка
-                }
-                else
-                {
-                    ret[y][x] = 2; // Заблокированная ячейка
-                }
-            }
-        }
-        for (Widget widget = child; widget != null; widget = widget.next)
-        {
-            if (widget instanceof WItem)
-            {
-                WItem item = (WItem) widget;
-                if (item.item.spr != null)
-                {
-                    Coord size = item.item.spr.sz().div(UI.scale(32));
-                    int xSize = size.x;
-                    int ySize = size.y;
-                    int xLoc = item.c.div(Inventory.sqsz).x;
-                    int yLoc = item.c.div(Inventory.sqsz).y;
-
-                    for (int j = 0; j < ySize; j++)
-                    {
-                        for (int i = 0; i < xSize; i++)
-                        {
-                            if (yLoc + j < isz.y && xLoc + i < isz.x)
-                            {
-                                ret[yLoc + j][xLoc + i] = 1;
-                            }
-                        }
-                    }
-                }
-                else
-                    return null;
-            }
-        }
-        return ret;
+        return occupancy.ready() ? occupancy.matrix() : null;
     }
 
+    /**
+     * How many items of {@code target_size} fit at once, the size given as (rows, columns) like
+     * the rest of these methods; -1 while an item's size is not known yet.
+     */
     public int calcNumberFreeCoord(Coord target_size) {
         if (target_size.x < 1 || target_size.y < 1)
             return 0;
-
-        int count = 0;
-        short[][] inventory = containerMatrix();
-        if (inventory == null)
+        if (!occupancy.ready())
             return -1;
-        for (int i = 0; i <= inventory.length - target_size.x; i++)
-            for (int j = 0; j <= inventory[i].length - target_size.y; j++) {
-                boolean isFree = true;
-                for (int k = i; k < i + target_size.x; k++)
-                    for (int n = j; n < j + target_size.y; n++)
-                        if (inventory[k][n] != 0) {
-                            isFree = false;
-                            break;
-                        }
-
-                if (isFree) {
-                    count++;
-                    for (int k = i; k < i + target_size.x; k++)
-                        for (int n = j; n < j + target_size.y; n++)
-                            inventory[k][n] = 1;
-                }
-            }
-
-        return count;
+        return occupancy.countFree(target_size.y, target_size.x);
     }
 
     public Coord findFreeCoord(WItem wItem)
@@ -1835,56 +1768,26 @@ public class NInventory extends Inventory
     }
 
 
+    /** The first free place, as (column, row), for an item of (rows, columns) {@code target_size}. */
     public Coord findFreeCoord(Coord target_size) {
-        short[][] inventory = containerMatrix();
-        if ((inventory == null) || (target_size.y < 1) || (target_size.x < 1))
+        if (!occupancy.ready() || (target_size.y < 1) || (target_size.x < 1))
             return null;
-        for (int i = 0; i <= isz.y - target_size.y; i++)
-            for (int j = 0; j <= isz.x - target_size.x; j++)
-                if (inventory[i][j] == 0) {
-                    boolean isFree = true;
-                    for (int k = i; k < i + target_size.x; k++)
-                        for (int n = j; n < j + target_size.y; n++)
-                            if (n >= isz.x || k >= isz.y || inventory[k][n] != 0) {
-                                isFree = false;
-                                break;
-                            }
-                    if (isFree)
-                        return new Coord(j, i);
-                }
-        return null;
+        return occupancy.findFree(target_size.y, target_size.x);
     }
 
     public int calcFreeSpace()
     {
-        int freespace = 0;
-        short[][] inventory = containerMatrix();
-        if(inventory == null)
-            return -1;
-        for (int i = 0; i < isz.y; i++)
-            for (int j = 0; j < isz.x; j++)
-                if (inventory[i][j] == 0)
-                    freespace++;
-        return freespace;
+        return occupancy.ready() ? occupancy.freeCells() : -1;
     }
 
     public int calcTotalSpace()
     {
-        int totalSpace = 0;
-        short[][] inventory = containerMatrix();
-        if(inventory == null)
-            return -1;
-        for (int i = 0; i < isz.y; i++)
-            for (int j = 0; j < isz.x; j++)
-                if (inventory[i][j] != 2)
-                    totalSpace++;
-        return totalSpace;
+        return occupancy.ready() ? occupancy.totalCells() : -1;
     }
 
     public boolean isSlotFree(Coord pos)
     {
-        short[][] inventory = containerMatrix();
-        return inventory!=null && inventory[pos.y][pos.x] == 0;
+        return occupancy.ready() && occupancy.isFree(pos.x, pos.y);
     }
 
     public boolean isItemInSlot(Coord pos , NAlias name)
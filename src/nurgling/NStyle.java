@@ -65,7 +65,7 @@ public class NStyle {
 	    g.chcolor();
 	    // Handle (right-aligned, 8px wide)
 	    int handleH = haven.UI.scale(10);
-	    double a = (sb.max > sb.min) ? (double)sb.val / (double)(sb.max - sb.min) : 0;
+	    double a = (sb.max > sb.min) ? (double)(sb.val - sb.min) / (double)(sb.max - sb.min) : 0;
 	    int fy = (int)((sb.sz.y - handleH) * a);
 	    g.chcolor(border);
 	    g.frect(haven.Coord.of(x, fy), new haven.Coord(w, handleH));
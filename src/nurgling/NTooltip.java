@@ -10,10 +10,10 @@ import haven.res.ui.tt.slot.Slotted;
 import haven.res.ui.tt.ingred.Ingredient;
 import nurgling.iteminfo.NCuriosity;
 import nurgling.styles.TooltipStyle;
+import nurgling.tools.InfoAccessors;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,9 +47,7 @@ public class NTooltip {
      */
     private static String getIntField(Object obj, String fieldName) {
         try {
-            Field f = obj.getClass().getField(fieldName);
-            int value = f.getInt(obj);
-            return String.valueOf(value);
+            return String.valueOf(InfoAccessors.getInt(obj, fieldName));
         } catch (Exception e) {
             return null;
         }
@@ -61,14 +59,13 @@ public class NTooltip {
      */
     private static String getPercentField(Object obj, String fieldName) {
         try {
-            Field f = obj.getClass().getField(fieldName);
-            double value = f.getDouble(obj);
+            double value = InfoAccessors.getDouble(obj, fieldName);
             double percent = value * 100;
             // Round to 1 decimal place to avoid floating point precision issues
             double rounded = Math.round(percent * 10) / 10.0;
             // Show whole number if no fractional part
             if (rounded == Math.floor(rounded)) {
-                return String.format("%.0f%%", rounded);
+                return (long) rounded + "%";
             }
             return String.format("%.1f%%", rounded);
         } catch (Exception e) {
@@ -81,9 +78,7 @@ public class NTooltip {
      */
     private static BufferedImage getWeightAttrIcon(Object obj) {
         try {
-            Field f = obj.getClass().getDeclaredField("attr");
-            f.setAccessible(true);
-            Object attr = f.get(obj);
+            Object attr = InfoAccessors.get(obj, "attr");
             if (attr instanceof Resource) {
                 Resource res = (Resource) attr;
                 Resource.Image imgLayer = res.layer(Resource.imgc);
@@ -113,34 +108,28 @@ public class NTooltip {
 
 
 
-    private static int getIntField(Class<?> clazz, Object obj, String... names) {
+    private static int readIntField(Object obj, String... names) {
         for (String name : names) {
             try {
-                Field f = clazz.getDeclaredField(name);
-                f.setAccessible(true);
-                return f.getInt(obj);
+                return InfoAccessors.getInt(obj, name);
             } catch (Exception ignored) {}
         }
         return 0;
     }
 
-    private static double getDoubleField(Class<?> clazz, Object obj, String... names) {
+    private static double readDoubleField(Object obj, String... names) {
         for (String name : names) {
             try {
-                Field f = clazz.getDeclaredField(name);
-                f.setAccessible(true);
-                return f.getDouble(obj);
+                return InfoAccessors.getDouble(obj, name);
             } catch (Exception ignored) {}
         }
         return 0;
     }
 
-    private static Object getObjectField(Class<?> clazz, Object obj, String... names) {
+    private static Object readObjectField(Object obj, String... names) {
         for (String name : names) {
             try {
-                Field f = clazz.getDeclaredField(name);
-                f.setAccessible(true);
-                return f.get(obj);
+                return InfoAccessors.get(obj, name);
             } catch (Exception ignored) {}
         }
         return null;
@@ -225,6 +214,17 @@ public class NTooltip {
      * Integer types: intattr
      */
     private static boolean isPercentageAttribute(Class<?> clazz) {
+        return PERCENT_ATTRIBUTE.get(clazz);
+    }
+
+    private static final ClassValue<Boolean> PERCENT_ATTRIBUTE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> clazz) {
+            return scanPercentageAttribute(clazz);
+        }
+    };
+
+    private static boolean scanPercentageAttribute(Class<?> clazz) {
         // Walk up the class hierarchy looking for known attribute type names
         // Check both simple name and full name patterns since classes might be dynamically loaded
         Class<?> current = clazz;
@@ -260,26 +260,20 @@ public class NTooltip {
 
         try {
             // Get the 'tab' field (Collection of Entry)
-            Field tabField = attrModObj.getClass().getDeclaredField("tab");
-            tabField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            java.util.Collection<?> tabCollection = (java.util.Collection<?>) tabField.get(attrModObj);
+            java.util.Collection<?> tabCollection = (java.util.Collection<?>) InfoAccessors.get(attrModObj, "tab");
 
             if (tabCollection == null) return stats;
 
             for (Object entry : tabCollection) {
                 try {
                     // Get the 'attr' field from Entry
-                    Field attrField = entry.getClass().getField("attr");
-                    Object attr = attrField.get(entry);
+                    Object attr = InfoAccessors.get(entry, "attr");
 
                     // Call attr.name()
-                    java.lang.reflect.Method nameMethod = attr.getClass().getMethod("name");
-                    String name = (String) nameMethod.invoke(attr);
+                    String name = (String) InfoAccessors.call(attr, "name");
 
                     // Call attr.icon()
-                    java.lang.reflect.Method iconMethod = attr.getClass().getMethod("icon");
-                    BufferedImage icon = (BufferedImage) iconMethod.invoke(attr);
+                    BufferedImage icon = (BufferedImage) InfoAccessors.call(attr, "icon");
 
                     // Check if it's a Mod entry (has 'mod' field) or Transfer entry
                     String formattedValue = "";
@@ -288,8 +282,7 @@ public class NTooltip {
                     if (entryClassName.equals("Mod") || entry.getClass().getName().contains("Mod")) {
                         // It's a Mod entry - get mod value
                         try {
-                            Field modField = entry.getClass().getField("mod");
-                            double modValue = modField.getDouble(entry);
+                            double modValue = InfoAccessors.getDouble(entry, "mod");
 
                             // Check if it's percentage or integer type
                             boolean isPercent = isPercentageAttribute(attr.getClass());
@@ -310,8 +303,7 @@ public class NTooltip {
                     } else if (entryClassName.equals("Transfer") || entry.getClass().getName().contains("Transfer")) {
                         // It's a Transfer entry - use fmtvalue()
                         try {
-                            java.lang.reflect.Method fmtMethod = entry.getClass().getMethod("fmtvalue");
-                            String richText = (String) fmtMethod.invoke(entry);
+                            String richText = (String) InfoAccessors.call(entry, "fmtvalue");
                             formattedValue = parseRichTextValue(richText);
                         } catch (Exception ignored) {}
                     }
@@ -356,10 +348,7 @@ public class NTooltip {
         java.util.List<ToolStatData> stats = new java.util.ArrayList<>();
         try {
             // Get the 'sub' field (List of ItemInfo, containing AttrMod objects)
-            Field subField = toolObj.getClass().getDeclaredField("sub");
-            subField.setAccessible(true);
-            @SuppressWarnings("unchecked")
-            java.util.List<?> subList = (java.util.List<?>) subField.get(toolObj);
+            java.util.List<?> subList = (java.util.List<?>) InfoAccessors.get(toolObj, "sub");
 
             if (subList == null) return stats;
 
@@ -370,26 +359,20 @@ public class NTooltip {
                 }
 
                 // Get the 'tab' field (Collection of Entry)
-                Field tabField = subItem.getClass().getDeclaredField("tab");
-                tabField.setAccessible(true);
-                @SuppressWarnings("unchecked")
-                java.util.Collection<?> tabCollection = (java.util.Collection<?>) tabField.get(subItem);
+                java.util.Collection<?> tabCollection = (java.util.Collection<?>) InfoAccessors.get(subItem, "tab");
 
                 if (tabCollection == null) continue;
 
                 for (Object entry : tabCollection) {
                     try {
                         // Get the 'attr' field from Entry
-                        Field attrField = entry.getClass().getField("attr");
-                        Object attr = attrField.get(entry);
+                        Object attr = InfoAccessors.get(entry, "attr");
 
                         // Call attr.name()
-                        java.lang.reflect.Method nameMethod = attr.getClass().getMethod("name");
-                        String name = (String) nameMethod.invoke(attr);
+                        String name = (String) InfoAccessors.call(attr, "name");
 
                         // Call attr.icon()
-                        java.lang.reflect.Method iconMethod = attr.getClass().getMethod("icon");
-                        BufferedImage icon = (BufferedImage) iconMethod.invoke(attr);
+                        BufferedImage icon = (BufferedImage) InfoAccessors.call(attr, "icon");
 
                         // Get the 'mod' field from Mod (Entry subclass)
                         // If no mod field, check for Transfer entry type
@@ -397,14 +380,12 @@ public class NTooltip {
                         boolean isTransfer = false;
                         String transferValue = null;
                         try {
-                            Field modField = entry.getClass().getField("mod");
-                            modValue = modField.getDouble(entry);
+                            modValue = InfoAccessors.getDouble(entry, "mod");
                         } catch (NoSuchFieldException e) {
                             // Not a Mod - might be a Transfer entry type
                             // Try to call fmtvalue() and parse the result
                             try {
-                                java.lang.reflect.Method fmtMethod = entry.getClass().getMethod("fmtvalue");
-                                String fmtValue = (String) fmtMethod.invoke(entry);
+                                String fmtValue = (String) InfoAccessors.call(entry, "fmtvalue");
 
                                 // Check if this is a Transfer entry (class name contains "Transfer")
                                 if (entry.getClass().getName().contains("Transfer")) {
@@ -687,15 +668,14 @@ public class NTooltip {
         } else if (islotsObj != null) {
             // Alternative ISlots via reflection
             try {
-                Class<?> clazz = islotsObj.getClass();
-                int uses = getIntField(clazz, islotsObj, "uses");
-                int used = getIntField(clazz, islotsObj, "used");
+                int uses = readIntField(islotsObj, "uses");
+                int used = readIntField(islotsObj, "used");
                 gildingLeft = uses - used;
                 gildingTotal = uses;
-                gildingPmin = getDoubleField(clazz, islotsObj, "pmin");
-                gildingPmax = getDoubleField(clazz, islotsObj, "pmax");
-                gildingAttrs = (Resource[]) getObjectField(clazz, islotsObj, "attrs");
-                gildingItems = (java.util.Collection<?>) getObjectField(clazz, islotsObj, "s");
+                gildingPmin = readDoubleField(islotsObj, "pmin");
+                gildingPmax = readDoubleField(islotsObj, "pmax");
+                gildingAttrs = (Resource[]) readObjectField(islotsObj, "attrs");
+                gildingItems = (java.util.Collection<?>) readObjectField(islotsObj, "s");
             } catch (Exception e) {
                 // Ignore extraction errors
             }
@@ -743,9 +723,7 @@ public class NTooltip {
                 if (className.equals("Elixir")) {
                     try {
                         // Get effects
-                        java.lang.reflect.Field effsField = subInfo.getClass().getDeclaredField("effs");
-                        effsField.setAccessible(true);
-                        Object effsObj = effsField.get(subInfo);
+                        Object effsObj = InfoAccessors.get(subInfo, "effs");
                         java.util.List<?> effsList = null;
                         if (effsObj instanceof java.util.List) {
                             effsList = (java.util.List<?>) effsObj;
@@ -765,13 +743,9 @@ public class NTooltip {
                                         try {
                                             boolean isHeal = effClassName.equals("HealWound");
                                             // Get amount (a field)
-                                            java.lang.reflect.Field aField = eff.getClass().getDeclaredField("a");
-                                            aField.setAccessible(true);
-                                            int amount = aField.getInt(eff);
+                                            int amount = InfoAccessors.getInt(eff, "a");
                                             // Get wound resource (res field - Indir<Resource>)
-                                            java.lang.reflect.Field resField = eff.getClass().getDeclaredField("res");
-                                            resField.setAccessible(true);
-                                            Object resRef = resField.get(eff);
+                                            Object resRef = InfoAccessors.get(eff, "res");
                                             Resource woundRes = null;
                                             if (resRef instanceof Resource) {
                                                 woundRes = (Resource) resRef;
@@ -780,8 +754,7 @@ public class NTooltip {
                                             } else if (resRef != null) {
                                                 // Try calling get() via reflection
                                                 try {
-                                                    java.lang.reflect.Method getMethod = resRef.getClass().getMethod("get");
-                                                    woundRes = (Resource) getMethod.invoke(resRef);
+                                                    woundRes = (Resource) InfoAccessors.call(resRef, "get");
                                                 } catch (Exception e) {
                                                     // Could not get resource
                                                 }
@@ -826,9 +799,7 @@ public class NTooltip {
                             }
                         }
                         // Get duration
-                        java.lang.reflect.Field timeField = subInfo.getClass().getDeclaredField("time");
-                        timeField.setAccessible(true);
-                        elixirDurationSeconds = timeField.getInt(subInfo);
+                        elixirDurationSeconds = InfoAccessors.getInt(subInfo, "time");
                     } catch (Exception e) {
                         // Elixir extraction error, skip silently
                     }
@@ -837,9 +808,7 @@ public class NTooltip {
                 // Extract Recipe data
                 if (className.equals("Recipe")) {
                     try {
-                        java.lang.reflect.Field inputsField = subInfo.getClass().getDeclaredField("inputs");
-                        inputsField.setAccessible(true);
-                        Object inputsObj = inputsField.get(subInfo);
+                        Object inputsObj = InfoAccessors.get(subInfo, "inputs");
                         java.util.List<?> inputsList = null;
                         if (inputsObj instanceof java.util.List) {
                             inputsList = (java.util.List<?>) inputsObj;
@@ -1028,12 +997,12 @@ public class NTooltip {
                 // Reflection-based path
                 gildingSectionsResult = renderGildingSections(
                     gildingItems,
-                    item -> (String) getObjectField(item.getClass(), item, "name"),
-                    item -> (Resource) getObjectField(item.getClass(), item, "res"),
-                    item -> (GSprite) getObjectField(item.getClass(), item, "spr"),
+                    item -> (String) readObjectField(item, "name"),
+                    item -> (Resource) readObjectField(item, "res"),
+                    item -> (GSprite) readObjectField(item, "spr"),
                     item -> {
                         @SuppressWarnings("unchecked")
-                        List<ItemInfo> itemInfo = (List<ItemInfo>) getObjectField(item.getClass(), item, "info");
+                        List<ItemInfo> itemInfo = (List<ItemInfo>) readObjectField(item, "info");
                         return itemInfo;
                     }
                 );
@@ -1720,9 +1689,7 @@ public class NTooltip {
      */
     private static BufferedImage renderTreatsLine(Object treatsInfo) {
         try {
-            Field namesField = treatsInfo.getClass().getDeclaredField("names");
-            namesField.setAccessible(true);
-            String[] names = (String[]) namesField.get(treatsInfo);
+            String[] names = (String[]) InfoAccessors.get(treatsInfo, "names");
 
             if (names == null || names.length == 0) return null;
 
@@ -2454,18 +2421,14 @@ public class NTooltip {
             if (spec == null) continue;
             try {
                 // Get res field (ResData containing the resource)
-                java.lang.reflect.Field resField = spec.getClass().getDeclaredField("res");
-                resField.setAccessible(true);
-                Object resData = resField.get(spec);
+                Object resData = InfoAccessors.get(spec, "res");
                 String ingredientName = null;
                 Resource res = null;
                 if (resData != null) {
                     // ResData has a res field that is an Indir<Resource> (CachedRes$Ref)
                     // We need to call get() on it to get the actual Resource
                     try {
-                        java.lang.reflect.Field innerResField = resData.getClass().getDeclaredField("res");
-                        innerResField.setAccessible(true);
-                        Object resRef = innerResField.get(resData);
+                        Object resRef = InfoAccessors.get(resData, "res");
 
                         if (resRef instanceof Resource) {
                             res = (Resource) resRef;
@@ -2475,8 +2438,7 @@ public class NTooltip {
                         } else if (resRef != null) {
                             // Try calling get() method via reflection
                             try {
-                                java.lang.reflect.Method getMethod = resRef.getClass().getMethod("get");
-                                res = (Resource) getMethod.invoke(resRef);
+                                res = (Resource) InfoAccessors.call(resRef, "get");
                             } catch (Exception e) {
                                 // Could not call get() on resRef
                             }
@@ -2512,9 +2474,7 @@ public class NTooltip {
                 }
 
                 // Get child inputs recursively
-                java.lang.reflect.Field inputsField = spec.getClass().getDeclaredField("inputs");
-                inputsField.setAccessible(true);
-                Object inputsObj = inputsField.get(spec);
+                Object inputsObj = InfoAccessors.get(spec, "inputs");
                 java.util.List<?> childInputs = null;
                 if (inputsObj instanceof java.util.List) {
                     childInputs = (java.util.List<?>) inputsObj;
@@ -2957,12 +2917,8 @@ public class NTooltip {
         java.util.List<String[]> entries = new java.util.ArrayList<>();  // [name, descr]
         for (Object smoke : smokeItems) {
             try {
-                java.lang.reflect.Field nameField = smoke.getClass().getDeclaredField("name");
-                nameField.setAccessible(true);
-                String name = (String) nameField.get(smoke);
-                java.lang.reflect.Field valField = smoke.getClass().getDeclaredField("val");
-                valField.setAccessible(true);
-                Double val = (Double) valField.get(smoke);
+                String name = (String) InfoAccessors.get(smoke, "name");
+                Double val = (Double) InfoAccessors.get(smoke, "val");
                 String descr = (val == null) ? name : String.format("%s (%d%%)", name, (int) Math.floor(val * 100.0));
                 entries.add(new String[]{name, descr});
             } catch (Exception e) {
@@ -94,7 +94,15 @@ public class NWItem extends WItem
         boolean wantRebuild = (nlongtip == null) || ((NGItem) item).needlongtip();
         boolean throttled = (nlongtip != null) && (now - nlastLongtipBuild < NLONGTIP_REBUILD_INTERVAL);
         if (wantRebuild && !throttled) {
-            BufferedImage img = NTooltip.build(info);
+            // Tooltips that update themselves are always rebuilt; the rest are
+            // shared between identical items through the global cache.
+            TooltipCache.Key key = (nlongtip == null && !((NGItem) item).needlongtip()) ? ((NGItem) item).tooltipKey() : null;
+            BufferedImage img = (key != null) ? TooltipCache.global.get(key) : null;
+            if (img == null) {
+                img = NTooltip.build(info);
+                if (img != null && key != null)
+                    TooltipCache.global.put(key, img);
+            }
             if (img != null) {
                 nlongtip = new PaddedTip(info, img);
                 ((NGItem) item).consumedLongtip();
@@ -0,0 +1,112 @@
+package nurgling;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of rendered item tooltips shared by all item widgets.
+ *
+ * Entries are keyed by what the server sent for the item (resource name and
+ * raw tooltip info) plus the Shift state, so identical items in a full
+ * inventory, or an item hovered again after its widget was rebuilt, reuse one
+ * rendered image. The cache is bounded by the summed pixel memory of its
+ * images; the least recently used entries are dropped first.
+ */
+public class TooltipCache {
+    public static final long DEFAULT_CAPACITY = 24L << 20;
+
+    public static final TooltipCache global = new TooltipCache(DEFAULT_CAPACITY);
+
+    private final long capacity;
+    private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    public TooltipCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public static final class Key {
+        final String res;
+        final Object[] raw;
+        final boolean shift;
+        private final int hash;
+
+        public Key(String res, Object[] raw, boolean shift) {
+            this.res = res;
+            this.raw = raw;
+            this.shift = shift;
+            this.hash = (res.hashCode() * 31 + Arrays.deepHashCode(raw)) * 2 + (shift ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return hash == k.hash && shift == k.shift && res.equals(k.res) && Arrays.deepEquals(raw, k.raw);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public synchronized BufferedImage get(Key key) {
+        BufferedImage img = images.get(key);
+        if (img != null) hits++;
+        else misses++;
+        return img;
+    }
+
+    public synchronized void put(Key key, BufferedImage img) {
+        long size = sizeOf(img);
+        if (size > capacity) return;
+        BufferedImage prev = images.put(key, img);
+        if (prev != null) bytes -= sizeOf(prev);
+        bytes += size;
+        Iterator<Map.Entry<Key, BufferedImage>> it = images.entrySet().iterator();
+        while (bytes > capacity && it.hasNext()) {
+            Map.Entry<Key, BufferedImage> e = it.next();
+            if (e.getKey().equals(key)) continue;
+            bytes -= sizeOf(e.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return images.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("Tooltips: %d cached, %d KB, hits=%d misses=%d (%.0f%%) evicted=%d",
+                images.size(), bytes >> 10, hits, misses, (total == 0) ? 0.0 : 100.0 * hits / total, evictions);
+    }
+
+    private static long sizeOf(BufferedImage img) {
+        return 4L * img.getWidth() * img.getHeight();
+    }
+}
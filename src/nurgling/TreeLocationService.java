@@ -3,22 +3,12 @@ package nurgling;
 import haven.*;
 import nurgling.profiles.ConfigFactory;
 import nurgling.profiles.ProfileAwareService;
-import nurgling.tools.NFileUtils;
 import nurgling.tools.Finder;
+import nurgling.tools.LocationStore;
 import nurgling.tools.NAlias;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Stream;
 
 /**
  * Service for managing saved tree locations
@@ -26,8 +16,32 @@ import java.util.stream.Stream;
  * Supports world-specific profiles via ProfileAwareService
  */
 public class TreeLocationService implements ProfileAwareService {
-    private final Map<String, TreeLocation> treeLocations = new ConcurrentHashMap<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LocationStore<TreeLocation> treeLocations = new LocationStore<>("treeLocations", 1, new LocationStore.Codec<TreeLocation>() {
+        @Override
+        public String id(TreeLocation v) {
+            return v.getLocationId();
+        }
+
+        @Override
+        public long segment(TreeLocation v) {
+            return v.getSegmentId();
+        }
+
+        @Override
+        public Coord tile(TreeLocation v) {
+            return v.getTileCoords();
+        }
+
+        @Override
+        public JSONObject toJson(TreeLocation v) {
+            return v.toJson();
+        }
+
+        @Override
+        public TreeLocation fromJson(JSONObject json) {
+            return new TreeLocation(json);
+        }
+    });
     private String dataFile;
     private final NGameUI gui;
     private String genus;
@@ -69,12 +83,7 @@ public class TreeLocationService implements ProfileAwareService {
 
     @Override
     public void save() {
-        lock.writeLock().lock();
-        try {
-            saveTreeLocations();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        treeLocations.compact();
     }
 
     /**
@@ -111,15 +120,9 @@ public class TreeLocationService implements ProfileAwareService {
             // Count nearby trees/bushes of the same type
             int quantity = countNearbyTrees(treeGob, treeResource);
 
-            lock.writeLock().lock();
-            try {
-                TreeLocation location = new TreeLocation(segmentId, segmentCoord, treeName, treeResource, quantity);
-                treeLocations.put(location.getLocationId(), location);
-                saveTreeLocations();
-                gui.msg("Saved " + treeName + " location (quantity: " + quantity + ")", java.awt.Color.GREEN);
-            } finally {
-                lock.writeLock().unlock();
-            }
+            TreeLocation location = new TreeLocation(segmentId, segmentCoord, treeName, treeResource, quantity);
+            treeLocations.put(location);
+            gui.msg("Saved " + treeName + " location (quantity: " + quantity + ")", java.awt.Color.GREEN);
 
         } catch (Exception e) {
             System.err.println("Error saving tree location: " + e);
@@ -193,106 +196,45 @@ public class TreeLocationService implements ProfileAwareService {
     }
 
     /**
-     * Get all tree locations for a segment (for map rendering)
+     * Get all tree locations for a segment (for map rendering).
+     * The returned list is immutable and safe to iterate without copying.
      */
     public List<TreeLocation> getTreeLocationsForSegment(long segmentId) {
-        lock.readLock().lock();
-        try {
-            List<TreeLocation> result = new ArrayList<>();
-            for (TreeLocation loc : treeLocations.values()) {
-                if (loc.getSegmentId() == segmentId) {
-                    result.add(loc);
-                }
-            }
-            return result;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return treeLocations.inSegment(segmentId);
+    }
+
+    /**
+     * Get the tree locations of a segment within a tile rectangle, both corners inclusive
+     */
+    public List<TreeLocation> getTreeLocationsInArea(long segmentId, Coord ul, Coord br) {
+        return treeLocations.inArea(segmentId, ul, br);
     }
 
     /**
      * Get all tree locations
      */
     public Collection<TreeLocation> getAllTreeLocations() {
-        lock.readLock().lock();
-        try {
-            return new ArrayList<>(treeLocations.values());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return treeLocations.all();
     }
 
     /**
      * Remove a tree location
      */
     public boolean removeTreeLocation(String locationId) {
-        lock.writeLock().lock();
-        try {
-            boolean removed = treeLocations.remove(locationId) != null;
-            if (removed) {
-                saveTreeLocations();
-            }
-            return removed;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        return treeLocations.remove(locationId) != null;
     }
 
     /**
-     * Load tree locations from JSON
+     * Load tree locations from the data file and its journal
      */
     private void loadTreeLocations() {
-        lock.writeLock().lock();
-        try {
-            treeLocations.clear();
-            String content = NFileUtils.readWithBackupFallback(dataFile);
-            if (content != null && !content.isEmpty()) {
-                try {
-                    JSONObject main = new JSONObject(content);
-                    JSONArray array = main.getJSONArray("treeLocations");
-                    for (int i = 0; i < array.length(); i++) {
-                        TreeLocation location = new TreeLocation(array.getJSONObject(i));
-                        treeLocations.put(location.getLocationId(), location);
-                    }
-                } catch (Exception e) {
-                    System.err.println("Failed to parse tree locations JSON: " + e.getMessage());
-                }
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-
-    /**
-     * Save tree locations to JSON
-     */
-    private void saveTreeLocations() {
-        // Called within write lock - don't lock again
-        try {
-            JSONObject main = new JSONObject();
-            JSONArray jLocations = new JSONArray();
-            for (TreeLocation location : treeLocations.values()) {
-                jLocations.put(location.toJson());
-            }
-            main.put("treeLocations", jLocations);
-            main.put("version", 1);
-            main.put("lastSaved", java.time.Instant.now().toString());
-
-            NFileUtils.writeAtomically(dataFile, main.toString(2));
-        } catch (IOException e) {
-            System.err.println("Failed to save tree locations: " + e.getMessage());
-        }
+        treeLocations.open(dataFile);
     }
 
     /**
      * Dispose the service and cleanup resources
      */
     public void dispose() {
-        lock.writeLock().lock();
-        try {
-            saveTreeLocations();
-        } finally {
-            lock.writeLock().unlock();
-        }
+        treeLocations.close();
     }
 }
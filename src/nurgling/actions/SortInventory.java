@@ -13,6 +13,7 @@ import java.util.stream.Collectors;
 /**
  * Sorts inventory items by name, resource name, and quality.
  * Moves all 1x1 items to fill empty slots from top-left, sorted alphabetically and by quality.
+ * Only items that are out of place move, each exactly once (see {@link SortPlan}).
  */
 public class SortInventory implements Action {
     
@@ -111,9 +112,18 @@ public class SortInventory implements Action {
         return -1; // No quality available
     }
     
+    /** Plan/execute/verify rounds for the positional pass before giving up. */
+    private static final int MAX_PASSES = 3;
+    /** Ticks to wait for a pipelined batch to show up, plus a margin per message sent. */
+    private static final int SETTLE_TICKS = 200;
+    private static final int SETTLE_TICKS_PER_MSG = 10;
+
     private final NInventory inventory;
     private final boolean deepSort;
     private volatile boolean cancelled = false;
+    private int plannedMoves = -1;
+    private int executedMoves = 0;
+    private long sortMs = 0;
     private static volatile SortInventory current;
     private static final Object lock = new Object();
 
@@ -175,16 +185,68 @@ public class SortInventory implements Action {
         }
         
         if (!cancelled) {
-            gui.msg(deepSort ? "Stacks sorted!" : "Inventory sorted!");
+            String done = deepSort ? "Stacks sorted!" : "Inventory sorted!";
+            if (plannedMoves > 0) {
+                done += " Moves: " + plannedMoves + " planned, " + executedMoves + " executed in " + sortMs + " ms";
+            }
+            gui.msg(done);
         }
         
         return cancelled ? Results.FAIL() : Results.SUCCESS();
     }
     
     private void doSort(NGameUI gui) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        for (int pass = 0; pass < MAX_PASSES && !cancelled; pass++) {
+            Layout layout = scanLayout();
+            if (layout == null) break;
+
+            SortPlan plan = SortPlan.compute(layout.cur, layout.cls, layout.slots);
+            if (plannedMoves < 0) plannedMoves = plan.moves;
+            if (plan.moves == 0) break;
+
+            int sent = sendPlan(layout, plan);
+            if (awaitSorted(gui, sent)) break;
+        }
+        sortMs = System.currentTimeMillis() - start;
+
+        if (cancelled) {
+            // Chains end with an empty hand, but the client may still be catching up
+            if (gui.vhand != null) {
+                NUtils.dropToInv(inventory);
+            }
+            return;
+        }
+
+        // Second pass: sort individual items across same-type stacks by quality
+        if (deepSort) {
+            sortWithinStacks(gui);
+        }
+    }
+
+    /**
+     * Sortable 1x1 items in target order, with the cell each one occupies now,
+     * the cell each rank belongs in, and an id shared by items that compare
+     * equal. Cells are encoded as {@code y * isz.x + x}.
+     */
+    private static class Layout {
+        final WItem[] items;
+        final int[] cur;
+        final int[] cls;
+        final int[] slots;
+
+        Layout(int n) {
+            items = new WItem[n];
+            cur = new int[n];
+            cls = new int[n];
+            slots = new int[n];
+        }
+    }
+
+    private Layout scanLayout() {
         // Build grid of blocked cells (including sqmask and multi-cell items)
         boolean[][] grid = new boolean[inventory.isz.x][inventory.isz.y];
-        
+
         // Apply sqmask if present
         boolean[] mask = inventory.sqmask;
         if (mask != null) {
@@ -195,17 +257,15 @@ public class SortInventory implements Action {
                 }
             }
         }
-        
+
         // Collect all items and mark multi-cell items as blocked
         List<WItem> items = new ArrayList<>();
         for (Widget wdg = inventory.lchild; wdg != null; wdg = wdg.prev) {
-            if (cancelled) return;
-            
             if (wdg.visible && wdg instanceof WItem) {
                 WItem wItem = (WItem) wdg;
                 Coord sz = getItemSize(wItem);
                 Coord loc = getItemPos(wItem);
-                
+
                 if (sz.x * sz.y == 1) {
                     // 1x1 items can be sorted
                     items.add(wItem);
@@ -223,106 +283,105 @@ public class SortInventory implements Action {
                 }
             }
         }
-        
+
         if (items.isEmpty()) {
-            return;
+            return null;
         }
-        
 
-
-        // Sort items and create position mapping
-        List<Object[]> sorted = items.stream()
-                .filter(witem -> getItemSize(witem).x * getItemSize(witem).y == 1)
+        List<WItem> sorted = items.stream()
                 .sorted(Comparator.comparing(witem -> getItemPos(witem), Comparator.reverseOrder()))
                 .sorted(ITEM_COMPARATOR)
-                .map(witem -> new Object[]{
-                        witem,
-                        getItemPos(witem),  // current pos
-                        new Coord(0, 0)     // target pos (will be filled)
-                })
                 .collect(Collectors.toList());
 
-        // Assign target positions
-        int cur_x = -1, cur_y = 0;
-        for (Object[] a : sorted) {
-            if (cancelled) return;
-            
-            while (true) {
-                cur_x += 1;
-                if (cur_x == inventory.isz.x) {
-                    cur_x = 0;
-                    cur_y += 1;
-                    if (cur_y == inventory.isz.y) break;
-                }
-                if (!grid[cur_x][cur_y]) {
-                    a[2] = new Coord(cur_x, cur_y);
-                    break;
-                }
-            }
-            if (cur_y == inventory.isz.y) break;
+        // Targets are the free cells from top-left in row order
+        int w = inventory.isz.x;
+        int cells = w * inventory.isz.y;
+        Layout layout = new Layout(sorted.size());
+        int cell = 0;
+        for (int k = 0; k < sorted.size(); k++) {
+            WItem wItem = sorted.get(k);
+            Coord pos = getItemPos(wItem);
+            layout.items[k] = wItem;
+            layout.cur[k] = pos.y * w + pos.x;
+            layout.cls[k] = (k > 0 && ITEM_COMPARATOR.compare(sorted.get(k - 1), wItem) == 0) ? layout.cls[k - 1] : k;
+            while (cell < cells && grid[cell % w][cell / w]) {
+                cell++;
+            }
+            if (cell == cells) {
+                return null;
+            }
+            layout.slots[k] = cell++;
+        }
+        return layout;
+    }
+
+    /**
+     * Sends every chain of the plan without waiting for the hand between
+     * items. The server handles messages in order and each chain leaves the
+     * hand empty, so a chain's take can follow the previous chain's last drop
+     * right away; {@link #awaitSorted} verifies the result afterwards.
+     *
+     * @return number of messages sent
+     */
+    private int sendPlan(Layout layout, SortPlan plan) {
+        Map<Integer, WItem> byCell = new HashMap<>();
+        for (int k = 0; k < layout.items.length; k++) {
+            byCell.put(layout.cur[k], layout.items[k]);
         }
-        
-        // Move items to their target positions
-        for (Object[] a : sorted) {
-            if (cancelled) return;
-            
-            Coord currentPos = (Coord) a[1];
-            Coord targetPos = (Coord) a[2];
-            
-            // Skip if already in right place
-            if (currentPos.equals(targetPos)) {
+
+        int w = inventory.isz.x;
+        int sent = 0;
+        for (int[] chain : plan.chains) {
+            if (cancelled) break;
+
+            WItem head = byCell.get(chain[0]);
+            if (head == null || head.item.parent == null) {
                 continue;
             }
-            
-            WItem wItem = (WItem) a[0];
-            
-            // Check if item is still valid
-            if (wItem.item == null) {
-                continue;
+            head.item.wdgmsg("take", Coord.z);
+            for (int i = 1; i < chain.length; i++) {
+                inventory.wdgmsg("drop", new Coord(chain[i] % w, chain[i] / w));
             }
-            
-            // Take item to hand
-            NUtils.takeItemToHand(wItem);
-            
-            Object[] handu = a;
-            while (handu != null) {
-                if (cancelled) {
-                    // Drop item back if cancelled
-                    if (gui.vhand != null) {
-                        NUtils.dropToInv(inventory);
-                    }
-                    return;
+            sent += chain.length;
+            executedMoves += chain.length - 1;
+        }
+        return sent;
+    }
+
+    /**
+     * Waits until the client shows the sorted layout with an empty hand.
+     * Returns false if it did not settle in time (a message was rejected or
+     * an item changed under us), in which case the caller plans again from
+     * the current state.
+     */
+    private boolean awaitSorted(NGameUI gui, int sent) throws InterruptedException {
+        try {
+            NUtils.addTask(new NTask() {
+                {
+                    infinite = false;
+                    maxCounter = SETTLE_TICKS + SETTLE_TICKS_PER_MSG * sent;
                 }
-                
-                Coord dropPos = (Coord) handu[2];
-                
-                // Drop item at target position
-                inventory.wdgmsg("drop", dropPos);
-                
-                // Find item that was at the target position (it's now in hand)
-                Object[] b = null;
-                for (Object[] x : sorted) {
-                    if (((Coord) x[1]).equals(dropPos)) {
-                        b = x;
-                        break;
-                    }
+
+                @Override
+                public boolean check() {
+                    if (cancelled) return true;
+                    if (gui.vhand != null) return false;
+                    Layout layout = scanLayout();
+                    return layout == null || SortPlan.compute(layout.cur, layout.cls, layout.slots).moves == 0;
                 }
-                
-                // Update current position
-                handu[1] = handu[2];
-                handu = b;
-            }
-            
-            // Wait for hand to be free after chain is complete
-            if (gui.vhand != null) {
-                NUtils.getUI().core.addTask(new WaitFreeHand());
+            });
+            return true;
+        } catch (InterruptedException e) {
+            // criticalExit throws without setting the interrupt flag; a real stop sets it
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
             }
         }
-
-        // Second pass: sort individual items across same-type stacks by quality
-        if (!cancelled && deepSort) {
-            sortWithinStacks(gui);
+        if (gui.vhand != null) {
+            NUtils.dropToInv(inventory);
+            NUtils.addTask(new WaitFreeHand());
         }
+        return false;
     }
     
     /**
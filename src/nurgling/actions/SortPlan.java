@@ -0,0 +1,117 @@
+package nurgling.actions;
+
+import java.util.*;
+
+/**
+ * Move plan for the positional pass of {@link SortInventory}.
+ *
+ * Items are given in target order: item {@code k} currently sits in cell
+ * {@code cur[k]} and belongs in cell {@code slots[k]}. Items with the same
+ * {@code cls} id compare equal and are interchangeable, so an item already
+ * sitting in any slot of its class stays where it is and the remaining items
+ * of that class take the remaining slots.
+ *
+ * Dropping onto an occupied cell swaps the held item with the occupant, so
+ * the hand serves as the temporary slot: every misplaced item is moved
+ * exactly once, and each chain costs one extra take. A chain either ends on
+ * an empty cell or closes a permutation cycle back onto the cell it started
+ * from.
+ */
+public class SortPlan {
+    /** Each chain is {take cell, drop cell, drop cell, ...}. */
+    public final List<int[]> chains;
+    /** Number of drops, i.e. items that change cells. */
+    public final int moves;
+
+    private SortPlan(List<int[]> chains, int moves) {
+        this.chains = chains;
+        this.moves = moves;
+    }
+
+    public static SortPlan compute(int[] cur, int[] cls, int[] slots) {
+        int n = cur.length;
+        Map<Integer, Integer> slotClass = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            slotClass.put(slots[k], cls[k]);
+        }
+
+        // Items already in a slot of their own class keep it
+        int[] dest = new int[n];
+        Set<Integer> kept = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            Integer sc = slotClass.get(cur[i]);
+            if (sc != null && sc == cls[i] && kept.add(cur[i])) {
+                dest[i] = cur[i];
+            } else {
+                dest[i] = -1;
+            }
+        }
+
+        // The rest take the free slots of their class in target order
+        Map<Integer, ArrayDeque<Integer>> free = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            if (!kept.contains(slots[k])) {
+                free.computeIfAbsent(cls[k], c -> new ArrayDeque<>()).add(slots[k]);
+            }
+        }
+        Map<Integer, Integer> occupant = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (dest[i] < 0) {
+                dest[i] = free.get(cls[i]).poll();
+                occupant.put(cur[i], i);
+            }
+        }
+
+        // Every misplaced item points at the misplaced item sitting on its
+        // destination; in-degree is at most one, so this splits into paths
+        // that end on an empty cell and closed cycles.
+        int[] next = new int[n];
+        boolean[] hasIn = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            next[i] = -1;
+            if (dest[i] == cur[i]) continue;
+            Integer o = occupant.get(dest[i]);
+            if (o != null) {
+                next[i] = o;
+                hasIn[o] = true;
+            }
+        }
+
+        List<int[]> chains = new ArrayList<>();
+        boolean[] done = new boolean[n];
+        int moves = 0;
+        for (int i = 0; i < n; i++) {
+            if (dest[i] == cur[i] || hasIn[i]) continue;
+            List<Integer> chain = new ArrayList<>();
+            chain.add(cur[i]);
+            for (int x = i; x >= 0; x = next[x]) {
+                chain.add(dest[x]);
+                done[x] = true;
+            }
+            moves += chain.size() - 1;
+            chains.add(toArray(chain));
+        }
+        for (int i = 0; i < n; i++) {
+            if (dest[i] == cur[i] || done[i]) continue;
+            List<Integer> chain = new ArrayList<>();
+            chain.add(cur[i]);
+            int x = i;
+            do {
+                chain.add(dest[x]);
+                done[x] = true;
+                x = next[x];
+            } while (x != i);
+            moves += chain.size() - 1;
+            chains.add(toArray(chain));
+        }
+        return new SortPlan(chains, moves);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] res = new int[list.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = list.get(i);
+        }
+        return res;
+    }
+}
@@ -4,10 +4,10 @@ import haven.Coord;
 import haven.Gob;
 import haven.Resource;
 import nurgling.NGameUI;
-import nurgling.NUtils;
 import nurgling.actions.*;
 import nurgling.areas.NArea;
 import nurgling.areas.NContext;
+import nurgling.pf.RouteOptimizer;
 import nurgling.tools.Finder;
 import nurgling.tools.NAlias;
 
@@ -64,7 +64,7 @@ public class CollectFromTreeBot implements Action {
                 return attr != -1 && (attr & 2) != 0;
             });
         }
-        trees.sort(NUtils.d_comp);
+        trees = new RouteOptimizer().order(trees);
 
         for (Gob tree : trees) {
             String pose = resolvePose(tree);
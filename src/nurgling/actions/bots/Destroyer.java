@@ -7,6 +7,7 @@ import nurgling.NUtils;
 import nurgling.actions.*;
 import nurgling.areas.NArea;
 import nurgling.areas.NContext;
+import nurgling.pf.RouteOptimizer;
 import nurgling.tasks.NTask;
 import nurgling.tools.Finder;
 
@@ -21,7 +22,7 @@ public class Destroyer implements Action {
         NArea outsaArea = context.goToAreaById(outsaId);
         ArrayList<Gob> gobs = Finder.findGobs(outsaArea, null);
         while (!gobs.isEmpty()) {
-            gobs.sort(NUtils.d_comp);
+            gobs = new RouteOptimizer().order(gobs);
             for (Gob gob : gobs) {
                 if(PathFinder.isAvailable(gob)) {
                     PathFinder pf = new PathFinder(gob);
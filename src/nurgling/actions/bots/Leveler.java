@@ -233,9 +233,7 @@ public class Leveler implements Action
         try {
             ChatUI.Channel ch = gui.syslog;
             if (ch == null) return 0;
-            synchronized (ch.rmsgs) {
-                return ch.rmsgs.size();
-            }
+            return ch.count();
         } catch (Exception e) {
             return 0;
         }
@@ -246,13 +244,11 @@ public class Leveler implements Action
         try {
             ChatUI.Channel ch = gui.syslog;
             if (ch == null) return false;
-            synchronized (ch.rmsgs) {
-                for (int i = Math.max(0, startIdx); i < ch.rmsgs.size(); i++) {
-                    ChatUI.Channel.Message m = ch.rmsgs.get(i).msg;
-                    if (m instanceof ChatUI.Channel.SimpleMessage) {
-                        String t = ((ChatUI.Channel.SimpleMessage) m).text;
-                        if (t != null && t.contains(needle)) return true;
-                    }
+            for (int i = Math.max(0, startIdx), n = ch.count(); i < n; i++) {
+                ChatUI.Channel.RenderedMessage rm = ch.rendered(i);
+                if (rm != null && rm.msg instanceof ChatUI.Channel.SimpleMessage) {
+                    String t = ((ChatUI.Channel.SimpleMessage) rm.msg).text;
+                    if (t != null && t.contains(needle)) return true;
                 }
             }
         } catch (Exception e) {
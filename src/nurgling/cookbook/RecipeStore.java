@@ -0,0 +1,496 @@
+package nurgling.cookbook;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented in-memory copy of the recipe tables.
+ *
+ * Every recipe is a row index into parallel primitive arrays: hunger and
+ * energy columns, one float column per FEP name (value and weight), and
+ * per-row arrays of interned ingredient ids. Queries scan the columns
+ * without touching Recipe objects, keep the best k rows in a small heap, and
+ * only materialize Recipe objects for the rows they return, so ranking 100k
+ * recipes by a weighted FEP score takes milliseconds.
+ *
+ * The store is loaded once ({@link nurgling.db.dao.RecipeDao#loadStore}) and
+ * then kept current by {@link nurgling.db.service.RecipeService} writes.
+ * Reads and writes may come from different threads.
+ */
+public class RecipeStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_INTS = new int[0];
+    private static final float[] NO_FLOATS = new float[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size = 0;
+    private int capacity = INITIAL_CAPACITY;
+    private String[] hashes = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] resources = new String[INITIAL_CAPACITY];
+    private float[] hunger = new float[INITIAL_CAPACITY];
+    private int[] energy = new int[INITIAL_CAPACITY];
+    private boolean[] favorite = new boolean[INITIAL_CAPACITY];
+    /** Sum of all FEP values per row. */
+    private float[] fepTotal = new float[INITIAL_CAPACITY];
+    /** Bit per FEP column the row has a value for; FEP names are few (18 in practice). */
+    private long[] fepMask = new long[INITIAL_CAPACITY];
+    private int[][] ingIds = new int[INITIAL_CAPACITY][];
+    private int[][] ingRes = new int[INITIAL_CAPACITY][];
+    private float[][] ingPct = new float[INITIAL_CAPACITY][];
+
+    private final List<String> fepNames = new ArrayList<>();
+    private final Map<String, Integer> fepColumns = new HashMap<>();
+    private final List<float[]> fepVal = new ArrayList<>();
+    private final List<float[]> fepWeight = new ArrayList<>();
+
+    private final Map<String, Integer> rowByHash = new HashMap<>();
+    /** Interned ingredient names and resource names. */
+    private final List<String> pool = new ArrayList<>();
+    private final List<String> poolLower = new ArrayList<>();
+    private final Map<String, Integer> poolIds = new HashMap<>();
+
+    /**
+     * Ranking and filter parameters for {@link #topK}. Score is the weighted
+     * sum of FEP values, or that sum divided by hunger when
+     * {@link #perHunger(boolean)} is set. With no weights the score is the
+     * total FEP.
+     */
+    public static class Query {
+        final Map<String, Float> weights = new LinkedHashMap<>();
+        boolean perHunger = false;
+        boolean ascending = false;
+        boolean favoritesFirst = true;
+        String nameContains = null;
+        final List<String> withIngredients = new ArrayList<>();
+        final List<String> withoutIngredients = new ArrayList<>();
+
+        public Query weight(String fep, float w) {
+            weights.merge(fep, w, Float::sum);
+            return this;
+        }
+
+        public Query perHunger(boolean perHunger) {
+            this.perHunger = perHunger;
+            return this;
+        }
+
+        public Query ascending(boolean ascending) {
+            this.ascending = ascending;
+            return this;
+        }
+
+        public Query favoritesFirst(boolean favoritesFirst) {
+            this.favoritesFirst = favoritesFirst;
+            return this;
+        }
+
+        public Query nameContains(String text) {
+            this.nameContains = (text == null || text.isEmpty()) ? null : text.toLowerCase();
+            return this;
+        }
+
+        /** Keep only recipes with an ingredient whose name contains the text (case-insensitive). */
+        public Query withIngredient(String text) {
+            withIngredients.add(text.toLowerCase());
+            return this;
+        }
+
+        /** Drop recipes with an ingredient whose name contains the text (case-insensitive). */
+        public Query withoutIngredient(String text) {
+            withoutIngredients.add(text.toLowerCase());
+            return this;
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String hash) {
+        lock.readLock().lock();
+        try {
+            return rowByHash.containsKey(hash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace a recipe. The favorite flag of an existing row is
+     * kept unless the given recipe is itself marked favorite, since recipes
+     * saved from item tooltips never carry it.
+     */
+    public void put(Recipe recipe) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowByHash.get(recipe.getHash());
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                ensureCapacity(size + 1);
+                row = size++;
+                rowByHash.put(recipe.getHash(), row);
+                favorite[row] = false;
+            }
+            hashes[row] = recipe.getHash();
+            names[row] = recipe.getName();
+            resources[row] = recipe.getResourceName();
+            hunger[row] = (float) recipe.getHunger();
+            energy[row] = recipe.getEnergy();
+            favorite[row] |= recipe.isFavorite();
+            setIngredients(row, recipe.getIngredients());
+            setFeps(row, recipe.getFeps());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Remove a recipe; the last row moves into its slot. */
+    public void remove(String hash) {
+        lock.writeLock().lock();
+        try {
+            Integer r = rowByHash.remove(hash);
+            if (r == null) return;
+            int row = r;
+            int last = --size;
+            if (row != last) {
+                moveRow(last, row);
+                rowByHash.put(hashes[row], row);
+            }
+            hashes[last] = names[last] = resources[last] = null;
+            ingIds[last] = ingRes[last] = null;
+            ingPct[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setFavorite(String hash, boolean fav) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByHash.get(hash);
+            if (row != null) favorite[row] = fav;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Materialize the recipes for the given hashes, in order; unknown hashes are skipped. */
+    public List<Recipe> get(Collection<String> hashList) {
+        List<Recipe> out = new ArrayList<>(hashList.size());
+        lock.readLock().lock();
+        try {
+            for (String h : hashList) {
+                Integer row = rowByHash.get(h);
+                if (row != null) out.add(materialize(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    /** Number of recipes the query's filters accept. */
+    public int count(Query q) {
+        lock.readLock().lock();
+        try {
+            Filter f = new Filter(q);
+            int n = 0;
+            for (int row = 0; row < size; row++) {
+                if (f.accepts(row)) n++;
+            }
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k best recipes for the query, best first. Runs in O(n log k) over
+     * the primitive columns; only the returned rows become Recipe objects.
+     */
+    public List<Recipe> topK(Query q, int k) {
+        if (k <= 0) return Collections.emptyList();
+        lock.readLock().lock();
+        try {
+            Filter f = new Filter(q);
+            int nw = q.weights.size();
+            float[][] cols = new float[nw][];
+            float[] w = new float[nw];
+            int i = 0;
+            for (Map.Entry<String, Float> e : q.weights.entrySet()) {
+                Integer c = fepColumns.get(e.getKey());
+                cols[i] = (c == null) ? null : fepVal.get(c);
+                w[i++] = e.getValue();
+            }
+            float sign = q.ascending ? -1f : 1f;
+
+            // Min-heap of the best k seen so far; root is the weakest kept row.
+            int[] heapRow = new int[Math.min(k, Math.max(size, 1))];
+            float[] heapKey = new float[heapRow.length];
+            int n = 0;
+            for (int row = 0; row < size; row++) {
+                if (!f.accepts(row)) continue;
+                float score;
+                if (nw == 0) {
+                    score = fepTotal[row];
+                } else {
+                    score = 0;
+                    for (int j = 0; j < nw; j++) {
+                        if (cols[j] != null) score += w[j] * cols[j][row];
+                    }
+                }
+                if (q.perHunger) score = hunger[row] > 0 ? score / hunger[row] : 0;
+                float key = sign * score;
+                boolean fav = q.favoritesFirst && favorite[row];
+                if (n < heapRow.length) {
+                    heapRow[n] = row;
+                    heapKey[n] = key;
+                    siftUp(heapRow, heapKey, n++, q.favoritesFirst);
+                } else if (better(row, key, fav, heapRow[0], heapKey[0], q.favoritesFirst)) {
+                    heapRow[0] = row;
+                    heapKey[0] = key;
+                    siftDown(heapRow, heapKey, n, q.favoritesFirst);
+                }
+            }
+            // Pop weakest first, fill from the back.
+            Recipe[] out = new Recipe[n];
+            while (n > 0) {
+                int row = heapRow[0];
+                n--;
+                heapRow[0] = heapRow[n];
+                heapKey[0] = heapKey[n];
+                siftDown(heapRow, heapKey, n, q.favoritesFirst);
+                out[n] = materialize(row);
+            }
+            return Arrays.asList(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ---------- heap helpers; "less" means ranks lower ---------- */
+
+    private boolean better(int ra, float ka, boolean fa, int rb, float kb, boolean favFirst) {
+        boolean fb = favFirst && favorite[rb];
+        if (fa != fb) return fa;
+        if (ka != kb) return ka > kb;
+        return ra < rb;
+    }
+
+    private boolean less(int ra, float ka, int rb, float kb, boolean favFirst) {
+        return better(rb, kb, favFirst && favorite[rb], ra, ka, favFirst);
+    }
+
+    private void siftUp(int[] rows, float[] keys, int i, boolean favFirst) {
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            if (!less(rows[i], keys[i], rows[p], keys[p], favFirst)) break;
+            swap(rows, keys, i, p);
+            i = p;
+        }
+    }
+
+    private void siftDown(int[] rows, float[] keys, int n, boolean favFirst) {
+        int i = 0;
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= n) break;
+            int m = l;
+            if (l + 1 < n && less(rows[l + 1], keys[l + 1], rows[l], keys[l], favFirst)) m = l + 1;
+            if (!less(rows[m], keys[m], rows[i], keys[i], favFirst)) break;
+            swap(rows, keys, i, m);
+            i = m;
+        }
+    }
+
+    private static void swap(int[] rows, float[] keys, int a, int b) {
+        int r = rows[a]; rows[a] = rows[b]; rows[b] = r;
+        float k = keys[a]; keys[a] = keys[b]; keys[b] = k;
+    }
+
+    /** Filters of a query resolved against the interned ingredient pool. */
+    private class Filter {
+        final String name;
+        final boolean[][] with;
+        final boolean[][] without;
+
+        Filter(Query q) {
+            name = q.nameContains;
+            with = resolve(q.withIngredients);
+            without = resolve(q.withoutIngredients);
+        }
+
+        private boolean[][] resolve(List<String> texts) {
+            boolean[][] out = new boolean[texts.size()][];
+            for (int i = 0; i < texts.size(); i++) {
+                boolean[] m = new boolean[pool.size()];
+                String t = texts.get(i);
+                for (int id = 0; id < m.length; id++) {
+                    m[id] = poolLower.get(id).contains(t);
+                }
+                out[i] = m;
+            }
+            return out;
+        }
+
+        boolean accepts(int row) {
+            if (name != null && (names[row] == null || !names[row].toLowerCase().contains(name))) return false;
+            int[] ids = ingIds[row];
+            for (boolean[] m : with) {
+                if (!any(ids, m)) return false;
+            }
+            for (boolean[] m : without) {
+                if (any(ids, m)) return false;
+            }
+            return true;
+        }
+
+        private boolean any(int[] ids, boolean[] m) {
+            for (int id : ids) {
+                if (m[id]) return true;
+            }
+            return false;
+        }
+    }
+
+    /* ---------- row storage ---------- */
+
+    private Recipe materialize(int row) {
+        Map<String, Recipe.IngredientInfo> ings = new HashMap<>();
+        int[] ids = ingIds[row];
+        for (int i = 0; i < ids.length; i++) {
+            int res = ingRes[row][i];
+            ings.put(pool.get(ids[i]), new Recipe.IngredientInfo(ingPct[row][i], res < 0 ? null : pool.get(res)));
+        }
+        Map<String, Recipe.Fep> feps = new HashMap<>();
+        long mask = fepMask[row];
+        for (int c = 0; c < fepNames.size(); c++) {
+            if ((mask & (1L << c)) != 0) {
+                feps.put(fepNames.get(c), new Recipe.Fep(fepVal.get(c)[row], fepWeight.get(c)[row]));
+            }
+        }
+        Recipe r = new Recipe(hashes[row], names[row], resources[row], hunger[row], energy[row], ings, feps);
+        r.setFavorite(favorite[row]);
+        return r;
+    }
+
+    private void setIngredients(int row, Map<String, Recipe.IngredientInfo> ingredients) {
+        if (ingredients == null || ingredients.isEmpty()) {
+            ingIds[row] = ingRes[row] = NO_INTS;
+            ingPct[row] = NO_FLOATS;
+            return;
+        }
+        int n = ingredients.size();
+        int[] ids = new int[n];
+        int[] res = new int[n];
+        float[] pct = new float[n];
+        int i = 0;
+        for (Map.Entry<String, Recipe.IngredientInfo> e : ingredients.entrySet()) {
+            ids[i] = intern(e.getKey());
+            res[i] = e.getValue().resourceName == null ? -1 : intern(e.getValue().resourceName);
+            pct[i] = (float) e.getValue().percentage;
+            i++;
+        }
+        ingIds[row] = ids;
+        ingRes[row] = res;
+        ingPct[row] = pct;
+    }
+
+    private void setFeps(int row, Map<String, Recipe.Fep> feps) {
+        long mask = fepMask[row];
+        for (int c = 0; c < fepNames.size(); c++) {
+            if ((mask & (1L << c)) != 0) {
+                fepVal.get(c)[row] = 0;
+                fepWeight.get(c)[row] = 0;
+            }
+        }
+        mask = 0;
+        float total = 0;
+        if (feps != null) {
+            for (Map.Entry<String, Recipe.Fep> e : feps.entrySet()) {
+                int c = column(e.getKey());
+                if (c < 0) continue;
+                fepVal.get(c)[row] = (float) e.getValue().val;
+                fepWeight.get(c)[row] = (float) e.getValue().weigth;
+                mask |= 1L << c;
+                total += (float) e.getValue().val;
+            }
+        }
+        fepMask[row] = mask;
+        fepTotal[row] = total;
+    }
+
+    /** Column for a FEP name, created on first use; -1 past the 64-column mask limit. */
+    private int column(String fep) {
+        Integer c = fepColumns.get(fep);
+        if (c != null) return c;
+        if (fepNames.size() >= 64) return -1;
+        int col = fepNames.size();
+        fepNames.add(fep);
+        fepColumns.put(fep, col);
+        fepVal.add(new float[capacity]);
+        fepWeight.add(new float[capacity]);
+        return col;
+    }
+
+    private int intern(String s) {
+        Integer id = poolIds.get(s);
+        if (id != null) return id;
+        int nid = pool.size();
+        pool.add(s);
+        poolLower.add(s.toLowerCase());
+        poolIds.put(s, nid);
+        return nid;
+    }
+
+    private void moveRow(int from, int to) {
+        hashes[to] = hashes[from];
+        names[to] = names[from];
+        resources[to] = resources[from];
+        hunger[to] = hunger[from];
+        energy[to] = energy[from];
+        favorite[to] = favorite[from];
+        fepTotal[to] = fepTotal[from];
+        fepMask[to] = fepMask[from];
+        ingIds[to] = ingIds[from];
+        ingRes[to] = ingRes[from];
+        ingPct[to] = ingPct[from];
+        for (int c = 0; c < fepNames.size(); c++) {
+            fepVal.get(c)[to] = fepVal.get(c)[from];
+            fepWeight.get(c)[to] = fepWeight.get(c)[from];
+            fepVal.get(c)[from] = 0;
+            fepWeight.get(c)[from] = 0;
+        }
+        fepMask[from] = 0;
+    }
+
+    private void ensureCapacity(int need) {
+        if (need <= capacity) return;
+        int nc = Math.max(need, capacity * 2);
+        hashes = Arrays.copyOf(hashes, nc);
+        names = Arrays.copyOf(names, nc);
+        resources = Arrays.copyOf(resources, nc);
+        hunger = Arrays.copyOf(hunger, nc);
+        energy = Arrays.copyOf(energy, nc);
+        favorite = Arrays.copyOf(favorite, nc);
+        fepTotal = Arrays.copyOf(fepTotal, nc);
+        fepMask = Arrays.copyOf(fepMask, nc);
+        ingIds = Arrays.copyOf(ingIds, nc);
+        ingRes = Arrays.copyOf(ingRes, nc);
+        ingPct = Arrays.copyOf(ingPct, nc);
+        for (int c = 0; c < fepNames.size(); c++) {
+            fepVal.set(c, Arrays.copyOf(fepVal.get(c), nc));
+            fepWeight.set(c, Arrays.copyOf(fepWeight.get(c), nc));
+        }
+        capacity = nc;
+    }
+}
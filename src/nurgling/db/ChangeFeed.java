@@ -0,0 +1,76 @@
+package nurgling.db;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Push notifications for shared tables.
+ *
+ * Writers call {@link DatabaseAdapter#notifyChange(String, String)} inside the
+ * transaction that modified a table; the feed delivers the change to every
+ * registered {@link Listener} once it is visible to readers. Sync services use
+ * this to wake up only when something actually changed instead of polling on a
+ * fixed interval. A feed that is not {@link #isLive() live} delivers nothing
+ * from other clients, so services keep their polling fallback for that case.
+ *
+ * The payload is the profile (genus) the change belongs to, which lets a sync
+ * worker re-check only the affected profile.
+ */
+public abstract class ChangeFeed {
+    /** Channel for the areas table. */
+    public static final String AREAS = "nurgling_areas";
+    /** Channel for the planning_folders / planning_layers / planning_ghosts tables. */
+    public static final String PLANNING = "nurgling_planning";
+
+    static final String[] CHANNELS = {AREAS, PLANNING};
+
+    public interface Listener {
+        /** Called from the feed's thread or from the committing DB worker; must not block. */
+        void onChange(String channel, String payload);
+    }
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Deliver a change committed by this process. Called by
+     * {@link DatabaseManager#executeOperation} after commit so sessions in the
+     * same client see their own writes without a round trip through the server.
+     *
+     * @param version Version the change was recorded at, see
+     *                {@link DatabaseAdapter.Change#version}
+     */
+    public void publishLocal(String channel, String payload, long version) {
+        dispatch(channel, payload);
+    }
+
+    protected void dispatch(String channel, String payload) {
+        DatabaseManager.recordChangeNotification();
+        for (Listener l : listeners) {
+            try {
+                l.onChange(channel, payload);
+            } catch (Exception e) {
+                System.err.println("[ChangeFeed] listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    public abstract void start();
+
+    public abstract void stop();
+
+    /**
+     * True while changes made by other clients are being delivered. Sync
+     * services fall back to interval polling whenever this is false.
+     */
+    public abstract boolean isLive();
+
+    /** Short name for the debug overlay. */
+    public abstract String mode();
+}
@@ -74,6 +74,19 @@ public class ConnectionPoolManager {
         }
     }
 
+    /**
+     * Open a connection outside the pool for long-lived listeners.
+     * The caller must close it.
+     *
+     * @return A new connection, or null if unavailable
+     */
+    public Connection openDedicatedConnection() {
+        if (!initialized || connectionPool == null) {
+            return null;
+        }
+        return connectionPool.openDedicatedConnection();
+    }
+
     /**
      * Check if the database is ready to accept connections.
      *
@@ -1,6 +1,8 @@
 package nurgling.db;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -10,6 +12,7 @@ import java.util.Map;
  */
 public abstract class DatabaseAdapter {
     protected final Connection connection;
+    private List<Change> pendingChanges = null;
 
     protected DatabaseAdapter(Connection connection) {
         this.connection = connection;
@@ -73,6 +76,66 @@ public abstract class DatabaseAdapter {
     public abstract String getBatchUpsertSql(String table, List<String> columns, 
                                              List<String> conflictColumns, List<String> updateColumns);
 
+    /**
+     * Announce that a shared table changed for the given profile. Must be
+     * called inside the writing transaction so the notification is only
+     * delivered to other clients if the write commits. The change is also
+     * queued for in-process delivery after commit, see
+     * {@link #drainPendingChanges()}.
+     *
+     * @param channel One of the {@link ChangeFeed} channel constants
+     * @param payload Profile (genus) the change belongs to
+     */
+    public void notifyChange(String channel, String payload) throws SQLException {
+        long version = writeChange(channel, payload);
+        if (pendingChanges == null) {
+            pendingChanges = new ArrayList<>();
+        }
+        pendingChanges.add(new Change(channel, payload, version));
+    }
+
+    /**
+     * A change announced through {@link #notifyChange}.
+     */
+    public static class Change {
+        public final String channel;
+        public final String payload;
+        /** Version the change was recorded at, or 0 where the database keeps none. */
+        public final long version;
+
+        Change(String channel, String payload, long version) {
+            this.channel = channel;
+            this.payload = payload;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Changes announced through this adapter since the last drain.
+     */
+    public List<Change> drainPendingChanges() {
+        if (pendingChanges == null) {
+            return Collections.emptyList();
+        }
+        List<Change> out = pendingChanges;
+        pendingChanges = null;
+        return out;
+    }
+
+    /**
+     * Database-specific part of {@link #notifyChange}: NOTIFY on PostgreSQL,
+     * a version-table bump on SQLite.
+     *
+     * @return The version the change was recorded at, or 0 if there is none
+     */
+    protected abstract long writeChange(String channel, String payload) throws SQLException;
+
+    /**
+     * Create the change feed that delivers {@link #notifyChange} events for
+     * this database type.
+     */
+    public abstract ChangeFeed createChangeFeed(DatabaseManager manager, ConnectionPoolManager poolManager);
+
     /**
      * Create prepared statement with parameters
      */
@@ -28,6 +28,7 @@ public class DatabaseManager {
     private AreaService areaService;
     private nurgling.db.service.PlanningService planningService;
     private KinSecretService kinSecretService;
+    private volatile ChangeFeed changeFeed;
 
     /**
      * Optional migrations the database refused, as version -> reason. Their features report
@@ -53,6 +54,13 @@ public class DatabaseManager {
     private static final AtomicInteger skippedRecipeCache = new AtomicInteger(0);
     private static final AtomicInteger skippedSearchCache = new AtomicInteger(0);
     private static volatile long lastStatsResetTime = System.currentTimeMillis();
+    private static final AtomicInteger queriesPerMinute = new AtomicInteger(0);
+    private static final AtomicInteger lastMinuteOperations = new AtomicInteger(0);
+    private static volatile long lastMinuteResetTime = System.currentTimeMillis();
+    private static final AtomicInteger changeNotifications = new AtomicInteger(0);
+    private static final AtomicInteger syncPushWakeups = new AtomicInteger(0);
+    private static final AtomicInteger syncPollWakeups = new AtomicInteger(0);
+    private static volatile long syncLatencyMs = -1;
     
     /**
      * Debug statistics holder for UI display
@@ -68,11 +76,21 @@ public class DatabaseManager {
         public int skippedSearch;
         public int queueSize;
         public boolean isReady;
+        public int queriesPerMinute;
+        /** Change notifications received from the feed (local and remote). */
+        public int changeNotifications;
+        /** Sync ticks woken by a change notification. */
+        public int syncPushWakeups;
+        /** Sync ticks run by the fallback poll. */
+        public int syncPollWakeups;
+        /** Smoothed time from change notification to applied delta, -1 until measured. */
+        public long syncLatencyMs;
+        public String changeFeedMode;
         
         @Override
         public String toString() {
-            return String.format("DB: %d/s | Total: %d | Pending: %d | Queue: %d | Skip: %d | Fail: %d | %s",
-                opsPerSecond, totalOps, pending, queueSize, skippedCache, failed, 
+            return String.format("DB: %d/s | %d/min | Total: %d | Pending: %d | Queue: %d | Skip: %d | Fail: %d | %s",
+                opsPerSecond, queriesPerMinute, totalOps, pending, queueSize, skippedCache, failed, 
                 isReady ? "READY" : "NOT READY");
         }
     }
@@ -94,6 +112,15 @@ public class DatabaseManager {
             nurgling.NCore.databaseManager.getQueuedTaskCount() : 0;
         stats.isReady = nurgling.NCore.databaseManager != null && 
             nurgling.NCore.databaseManager.isReady();
+        updateOpsPerSecond();
+        stats.queriesPerMinute = queriesPerMinute.get();
+        stats.changeNotifications = changeNotifications.get();
+        stats.syncPushWakeups = syncPushWakeups.get();
+        stats.syncPollWakeups = syncPollWakeups.get();
+        stats.syncLatencyMs = syncLatencyMs;
+        ChangeFeed feed = nurgling.NCore.databaseManager != null ?
+            nurgling.NCore.databaseManager.getChangeFeed() : null;
+        stats.changeFeedMode = feed != null ? feed.mode() : "OFF";
         return stats;
     }
     
@@ -123,6 +150,24 @@ public class DatabaseManager {
         skippedSearchCache.incrementAndGet();
     }
     
+    /** Change notification delivered by the {@link ChangeFeed} */
+    static void recordChangeNotification() {
+        changeNotifications.incrementAndGet();
+    }
+    
+    /**
+     * Record one sync tick.
+     * @param pushed true if a change notification woke it, false for the fallback poll
+     * @param latencyMs time from the notification to the applied delta, or -1 if not measured
+     */
+    public static void recordSyncWakeup(boolean pushed, long latencyMs) {
+        (pushed ? syncPushWakeups : syncPollWakeups).incrementAndGet();
+        if (latencyMs >= 0) {
+            long prev = syncLatencyMs;
+            syncLatencyMs = prev < 0 ? latencyMs : (prev * 7 + latencyMs) / 8;
+        }
+    }
+    
     /**
      * Update operations per second (call periodically)
      */
@@ -132,6 +177,10 @@ public class DatabaseManager {
             operationsPerSecond.set(lastSecondOperations.getAndSet(0));
             lastStatsResetTime = now;
         }
+        if (now - lastMinuteResetTime >= 60000) {
+            queriesPerMinute.set(lastMinuteOperations.getAndSet(0));
+            lastMinuteResetTime = now;
+        }
     }
     
     /**
@@ -140,6 +189,7 @@ public class DatabaseManager {
     private static void recordOperation() {
         totalOperations.incrementAndGet();
         lastSecondOperations.incrementAndGet();
+        lastMinuteOperations.incrementAndGet();
         updateOpsPerSecond();
     }
     
@@ -286,6 +336,7 @@ public class DatabaseManager {
 
                     // Initialize services after migrations
                     initializeServices();
+                    startChangeFeed();
 
                     initialized = true;
                     System.out.println("DatabaseManager initialized successfully with " +
@@ -329,11 +380,37 @@ public class DatabaseManager {
                 ? null : new KinSecretService(this);
     }
 
+    /**
+     * Start the push feed the sync services wake up on. On SQLite the feed stays
+     * down, and sync keeps polling, while its version table cannot be created.
+     */
+    private void startChangeFeed() {
+        ChangeFeed feed = adapter.createChangeFeed(this, connectionPoolManager);
+        feed.start();
+        this.changeFeed = feed;
+    }
+
+    private void stopChangeFeed() {
+        ChangeFeed feed = changeFeed;
+        changeFeed = null;
+        if (feed != null) {
+            feed.stop();
+        }
+    }
+
+    /**
+     * Change feed for shared tables, or null while the database is not initialized.
+     */
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
     /** Tell the player once which feature the database would not let this client set up. */
     private void reportSkippedMigrations() {
         for (java.util.Map.Entry<Integer, String> e : skippedMigrations.entrySet()) {
             String feature = (e.getKey() == nurgling.db.migration.MigrationManager.MIGRATION_KIN_SECRETS)
-                ? "Kin secret sync" : ("Schema update " + e.getKey());
+                ? "Kin secret sync"
+                : ("Schema update " + e.getKey());
             System.err.println("[DatabaseManager] " + feature + " unavailable: " + e.getValue());
             try {
                 if (nurgling.NUtils.getGameUI() != null) {
@@ -460,6 +537,10 @@ public class DatabaseManager {
             T result = operation.execute(operationAdapter);
             conn.commit();
             recordOperation(); // Stats: successful operation
+            ChangeFeed feed = changeFeed;
+            for (DatabaseAdapter.Change change : operationAdapter.drainPendingChanges()) {
+                if (feed != null) feed.publishLocal(change.channel, change.payload, change.version);
+            }
             return result;
         } catch (SQLException e) {
             recordFailure(); // Stats: failed operation
@@ -582,6 +663,7 @@ public class DatabaseManager {
      */
     public synchronized void reconnect() {
         // Shutdown existing resources but don't mark as permanently shut down
+        stopChangeFeed();
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
@@ -615,6 +697,8 @@ public class DatabaseManager {
             recipeService.shutdown();
         }
         
+        stopChangeFeed();
+        
         // Stop queue processor
         if (queueProcessor != null) {
             queueProcessor.shutdown();
@@ -118,4 +118,17 @@ public class PostgresAdapter extends DatabaseAdapter {
 
         return sql.toString();
     }
+
+    @Override
+    protected long writeChange(String channel, String payload) throws SQLException {
+        try (ResultSet rs = executeQuery("SELECT pg_notify(?, ?)", channel, payload)) {
+            rs.next();
+        }
+        return 0;
+    }
+
+    @Override
+    public ChangeFeed createChangeFeed(DatabaseManager manager, ConnectionPoolManager poolManager) {
+        return new PostgresChangeFeed(poolManager);
+    }
 }
@@ -0,0 +1,105 @@
+package nurgling.db;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * LISTEN/NOTIFY change feed. Holds one dedicated connection outside the pool
+ * (a listening connection must never be handed to another task) and blocks on
+ * it for notifications sent by {@link PostgresAdapter#writeChange}. The server
+ * only delivers a NOTIFY once its transaction commits, so a wakeup always sees
+ * the new rows.
+ */
+public class PostgresChangeFeed extends ChangeFeed {
+    private static final int WAIT_MS = 1000;
+    private static final long RECONNECT_MIN_MS = 1000;
+    private static final long RECONNECT_MAX_MS = 60000;
+
+    private final ConnectionPoolManager poolManager;
+    private volatile boolean running = false;
+    private volatile boolean live = false;
+    private Thread thread = null;
+
+    public PostgresChangeFeed(ConnectionPoolManager poolManager) {
+        this.poolManager = poolManager;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "DB-ChangeFeed");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        live = false;
+    }
+
+    @Override
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public String mode() {
+        return live ? "LISTEN" : "LISTEN (down)";
+    }
+
+    private void run() {
+        long backoff = RECONNECT_MIN_MS;
+        while (running) {
+            Connection conn = null;
+            try {
+                conn = poolManager.openDedicatedConnection();
+                if (conn == null) throw new SQLException("Unable to open listen connection");
+                try (Statement stmt = conn.createStatement()) {
+                    for (String channel : CHANNELS) {
+                        stmt.execute("LISTEN " + channel);
+                    }
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                live = true;
+                backoff = RECONNECT_MIN_MS;
+                while (running) {
+                    PGNotification[] notes = pg.getNotifications(WAIT_MS);
+                    if (notes == null) continue;
+                    for (PGNotification n : notes) {
+                        dispatch(n.getName(), n.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    System.err.println("[ChangeFeed] listen connection lost: " + e.getMessage()
+                        + ", retrying in " + backoff + "ms");
+                }
+            } finally {
+                live = false;
+                if (conn != null) {
+                    try {
+                        conn.close();
+                    } catch (SQLException ignore) {
+                    }
+                }
+            }
+            if (!running) break;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = Math.min(backoff * 2, RECONNECT_MAX_MS);
+        }
+    }
+}
@@ -177,6 +177,30 @@ public class SimpleConnectionPool {
         }
     }
 
+    /**
+     * Open a connection that is not counted against or returned to the pool,
+     * for long-lived uses such as a LISTEN session. Auto-commit stays on so
+     * notifications are delivered without an open transaction. The caller
+     * owns the connection and must close it.
+     *
+     * @return A new connection, or null on failure or after shutdown
+     */
+    public Connection openDedicatedConnection() {
+        if (isShutdown.get()) {
+            return null;
+        }
+        try {
+            if (isPostgres) {
+                return DriverManager.getConnection(jdbcUrl, user, password);
+            } else {
+                return DriverManager.getConnection(jdbcUrl);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to create dedicated database connection: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Check if a connection is still valid.
      *
@@ -114,4 +114,26 @@ public class SqliteAdapter extends DatabaseAdapter {
 
         return sql.toString();
     }
+
+    @Override
+    protected long writeChange(String channel, String payload) throws SQLException {
+        try (ResultSet rs = executeQuery("INSERT INTO change_feed (channel, payload, version) VALUES (?, ?, 1) " +
+                                         "ON CONFLICT (channel, payload) DO UPDATE SET version = version + 1 " +
+                                         "RETURNING version",
+                                         channel, payload)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            // SqliteChangeFeed creates the table as soon as it starts, so this
+            // means a read-only or damaged file. Other clients then see the
+            // change only when their sync polls; never fail the write itself.
+            System.err.println("[SqliteAdapter] could not record change " + channel + "/" + payload
+                + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public ChangeFeed createChangeFeed(DatabaseManager manager, ConnectionPoolManager poolManager) {
+        return new SqliteChangeFeed(poolManager);
+    }
 }
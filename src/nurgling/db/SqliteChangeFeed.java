@@ -0,0 +1,182 @@
+package nurgling.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change feed for SQLite, which has no server to push from.
+ *
+ * Writes in this process are delivered in-process right after commit via
+ * {@link #publishLocal}. Writes from another client sharing the same file bump
+ * a row in the change_feed version table; this feed reads that small table
+ * once per {@link #CHECK_INTERVAL_MS} and dispatches every (channel, profile)
+ * whose counter moved. One indexed read per second replaces the per-session
+ * version scans the sync services used to run on every tick.
+ *
+ * The table is read on a connection of the feed's own, outside the pool, so
+ * that polling neither waits for nor counts as database work. Writes in this
+ * process also bump the table; the versions they were recorded at are
+ * remembered and skipped when the poll sees them, since they were already
+ * delivered in-process.
+ *
+ * The feed creates the version table itself rather than through a schema
+ * migration: it is only touched by clients that know about it, so adding it
+ * must not raise the schema version and lock older clients out of the file.
+ */
+public class SqliteChangeFeed extends ChangeFeed {
+    static final long CHECK_INTERVAL_MS = 1000;
+    static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS change_feed ("
+        + "channel VARCHAR(64) NOT NULL, "
+        + "payload VARCHAR(255) NOT NULL, "
+        + "version INTEGER NOT NULL DEFAULT 0, "
+        + "PRIMARY KEY (channel, payload))";
+
+    private final ConnectionPoolManager poolManager;
+    /** Last seen counter per "channel\0payload". Null until the first read seeded it. */
+    private Map<String, Long> seen = null;
+    /** Versions written by this process and not yet seen by a read, per "channel\0payload". */
+    private final Map<String, Set<Long>> own = new HashMap<>();
+    private Connection conn = null;
+    private volatile boolean live = false;
+    private ScheduledExecutorService checker = null;
+
+    public SqliteChangeFeed(ConnectionPoolManager poolManager) {
+        this.poolManager = poolManager;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (checker != null) return;
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DB-ChangeFeed");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService c;
+        synchronized (this) {
+            c = checker;
+            checker = null;
+            live = false;
+        }
+        if (c != null) {
+            // Wait outside the lock, which a running check holds.
+            c.shutdownNow();
+            try {
+                c.awaitTermination(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeConnection();
+    }
+
+    @Override
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public String mode() {
+        return live ? "VERSION" : "VERSION (down)";
+    }
+
+    @Override
+    public void publishLocal(String channel, String payload, long version) {
+        if (version > 0) {
+            synchronized (this) {
+                own.computeIfAbsent(channel + '\0' + payload, k -> new HashSet<>()).add(version);
+            }
+        }
+        super.publishLocal(channel, payload, version);
+    }
+
+    private void check() {
+        if (poolManager == null || !poolManager.isReady()) return;
+        try {
+            if (conn == null) {
+                conn = poolManager.openDedicatedConnection();
+                if (conn == null) throw new SQLException("Unable to open change feed connection");
+                // Autocommit, so that no read transaction stays open between polls.
+                conn.setAutoCommit(true);
+            }
+            checkVersions(new SqliteAdapter(conn));
+        } catch (SQLException e) {
+            // Table could not be created (read-only file) or the file is locked
+            // by another writer; the services keep polling while we are down.
+            live = false;
+            closeConnection();
+        }
+    }
+
+    private synchronized void closeConnection() {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignore) {
+            }
+            conn = null;
+        }
+    }
+
+    /**
+     * Read the version table and dispatch every entry whose counter changed
+     * since the previous call. The first call creates the table if it is
+     * missing and only records the baseline.
+     */
+    synchronized void checkVersions(DatabaseAdapter adapter) throws SQLException {
+        if (seen == null) {
+            adapter.executeUpdate(CREATE_TABLE);
+        }
+        Map<String, Long> now = new HashMap<>();
+        try (ResultSet rs = adapter.executeQuery("SELECT channel, payload, version FROM change_feed")) {
+            while (rs.next()) {
+                now.put(rs.getString("channel") + '\0' + rs.getString("payload"), rs.getLong("version"));
+            }
+        }
+        live = true;
+        Map<String, Long> prev = seen;
+        seen = now;
+        if (prev != null) {
+            for (Map.Entry<String, Long> e : now.entrySet()) {
+                if (e.getValue().equals(prev.get(e.getKey()))) continue;
+                String key = e.getKey();
+                Long from = prev.get(key);
+                if (written(key, (from == null) ? 0 : from, e.getValue())) continue;
+                int sep = key.indexOf('\0');
+                dispatch(key.substring(0, sep), key.substring(sep + 1));
+            }
+        }
+        // Forget own versions this read has seen, including any that were
+        // recorded only after it.
+        for (Iterator<Map.Entry<String, Set<Long>>> i = own.entrySet().iterator(); i.hasNext(); ) {
+            Map.Entry<String, Set<Long>> e = i.next();
+            Long cur = now.get(e.getKey());
+            if (cur != null) e.getValue().removeIf(v -> v <= cur);
+            if (e.getValue().isEmpty()) i.remove();
+        }
+    }
+
+    /** Whether every version of key after from, up to to, was written by this process. */
+    private boolean written(String key, long from, long to) {
+        Set<Long> versions = own.get(key);
+        if (versions == null || to - from > versions.size()) return false;
+        for (long v = from + 1; v <= to; v++) {
+            if (!versions.contains(v)) return false;
+        }
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 package nurgling.db.dao;
 
 import nurgling.cookbook.Recipe;
+import nurgling.cookbook.RecipeStore;
 import nurgling.db.DatabaseAdapter;
 
 import java.sql.ResultSet;
@@ -87,6 +88,57 @@ public class RecipeDao {
         return recipes;
     }
 
+    /**
+     * Load every recipe into a fresh {@link RecipeStore}. Uses one flat query
+     * per table instead of the recipes x ingredients x feps join, which
+     * multiplies rows by ingredients times FEPs.
+     */
+    public RecipeStore loadStore(DatabaseAdapter adapter) throws SQLException {
+        java.util.LinkedHashMap<String, Recipe> byHash = new java.util.LinkedHashMap<>();
+        try (ResultSet rs = adapter.executeQuery(
+                "SELECT recipe_hash, item_name, resource_name, hunger, energy FROM recipes")) {
+            while (rs.next()) {
+                String hash = rs.getString("recipe_hash");
+                byHash.put(hash, new Recipe(hash, rs.getString("item_name"), rs.getString("resource_name"),
+                        rs.getDouble("hunger"), rs.getInt("energy"), new HashMap<>(), new HashMap<>()));
+            }
+        }
+        try (ResultSet rs = adapter.executeQuery(
+                "SELECT recipe_hash, name, percentage, resource_name FROM ingredients")) {
+            while (rs.next()) {
+                Recipe recipe = byHash.get(rs.getString("recipe_hash"));
+                if (recipe != null) {
+                    recipe.getIngredients().put(rs.getString("name"),
+                            new Recipe.IngredientInfo(rs.getDouble("percentage"), rs.getString("resource_name")));
+                }
+            }
+        }
+        try (ResultSet rs = adapter.executeQuery("SELECT recipe_hash, name, value, weight FROM feps")) {
+            while (rs.next()) {
+                Recipe recipe = byHash.get(rs.getString("recipe_hash"));
+                if (recipe != null) {
+                    recipe.getFeps().put(rs.getString("name"),
+                            new Recipe.Fep(rs.getDouble("value"), rs.getDouble("weight")));
+                }
+            }
+        }
+        if (adapter.tableExists("favorite_recipes")) {
+            try (ResultSet rs = adapter.executeQuery("SELECT recipe_hash FROM favorite_recipes")) {
+                while (rs.next()) {
+                    Recipe recipe = byHash.get(rs.getString("recipe_hash"));
+                    if (recipe != null) {
+                        recipe.setFavorite(true);
+                    }
+                }
+            }
+        }
+        RecipeStore store = new RecipeStore();
+        for (Recipe recipe : byHash.values()) {
+            store.put(recipe);
+        }
+        return store;
+    }
+
     /**
      * Save a recipe with its ingredients and feps
      */
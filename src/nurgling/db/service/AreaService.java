@@ -3,6 +3,7 @@ package nurgling.db.service;
 import nurgling.areas.AreaFieldGroup;
 import nurgling.areas.AreaSnapshot;
 import nurgling.areas.NArea;
+import nurgling.db.ChangeFeed;
 import nurgling.db.DatabaseManager;
 import nurgling.db.dao.AreaDao;
 import org.json.JSONObject;
@@ -19,7 +20,9 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service layer for area operations with sync support.
@@ -28,12 +31,20 @@ import java.util.concurrent.TimeUnit;
  * UPDATE keyed on baselineVersion. On version conflict the row is re-read,
  * three-way merged with {@link AreaMerger}, and re-saved. Pulls compare the
  * full version map and run the same merge for areas with concurrent edits.
+ *
+ * Pulls are woken by the {@link ChangeFeed}: every write announces its profile
+ * on {@link ChangeFeed#AREAS}, and the sync worker re-checks only that profile,
+ * reading the version map once per genus and fanning the result out to every
+ * session playing it. Interval polling remains as the fallback whenever the
+ * feed is down, plus a slow safety poll while it is up.
  */
 public class AreaService {
     private final DatabaseManager databaseManager;
     private final AreaDao areaDao;
 
     private static final int MAX_OCC_RETRIES = 4;
+    /** Safety poll while the change feed is live, in case a notification was lost. */
+    private static final long FEED_FALLBACK_POLL_MS = 60000;
 
     // Sync state
     private volatile Timestamp lastSyncTime = null;
@@ -41,6 +52,16 @@ public class AreaService {
     private ScheduledExecutorService syncScheduler = null;
     private AreaSyncCallback syncCallback = null;
     private volatile long lastLocalEditAt = 0;
+    private final ChangeFeed.Listener feedListener = this::onFeedChange;
+    private ChangeFeed subscribedFeed = null;
+    /** Set while a push-triggered tick is queued, so a burst of notifications runs one tick. */
+    private final AtomicBoolean wakePending = new AtomicBoolean(false);
+    /** Profiles announced by the feed since the last tick. */
+    private final java.util.Set<String> dirtyProfiles =
+        java.util.Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<>());
+    /** Arrival time of the oldest unprocessed notification, 0 if none. */
+    private volatile long dirtySince = 0;
+    private volatile long lastPollAt = 0;
     /**
      * Per-session bulk-load tracking. Each session ID is added the first time
      * the sync iterates it and runs a bulk load for its local map. Future ticks
@@ -140,9 +161,14 @@ public class AreaService {
             final int b = area.color.getBlue();
             final int a = area.color.getAlpha();
 
-            AreaDao.SaveResult result = databaseManager.executeOperation(adapter ->
-                areaDao.saveAreaOCC(adapter, area.id, uuidSnap, name, path, hide,
-                    r, g, b, a, dataStr, profile, expectedVersion, touchedBy));
+            AreaDao.SaveResult result = databaseManager.executeOperation(adapter -> {
+                AreaDao.SaveResult res = areaDao.saveAreaOCC(adapter, area.id, uuidSnap, name, path, hide,
+                    r, g, b, a, dataStr, profile, expectedVersion, touchedBy);
+                if (res.outcome != AreaDao.SaveOutcome.VERSION_CONFLICT) {
+                    adapter.notifyChange(ChangeFeed.AREAS, profile);
+                }
+                return res;
+            });
 
             if (result.outcome != AreaDao.SaveOutcome.VERSION_CONFLICT) {
                 // Success - capture baseline so subsequent saves don't no-op falsely.
@@ -261,6 +287,7 @@ public class AreaService {
         final String byPlayer = currentPlayerName();
         databaseManager.executeOperation(adapter -> {
             areaDao.tombstoneArea(adapter, areaId, profile, byPlayer);
+            adapter.notifyChange(ChangeFeed.AREAS, profile);
             return null;
         });
     }
@@ -319,14 +346,12 @@ public class AreaService {
         });
     }
 
-    // -------------------- Periodic sync poll --------------------
+    // -------------------- Change-driven sync --------------------
 
     /**
-     * Note about cadence (Phase 5): when the local user is actively editing
-     * (any change in the last 60s), the actual poll cadence is intervalSeconds
-     * directly. Otherwise we still poll at intervalSeconds but other clients'
-     * presence updates feel less urgent. The configured value is the minimum
-     * cadence.
+     * Start syncing. The worker wakes on {@link ChangeFeed#AREAS}
+     * notifications; intervalSeconds is the poll cadence used while the feed
+     * is down and the cadence at which new sessions get their bulk load.
      */
     public void startSync(String profile, long intervalSeconds, AreaSyncCallback callback) {
         if (syncEnabled) stopSync();
@@ -334,27 +359,97 @@ public class AreaService {
         this.syncCallback = callback;
         this.syncEnabled = true;
         this.bulkLoadedSessions.clear();
+        this.dirtyProfiles.clear();
+        this.lastPollAt = 0;
         this.syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "Area-Sync-Worker");
             t.setDaemon(true);
             return t;
         });
 
-        syncScheduler.scheduleAtFixedRate(this::syncTick, 1, intervalSeconds, TimeUnit.SECONDS);
+        subscribeFeed();
+        syncScheduler.scheduleWithFixedDelay(this::pollTick, 1, intervalSeconds, TimeUnit.SECONDS);
+
+        System.out.println("Area sync started, fallback interval=" + intervalSeconds + "s (multi-session)");
+    }
+
+    /** (Re)attach to the manager's current feed; it is replaced on reconnect. */
+    private synchronized void subscribeFeed() {
+        ChangeFeed feed = databaseManager != null ? databaseManager.getChangeFeed() : null;
+        if (feed == subscribedFeed) return;
+        if (subscribedFeed != null) subscribedFeed.removeListener(feedListener);
+        if (feed != null) feed.addListener(feedListener);
+        subscribedFeed = feed;
+    }
+
+    private synchronized void unsubscribeFeed() {
+        if (subscribedFeed != null) subscribedFeed.removeListener(feedListener);
+        subscribedFeed = null;
+    }
+
+    private void onFeedChange(String channel, String payload) {
+        if (!syncEnabled || !ChangeFeed.AREAS.equals(channel) || payload == null) return;
+        dirtyProfiles.add(payload);
+        if (dirtySince == 0) dirtySince = System.currentTimeMillis();
+        ScheduledExecutorService sched = syncScheduler;
+        if (sched != null && wakePending.compareAndSet(false, true)) {
+            try {
+                sched.execute(() -> {
+                    wakePending.set(false);
+                    syncTick(false);
+                });
+            } catch (RejectedExecutionException e) {
+                wakePending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Fallback timer. Runs a full tick when the feed is down, when a session
+     * still needs its bulk load, or when the slow safety interval elapsed.
+     */
+    private void pollTick() {
+        subscribeFeed();
+        ChangeFeed feed = subscribedFeed;
+        long now = System.currentTimeMillis();
+        if (feed != null && feed.isLive() && now - lastPollAt < FEED_FALLBACK_POLL_MS && !hasUnloadedSession()) {
+            return;
+        }
+        lastPollAt = now;
+        syncTick(true);
+    }
 
-        System.out.println("Area sync started, interval=" + intervalSeconds + "s (multi-session)");
+    private boolean hasUnloadedSession() {
+        try {
+            for (nurgling.sessions.SessionContext sc : nurgling.sessions.SessionManager.getInstance().getAllSessions()) {
+                if (sc != null && sc.sessionId != null && sc.ui != null && !bulkLoadedSessions.contains(sc.sessionId)) {
+                    return true;
+                }
+            }
+        } catch (Exception ignore) {
+        }
+        return false;
     }
 
     /**
-     * One tick of the sync scheduler. Iterates every live session, binding
+     * One tick of the sync worker. Iterates every live session, binding
      * ThreadLocalUI to each in turn so NUtils.getGameUI() inside the sync
      * resolves to the right session. Each session gets its own bulk load on
-     * first encounter, then delta polls.
+     * first encounter, then delta checks against a {@link GenusBatch} shared
+     * by all sessions of the same profile.
+     *
+     * @param poll true for the fallback poll, which checks every profile;
+     *             false for a push wakeup, which checks only announced profiles
      */
-    private void syncTick() {
+    private void syncTick(boolean poll) {
         if (!syncEnabled) return;
         if (databaseManager == null || !databaseManager.isReady()) return;
 
+        java.util.Set<String> dirty = new java.util.HashSet<>(dirtyProfiles);
+        dirtyProfiles.removeAll(dirty);
+        long since = dirtySince;
+        dirtySince = 0;
+
         java.util.Collection<nurgling.sessions.SessionContext> sessions;
         try {
             sessions = nurgling.sessions.SessionManager.getInstance().getAllSessions();
@@ -371,6 +466,7 @@ public class AreaService {
         }
         bulkLoadedSessions.retainAll(liveIds);
 
+        Map<String, GenusBatch> batches = new HashMap<>();
         for (nurgling.sessions.SessionContext sc : sessions) {
             if (sc == null || sc.ui == null || sc.sessionId == null) continue;
 
@@ -382,6 +478,8 @@ public class AreaService {
 
             String profile = gui.getGenus();
             if (profile == null || profile.isEmpty()) continue;
+            boolean loaded = bulkLoadedSessions.contains(sc.sessionId);
+            if (loaded && !poll && !dirty.contains(profile)) continue;
 
             // Bind ThreadLocalUI so NUtils.getGameUI() inside the sync /
             // callbacks resolves to *this* session, not whichever is visually
@@ -391,7 +489,7 @@ public class AreaService {
                 if (bulkLoadedSessions.add(sc.sessionId)) {
                     runBulkLoad(profile, sc.sessionId);
                 } else {
-                    runDeltaPoll(profile);
+                    runDeltaPoll(profile, batches.computeIfAbsent(profile, k -> new GenusBatch()));
                 }
             } catch (Exception e) {
                 // On failure, allow next tick to retry (bulk load if it was a
@@ -405,6 +503,18 @@ public class AreaService {
                 nurgling.sessions.ThreadLocalUI.clear();
             }
         }
+        DatabaseManager.recordSyncWakeup(!poll,
+            (!poll && since > 0) ? System.currentTimeMillis() - since : -1);
+    }
+
+    /**
+     * Server view of one profile for the duration of a tick: the version map
+     * is read once, and each changed row is fetched once no matter how many
+     * sessions need it.
+     */
+    private static final class GenusBatch {
+        Map<Integer, AreaDao.AreaVersionInfo> versions = null;
+        final Map<Integer, AreaDao.AreaData> rows = new HashMap<>();
     }
 
     /**
@@ -429,9 +539,9 @@ public class AreaService {
      * Per-session delta poll. The local-areas snapshot is taken via
      * NUtils.getGameUI() which resolves to the currently-bound session.
      */
-    private void runDeltaPoll(String profile) throws SQLException {
+    private void runDeltaPoll(String profile, GenusBatch batch) throws SQLException {
         Map<Integer, NArea> localAreas = getLocalAreasSnapshot();
-        List<NArea> updates = checkForUpdatesAndMerge(profile, localAreas);
+        List<NArea> updates = checkForUpdatesAndMerge(profile, localAreas, batch);
         if (!updates.isEmpty() && syncCallback != null) {
             syncCallback.onAreasUpdated(updates);
         }
@@ -447,7 +557,9 @@ public class AreaService {
 
     public void stopSync() {
         syncEnabled = false;
+        unsubscribeFeed();
         bulkLoadedSessions.clear();
+        dirtyProfiles.clear();
         if (syncScheduler != null) {
             syncScheduler.shutdown();
             try {
@@ -475,17 +587,24 @@ public class AreaService {
      * concurrent edits, and notify the callback for tombstones.
      */
     public List<NArea> checkForUpdatesAndMerge(String profile, Map<Integer, NArea> localAreas) throws SQLException {
+        return checkForUpdatesAndMerge(profile, localAreas, new GenusBatch());
+    }
+
+    private List<NArea> checkForUpdatesAndMerge(String profile, Map<Integer, NArea> localAreas,
+                                                GenusBatch batch) throws SQLException {
         List<NArea> updatedAreas = new ArrayList<>();
         if (!databaseManager.isReady()) return updatedAreas;
 
-        Map<Integer, AreaDao.AreaVersionInfo> dbVersions;
-        try {
-            dbVersions = databaseManager.executeOperation(
-                adapter -> areaDao.getAllAreaVersions(adapter, profile));
-        } catch (Exception e) {
-            System.err.println("Area sync: Failed to get DB versions: " + e.getMessage());
-            return updatedAreas;
+        if (batch.versions == null) {
+            try {
+                batch.versions = databaseManager.executeOperation(
+                    adapter -> areaDao.getAllAreaVersions(adapter, profile));
+            } catch (Exception e) {
+                System.err.println("Area sync: Failed to get DB versions: " + e.getMessage());
+                return updatedAreas;
+            }
         }
+        Map<Integer, AreaDao.AreaVersionInfo> dbVersions = batch.versions;
 
         for (Map.Entry<Integer, AreaDao.AreaVersionInfo> entry : dbVersions.entrySet()) {
             int areaId = entry.getKey();
@@ -513,9 +632,15 @@ public class AreaService {
 
             if (info.version <= localVersion) continue;
 
-            // DB has newer version. Fetch full row, then merge against local.
-            AreaDao.AreaData data = databaseManager.executeOperation(
-                adapter -> areaDao.loadArea(adapter, areaId, profile));
+            // DB has newer version. Fetch full row (once per genus), then merge against local.
+            AreaDao.AreaData data;
+            if (batch.rows.containsKey(areaId)) {
+                data = batch.rows.get(areaId);
+            } else {
+                data = databaseManager.executeOperation(
+                    adapter -> areaDao.loadArea(adapter, areaId, profile));
+                batch.rows.put(areaId, data);
+            }
             if (data == null) continue;
 
             if (local == null) {
@@ -1,5 +1,6 @@
 package nurgling.db.service;
 
+import nurgling.db.ChangeFeed;
 import nurgling.db.DatabaseManager;
 import nurgling.db.dao.PlanningFolderDao;
 import nurgling.db.dao.PlanningGhostDao;
@@ -23,7 +24,9 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service layer for Base planner DB sync. Owns three tables (folders, layers,
@@ -33,10 +36,16 @@ import java.util.concurrent.TimeUnit;
  * Folders/layers use OCC + three-way merge ({@link PlanningMerger}). Ghosts
  * are atomic rows merged whole-row (LWW on field conflict, which is rare:
  * concurrent adds are independent inserts; deletes are tombstones).
+ *
+ * Like {@link AreaService}, the sync worker wakes on {@link ChangeFeed#PLANNING}
+ * notifications, checks only the announced profiles, and reads each profile's
+ * version maps once per tick for all sessions; interval polling is the fallback.
  */
 public class PlanningService {
 
     private static final int MAX_OCC_RETRIES = 4;
+    /** Safety poll while the change feed is live, in case a notification was lost. */
+    private static final long FEED_FALLBACK_POLL_MS = 60000;
 
     private final DatabaseManager databaseManager;
     private final PlanningFolderDao folderDao;
@@ -49,6 +58,13 @@ public class PlanningService {
     private volatile long lastLocalEditAt = 0;
     private final Set<String> bulkLoadedSessions =
         java.util.Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<>());
+    private final ChangeFeed.Listener feedListener = this::onFeedChange;
+    private ChangeFeed subscribedFeed = null;
+    private final AtomicBoolean wakePending = new AtomicBoolean(false);
+    private final Set<String> dirtyProfiles =
+        java.util.Collections.newSetFromMap(new java.util.concurrent.ConcurrentHashMap<>());
+    private volatile long dirtySince = 0;
+    private volatile long lastPollAt = 0;
 
     /** Snapshot of the whole tree for a profile, bundled for the bulk-load callback. */
     public static final class TreeSnapshot {
@@ -106,8 +122,13 @@ public class PlanningService {
             final int expected = folder.baselineVersion;
             final String name = folder.name;
             final int order = folder.orderIndex;
-            PlanningFolderDao.SaveResult result = databaseManager.executeOperation(adapter ->
-                folderDao.saveOCC(adapter, folder.id, name, order, profile, expected, touchedBy));
+            PlanningFolderDao.SaveResult result = databaseManager.executeOperation(adapter -> {
+                PlanningFolderDao.SaveResult r = folderDao.saveOCC(adapter, folder.id, name, order, profile, expected, touchedBy);
+                if (r.outcome != PlanningFolderDao.SaveOutcome.VERSION_CONFLICT) {
+                    adapter.notifyChange(ChangeFeed.PLANNING, profile);
+                }
+                return r;
+            });
             if (result.outcome != PlanningFolderDao.SaveOutcome.VERSION_CONFLICT) {
                 folder.version = result.newVersion;
                 folder.captureBaseline();
@@ -144,8 +165,13 @@ public class PlanningService {
             final String parent = layer.parentId;
             final String name = layer.name;
             final int order = layer.orderIndex;
-            PlanningLayerDao.SaveResult result = databaseManager.executeOperation(adapter ->
-                layerDao.saveOCC(adapter, layer.id, parent, name, order, profile, expected, touchedBy));
+            PlanningLayerDao.SaveResult result = databaseManager.executeOperation(adapter -> {
+                PlanningLayerDao.SaveResult r = layerDao.saveOCC(adapter, layer.id, parent, name, order, profile, expected, touchedBy);
+                if (r.outcome != PlanningLayerDao.SaveOutcome.VERSION_CONFLICT) {
+                    adapter.notifyChange(ChangeFeed.PLANNING, profile);
+                }
+                return r;
+            });
             if (result.outcome != PlanningLayerDao.SaveOutcome.VERSION_CONFLICT) {
                 layer.version = result.newVersion;
                 layer.captureBaseline();
@@ -181,6 +207,7 @@ public class PlanningService {
             PlanningGhostDao.SaveResult r = ghostDao.saveOCC(adapter, ghost.id, layerId,
                 ghost.resName, sdtB64, ghost.gridId, ghost.ox, ghost.oy, ghost.angle,
                 profile, 0, touchedBy);
+            adapter.notifyChange(ChangeFeed.PLANNING, profile);
             return r;
         });
     }
@@ -189,6 +216,7 @@ public class PlanningService {
         final String by = currentPlayerName();
         databaseManager.executeOperation(adapter -> {
             folderDao.tombstone(adapter, id, profile, by);
+            adapter.notifyChange(ChangeFeed.PLANNING, profile);
             return null;
         });
     }
@@ -197,6 +225,7 @@ public class PlanningService {
         final String by = currentPlayerName();
         databaseManager.executeOperation(adapter -> {
             layerDao.tombstone(adapter, id, profile, by);
+            adapter.notifyChange(ChangeFeed.PLANNING, profile);
             return null;
         });
     }
@@ -205,6 +234,7 @@ public class PlanningService {
         final String by = currentPlayerName();
         databaseManager.executeOperation(adapter -> {
             ghostDao.tombstone(adapter, id, profile, by);
+            adapter.notifyChange(ChangeFeed.PLANNING, profile);
             return null;
         });
     }
@@ -313,25 +343,35 @@ public class PlanningService {
         return n;
     }
 
-    // -------------------- Periodic sync poll --------------------
+    // -------------------- Change-driven sync --------------------
 
+    /**
+     * Start syncing. The worker wakes on {@link ChangeFeed#PLANNING}
+     * notifications; intervalSeconds is the poll cadence used while the feed
+     * is down and the cadence at which new sessions get their bulk load.
+     */
     public void startSync(long intervalSeconds, PlanningSyncCallback callback) {
         if (syncEnabled) stopSync();
         this.syncCallback = callback;
         this.syncEnabled = true;
         this.bulkLoadedSessions.clear();
+        this.dirtyProfiles.clear();
+        this.lastPollAt = 0;
         this.syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "Planning-Sync-Worker");
             t.setDaemon(true);
             return t;
         });
-        syncScheduler.scheduleAtFixedRate(this::syncTick, 1, intervalSeconds, TimeUnit.SECONDS);
-        System.out.println("Planning sync started, interval=" + intervalSeconds + "s (multi-session)");
+        subscribeFeed();
+        syncScheduler.scheduleWithFixedDelay(this::pollTick, 1, intervalSeconds, TimeUnit.SECONDS);
+        System.out.println("Planning sync started, fallback interval=" + intervalSeconds + "s (multi-session)");
     }
 
     public void stopSync() {
         syncEnabled = false;
+        unsubscribeFeed();
         bulkLoadedSessions.clear();
+        dirtyProfiles.clear();
         if (syncScheduler != null) {
             syncScheduler.shutdown();
             try {
@@ -345,10 +385,67 @@ public class PlanningService {
         System.out.println("Planning sync stopped");
     }
 
-    private void syncTick() {
+    private synchronized void subscribeFeed() {
+        ChangeFeed feed = databaseManager != null ? databaseManager.getChangeFeed() : null;
+        if (feed == subscribedFeed) return;
+        if (subscribedFeed != null) subscribedFeed.removeListener(feedListener);
+        if (feed != null) feed.addListener(feedListener);
+        subscribedFeed = feed;
+    }
+
+    private synchronized void unsubscribeFeed() {
+        if (subscribedFeed != null) subscribedFeed.removeListener(feedListener);
+        subscribedFeed = null;
+    }
+
+    private void onFeedChange(String channel, String payload) {
+        if (!syncEnabled || !ChangeFeed.PLANNING.equals(channel) || payload == null) return;
+        dirtyProfiles.add(payload);
+        if (dirtySince == 0) dirtySince = System.currentTimeMillis();
+        ScheduledExecutorService sched = syncScheduler;
+        if (sched != null && wakePending.compareAndSet(false, true)) {
+            try {
+                sched.execute(() -> {
+                    wakePending.set(false);
+                    syncTick(false);
+                });
+            } catch (RejectedExecutionException e) {
+                wakePending.set(false);
+            }
+        }
+    }
+
+    private void pollTick() {
+        subscribeFeed();
+        ChangeFeed feed = subscribedFeed;
+        long now = System.currentTimeMillis();
+        if (feed != null && feed.isLive() && now - lastPollAt < FEED_FALLBACK_POLL_MS && !hasUnloadedSession()) {
+            return;
+        }
+        lastPollAt = now;
+        syncTick(true);
+    }
+
+    private boolean hasUnloadedSession() {
+        try {
+            for (nurgling.sessions.SessionContext sc : nurgling.sessions.SessionManager.getInstance().getAllSessions()) {
+                if (sc != null && sc.sessionId != null && sc.ui != null && !bulkLoadedSessions.contains(sc.sessionId)) {
+                    return true;
+                }
+            }
+        } catch (Exception ignore) {}
+        return false;
+    }
+
+    private void syncTick(boolean poll) {
         if (!syncEnabled) return;
         if (databaseManager == null || !databaseManager.isReady()) return;
 
+        Set<String> dirty = new HashSet<>(dirtyProfiles);
+        dirtyProfiles.removeAll(dirty);
+        long since = dirtySince;
+        dirtySince = 0;
+
         Collection<nurgling.sessions.SessionContext> sessions;
         try {
             sessions = nurgling.sessions.SessionManager.getInstance().getAllSessions();
@@ -363,6 +460,7 @@ public class PlanningService {
         }
         bulkLoadedSessions.retainAll(liveIds);
 
+        Map<String, GenusBatch> batches = new HashMap<>();
         for (nurgling.sessions.SessionContext sc : sessions) {
             if (sc == null || sc.ui == null || sc.sessionId == null) continue;
             nurgling.NGameUI gui = sc.getGameUI();
@@ -370,13 +468,15 @@ public class PlanningService {
 
             String profile = gui.getGenus();
             if (profile == null || profile.isEmpty()) continue;
+            boolean loaded = bulkLoadedSessions.contains(sc.sessionId);
+            if (loaded && !poll && !dirty.contains(profile)) continue;
 
             nurgling.sessions.ThreadLocalUI.set(sc.ui);
             try {
                 if (bulkLoadedSessions.add(sc.sessionId)) {
                     runBulkLoad(profile, sc.sessionId);
                 } else {
-                    runDeltaPoll(profile);
+                    runDeltaPoll(profile, batches.computeIfAbsent(profile, k -> new GenusBatch()));
                 }
             } catch (Exception e) {
                 bulkLoadedSessions.remove(sc.sessionId);
@@ -388,6 +488,22 @@ public class PlanningService {
                 nurgling.sessions.ThreadLocalUI.clear();
             }
         }
+        DatabaseManager.recordSyncWakeup(!poll,
+            (!poll && since > 0) ? System.currentTimeMillis() - since : -1);
+    }
+
+    /**
+     * Server view of one profile for the duration of a tick: version maps are
+     * read once and changed rows fetched once, however many sessions share
+     * the profile.
+     */
+    private static final class GenusBatch {
+        Map<String, PlanningFolderDao.VersionInfo> folders = null;
+        Map<String, PlanningLayerDao.VersionInfo> layers = null;
+        Map<String, PlanningGhostDao.VersionInfo> ghosts = null;
+        final Map<String, PlanningFolderDao.FolderRow> folderRows = new HashMap<>();
+        final Map<String, PlanningLayerDao.LayerRow> layerRows = new HashMap<>();
+        final Map<String, PlanningGhostDao.GhostRow> ghostRows = new HashMap<>();
     }
 
     private void runBulkLoad(String profile, String sessionId) throws SQLException {
@@ -399,8 +515,8 @@ public class PlanningService {
         if (syncCallback != null) syncCallback.onFullSync(snap);
     }
 
-    private void runDeltaPoll(String profile) throws SQLException {
-        SyncDelta delta = computeDelta(profile);
+    private void runDeltaPoll(String profile, GenusBatch batch) throws SQLException {
+        SyncDelta delta = computeDelta(profile, batch);
         if (!delta.isEmpty() && syncCallback != null) {
             syncCallback.onSyncDelta(delta);
         }
@@ -411,7 +527,7 @@ public class PlanningService {
      * currently-bound ThreadLocalUI). Returns whatever needs to be applied
      * locally. Merge work for folders/layers happens here too.
      */
-    private SyncDelta computeDelta(String profile) throws SQLException {
+    private SyncDelta computeDelta(String profile, GenusBatch batch) throws SQLException {
         SyncDelta delta = new SyncDelta();
 
         nurgling.NGameUI gui = nurgling.NUtils.getGameUI();
@@ -420,8 +536,10 @@ public class PlanningService {
         if (mgr == null) return delta;
 
         // --- Folders ---
-        Map<String, PlanningFolderDao.VersionInfo> dbFolders = databaseManager.executeOperation(
-            a -> folderDao.getAllVersions(a, profile));
+        if (batch.folders == null) {
+            batch.folders = databaseManager.executeOperation(a -> folderDao.getAllVersions(a, profile));
+        }
+        Map<String, PlanningFolderDao.VersionInfo> dbFolders = batch.folders;
         for (Map.Entry<String, PlanningFolderDao.VersionInfo> e : dbFolders.entrySet()) {
             String id = e.getKey();
             PlanningFolderDao.VersionInfo info = e.getValue();
@@ -432,8 +550,13 @@ public class PlanningService {
                 continue;
             }
             if (info.version <= localVersion) continue;
-            PlanningFolderDao.FolderRow row = databaseManager.executeOperation(
-                a -> folderDao.loadOne(a, id, profile));
+            PlanningFolderDao.FolderRow row;
+            if (batch.folderRows.containsKey(id)) {
+                row = batch.folderRows.get(id);
+            } else {
+                row = databaseManager.executeOperation(a -> folderDao.loadOne(a, id, profile));
+                batch.folderRows.put(id, row);
+            }
             if (row == null) continue;
             // Default visible=true when we synthesize a fresh node; the
             // manager will preserve its existing local visibility if the node
@@ -456,8 +579,10 @@ public class PlanningService {
         }
 
         // --- Layers ---
-        Map<String, PlanningLayerDao.VersionInfo> dbLayers = databaseManager.executeOperation(
-            a -> layerDao.getAllVersions(a, profile));
+        if (batch.layers == null) {
+            batch.layers = databaseManager.executeOperation(a -> layerDao.getAllVersions(a, profile));
+        }
+        Map<String, PlanningLayerDao.VersionInfo> dbLayers = batch.layers;
         for (Map.Entry<String, PlanningLayerDao.VersionInfo> e : dbLayers.entrySet()) {
             String id = e.getKey();
             PlanningLayerDao.VersionInfo info = e.getValue();
@@ -468,8 +593,13 @@ public class PlanningService {
                 continue;
             }
             if (info.version <= localVersion) continue;
-            PlanningLayerDao.LayerRow row = databaseManager.executeOperation(
-                a -> layerDao.loadOne(a, id, profile));
+            PlanningLayerDao.LayerRow row;
+            if (batch.layerRows.containsKey(id)) {
+                row = batch.layerRows.get(id);
+            } else {
+                row = databaseManager.executeOperation(a -> layerDao.loadOne(a, id, profile));
+                batch.layerRows.put(id, row);
+            }
             if (row == null) continue;
             PlanningLayer fresh = new PlanningLayer(row.id, row.name, true, row.parentFolderId);
             fresh.orderIndex = row.orderIndex;
@@ -490,8 +620,10 @@ public class PlanningService {
         }
 
         // --- Ghosts ---
-        Map<String, PlanningGhostDao.VersionInfo> dbGhosts = databaseManager.executeOperation(
-            a -> ghostDao.getAllVersions(a, profile));
+        if (batch.ghosts == null) {
+            batch.ghosts = databaseManager.executeOperation(a -> ghostDao.getAllVersions(a, profile));
+        }
+        Map<String, PlanningGhostDao.VersionInfo> dbGhosts = batch.ghosts;
         for (Map.Entry<String, PlanningGhostDao.VersionInfo> e : dbGhosts.entrySet()) {
             String id = e.getKey();
             PlanningGhostDao.VersionInfo info = e.getValue();
@@ -503,8 +635,13 @@ public class PlanningService {
                 continue;
             }
             if (localHas) continue; // ghost rows are append-only-ish; skip if already present
-            PlanningGhostDao.GhostRow row = databaseManager.executeOperation(
-                a -> ghostDao.loadOne(a, id, profile));
+            PlanningGhostDao.GhostRow row;
+            if (batch.ghostRows.containsKey(id)) {
+                row = batch.ghostRows.get(id);
+            } else {
+                row = databaseManager.executeOperation(a -> ghostDao.loadOne(a, id, profile));
+                batch.ghostRows.put(id, row);
+            }
             if (row == null) continue;
             byte[] sdt = (row.sdtB64 != null && !row.sdtB64.isEmpty())
                 ? Base64.getDecoder().decode(row.sdtB64) : null;
@@ -1,10 +1,12 @@
 package nurgling.db.service;
 
 import nurgling.cookbook.Recipe;
+import nurgling.cookbook.RecipeStore;
 import nurgling.db.DatabaseManager;
 import nurgling.db.dao.RecipeDao;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 
@@ -20,6 +22,14 @@ public class RecipeService {
     private final Semaphore saveSemaphore;
     private static final int MAX_CONCURRENT_SAVES = 2;
 
+    // Columnar copy of the recipe tables, loaded once on first use and then
+    // kept current by the save/delete paths below.
+    private volatile RecipeStore store = null;
+    private CompletableFuture<RecipeStore> storeLoad = null;
+    // Writes that commit while the store is loading may miss its snapshot;
+    // they are replayed once it is published (Recipe = put, String = remove).
+    private final ConcurrentLinkedQueue<Object> writesDuringLoad = new ConcurrentLinkedQueue<>();
+
     public RecipeService(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
         this.recipeDao = new RecipeDao();
@@ -49,10 +59,56 @@ public class RecipeService {
     }
 
     /**
-     * Load recipes synchronously by their hashes
+     * Load recipes synchronously by their hashes. Served from the recipe
+     * store when it is loaded; only hashes it does not know go to the database.
      */
     public List<Recipe> loadRecipes(List<String> recipeHashes) throws SQLException {
-        return databaseManager.executeOperation(adapter -> recipeDao.loadRecipes(adapter, recipeHashes));
+        RecipeStore s = store;
+        if (s == null) {
+            return databaseManager.executeOperation(adapter -> recipeDao.loadRecipes(adapter, recipeHashes));
+        }
+        List<String> missing = new ArrayList<>();
+        for (String hash : recipeHashes) {
+            if (!s.contains(hash)) missing.add(hash);
+        }
+        if (missing.isEmpty()) {
+            return s.get(recipeHashes);
+        }
+        List<Recipe> loaded = databaseManager.executeOperation(adapter -> recipeDao.loadRecipes(adapter, missing));
+        for (Recipe recipe : loaded) {
+            s.put(recipe);
+        }
+        return s.get(recipeHashes);
+    }
+
+    /**
+     * The in-memory recipe store, or null while it is still loading. The
+     * first call starts the load in the background.
+     */
+    public RecipeStore getStore() {
+        RecipeStore s = store;
+        if (s != null) return s;
+        loadStoreAsync();
+        return null;
+    }
+
+    /**
+     * Load the recipe store once; later calls return the same future.
+     */
+    public synchronized CompletableFuture<RecipeStore> loadStoreAsync() {
+        if (storeLoad == null || storeLoad.isCompletedExceptionally()) {
+            storeLoad = CompletableFuture.supplyAsync(() -> {
+                try {
+                    RecipeStore loaded = databaseManager.executeOperation(recipeDao::loadStore);
+                    store = loaded;
+                    replayWritesDuringLoad(loaded);
+                    return loaded;
+                } catch (SQLException e) {
+                    throw new RuntimeException("Failed to load recipe store", e);
+                }
+            });
+        }
+        return storeLoad;
     }
 
     /**
@@ -86,6 +142,13 @@ public class RecipeService {
             recipeDao.saveRecipe(adapter, recipe);
             return null;
         });
+        RecipeStore s = store;
+        if (s != null) {
+            s.put(recipe);
+        } else if (isStoreLoading()) {
+            writesDuringLoad.add(recipe);
+            replayIfLoaded();
+        }
     }
 
     /**
@@ -109,6 +172,36 @@ public class RecipeService {
             recipeDao.deleteRecipe(adapter, recipeHash);
             return null;
         });
+        RecipeStore s = store;
+        if (s != null) {
+            s.remove(recipeHash);
+        } else if (isStoreLoading()) {
+            writesDuringLoad.add(recipeHash);
+            replayIfLoaded();
+        }
+    }
+
+    private synchronized boolean isStoreLoading() {
+        return storeLoad != null && !storeLoad.isCompletedExceptionally();
+    }
+
+    /** The load may have published between our null check and the enqueue. */
+    private void replayIfLoaded() {
+        RecipeStore s = store;
+        if (s != null) {
+            replayWritesDuringLoad(s);
+        }
+    }
+
+    private void replayWritesDuringLoad(RecipeStore s) {
+        Object w;
+        while ((w = writesDuringLoad.poll()) != null) {
+            if (w instanceof Recipe) {
+                s.put((Recipe) w);
+            } else {
+                s.remove((String) w);
+            }
+        }
     }
 
     /**
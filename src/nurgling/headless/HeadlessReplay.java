@@ -0,0 +1,156 @@
+package nurgling.headless;
+
+import haven.*;
+import nurgling.NConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Replays a session capture (see {@link Capture}, recorded with {@code -Dhaven.capture=FILE})
+ * into an offline session on a headless UI loop, with no server.
+ *
+ * <p>By default the replay is deterministic: each frame moves capture time on by a fixed step
+ * and delivers what was captured up to it, then waits for the UI to take its messages before the
+ * next frame starts. Frames run back to back, so the run measures how fast the client gets
+ * through the capture, and the same capture gives the same frames on every run. With
+ * {@code --realtime} the capture is instead played at the pace it was recorded, and frames at
+ * the configured frame rate.
+ *
+ * <p>Usage: {@code HeadlessReplay CAPTURE [--step=SECONDS] [--realtime] [--frames=N]}
+ */
+public class HeadlessReplay {
+    /** How long a frame waits for the UI to take the messages delivered to it. */
+    private static final long UI_WAIT_MS = 5000;
+
+    private final Path path;
+    private double step = 1.0 / 60.0;
+    private boolean realtime = false;
+    private long maxFrames = 0;
+
+    private Capture.Replay replay;
+    private Session session;
+    private volatile long frames = 0;
+
+    public HeadlessReplay(Path path) {
+        this.path = path;
+    }
+
+    /** The headless loop, stepping the replay between frames when deterministic. */
+    private class Loop extends NHeadlessLoop {
+        Loop(Coord size) {
+            super(size);
+        }
+
+        protected double framedur() {
+            return realtime ? super.framedur() : 0.0;
+        }
+
+        protected void framedone(Frame f) {
+            super.framedone(f);
+            /* Not before the session's UI is up, or newui() would wait on this thread. */
+            if ((f.ui == null) || (f.ui.sess != session))
+                return;
+            long n = ++frames;
+            if (!realtime) {
+                replay.advance(n * step);
+                long until = System.currentTimeMillis() + UI_WAIT_MS;
+                while (!session.uiidle() && (System.currentTimeMillis() < until)) {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            if ((maxFrames > 0) && (n >= maxFrames))
+                replay.close();
+        }
+    }
+
+    public int run() throws IOException, InterruptedException {
+        replay = new Capture.Replay(path);
+        session = new Session(replay, new Session.User("replay"));
+        RemoteUI remoteUI = new RemoteUI(session);
+        Loop loop = new Loop(new Coord(1920, 1080));
+        long start = System.nanoTime();
+        loop.start();
+        if (realtime)
+            replay.start();
+        try {
+            UI.Runner task = remoteUI;
+            while (task != null)
+                task = task.run(loop.newui(task));
+        } finally {
+            loop.newui(null);
+            loop.dispose();
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        log(String.format("%d frames, %.1f s of capture in %.1f s (%.1f frames/s)",
+                frames, replay.time(), wall, frames / wall));
+        log(String.format("%d rel messages, %d object deltas, %d map messages",
+                replay.rmsgs, replay.objds, replay.maps));
+        log(session.glob.oc.overlays.getStats());
+        return HeadlessMain.EXIT_SUCCESS;
+    }
+
+    public static void main(String[] args) {
+        Path path = null;
+        double step = 0;
+        boolean realtime = false;
+        long frames = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--step=")) {
+                step = Double.parseDouble(arg.substring(7));
+            } else if (arg.equals("--realtime")) {
+                realtime = true;
+            } else if (arg.startsWith("--frames=")) {
+                frames = Long.parseLong(arg.substring(9));
+            } else if (!arg.startsWith("--") && (path == null)) {
+                path = Paths.get(arg);
+            } else {
+                usage();
+                System.exit(HeadlessMain.EXIT_CONFIG_ERROR);
+                return;
+            }
+        }
+        if (path == null) {
+            usage();
+            System.exit(HeadlessMain.EXIT_CONFIG_ERROR);
+            return;
+        }
+        HeadlessReplay main = new HeadlessReplay(path);
+        if (step > 0)
+            main.step = step;
+        main.realtime = realtime;
+        main.maxFrames = frames;
+
+        Headless.setHeadless(true);
+        MainFrame.setupres();
+        NConfig nconfig = new NConfig();
+        nconfig.read();
+        MainFrame.config = nconfig;
+        Widget.initnames();
+
+        int exitCode;
+        try {
+            exitCode = main.run();
+        } catch (IOException e) {
+            System.err.println("Cannot read capture " + path + ": " + e.getMessage());
+            exitCode = HeadlessMain.EXIT_CONFIG_ERROR;
+        } catch (InterruptedException e) {
+            exitCode = HeadlessMain.EXIT_BOT_ERROR;
+        }
+        System.exit(exitCode);
+    }
+
+    private static void usage() {
+        System.err.println("usage: HeadlessReplay CAPTURE [--step=SECONDS] [--realtime] [--frames=N]");
+    }
+
+    private static void log(String message) {
+        System.out.println("[Replay] " + message);
+    }
+}
@@ -8,6 +8,7 @@ import nurgling.NUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static nurgling.navigation.ChunkNavConfig.*;
 import static nurgling.navigation.ChunkNavData.Direction;
@@ -22,6 +23,19 @@ public class ChunkNavGraph {
     // Portal index (gobHash -> ChunkPortal)
     private final Map<String, ChunkPortal> portalIndex = new ConcurrentHashMap<>();
 
+    // Precomputed adjacency per chunk, built on first use (gridId -> Adjacency)
+    private final Map<Long, Adjacency> adjacency = new ConcurrentHashMap<>();
+
+    // Hash of the inputs each chunk's adjacency depends on (gridId -> signature)
+    private final Map<Long, Long> signatures = new ConcurrentHashMap<>();
+
+    // Walkability part of the edge cost of entering or leaving a chunk, refreshed
+    // on every recording since it depends on interior cells (gridId -> penalty)
+    private final Map<Long, Float> walkPenalty = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so a build racing with one is not cached
+    private final AtomicLong epoch = new AtomicLong();
+
     public ChunkNavGraph() {
     }
 
@@ -29,11 +43,15 @@ public class ChunkNavGraph {
      * Add or update a chunk in the graph.
      */
     public void addChunk(ChunkNavData chunk) {
-        chunks.put(chunk.gridId, chunk);
+        ChunkNavData previous = chunks.put(chunk.gridId, chunk);
         // Index portals
         for (ChunkPortal portal : chunk.portals) {
             portalIndex.put(portal.gobHash, portal);
         }
+        if (previous != null && previous != chunk) {
+            invalidate(chunk.gridId);
+        }
+        refreshSignature(chunk);
     }
 
     /**
@@ -110,42 +128,287 @@ public class ChunkNavGraph {
     public List<ChunkEdge> getEdges(long fromGridId) {
         List<ChunkEdge> edges = new ArrayList<>();
         ChunkNavData fromChunk = chunks.get(fromGridId);
-        if (fromChunk == null) {
+        Adjacency adj = getAdjacency(fromGridId);
+        if (fromChunk == null || adj == null) {
             return edges;
         }
 
         // Add edges to connected chunks via edges
-        for (Long toGridId : fromChunk.connectedChunks) {
+        for (int i = 0; i < adj.edgeCount(); i++) {
+            ChunkNavData toChunk = chunks.get(adj.edgeTo(i));
+            if (toChunk == null || adj.edgeDirection(i) == null) continue;
+            ChunkEdge edge = new ChunkEdge();
+            edge.fromGridId = fromGridId;
+            edge.toGridId = adj.edgeTo(i);
+            edge.crossingPoint = fromChunk.getEdge(adj.edgeDirection(i))[adj.crossingCell(i)].localCoord;
+            edge.cost = BASE_CHUNK_COST + walkPenalty(fromChunk) + walkPenalty(toChunk)
+                    + confidencePenalty(fromChunk, toChunk);
+            edges.add(edge);
+        }
+
+        // Add edges via portals (grid IDs can be negative, -1 means unknown)
+        for (int i = 0; i < adj.portalCount(); i++) {
+            ChunkNavData toChunk = chunks.get(adj.portalTo(i));
+            if (toChunk == null) continue;
+            ChunkEdge edge = new ChunkEdge();
+            edge.fromGridId = fromGridId;
+            edge.toGridId = adj.portalTo(i);
+            edge.crossingPoint = adj.portal(i).localCoord;
+            edge.portal = adj.portal(i);
+            edge.cost = BASE_CHUNK_COST + walkPenalty(fromChunk) + walkPenalty(toChunk)
+                    + PORTAL_TRAVERSAL_COST + confidencePenalty(fromChunk, toChunk);
+            edges.add(edge);
+        }
+
+        return edges;
+    }
+
+    /**
+     * Get the precomputed adjacency of a chunk, building it on first use.
+     * The returned view is immutable; it is replaced rather than updated when
+     * the chunk or one of the chunks it depends on changes.
+     * Returns null if the chunk is not in the graph.
+     */
+    public Adjacency getAdjacency(long gridId) {
+        Adjacency adj = adjacency.get(gridId);
+        if (adj != null) {
+            return adj;
+        }
+        ChunkNavData chunk = chunks.get(gridId);
+        if (chunk == null) {
+            return null;
+        }
+        long stamp = epoch.get();
+        adj = buildAdjacency(chunk);
+        synchronized (adjacency) {
+            if (epoch.get() == stamp) {
+                adjacency.put(gridId, adj);
+            }
+        }
+        return adj;
+    }
+
+    /**
+     * Drop the cached adjacency of a chunk and of every chunk whose adjacency
+     * was built from it (edge neighbours, diagonal neighbours, portal targets).
+     */
+    public void invalidate(long gridId) {
+        synchronized (adjacency) {
+            epoch.incrementAndGet();
+            adjacency.remove(gridId);
+            adjacency.values().removeIf(adj -> adj.dependsOn(gridId));
+        }
+    }
+
+    /**
+     * Recompute the signature of a chunk's adjacency inputs and invalidate
+     * it if they changed. Interior cells are not part of the signature, so
+     * re-recording a chunk whose borders and links are unchanged keeps the cache;
+     * the walkability penalty they feed into edge costs is refreshed instead.
+     */
+    private void refreshSignature(ChunkNavData chunk) {
+        walkPenalty.put(chunk.gridId, chunk.averageWalkability() * WALKABILITY_PENALTY);
+        long sig = adjacencySignature(chunk);
+        Long old = signatures.put(chunk.gridId, sig);
+        if (old == null || old != sig) {
+            invalidate(chunk.gridId);
+        }
+    }
+
+    /**
+     * Hash of everything adjacency building reads from a chunk: the two outer
+     * cell rows on each side (tile-level crossings check both cells of a tile),
+     * neighbour links, layer, instance, connections and portals.
+     */
+    private static long adjacencySignature(ChunkNavData chunk) {
+        long h = 1125899906842597L;
+        int last = CELLS_PER_EDGE - 1;
+        for (int d = 0; d < CELLS_PER_TILE; d++) {
+            for (int i = 0; i < CELLS_PER_EDGE; i++) {
+                h = 31 * h + cellState(chunk, i, d);
+                h = 31 * h + cellState(chunk, i, last - d);
+                h = 31 * h + cellState(chunk, d, i);
+                h = 31 * h + cellState(chunk, last - d, i);
+            }
+        }
+        h = 31 * h + chunk.neighborNorth;
+        h = 31 * h + chunk.neighborSouth;
+        h = 31 * h + chunk.neighborEast;
+        h = 31 * h + chunk.neighborWest;
+        h = 31 * h + Objects.hashCode(chunk.layer);
+        h = 31 * h + chunk.instanceId;
+        h = 31 * h + Objects.hashCode(chunk.worldTileOrigin);
+        h = 31 * h + chunk.connectedChunks.hashCode();
+        for (ChunkPortal portal : chunk.portals) {
+            h = 31 * h + portal.connectsToGridId;
+            h = 31 * h + Objects.hashCode(portal.localCoord);
+            h = 31 * h + Objects.hashCode(portal.exitLocalCoord);
+            h = 31 * h + Objects.hashCode(portal.gobName);
+            h = 31 * h + Objects.hashCode(portal.type);
+        }
+        return h;
+    }
+
+    private static int cellState(ChunkNavData chunk, int x, int y) {
+        return chunk.walkability[x][y] * 2 + (chunk.observed[x][y] ? 1 : 0);
+    }
+
+    /**
+     * Walkability part of the cost of an edge touching a chunk, as of its last
+     * recording. Chunks the graph has not seen yet are measured on the spot.
+     */
+    private float walkPenalty(ChunkNavData chunk) {
+        Float penalty = walkPenalty.get(chunk.gridId);
+        return penalty != null ? penalty : chunk.averageWalkability() * WALKABILITY_PENALTY;
+    }
+
+    private Adjacency buildAdjacency(ChunkNavData chunk) {
+        Set<Long> deps = new HashSet<>();
+
+        // Edge neighbours with every walkable crossing run along the shared edge
+        List<Long> connected = new ArrayList<>(chunk.connectedChunks);
+        int n = 0;
+        long[] edgeTo = new long[connected.size()];
+        Direction[] edgeDir = new Direction[connected.size()];
+        int[] crossing = new int[connected.size()];
+        int[] runOffset = new int[connected.size() + 1];
+        int[] runBuf = new int[CELLS_PER_EDGE];
+        int runLen = 0;
+        int[] runs = new int[16];
+        for (Long toGridId : connected) {
             ChunkNavData toChunk = chunks.get(toGridId);
-            if (toChunk != null) {
-                // Find best crossing point
-                EdgeCrossing crossing = findBestCrossing(fromChunk, toChunk);
-                if (crossing != null) {
-                    ChunkEdge edge = new ChunkEdge();
-                    edge.fromGridId = fromGridId;
-                    edge.toGridId = toGridId;
-                    edge.crossingPoint = crossing.crossingPoint;
-                    edge.cost = calculateEdgeCost(fromChunk, toChunk, null);
-                    edges.add(edge);
+            if (toChunk == null) continue;
+            deps.add(toGridId);
+            Direction dir = getDirectionTo(chunk, toChunk);
+            edgeTo[n] = toGridId;
+            edgeDir[n] = dir;
+            runOffset[n] = runLen;
+            crossing[n] = CELLS_PER_EDGE / 2;
+            if (dir != null) {
+                crossing[n] = bestCrossingIndex(chunk, toChunk, dir);
+                // Use lenient check: unobserved edge tiles are assumed passable
+                int count = 0;
+                int runStart = -1;
+                for (int i = 0; i <= CELLS_PER_EDGE; i++) {
+                    boolean open = i < CELLS_PER_EDGE
+                            && isEdgeWalkable(chunk, dir, i)
+                            && isEdgeWalkable(toChunk, dir.opposite(), i);
+                    if (open) {
+                        if (runStart < 0) runStart = i;
+                    } else if (runStart >= 0) {
+                        runBuf[count++] = runStart;
+                        runBuf[count++] = i - 1;
+                        runStart = -1;
+                        if (count == runBuf.length) {
+                            runBuf = Arrays.copyOf(runBuf, runBuf.length * 2);
+                        }
+                    }
                 }
+                if (runLen + count > runs.length) {
+                    runs = Arrays.copyOf(runs, Math.max(runs.length * 2, runLen + count));
+                }
+                System.arraycopy(runBuf, 0, runs, runLen, count);
+                runLen += count;
             }
+            n++;
         }
-
-        // Add edges via portals (grid IDs can be negative, -1 means unknown)
-        for (ChunkPortal portal : fromChunk.portals) {
-            if (portal.connectsToGridId != -1 && chunks.containsKey(portal.connectsToGridId)) {
-                ChunkNavData toChunk = chunks.get(portal.connectsToGridId);
-                ChunkEdge edge = new ChunkEdge();
-                edge.fromGridId = fromGridId;
-                edge.toGridId = portal.connectsToGridId;
-                edge.crossingPoint = portal.localCoord;
-                edge.portal = portal;
-                edge.cost = calculateEdgeCost(fromChunk, toChunk, portal);
-                edges.add(edge);
+        runOffset[n] = runLen;
+
+        // Tile-level crossings into the eight surrounding chunks
+        long[] crossTo = new long[9];
+        long[] crossMask = new long[9 * 2];
+        for (int sx = -1; sx <= 1; sx++) {
+            for (int sy = -1; sy <= 1; sy++) {
+                int slot = Adjacency.slot(sx, sy);
+                crossTo[slot] = -1;
+                if (sx == 0 && sy == 0) continue;
+                long neighborId = resolveCrossNeighbor(chunk, sx, sy, deps);
+                if (neighborId == -1) continue;
+                ChunkNavData neighborChunk = chunks.get(neighborId);
+                if (neighborChunk == null) continue;
+                // Must be same layer and same known instance (prevents cross-instance walking)
+                if (!chunk.layer.equals(neighborChunk.layer)) continue;
+                if (chunk.instanceId == 0 || neighborChunk.instanceId == 0) continue;
+                if (chunk.instanceId != neighborChunk.instanceId) continue;
+                crossTo[slot] = neighborId;
+                int len = (sx != 0 && sy != 0) ? 1 : CHUNK_SIZE;
+                for (int t = 0; t < len; t++) {
+                    int newX = sx < 0 ? CHUNK_SIZE - 1 : sx > 0 ? 0 : t;
+                    int newY = sy < 0 ? CHUNK_SIZE - 1 : sy > 0 ? 0 : t;
+                    if (UnifiedTilePathfinder.isTileWalkable(neighborChunk, newX, newY)) {
+                        crossMask[slot * 2 + (t >> 6)] |= 1L << (t & 63);
+                    }
+                }
             }
         }
 
-        return edges;
+        // Portal edges (grid IDs can be negative, -1 means unknown)
+        List<ChunkPortal> portals = new ArrayList<>(chunk.portals);
+        int pn = 0;
+        ChunkPortal[] portalRef = new ChunkPortal[portals.size()];
+        long[] portalTo = new long[portals.size()];
+        int[] portalData = new int[portals.size() * Adjacency.PORTAL_STRIDE];
+        for (ChunkPortal portal : portals) {
+            if (portal.connectsToGridId == -1) continue;
+            ChunkNavData toChunk = chunks.get(portal.connectsToGridId);
+            if (toChunk == null) continue;
+            deps.add(portal.connectsToGridId);
+            portalRef[pn] = portal;
+            portalTo[pn] = portal.connectsToGridId;
+            int o = pn * Adjacency.PORTAL_STRIDE;
+            boolean layerValid = UnifiedTilePathfinder.isPortalTargetLayerValid(portal.type, toChunk.layer);
+            Coord anchor = UnifiedTilePathfinder.findPortalExitAnchor(toChunk, portal, chunk.gridId);
+            portalData[o] = (layerValid ? 1 : 0) | (portal.localCoord != null ? 2 : 0);
+            portalData[o + 1] = portal.localCoord != null ? portal.localCoord.x : -1;
+            portalData[o + 2] = portal.localCoord != null ? portal.localCoord.y : -1;
+            // Building exteriors use larger proximity (6 tiles vs 2)
+            portalData[o + 3] = ChunkPortal.isBuildingExterior(portal.gobName) ? 6 : 2;
+            portalData[o + 4] = anchor != null ? anchor.x : CHUNK_SIZE / 2;
+            portalData[o + 5] = anchor != null ? anchor.y : CHUNK_SIZE / 2;
+            portalData[o + 6] = anchor != null ? 1 : 0;
+            pn++;
+        }
+
+        long[] depArr = new long[deps.size()];
+        int di = 0;
+        for (long dep : deps) {
+            depArr[di++] = dep;
+        }
+        return new Adjacency(chunk.gridId,
+                Arrays.copyOf(edgeTo, n), Arrays.copyOf(edgeDir, n), Arrays.copyOf(crossing, n),
+                Arrays.copyOf(runOffset, n + 1), Arrays.copyOf(runs, runLen),
+                crossTo, crossMask,
+                Arrays.copyOf(portalRef, pn), Arrays.copyOf(portalTo, pn),
+                Arrays.copyOf(portalData, pn * Adjacency.PORTAL_STRIDE),
+                depArr);
+    }
+
+    /**
+     * Resolve the chunk entered when stepping off the chunk in direction (sx, sy).
+     * Diagonals go through the horizontal neighbour first, then vertical.
+     */
+    private long resolveCrossNeighbor(ChunkNavData from, int sx, int sy, Set<Long> deps) {
+        long neighborId = -1;
+        if (sx < 0) {
+            neighborId = from.neighborWest;
+        } else if (sx > 0) {
+            neighborId = from.neighborEast;
+        }
+        if (sy != 0) {
+            if (neighborId != -1) {
+                deps.add(neighborId);
+                ChunkNavData horzNeighbor = chunks.get(neighborId);
+                if (horzNeighbor != null) {
+                    neighborId = sy < 0 ? horzNeighbor.neighborNorth : horzNeighbor.neighborSouth;
+                }
+            } else {
+                neighborId = sy < 0 ? from.neighborNorth : from.neighborSouth;
+            }
+        }
+        if (neighborId != -1) {
+            deps.add(neighborId);
+        }
+        return neighborId;
     }
 
     /**
@@ -158,10 +421,17 @@ public class ChunkNavGraph {
         Direction dir = getDirectionTo(fromChunk, toChunk);
         if (dir == null) return null;
 
-        EdgePoint[] fromEdge = fromChunk.getEdge(dir);
+        EdgeCrossing crossing = new EdgeCrossing();
+        crossing.crossingPoint = fromChunk.getEdge(dir)[bestCrossingIndex(fromChunk, toChunk, dir)].localCoord;
+        crossing.direction = dir;
+        return crossing;
+    }
 
-        // Find best walkable crossing
-        // Use lenient check: unobserved edge tiles are assumed passable
+    /**
+     * Index of the walkable edge cell closest to the centre of the border
+     * towards dir. Unobserved cells count as walkable.
+     */
+    private int bestCrossingIndex(ChunkNavData fromChunk, ChunkNavData toChunk, Direction dir) {
         int bestIndex = -1;
         int centerIndex = CELLS_PER_EDGE / 2;
 
@@ -177,19 +447,9 @@ public class ChunkNavGraph {
             }
         }
 
-        if (bestIndex >= 0) {
-            EdgeCrossing crossing = new EdgeCrossing();
-            crossing.crossingPoint = fromEdge[bestIndex].localCoord;
-            crossing.direction = dir;
-            return crossing;
-        }
-
         // Fallback: if no walkable crossing found, assume center is passable
         // This prevents isolation of chunks due to incomplete edge data
-        EdgeCrossing fallback = new EdgeCrossing();
-        fallback.crossingPoint = fromEdge[centerIndex].localCoord;
-        fallback.direction = dir;
-        return fallback;
+        return bestIndex >= 0 ? bestIndex : centerIndex;
     }
 
     /**
@@ -253,8 +513,7 @@ public class ChunkNavGraph {
         cost += to.averageWalkability() * WALKABILITY_PENALTY;
 
         // Confidence penalty
-        float minConfidence = Math.min(from.getCurrentConfidence(), to.getCurrentConfidence());
-        cost += (1.0f - minConfidence) * UNCERTAINTY_PENALTY;
+        cost += confidencePenalty(from, to);
 
         // Portal cost
         if (portal != null) {
@@ -264,6 +523,15 @@ public class ChunkNavGraph {
         return cost;
     }
 
+    /**
+     * Confidence part of the edge cost. Kept out of the adjacency cache since
+     * it decays with time rather than with recorded data.
+     */
+    private static float confidencePenalty(ChunkNavData from, ChunkNavData to) {
+        float minConfidence = Math.min(from.getCurrentConfidence(), to.getCurrentConfidence());
+        return (1.0f - minConfidence) * UNCERTAINTY_PENALTY;
+    }
+
     /**
      * Update connections between chunks after recording.
      * Uses stored neighbor relationships (persistent) or falls back to session-based coordinates.
@@ -292,7 +560,9 @@ public class ChunkNavGraph {
             EdgeCrossing crossing = findBestCrossing(chunk, other);
             if (crossing != null) {
                 chunk.connectedChunks.add(other.gridId);
-                other.connectedChunks.add(chunk.gridId);
+                if (other.connectedChunks.add(chunk.gridId)) {
+                    refreshSignature(other);
+                }
             }
         }
 
@@ -318,11 +588,15 @@ public class ChunkNavGraph {
                     EdgeCrossing crossing = findBestCrossing(chunk, other);
                     if (crossing != null) {
                         chunk.connectedChunks.add(other.gridId);
-                        other.connectedChunks.add(chunk.gridId);
+                        if (other.connectedChunks.add(chunk.gridId)) {
+                            refreshSignature(other);
+                        }
                     }
                 }
             }
         }
+
+        refreshSignature(chunk);
     }
 
     /**
@@ -334,6 +608,7 @@ public class ChunkNavGraph {
         for (ChunkNavData chunk : chunks.values()) {
             chunk.connectedChunks.clear();
         }
+        clearAdjacency();
 
         // Rebuild connections for all chunks
         for (ChunkNavData chunk : chunks.values()) {
@@ -360,6 +635,16 @@ public class ChunkNavGraph {
     public void clear() {
         chunks.clear();
         portalIndex.clear();
+        clearAdjacency();
+    }
+
+    private void clearAdjacency() {
+        synchronized (adjacency) {
+            epoch.incrementAndGet();
+            adjacency.clear();
+            signatures.clear();
+            walkPenalty.clear();
+        }
     }
 
     /**
@@ -435,6 +720,12 @@ public class ChunkNavGraph {
 
         // Remove the chunk itself
         chunks.remove(gridId);
+        signatures.remove(gridId);
+        walkPenalty.remove(gridId);
+        invalidate(gridId);
+        for (ChunkNavData modified : modifiedChunks) {
+            refreshSignature(modified);
+        }
 
         return modifiedChunks;
     }
@@ -473,8 +764,8 @@ public class ChunkNavGraph {
             avgConfidence /= chunks.size();
         }
 
-        return String.format("ChunkNavGraph[chunks=%d, portals=%d, connections=%d, avgConfidence=%.2f]",
-                chunks.size(), totalPortals, totalConnections / 2, avgConfidence);
+        return String.format("ChunkNavGraph[chunks=%d, portals=%d, connections=%d, adjacency=%d, avgConfidence=%.2f]",
+                chunks.size(), totalPortals, totalConnections / 2, adjacency.size(), avgConfidence);
     }
 
     /**
@@ -495,4 +786,108 @@ public class ChunkNavGraph {
         public Coord crossingPoint;
         public Direction direction;
     }
+
+    /**
+     * Immutable adjacency of one chunk, stored as primitive arrays so A*
+     * expansion can walk it by index without allocating.
+     *
+     * Edges are the connected chunks; each carries its direction (null when
+     * the chunks are connected but their relative position is unknown), the
+     * cell index of the crossing closest to the edge centre, a base cost
+     * without the time-dependent confidence penalty, and every walkable run
+     * of edge cells as inclusive [start, end] pairs.
+     *
+     * Crossing slots describe the tile-level step off the chunk in each of
+     * the eight directions: the chunk entered (or -1 if it may not be
+     * entered) and which tiles along the entry edge are walkable.
+     *
+     * Portals are the portals whose target chunk is known, with their exit
+     * anchor in the target chunk resolved.
+     */
+    public static final class Adjacency {
+        static final int PORTAL_STRIDE = 7;
+
+        public final long gridId;
+        private final long[] edgeTo;
+        private final Direction[] edgeDir;
+        private final int[] crossing;
+        private final int[] runOffset;
+        private final int[] runs;
+        private final long[] crossTo;
+        private final long[] crossMask;
+        private final ChunkPortal[] portals;
+        private final long[] portalTo;
+        // flags, x, y, radius, exitX, exitY, exitSnap per portal
+        private final int[] portalData;
+        private final long[] deps;
+
+        Adjacency(long gridId, long[] edgeTo, Direction[] edgeDir, int[] crossing,
+                  int[] runOffset, int[] runs, long[] crossTo, long[] crossMask,
+                  ChunkPortal[] portals, long[] portalTo, int[] portalData, long[] deps) {
+            this.gridId = gridId;
+            this.edgeTo = edgeTo;
+            this.edgeDir = edgeDir;
+            this.crossing = crossing;
+            this.runOffset = runOffset;
+            this.runs = runs;
+            this.crossTo = crossTo;
+            this.crossMask = crossMask;
+            this.portals = portals;
+            this.portalTo = portalTo;
+            this.portalData = portalData;
+            this.deps = deps;
+        }
+
+        static int slot(int sx, int sy) {
+            return (sx + 1) * 3 + (sy + 1);
+        }
+
+        boolean dependsOn(long id) {
+            for (long dep : deps) {
+                if (dep == id) return true;
+            }
+            return false;
+        }
+
+        public int edgeCount() { return edgeTo.length; }
+        public long edgeTo(int i) { return edgeTo[i]; }
+        public Direction edgeDirection(int i) { return edgeDir[i]; }
+        /** Edge cell index of the crossing closest to the edge centre. */
+        public int crossingCell(int i) { return crossing[i]; }
+        public int runCount(int i) { return (runOffset[i + 1] - runOffset[i]) / 2; }
+        public int runStart(int i, int run) { return runs[runOffset[i] + run * 2]; }
+        public int runEnd(int i, int run) { return runs[runOffset[i] + run * 2 + 1]; }
+
+        /**
+         * Chunk entered by stepping off this chunk in direction (sx, sy),
+         * each -1, 0 or 1, or -1 if that chunk is unknown or on another layer
+         * or instance.
+         */
+        public long crossTo(int sx, int sy) { return crossTo[slot(sx, sy)]; }
+
+        /**
+         * Whether the entry tile is walkable when stepping off in direction
+         * (sx, sy). Index is the tile along the entry edge (x for north/south,
+         * y for east/west, 0 for diagonals).
+         */
+        public boolean crossWalkable(int sx, int sy, int index) {
+            return (crossMask[slot(sx, sy) * 2 + (index >> 6)] & (1L << (index & 63))) != 0;
+        }
+
+        public int portalCount() { return portalTo.length; }
+        public long portalTo(int i) { return portalTo[i]; }
+        public ChunkPortal portal(int i) { return portals[i]; }
+        /** Target chunk is on a layer this portal type can lead to (otherwise the link is stale). */
+        public boolean portalLayerValid(int i) { return (portalData[i * PORTAL_STRIDE] & 1) != 0; }
+        /** Portal has a recorded position and a valid target layer. */
+        public boolean portalUsable(int i) { return portalData[i * PORTAL_STRIDE] == 3; }
+        public int portalX(int i) { return portalData[i * PORTAL_STRIDE + 1]; }
+        public int portalY(int i) { return portalData[i * PORTAL_STRIDE + 2]; }
+        /** Tile distance from which the portal can be taken. */
+        public int portalRadius(int i) { return portalData[i * PORTAL_STRIDE + 3]; }
+        public int portalExitX(int i) { return portalData[i * PORTAL_STRIDE + 4]; }
+        public int portalExitY(int i) { return portalData[i * PORTAL_STRIDE + 5]; }
+        /** Exit is a recorded position that should be snapped to a walkable tile. */
+        public boolean portalExitSnaps(int i) { return portalData[i * PORTAL_STRIDE + 6] != 0; }
+    }
 }
@@ -552,21 +552,20 @@ public class ChunkNavManager {
         while (!queue.isEmpty()) {
             long current = queue.poll();
             int next = hops.get(current) + 1;
-            ChunkNavData chunk = graph.getChunk(current);
-            if (chunk == null) continue;
+            ChunkNavGraph.Adjacency adj = graph.getAdjacency(current);
+            if (adj == null) continue;
 
-            for (long connected : chunk.connectedChunks) {
+            for (int e = 0; e < adj.edgeCount(); e++) {
+                long connected = adj.edgeTo(e);
                 if (hops.containsKey(connected)) continue;
                 hops.put(connected, next);
                 queue.add(connected);
             }
-            for (ChunkPortal portal : chunk.portals) {
-                long target = portal.connectsToGridId;
-                if (target == -1 || hops.containsKey(target)) continue;
-                if (graph.getChunk(target) != null) {
-                    hops.put(target, next);
-                    queue.add(target);
-                }
+            for (int p = 0; p < adj.portalCount(); p++) {
+                long target = adj.portalTo(p);
+                if (hops.containsKey(target)) continue;
+                hops.put(target, next);
+                queue.add(target);
             }
         }
         return hops;
@@ -613,23 +612,22 @@ public class ChunkNavManager {
             hops++;
             for (int i = 0; i < levelSize; i++) {
                 long current = queue.poll();
-                ChunkNavData chunk = graph.getChunk(current);
-                if (chunk == null) continue;
+                ChunkNavGraph.Adjacency adj = graph.getAdjacency(current);
+                if (adj == null) continue;
 
-                for (long connected : chunk.connectedChunks) {
+                for (int e = 0; e < adj.edgeCount(); e++) {
+                    long connected = adj.edgeTo(e);
                     if (visited.contains(connected)) continue;
                     if (targetChunks.contains(connected)) return hops;
                     visited.add(connected);
                     queue.add(connected);
                 }
-                for (ChunkPortal portal : chunk.portals) {
-                    long target = portal.connectsToGridId;
-                    if (target == -1 || visited.contains(target)) continue;
+                for (int p = 0; p < adj.portalCount(); p++) {
+                    long target = adj.portalTo(p);
+                    if (visited.contains(target)) continue;
                     if (targetChunks.contains(target)) return hops;
-                    if (graph.getChunk(target) != null) {
-                        visited.add(target);
-                        queue.add(target);
-                    }
+                    visited.add(target);
+                    queue.add(target);
                 }
             }
         }
@@ -6,7 +6,10 @@ import nurgling.NHitBox;
 import nurgling.NUtils;
 import nurgling.tasks.GateDetector;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static nurgling.navigation.ChunkNavConfig.*;
 import static nurgling.navigation.ChunkNavData.Direction;
@@ -65,6 +68,22 @@ public class ChunkNavRecorder {
         }
     }
 
+    // What was last sampled for each recently recorded grid (grid ID -> state)
+    private static final int MAX_GRID_STATES = 64;
+    private final Map<Long, GridState> gridStates = new LinkedHashMap<Long, GridState>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GridState> eldest) {
+            return size() > MAX_GRID_STATES;
+        }
+    };
+
+    // Recording statistics
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private final AtomicLong cellsSampled = new AtomicLong();
+    private final AtomicLong recordCpuNs = new AtomicLong();
+    private final AtomicLong gridsRecorded = new AtomicLong();
+    private long statsTime = System.nanoTime(), statsCells = 0, statsCpuNs = 0;
+
     public ChunkNavRecorder(ChunkNavGraph graph) {
         this.graph = graph;
     }
@@ -120,12 +139,11 @@ public class ChunkNavRecorder {
                 chunk = existing;
                 chunk.gridCoord = gridCoord;
                 chunk.worldTileOrigin = grid.ul;
-                mergeWalkability(grid, chunk);
             } else {
                 // New chunk - create fresh data
                 chunk = new ChunkNavData(grid.id, gridCoord, grid.ul);
-                sampleWalkability(grid, chunk);
             }
+            sampleWalkability(grid, chunk);
 
             // Assign instanceId from current world context
             if (manager != null) {
@@ -149,62 +167,6 @@ public class ChunkNavRecorder {
         }
     }
 
-    /**
-     * Merge new walkability observations with existing chunk data.
-     * Only records cells within gob visibility range (~50 cells = 25 tiles radius).
-     * Cells outside visibility remain unobserved (blocked by default).
-     */
-    private void mergeWalkability(MCache.Grid grid, ChunkNavData chunk) {
-        MCache mcache = getMCache();
-        if (mcache == null) return;
-
-        // Get player's cell position (half-tile resolution)
-        Coord playerCell = getPlayerCell();
-        if (playerCell == null) return;
-
-        // Build set of cells blocked by gobs (only includes visible gobs)
-        Set<Long> gobBlockedCells = getGobBlockedCells(grid);
-
-        // Grid origin in cell coordinates
-        Coord gridCellOrigin = new Coord(grid.ul.x * CELLS_PER_TILE, grid.ul.y * CELLS_PER_TILE);
-
-        for (int cx = 0; cx < CELLS_PER_EDGE; cx++) {
-            for (int cy = 0; cy < CELLS_PER_EDGE; cy++) {
-                // Calculate world cell coordinate
-                Coord worldCell = gridCellOrigin.add(cx, cy);
-
-                // Skip cells outside visibility range
-                int dx = Math.abs(worldCell.x - playerCell.x);
-                int dy = Math.abs(worldCell.y - playerCell.y);
-                if (dx > VISIBLE_RADIUS_CELLS || dy > VISIBLE_RADIUS_CELLS) {
-                    continue;  // Leave as unobserved (blocked by default)
-                }
-
-                // Check terrain (terrain is at tile level, so convert cell to tile)
-                // IMPORTANT: Use floorDiv for correct rounding with negative coordinates
-                Coord worldTile = new Coord(Math.floorDiv(worldCell.x, CELLS_PER_TILE),
-                                            Math.floorDiv(worldCell.y, CELLS_PER_TILE));
-                boolean terrainBlocked = isTileBlocked(mcache, worldTile);
-
-                // Check gobs
-                long cellKey = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
-                boolean gobBlocked = gobBlockedCells.contains(cellKey);
-
-                // Mark cell as observed (uses setObserved for section count tracking)
-                chunk.setObserved(cx, cy, true);
-
-                // Record what we observe
-                if (terrainBlocked) {
-                    chunk.walkability[cx][cy] = 2;  // Blocked by terrain
-                } else if (gobBlocked) {
-                    chunk.walkability[cx][cy] = 2;  // Blocked by gob
-                } else {
-                    chunk.walkability[cx][cy] = 0;  // Walkable
-                }
-            }
-        }
-    }
-
     /**
      * Get the player's current cell coordinate (half-tile resolution).
      */
@@ -291,6 +253,12 @@ public class ChunkNavRecorder {
      * Sample walkability at half-tile resolution (4 cells per tile).
      * Only samples cells within gob visibility range (~50 cells = 25 tiles radius).
      * Cells outside visibility remain unobserved (blocked by default).
+     *
+     * Only dirty cells are re-sampled: cells that just came into range, cells
+     * under gobs that appeared, moved, disappeared or opened/closed since the
+     * previous pass, and cells whose tileset was still loading. A new chunk,
+     * new map data for the grid (seq bump) or a grid replaced in MCache
+     * re-samples the whole visible window.
      */
     private void sampleWalkability(MCache.Grid grid, ChunkNavData chunk) {
         MCache mcache = getMCache();
@@ -300,84 +268,147 @@ public class ChunkNavRecorder {
         Coord playerCell = getPlayerCell();
         if (playerCell == null) return;
 
-        // Build set of cells blocked by gobs
-        Set<Long> gobBlockedCells = getGobBlockedCells(grid);
+        long startCpu = threadCpuTime();
 
-        // Grid origin in cell coordinates
-        Coord gridCellOrigin = new Coord(grid.ul.x * CELLS_PER_TILE, grid.ul.y * CELLS_PER_TILE);
+        // Visible window in local cells, clipped to the grid
+        int originX = grid.ul.x * CELLS_PER_TILE;
+        int originY = grid.ul.y * CELLS_PER_TILE;
+        int wx0 = Math.max(0, playerCell.x - VISIBLE_RADIUS_CELLS - originX);
+        int wy0 = Math.max(0, playerCell.y - VISIBLE_RADIUS_CELLS - originY);
+        int wx1 = Math.min(CELLS_PER_EDGE - 1, playerCell.x + VISIBLE_RADIUS_CELLS - originX);
+        int wy1 = Math.min(CELLS_PER_EDGE - 1, playerCell.y + VISIBLE_RADIUS_CELLS - originY);
 
-        for (int cx = 0; cx < CELLS_PER_EDGE; cx++) {
-            for (int cy = 0; cy < CELLS_PER_EDGE; cy++) {
-                // Calculate world cell coordinate
-                Coord worldCell = gridCellOrigin.add(cx, cy);
+        GridState state;
+        synchronized (gridStates) {
+            state = gridStates.computeIfAbsent(grid.id, id -> new GridState());
+        }
 
-                // Skip cells outside visibility range
-                int dx = Math.abs(worldCell.x - playerCell.x);
-                int dy = Math.abs(worldCell.y - playerCell.y);
-                if (dx > VISIBLE_RADIUS_CELLS || dy > VISIBLE_RADIUS_CELLS) {
-                    continue;  // Leave as unobserved (blocked by default)
-                }
+        if (wx0 > wx1 || wy0 > wy1) {
+            // Grid is out of range; forget the window so its cells count as new when it returns
+            synchronized (state) {
+                state.regions.advance(wx0, wy0, wx1, wy1, Collections.emptyMap(), true);
+            }
+            return;
+        }
+
+        // Cells blocked by gobs, and each gob's footprint for change detection
+        Map<Long, DirtyRegions.Footprint> footprints = getGobFootprints(grid);
+        long[] gobCells = new long[DirtyRegions.GRID_WORDS];
+        for (DirtyRegions.Footprint fp : footprints.values()) {
+            DirtyRegions.setRect(gobCells, fp.x0, fp.y0, fp.x1, fp.y1);
+        }
+
+        int sampled = 0;
+        synchronized (state) {
+            boolean full = state.grid != grid || state.seq != grid.seq || state.chunk != chunk;
+            long[] dirty = state.regions.advance(wx0, wy0, wx1, wy1, footprints, full);
+            state.grid = grid;
+            state.seq = grid.seq;
+            state.chunk = chunk;
+
+            // Tileset classification is per pass; tile IDs are shared by all cells
+            byte[] tileClass = new byte[64];
+            for (int cx = wx0; cx <= wx1; cx++) {
+                int row = cx * CELLS_PER_EDGE;
+                for (int i = DirtyRegions.nextSetBit(dirty, row + wy0, row + wy1 + 1); i >= 0;
+                     i = DirtyRegions.nextSetBit(dirty, i + 1, row + wy1 + 1)) {
+                    int cy = i - row;
+
+                    // Mark as observed (uses setObserved for section count tracking)
+                    chunk.setObserved(cx, cy, true);
+
+                    // Check terrain (terrain is at tile level, so convert cell to tile)
+                    int tile = grid.tiles[(cy / CELLS_PER_TILE) * MCache.cmaps.x + (cx / CELLS_PER_TILE)];
+                    if (tile >= tileClass.length) {
+                        tileClass = Arrays.copyOf(tileClass, Integer.highestOneBit(tile) * 2);
+                    }
+                    if (tileClass[tile] == 0) {
+                        tileClass[tile] = classifyTile(mcache, tile);
+                    }
+                    boolean terrainBlocked = tileClass[tile] != TILE_WALKABLE;
+                    if (tileClass[tile] == TILE_UNKNOWN) {
+                        // Tileset still loading - blocked for now, sample again next pass
+                        state.regions.retry[i >> 6] |= 1L << i;
+                    }
+
+                    // Check gob hitboxes (using local cell coordinates)
+                    boolean gobBlocked = (gobCells[i >> 6] & (1L << i)) != 0;
 
-                // Mark as observed (uses setObserved for section count tracking)
-                chunk.setObserved(cx, cy, true);
-
-                // Check terrain (terrain is at tile level, so convert cell to tile)
-                // IMPORTANT: Use floorDiv for correct rounding with negative coordinates
-                Coord worldTile = new Coord(Math.floorDiv(worldCell.x, CELLS_PER_TILE),
-                                            Math.floorDiv(worldCell.y, CELLS_PER_TILE));
-                boolean terrainBlocked = isTileBlocked(mcache, worldTile);
-
-                // Check gob hitboxes (using local cell coordinates)
-                long cellKey = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
-                boolean gobBlocked = gobBlockedCells.contains(cellKey);
-
-                // Classify cell: 0 = walkable, 2 = blocked
-                if (terrainBlocked) {
-                    chunk.walkability[cx][cy] = 2;  // Blocked
-                } else if (gobBlocked) {
-                    chunk.walkability[cx][cy] = 2;  // Blocked
-                } else {
-                    chunk.walkability[cx][cy] = 0;  // Walkable
+                    // Classify cell: 0 = walkable, 2 = blocked
+                    if (terrainBlocked) {
+                        chunk.walkability[cx][cy] = 2;  // Blocked
+                    } else if (gobBlocked) {
+                        chunk.walkability[cx][cy] = 2;  // Blocked
+                    } else {
+                        chunk.walkability[cx][cy] = 0;  // Walkable
+                    }
+                    sampled++;
                 }
             }
         }
+
+        cellsSampled.addAndGet(sampled);
+        gridsRecorded.incrementAndGet();
+        recordCpuNs.addAndGet(threadCpuTime() - startCpu);
     }
 
+    private static final byte TILE_WALKABLE = 1;
+    private static final byte TILE_BLOCKED = 2;
+    private static final byte TILE_UNKNOWN = 3;
+
     /**
-     * Check if a tile is blocked by terrain.
+     * Classify a tileset ID as walkable or blocked by terrain.
      */
-    private boolean isTileBlocked(MCache mcache, Coord tileCoord) {
+    private byte classifyTile(MCache mcache, int tile) {
+        String tileName;
         try {
-            String tileName = mcache.tilesetname(mcache.gettile(tileCoord));
-            if (tileName == null) return true;  // Unknown tile = blocked (safer default)
+            tileName = mcache.tilesetname(tile);
+        } catch (Exception e) {
+            return TILE_UNKNOWN; // Tile not loaded = blocked (safer default)
+        }
+        if (tileName == null) return TILE_UNKNOWN;  // Unknown tile = blocked (safer default)
+        return isTileNameBlocked(tileName) ? TILE_BLOCKED : TILE_WALKABLE;
+    }
 
-            // Check whitelist first - explicitly walkable tiles
-            for (String walkable : WALKABLE_CAVE_TILES) {
-                if (tileName.startsWith(walkable) || tileName.equals(walkable)) {
-                    return false;  // Explicitly walkable
-                }
+    /**
+     * Check if a tileset name is blocked by terrain.
+     */
+    private boolean isTileNameBlocked(String tileName) {
+        // Check whitelist first - explicitly walkable tiles
+        for (String walkable : WALKABLE_CAVE_TILES) {
+            if (tileName.startsWith(walkable) || tileName.equals(walkable)) {
+                return false;  // Explicitly walkable
             }
+        }
 
-            // Then check blacklist - blocked tiles
-            for (String blocked : BLOCKED_TILES) {
-                if (tileName.startsWith(blocked) || tileName.equals(blocked)) {
-                    return true;
-                }
+        // Then check blacklist - blocked tiles
+        for (String blocked : BLOCKED_TILES) {
+            if (tileName.startsWith(blocked) || tileName.equals(blocked)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long threadCpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            try {
+                return THREADS.getCurrentThreadCpuTime();
+            } catch (UnsupportedOperationException e) {
+                // Fall through to wall time
             }
-            return false;
-        } catch (Exception e) {
-            return true; // Tile not loaded = blocked (safer default)
         }
+        return System.nanoTime();
     }
 
     /**
-     * Get set of all cells blocked by gobs in this grid.
-     * Returns cell keys as (localX << 32) | localY for efficient lookup.
+     * Get the cell footprint of every blocking gob in this grid, keyed by gob ID.
      * Uses half-tile (cell) resolution matching NPFMap for precise hitbox projection.
-     * Uses intersection testing for accurate rotated hitbox handling.
+     * Footprints are the cells overlapped by the rotated hitbox's circumscribed
+     * bounds, clipped to the grid.
      */
-    private Set<Long> getGobBlockedCells(MCache.Grid grid) {
-        Set<Long> blockedCells = new HashSet<>();
+    private Map<Long, DirtyRegions.Footprint> getGobFootprints(MCache.Grid grid) {
+        Map<Long, DirtyRegions.Footprint> footprints = new HashMap<>();
 
         try {
             // Use thread-local glob if available (for background recording threads),
@@ -386,7 +417,7 @@ public class ChunkNavRecorder {
             if (glob == null) {
                 NGameUI gui = NUtils.getGameUI();
                 if (gui == null || gui.ui == null || gui.ui.sess == null) {
-                    return blockedCells;
+                    return footprints;
                 }
                 glob = gui.ui.sess.glob;
             }
@@ -438,50 +469,36 @@ public class ChunkNavRecorder {
                 // Convert to cell coordinates - use floor for UL and ceil for BR
                 // to ensure we include ALL cells that the hitbox touches, even partially
                 // (Utils.toPfGrid uses round() which can miss edge cells)
-                Coord cellUL = new Coord(
-                    (int) Math.floor(hitUL.x / MCache.tilehsz.x),
-                    (int) Math.floor(hitUL.y / MCache.tilehsz.y)
-                );
-                Coord cellBR = new Coord(
-                    (int) Math.ceil(hitBR.x / MCache.tilehsz.x),
-                    (int) Math.ceil(hitBR.y / MCache.tilehsz.y)
-                );
-
-                // For each cell in the bounding box, do AABB intersection test
-                // We use direct AABB overlap on circumscribed bounds because the standard
-                // intersects() method uses point-containment which can miss thin edge overlaps
-                for (int px = cellUL.x; px <= cellBR.x; px++) {
-                    for (int py = cellUL.y; py <= cellBR.y; py++) {
-                        // Cell bounds in world coordinates
-                        // Cell at (px, py) covers world coords (px * 5.5, py * 5.5) to ((px+1) * 5.5, (py+1) * 5.5)
-                        double cellWorldMinX = px * MCache.tilehsz.x;
-                        double cellWorldMinY = py * MCache.tilehsz.y;
-                        double cellWorldMaxX = (px + 1) * MCache.tilehsz.x;
-                        double cellWorldMaxY = (py + 1) * MCache.tilehsz.y;
-
-                        // Direct AABB overlap test with the rotated hitbox's circumscribed bounds
-                        // This is conservative: it may mark extra cells but won't miss any
-                        boolean overlaps = (cellWorldMaxX >= hitUL.x) && (cellWorldMinX <= hitBR.x) &&
-                                          (cellWorldMaxY >= hitUL.y) && (cellWorldMinY <= hitBR.y);
-
-                        if (overlaps) {
-                            int localX = px - gridCellOrigin.x;
-                            int localY = py - gridCellOrigin.y;
-
-                            if (localX >= 0 && localX < CELLS_PER_EDGE &&
-                                localY >= 0 && localY < CELLS_PER_EDGE) {
-                                long cellKey = ((long) localX << 32) | (localY & 0xFFFFFFFFL);
-                                blockedCells.add(cellKey);
-                            }
-                        }
-                    }
-                }
+                int ulX = (int) Math.floor(hitUL.x / MCache.tilehsz.x);
+                int ulY = (int) Math.floor(hitUL.y / MCache.tilehsz.y);
+                int brX = (int) Math.ceil(hitBR.x / MCache.tilehsz.x);
+                int brY = (int) Math.ceil(hitBR.y / MCache.tilehsz.y);
+
+                // Cell at (px, py) covers world coords (px * 5.5, py * 5.5) to ((px+1) * 5.5, (py+1) * 5.5).
+                // Direct AABB overlap with the circumscribed bounds is conservative: it may mark
+                // extra cells but won't miss any. The overlapping cells always form a rectangle.
+                while (ulX <= brX && (ulX + 1) * MCache.tilehsz.x < hitUL.x) ulX++;
+                while (brX >= ulX && brX * MCache.tilehsz.x > hitBR.x) brX--;
+                while (ulY <= brY && (ulY + 1) * MCache.tilehsz.y < hitUL.y) ulY++;
+                while (brY >= ulY && brY * MCache.tilehsz.y > hitBR.y) brY--;
+
+                // Clip to this grid's local cells
+                int x0 = Math.max(ulX - gridCellOrigin.x, 0);
+                int y0 = Math.max(ulY - gridCellOrigin.y, 0);
+                int x1 = Math.min(brX - gridCellOrigin.x, CELLS_PER_EDGE - 1);
+                int y1 = Math.min(brY - gridCellOrigin.y, CELLS_PER_EDGE - 1);
+                if (x0 > x1 || y0 > y1) continue;
+
+                long sig = Double.doubleToLongBits(snap.rc.x);
+                sig = sig * 31 + Double.doubleToLongBits(snap.rc.y);
+                sig = sig * 31 + Double.doubleToLongBits(snap.angle);
+                footprints.put(snap.id, new DirtyRegions.Footprint(sig, x0, y0, x1, y1));
             }
         } catch (Exception e) {
             // Silently handle exceptions during gob iteration
         }
 
-        return blockedCells;
+        return footprints;
     }
 
     /**
@@ -711,8 +728,29 @@ public class ChunkNavRecorder {
 
     /**
      * Get statistics about recording.
+     * Rates cover the time since the previous call.
+     */
+    public synchronized String getStats() {
+        long now = System.nanoTime();
+        long cells = cellsSampled.get();
+        long cpu = recordCpuNs.get();
+        double secs = Math.max((now - statsTime) / 1e9, 1e-3);
+        double cellRate = (cells - statsCells) / secs;
+        double cpuMsPerSec = (cpu - statsCpuNs) / 1e6 / secs;
+        statsTime = now;
+        statsCells = cells;
+        statsCpuNs = cpu;
+        return String.format("ChunkNavRecorder[chunks=%d, grids=%d, cells=%d, sampled=%.0f cells/s, cpu=%.2f ms/s]",
+                graph.getChunkCount(), gridsRecorded.get(), cells, cellRate, cpuMsPerSec);
+    }
+
+    /**
+     * What the previous pass over a grid sampled from.
      */
-    public String getStats() {
-        return String.format("ChunkNavRecorder[chunks=%d]", graph.getChunkCount());
+    private static final class GridState {
+        MCache.Grid grid;
+        int seq;
+        ChunkNavData chunk;
+        final DirtyRegions regions = new DirtyRegions();
     }
 }
@@ -0,0 +1,142 @@
+package nurgling.navigation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static nurgling.navigation.ChunkNavConfig.CELLS_PER_EDGE;
+
+/**
+ * Tracks which cells of one grid need re-sampling between recording passes.
+ *
+ * A pass covers the window of cells within gob visibility of the player.
+ * Cells stay valid until they leave and re-enter the window, until a gob
+ * footprint covering them appears, moves or goes away, or until they are
+ * queued for a retry. Cell sets are bitsets indexed cx * CELLS_PER_EDGE + cy.
+ */
+class DirtyRegions {
+    static final int GRID_CELLS = CELLS_PER_EDGE * CELLS_PER_EDGE;
+    static final int GRID_WORDS = (GRID_CELLS + 63) >> 6;
+
+    /**
+     * Cells of one gob's footprint in local cell coordinates (inclusive),
+     * with a signature of its position and rotation.
+     */
+    static final class Footprint {
+        final long sig;
+        final int x0, y0, x1, y1;
+
+        Footprint(long sig, int x0, int y0, int x1, int y1) {
+            this.sig = sig;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+        }
+
+        boolean sameAs(Footprint o) {
+            return sig == o.sig && x0 == o.x0 && y0 == o.y0 && x1 == o.x1 && y1 == o.y1;
+        }
+    }
+
+    private int wx0 = 0, wy0 = 0, wx1 = -1, wy1 = -1;
+    private Map<Long, Footprint> gobs = Collections.emptyMap();
+    /** Cells to sample again on the next pass whatever else changed. */
+    final long[] retry = new long[GRID_WORDS];
+
+    /**
+     * Compute the cells to sample for a pass over window (wx0, wy0)-(wx1, wy1)
+     * with the given gob footprints, and remember them for the next pass.
+     * Cells outside the window are never marked.
+     */
+    long[] advance(int wx0, int wy0, int wx1, int wy1, Map<Long, Footprint> gobs, boolean full) {
+        long[] dirty = new long[GRID_WORDS];
+        if (full) {
+            setRect(dirty, wx0, wy0, wx1, wy1);
+        } else {
+            // Newly visible cells
+            setRect(dirty, wx0, wy0, wx1, wy1);
+            clearRect(dirty, Math.max(wx0, this.wx0), Math.max(wy0, this.wy0),
+                    Math.min(wx1, this.wx1), Math.min(wy1, this.wy1));
+
+            // Cells under gobs that appeared, moved or disappeared
+            for (Map.Entry<Long, Footprint> e : gobs.entrySet()) {
+                Footprint now = e.getValue();
+                Footprint was = this.gobs.get(e.getKey());
+                if (was == null || !was.sameAs(now)) {
+                    setRect(dirty, now.x0, now.y0, now.x1, now.y1);
+                    if (was != null) {
+                        setRect(dirty, was.x0, was.y0, was.x1, was.y1);
+                    }
+                }
+            }
+            for (Map.Entry<Long, Footprint> e : this.gobs.entrySet()) {
+                if (!gobs.containsKey(e.getKey())) {
+                    Footprint was = e.getValue();
+                    setRect(dirty, was.x0, was.y0, was.x1, was.y1);
+                }
+            }
+
+            // Cells whose terrain was not known yet
+            for (int i = 0; i < GRID_WORDS; i++) {
+                dirty[i] |= retry[i];
+            }
+        }
+        Arrays.fill(retry, 0);
+
+        // Only cells inside the window are sampled
+        clearOutside(dirty, wx0, wy0, wx1, wy1);
+        this.wx0 = wx0;
+        this.wy0 = wy0;
+        this.wx1 = wx1;
+        this.wy1 = wy1;
+        this.gobs = gobs;
+        return dirty;
+    }
+
+    static void setRect(long[] bits, int x0, int y0, int x1, int y1) {
+        for (int x = Math.max(x0, 0); x <= Math.min(x1, CELLS_PER_EDGE - 1); x++) {
+            int row = x * CELLS_PER_EDGE;
+            for (int y = Math.max(y0, 0); y <= Math.min(y1, CELLS_PER_EDGE - 1); y++) {
+                int i = row + y;
+                bits[i >> 6] |= 1L << i;
+            }
+        }
+    }
+
+    static void clearRect(long[] bits, int x0, int y0, int x1, int y1) {
+        for (int x = Math.max(x0, 0); x <= Math.min(x1, CELLS_PER_EDGE - 1); x++) {
+            int row = x * CELLS_PER_EDGE;
+            for (int y = Math.max(y0, 0); y <= Math.min(y1, CELLS_PER_EDGE - 1); y++) {
+                int i = row + y;
+                bits[i >> 6] &= ~(1L << i);
+            }
+        }
+    }
+
+    static void clearOutside(long[] bits, int x0, int y0, int x1, int y1) {
+        if (x0 > x1 || y0 > y1) {
+            Arrays.fill(bits, 0);
+            return;
+        }
+        clearRect(bits, 0, 0, x0 - 1, CELLS_PER_EDGE - 1);
+        clearRect(bits, x1 + 1, 0, CELLS_PER_EDGE - 1, CELLS_PER_EDGE - 1);
+        clearRect(bits, x0, 0, x1, y0 - 1);
+        clearRect(bits, x0, y1 + 1, x1, CELLS_PER_EDGE - 1);
+    }
+
+    /** Index of the first set bit in [from, to), or -1. */
+    static int nextSetBit(long[] bits, int from, int to) {
+        if (from >= to) return -1;
+        int w = from >> 6;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                return i < to ? i : -1;
+            }
+            if (++w > ((to - 1) >> 6)) return -1;
+            word = bits[w];
+        }
+    }
+}
@@ -41,7 +41,7 @@ public class UnifiedTilePathfinder {
     /**
      * Check if a tile (in 0-99 space) is walkable by checking if ANY of its 2x2 cells is walkable.
      */
-    private boolean isTileWalkable(ChunkNavData chunk, int tileX, int tileY) {
+    static boolean isTileWalkable(ChunkNavData chunk, int tileX, int tileY) {
         int cellX = tileX * CELLS_PER_TILE;
         int cellY = tileY * CELLS_PER_TILE;
         for (int dx = 0; dx < CELLS_PER_TILE; dx++) {
@@ -200,6 +200,7 @@ public class UnifiedTilePathfinder {
 
         // Track unique chunks explored for diagnostics
         Set<Long> chunksExplored = new HashSet<>();
+        List<TileNode> neighbors = new ArrayList<>();
 
         // System.out.println("[UnifiedTilePathfinder] Starting A* search...");
         // long searchStartTime = System.currentTimeMillis();
@@ -220,7 +221,7 @@ public class UnifiedTilePathfinder {
             closedSet.add(current.tile);
 
             // Expand neighbors
-            List<TileNode> neighbors = getNeighbors(current.tile);
+            getNeighbors(current.tile, neighbors);
 
             for (TileNode neighborTile : neighbors) {
                 if (closedSet.contains(neighborTile)) {
@@ -258,25 +259,25 @@ public class UnifiedTilePathfinder {
     }
 
     /**
-     * Get all walkable neighbors of a tile.
+     * Get all walkable neighbors of a tile into {@code neighbors}, which is cleared first.
      * This includes:
      * 1. Adjacent tiles in the same chunk
      * 2. Tiles in adjacent chunks (edge crossings)
      * 3. Portal destinations
+     * Crossings and portals come from the chunk's cached adjacency in the graph.
      */
-    private List<TileNode> getNeighbors(TileNode tile) {
-        List<TileNode> neighbors = new ArrayList<>();
+    private void getNeighbors(TileNode tile, List<TileNode> neighbors) {
+        neighbors.clear();
 
         ChunkNavData chunk = graph.getChunk(tile.chunkId);
-        if (chunk == null) return neighbors;
+        ChunkNavGraph.Adjacency adj = graph.getAdjacency(tile.chunkId);
+        if (chunk == null || adj == null) return;
 
         int x = tile.localCoord.x;
         int y = tile.localCoord.y;
 
         // 8-directional movement within chunk
-        int[][] dirs = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
-
-        for (int[] dir : dirs) {
+        for (int[] dir : DIRS) {
             int nx = x + dir[0];
             int ny = y + dir[1];
 
@@ -287,7 +288,7 @@ public class UnifiedTilePathfinder {
                 }
             } else {
                 // Edge crossing - find adjacent chunk
-                TileNode crossedTile = getCrossChunkTile(chunk, nx, ny);
+                TileNode crossedTile = getCrossChunkTile(adj, nx, ny);
                 if (crossedTile != null) {
                     neighbors.add(crossedTile);
                 }
@@ -296,109 +297,72 @@ public class UnifiedTilePathfinder {
 
         // Portal connections
         boolean chunkExcluded = !excludedPortalChunks.isEmpty() && excludedPortalChunks.contains(tile.chunkId);
-        for (ChunkPortal portal : chunk.portals) {
-            if (portal.localCoord != null && portal.connectsToGridId != -1) {
-                double dist = tile.localCoord.dist(portal.localCoord);
-                // Building exteriors use larger proximity (6 tiles vs 2)
-                int portalProximity = ChunkPortal.isBuildingExterior(portal.gobName) ? 6 : 2;
-                if (dist <= portalProximity) {
-                    if (chunkExcluded) continue;
-
-                    ChunkNavData destChunk = graph.getChunk(portal.connectsToGridId);
-                    if (destChunk != null) {
-                        // Validate portal type vs target layer
-                        if (!isPortalTargetLayerValid(portal.type, destChunk.layer)) {
-                            continue; // Stale connection - skip
-                        }
-                        Coord exitCoord = findPortalExitCoord(destChunk, portal, tile.chunkId);
-                        if (exitCoord != null) {
-                            neighbors.add(new TileNode(portal.connectsToGridId, exitCoord, true));
+        for (int i = 0; i < adj.portalCount(); i++) {
+            // Unusable portals are stale connections (portal type vs target layer)
+            if (!adj.portalUsable(i)) continue;
+            int dx = x - adj.portalX(i);
+            int dy = y - adj.portalY(i);
+            int portalProximity = adj.portalRadius(i);
+            if (dx * dx + dy * dy <= portalProximity * portalProximity) {
+                if (chunkExcluded) continue;
+
+                ChunkNavData destChunk = graph.getChunk(adj.portalTo(i));
+                if (destChunk != null) {
+                    Coord exitCoord = new Coord(adj.portalExitX(i), adj.portalExitY(i));
+                    if (adj.portalExitSnaps(i)) {
+                        Coord walkable = findWalkableTileNear(destChunk, exitCoord);
+                        if (walkable != null) {
+                            exitCoord = walkable;
                         }
                     }
+                    neighbors.add(new TileNode(adj.portalTo(i), exitCoord, true));
                 }
             }
         }
-
-        return neighbors;
     }
 
+    private static final int[][] DIRS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
     /**
      * Get a tile in an adjacent chunk when crossing an edge.
-     * Uses neighbor relationships (persistent) instead of gridCoord (session-based).
+     * The entered chunk (via persistent neighbor relationships, same layer and
+     * instance) and the walkable entry tiles are precomputed in the adjacency.
      * All coordinates are in tile space (0-99).
      */
-    private TileNode getCrossChunkTile(ChunkNavData fromChunk, int nx, int ny) {
-        // Determine which direction we're crossing and find neighbor
-        int newX = nx, newY = ny;
-        long neighborId = -1;
-
-        if (nx < 0) {
-            neighborId = fromChunk.neighborWest;
-            newX = CHUNK_SIZE - 1;
-        } else if (nx >= CHUNK_SIZE) {
-            neighborId = fromChunk.neighborEast;
-            newX = 0;
-        }
-
-        if (ny < 0) {
-            // If also crossing horizontally, this is diagonal - need to handle specially
-            if (neighborId != -1) {
-                // Diagonal crossing - get the diagonal neighbor through corner
-                // For simplicity, prefer horizontal then vertical
-                ChunkNavData horzNeighbor = graph.getChunk(neighborId);
-                if (horzNeighbor != null) {
-                    neighborId = horzNeighbor.neighborNorth;
-                }
-            } else {
-                neighborId = fromChunk.neighborNorth;
-            }
-            newY = CHUNK_SIZE - 1;
-        } else if (ny >= CHUNK_SIZE) {
-            if (neighborId != -1) {
-                ChunkNavData horzNeighbor = graph.getChunk(neighborId);
-                if (horzNeighbor != null) {
-                    neighborId = horzNeighbor.neighborSouth;
-                }
-            } else {
-                neighborId = fromChunk.neighborSouth;
-            }
-            newY = 0;
-        }
+    private TileNode getCrossChunkTile(ChunkNavGraph.Adjacency adj, int nx, int ny) {
+        int sx = nx < 0 ? -1 : nx >= CHUNK_SIZE ? 1 : 0;
+        int sy = ny < 0 ? -1 : ny >= CHUNK_SIZE ? 1 : 0;
 
+        long neighborId = adj.crossTo(sx, sy);
         if (neighborId == -1) return null;
 
-        ChunkNavData neighborChunk = graph.getChunk(neighborId);
-        if (neighborChunk == null) return null;
-
-        // Must be same layer
-        if (!fromChunk.layer.equals(neighborChunk.layer)) return null;
-
-        // Must be same known instance (prevents cross-instance walking)
-        if (fromChunk.instanceId == 0 || neighborChunk.instanceId == 0) return null;
-        if (fromChunk.instanceId != neighborChunk.instanceId) return null;
+        int newX = sx < 0 ? CHUNK_SIZE - 1 : sx > 0 ? 0 : nx;
+        int newY = sy < 0 ? CHUNK_SIZE - 1 : sy > 0 ? 0 : ny;
+        int index = (sx != 0 && sy != 0) ? 0 : (sx == 0 ? nx : ny);
 
         // Check if target tile is walkable (any of 2x2 cells)
-        if (isTileWalkable(neighborChunk, newX, newY)) {
-            return new TileNode(neighborChunk.gridId, new Coord(newX, newY));
+        if (adj.crossWalkable(sx, sy, index)) {
+            return new TileNode(neighborId, new Coord(newX, newY));
         }
 
         return null;
     }
 
     /**
-     * Find the exit coordinate when arriving through a portal.
-     * Returns a walkable tile near the matching exit portal.
+     * Find where we arrive when entering a chunk through a portal.
+     * Returns the recorded exit or matching portal position, which callers
+     * snap to a walkable tile nearby, or null if no exit is known.
+     * Coordinates are in tile space (0-99).
      *
      * @param destChunk The destination chunk we're entering
      * @param entryPortal The portal we're using to enter
      * @param sourceChunkId The chunk we're coming FROM (to verify reverse connection)
      */
-    private Coord findPortalExitCoord(ChunkNavData destChunk, ChunkPortal entryPortal, long sourceChunkId) {
+    static Coord findPortalExitAnchor(ChunkNavData destChunk, ChunkPortal entryPortal, long sourceChunkId) {
         // BEST: Use stored exit coordinate if available (recorded during traversal)
         // This handles all cases including multiple identical portals (e.g., 2 mineholes to same mine)
         if (entryPortal.exitLocalCoord != null) {
-            Coord walkable = findWalkableTileNear(destChunk, entryPortal.exitLocalCoord);
-            return walkable != null ? walkable : entryPortal.exitLocalCoord;
+            return entryPortal.exitLocalCoord;
         }
 
         // FALLBACK: Search for matching portal in destination chunk
@@ -413,11 +377,6 @@ public class UnifiedTilePathfinder {
 
             // Must be a matching portal pair (e.g., stonestead-door <-> stonestead)
             if (isMatchingPortalPair(entryPortal.gobName, portal.gobName)) {
-                Coord walkable = findWalkableTileNear(destChunk, portal.localCoord);
-                if (walkable != null) {
-                    return walkable;
-                }
-                // Even if no walkable nearby, this is our exit
                 return portal.localCoord;
             }
 
@@ -428,20 +387,14 @@ public class UnifiedTilePathfinder {
         }
 
         // Use best match if found
-        if (bestExitCoord != null) {
-            Coord walkable = findWalkableTileNear(destChunk, bestExitCoord);
-            return walkable != null ? walkable : bestExitCoord;
-        }
-
-        // Fallback: center of chunk (shouldn't happen if data is recorded correctly)
-        return new Coord(CHUNK_SIZE / 2, CHUNK_SIZE / 2);
+        return bestExitCoord;
     }
 
     /**
      * Check if two portal types are a matching pair (entry/exit).
      * Uses GateDetector.getDoorPair() for consistent door pair matching.
      */
-    private boolean isMatchingPortalPair(String entryGobName, String exitGobName) {
+    private static boolean isMatchingPortalPair(String entryGobName, String exitGobName) {
         if (entryGobName == null || exitGobName == null) return false;
 
         // Use GateDetector's door pair lookup (same as routes system)
@@ -458,7 +411,7 @@ public class UnifiedTilePathfinder {
      * Find a walkable tile near the given coordinate.
      * Coordinates are in tile space (0-99).
      */
-    private Coord findWalkableTileNear(ChunkNavData chunk, Coord target) {
+    private static Coord findWalkableTileNear(ChunkNavData chunk, Coord target) {
         // Check the target itself first
         if (target.x >= 0 && target.x < CHUNK_SIZE &&
             target.y >= 0 && target.y < CHUNK_SIZE &&
@@ -596,19 +549,20 @@ public class UnifiedTilePathfinder {
 
         int minDepth = -1;
 
-        // Check all portals from this chunk
-        for (ChunkPortal portal : fromChunk.portals) {
-            if (portal.connectsToGridId == -1) continue;
+        ChunkNavGraph.Adjacency adj = graph.getAdjacency(fromChunk.gridId);
+        if (adj == null) {
+            return -1;
+        }
 
+        // Check all portals from this chunk
+        for (int i = 0; i < adj.portalCount(); i++) {
             // Validate portal type vs target layer (skip stale connections)
-            ChunkNavData targetChunk = graph.getChunk(portal.connectsToGridId);
-            if (targetChunk != null && !isPortalTargetLayerValid(portal.type, targetChunk.layer)) {
-                continue;
-            }
+            if (!adj.portalLayerValid(i)) continue;
 
-            if (portal.connectsToGridId == toChunk.gridId) {
+            if (adj.portalTo(i) == toChunk.gridId) {
                 return 1; // Direct connection - best case
             }
+            ChunkNavData targetChunk = graph.getChunk(adj.portalTo(i));
 
             // Recursively check connected chunks (limit depth to avoid long searches)
             if (visited.size() < 10) {
@@ -809,7 +763,7 @@ public class UnifiedTilePathfinder {
     /**
      * Validate that a portal type is compatible with the target chunk's layer.
      */
-    private boolean isPortalTargetLayerValid(ChunkPortal.PortalType type, String targetLayer) {
+    static boolean isPortalTargetLayerValid(ChunkPortal.PortalType type, String targetLayer) {
         if (type == null || targetLayer == null) return true;
         switch (type) {
             case MINEHOLE:
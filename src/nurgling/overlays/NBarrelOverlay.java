@@ -13,7 +13,7 @@ public class NBarrelOverlay extends NObjectTexLabel
     String text = null;
 
 
-    private static final Text.Furnace active_title = new PUtils.BlurFurn(((FontSettings) NConfig.get(NConfig.Key.fonts)).getFoundary(Fonts.FontType.BARRELS).aa(true), 2, 1, new Color(36, 25, 25));
+    private static final PUtils.BlurFurn active_title = new PUtils.BlurFurn(((FontSettings) NConfig.get(NConfig.Key.fonts)).getFoundary(Fonts.FontType.BARRELS).aa(true), 2, 1, new Color(36, 25, 25));
 
     Gob gob;
     public NBarrelOverlay(Owner owner)
@@ -41,7 +41,7 @@ public class NBarrelOverlay extends NObjectTexLabel
                 if(!ntext.equals(text)) {
                     text = ntext;
                     img = null;
-                    label = new TexI(active_title.render(text).img);
+                    label = active_title.tex(text);
                 }
             }
         }
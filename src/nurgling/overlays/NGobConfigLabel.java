@@ -21,22 +21,24 @@ import java.util.concurrent.ConcurrentHashMap;
  * why - by reporting done from {@link #tick} once the option is switched off or the text is cleared.
  */
 public class NGobConfigLabel extends Sprite implements RenderTree.Node, PView.Render2D {
-    private static final Text.Furnace fnd = new PUtils.BlurFurn(
+    private static final PUtils.BlurFurn fnd = new PUtils.BlurFurn(
             new Text.Foundry(Text.sans.deriveFont(Font.BOLD), 14, Color.WHITE).aa(true),
             UI.scale(1), UI.scale(1), Color.BLACK);
 
     /**
-     * Rendered captions, shared by every gob of every type using the same text. Typing a label
-     * leaves a trail of half-finished words behind, hence the cap.
+     * Captions, shared by every gob of every type using the same text. Most are drawn from the
+     * outlined glyph atlas and cost no texture of their own; text the atlas cannot lay out is
+     * rendered once here. Typing a label leaves a trail of half-finished words behind, hence the
+     * cap.
      */
-    private static final Map<String, Text> cache = new ConcurrentHashMap<>();
+    private static final Map<String, Tex> cache = new ConcurrentHashMap<>();
 
-    private static Text render(String text) {
-        Text t = cache.get(text);
+    private static Tex render(String text) {
+        Tex t = cache.get(text);
         if (t == null) {
             if (cache.size() > 64)
                 cache.clear();
-            t = fnd.render(text);
+            t = fnd.tex(text);
             cache.put(text, t);
         }
         return t;
@@ -69,6 +71,6 @@ public class NGobConfigLabel extends Sprite implements RenderTree.Node, PView.Re
         Coord sc = Homo3D.obj2view(Coord3f.o, state, Area.sized(g.sz())).round2();
         if (sc == null)
             return;
-        g.aimage(render(text).tex(), sc.add(0, UI.scale(4)), 0.5, 0.0);
+        g.aimage(render(text), sc.add(0, UI.scale(4)), 0.5, 0.0);
     }
 }
@@ -12,7 +12,7 @@ import java.awt.image.BufferedImage;
 
 public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Render2D{
     protected Coord3f pos;
-    public TexI label = null;
+    public Tex label = null;
     protected TexI img = null;
     boolean forced = false;
     
@@ -35,6 +35,12 @@ public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Re
         }
     }
 
+    /** Draws the full label centred on sc, when the camera is close enough for it. */
+    protected void drawLabel(GOut g, Coord sc) {
+        if (label != null)
+            g.aimage(label, sc, 0.5, 0.5);
+    }
+
     @Override
     public void draw(GOut g, Pipe state) {
         if(NUtils.getGameUI()!=null) {
@@ -51,8 +57,7 @@ public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Re
                     if (img != null)
                         g.aimage(img, sc, 0.5, 0.5);
                 } else {
-                    if (label != null)
-                        g.aimage(label, sc, 0.5, 0.5);
+                    drawLabel(g, sc);
                 }
             } else if (NUtils.getGameUI().map.camera instanceof MapView.OrthoCam) {
                 Coord sc = Homo3D.obj2view(pos, state, Area.sized(g.sz())).round2();
@@ -60,8 +65,7 @@ public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Re
                     if (img != null)
                         g.aimage(img, sc, 0.5, 0.5);
                 } else {
-                    if (label != null)
-                        g.aimage(label, sc, 0.5, 0.5);
+                    drawLabel(g, sc);
                 }
             } else if (NUtils.getGameUI().map.camera instanceof MapView.SimpleCam) {
                 Coord sc = Homo3D.obj2view(pos, state, Area.sized(g.sz())).round2();
@@ -69,13 +73,11 @@ public class NObjectTexLabel extends Sprite implements RenderTree.Node, PView.Re
                     if (img != null)
                         g.aimage(img, sc, 0.5, 0.5);
                 } else {
-                    if (label != null)
-                        g.aimage(label, sc, 0.5, 0.5);
+                    drawLabel(g, sc);
                 }
             } else {
                 Coord sc = Homo3D.obj2view(pos, state, Area.sized(g.sz())).round2();
-                if (label != null)
-                    g.aimage(label, sc, 0.5, 0.5);
+                drawLabel(g, sc);
             }
         }
     }
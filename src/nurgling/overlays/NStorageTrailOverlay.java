@@ -34,7 +34,7 @@ public class NStorageTrailOverlay extends NGroundPathOverlay implements PView.Re
     private long lastSig = Long.MIN_VALUE;
     private double lastBuild = 0;
 
-    private final Map<String, Text> labels = new HashMap<>();
+    private final Map<String, Tex> labels = new HashMap<>();
 
     public NStorageTrailOverlay(NMapView mv, StorageTrailService service) {
         super(mv);
@@ -209,20 +209,19 @@ public class NStorageTrailOverlay extends NGroundPathOverlay implements PView.Re
     }
 
     private void plate(GOut g, Coord c, String text, Color col) {
-        Text cached = labels.get(text);
-        if(cached == null) {
+        Tex t = labels.get(text);
+        if(t == null) {
             // Labels are "count · quality", so the set of distinct strings is small and
             // bounded by what the current search matched; clearing it on a miss keeps a long
             // session from accumulating textures for queries that are long gone.
             if(labels.size() > 16) {
-                for(Text old : labels.values())
+                for(Tex old : labels.values())
                     old.dispose();
                 labels.clear();
             }
-            cached = labelf.render(text, new Color(225, 245, 230));
-            labels.put(text, cached);
+            t = labelf.tex(text, new Color(225, 245, 230));
+            labels.put(text, t);
         }
-        Tex t = cached.tex();
         Coord psz = t.sz().add(UI.scale(10), UI.scale(4));
         Coord ul = c.sub(psz.div(2));
         g.chcolor(12, 16, 18, 215);
@@ -9,10 +9,9 @@ import nurgling.tools.NAlias;
 import nurgling.tools.NParser;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 
 public class NTreeScaleOl extends NObjectTexLabel {
-    public static Text.Furnace fnd = new PUtils.BlurFurn(new Text.Foundry(Text.sans.deriveFont(Font.BOLD), 16).aa(true), UI.scale(1), UI.scale(1), Color.BLACK);
+    public static PUtils.BlurFurn fnd = new PUtils.BlurFurn(new Text.Foundry(Text.sans.deriveFont(Font.BOLD), 16).aa(true), UI.scale(1), UI.scale(1), Color.BLACK);
     private static TexI qIcon = new TexI(Resource.loadsimg("nurgling/hud/growth"));
     
     // Cached config value for minimum threshold
@@ -37,13 +36,7 @@ public class NTreeScaleOl extends NObjectTexLabel {
         }
         this.calculatedScale = scale;
         this.img = qIcon;
-        BufferedImage retlabel =fnd.render(String.format("%d%%",scale)).img;
-        BufferedImage ret = TexI.mkbuf(new Coord(UI.scale(1)+img.sz().x+retlabel.getWidth(), Math.max(img.sz().y,retlabel.getHeight())));
-        Graphics g = ret.getGraphics();
-        g.drawImage(img.back, 0, ret.getHeight()/2-img.sz().y/2, null);
-        g.drawImage(retlabel,UI.scale(1)+img.sz().x,ret.getHeight()/2-retlabel.getHeight()/2,null);
-        g.dispose();
-        this.label = new TexI(ret);
+        this.label = fnd.tex(String.format("%d%%",scale));
 
     }
     
@@ -68,6 +61,15 @@ public class NTreeScaleOl extends NObjectTexLabel {
         return gob.getattr(TreeScale.class) == null;
     }
     
+    /** The growth icon, with the percentage drawn from the glyph atlas to its right. */
+    @Override
+    protected void drawLabel(GOut g, Coord sc) {
+        int w = img.sz().x + UI.scale(1) + label.sz().x;
+        Coord ul = Coord.of(sc.x - w / 2, sc.y);
+        g.aimage(img, ul, 0, 0.5);
+        g.aimage(label, ul.add(img.sz().x + UI.scale(1), 0), 0, 0.5);
+    }
+
     @Override
     public void draw(GOut g, Pipe state) {
         updateConfigCache();
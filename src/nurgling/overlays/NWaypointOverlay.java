@@ -55,9 +55,9 @@ public class NWaypointOverlay extends NGroundPathOverlay implements PView.Render
     // Cached ETA text so it is not re-rendered every frame.
     private static final Text.Foundry etaf = new Text.Foundry(Text.dfont, 11).aa(true);
     private String etaStr = null;
-    private Text etaTex = null;
+    private Tex etaTex = null;
     private String dragStr = null;
-    private Text dragTex = null;
+    private Tex dragTex = null;
 
     public NWaypointOverlay(NMapView mv) {
         super(mv);
@@ -320,14 +320,14 @@ public class NWaypointOverlay extends NGroundPathOverlay implements PView.Render
         if(!s.equals(etaStr)) {
             if(etaTex != null)
                 etaTex.dispose();
-            etaTex = etaf.render(s, new Color(215, 235, 240));
+            etaTex = etaf.tex(s, new Color(215, 235, 240));
             etaStr = s;
         }
         Coord ul = c.add(0, UI.scale(11)).sub(etaTex.sz().x / 2, 0);
         g.chcolor(12, 16, 18, 190);
         g.frect(ul.sub(UI.scale(3), UI.scale(1)), etaTex.sz().add(UI.scale(6), UI.scale(2)));
         g.chcolor();
-        g.image(etaTex.tex(), ul);
+        g.image(etaTex, ul);
     }
 
     /** Expanding ring on the waypoint the character is running to. */
@@ -377,10 +377,10 @@ public class NWaypointOverlay extends NGroundPathOverlay implements PView.Render
             if(!s.equals(dragStr)) {
                 if(dragTex != null)
                     dragTex.dispose();
-                dragTex = etaf.render(s, Color.WHITE);
+                dragTex = etaf.tex(s, Color.WHITE);
                 dragStr = s;
             }
-            Tex t = dragTex.tex();
+            Tex t = dragTex;
             Coord mid = osc.add(cur.sc).div(2);
             g.chcolor(12, 16, 18, 190);
             g.frect(mid.sub(t.sz().x / 2 + UI.scale(3), t.sz().y / 2), t.sz().add(UI.scale(6), 0));
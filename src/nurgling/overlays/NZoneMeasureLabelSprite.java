@@ -15,12 +15,12 @@ public class NZoneMeasureLabelSprite extends Sprite implements RenderTree.Node,
     private static final Text.Foundry labelFnd = new Text.Foundry(Text.sans, 16).aa(true);
 
     protected Coord3f pos;
-    private TexI label;
+    private Tex label;
 
     public NZoneMeasureLabelSprite(Owner owner, int width, int height) {
         super(owner, null);
         this.pos = new Coord3f(0, 0, 5);
-        this.label = new TexI(labelFnd.render(width + "x" + height, Color.WHITE).img);
+        this.label = labelFnd.tex(width + "x" + height, Color.WHITE);
     }
 
     @Override
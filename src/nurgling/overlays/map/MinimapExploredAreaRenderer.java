@@ -105,15 +105,15 @@ public class MinimapExploredAreaRenderer {
                         Coord baseGridCoord = new Coord(bgx, bgy);
                         
                         // Render main explored area
-                        boolean[] baseMask = exploredArea.getExploredMaskForGrid(baseGridCoord, map.sessloc.seg.id, 0);
-                        if (baseMask != null && hasAnyTrue(baseMask)) {
+                        long[] baseMask = exploredArea.getExploredMaskForGrid(baseGridCoord, map.sessloc.seg.id, 0);
+                        if (baseMask != null && ExploredArea.hasAnyExploredTiles(baseMask)) {
                             renderGridOverlay(g, map, nmap, baseGridCoord, baseMask, 
                                 NMiniMap.VIEW_EXPLORED_COLOR, hsz, scaleFactor, dataLevel, false);
                         }
                         
                         // Render session layer on top if active
-                        boolean[] sessionMask = exploredArea.getSessionMaskForGrid(baseGridCoord, map.sessloc.seg.id);
-                        if (sessionMask != null && hasAnyTrue(sessionMask)) {
+                        long[] sessionMask = exploredArea.getSessionMaskForGrid(baseGridCoord, map.sessloc.seg.id);
+                        if (sessionMask != null && ExploredArea.hasAnyExploredTiles(sessionMask)) {
                             renderGridOverlay(g, map, nmap, baseGridCoord, sessionMask,
                                 NMiniMap.VIEW_SESSION_COLOR, hsz, scaleFactor, dataLevel, true);
                         }
@@ -125,21 +125,11 @@ public class MinimapExploredAreaRenderer {
         }
     }
     
-    /**
-     * Check if mask has any true values
-     */
-    private static boolean hasAnyTrue(boolean[] mask) {
-        for (boolean b : mask) {
-            if (b) return true;
-        }
-        return false;
-    }
-    
     /**
      * Render a single grid's overlay
      */
     private static void renderGridOverlay(GOut g, MiniMap map, NMiniMap nmap, 
-            Coord baseGridCoord, boolean[] mask, Color color,
+            Coord baseGridCoord, long[] mask, Color color,
             Coord hsz, float scaleFactor, int dataLevel, boolean isSession) {
         try {
             // Get overlay texture for this base grid
@@ -214,7 +204,7 @@ public class MinimapExploredAreaRenderer {
     /**
      * Get explored area overlay for a base grid with caching
      */
-    private static Tex getExploredOverlay(Coord baseGridCoord, long segmentId, boolean[] mask, int dataLevel) {
+    private static Tex getExploredOverlay(Coord baseGridCoord, long segmentId, long[] mask, int dataLevel) {
         CacheKey key = new CacheKey(baseGridCoord, segmentId);
         ExploredOverlayCache cache = overlayCache.get(key);
         
@@ -244,7 +234,7 @@ public class MinimapExploredAreaRenderer {
     /**
      * Get session overlay for a base grid with caching
      */
-    private static Tex getSessionOverlay(Coord baseGridCoord, long segmentId, boolean[] mask, int dataLevel) {
+    private static Tex getSessionOverlay(Coord baseGridCoord, long segmentId, long[] mask, int dataLevel) {
         CacheKey key = new CacheKey(baseGridCoord, segmentId);
         ExploredOverlayCache cache = sessionOverlayCache.get(key);
         
@@ -272,13 +262,13 @@ public class MinimapExploredAreaRenderer {
     }
 
     /**
-     * Render overlay image from boolean mask
+     * Render overlay image from a grid's explored bit mask
      * Creates a semi-transparent texture with explored tiles colored
      * 
-     * @param mask boolean array indicating explored tiles
+     * @param mask bit mask of explored tiles, see {@link ExploredArea#isExplored}
      * @param col the color to use for the overlay
      */
-    private static BufferedImage renderOverlayImage(boolean[] mask, Color col) {
+    private static BufferedImage renderOverlayImage(long[] mask, Color col) {
         WritableRaster buf = PUtils.imgraster(MCache.cmaps);
         
         int width = MCache.cmaps.x;
@@ -286,8 +276,7 @@ public class MinimapExploredAreaRenderer {
         
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                int idx = x + y * width;
-                if (mask[idx]) {
+                if (ExploredArea.isExplored(mask, x, y)) {
                     // Set pixel with overlay color
                     buf.setSample(x, y, 0, col.getRed());
                     buf.setSample(x, y, 1, col.getGreen());
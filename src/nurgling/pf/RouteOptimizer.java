@@ -0,0 +1,470 @@
+package nurgling.pf;
+
+import haven.*;
+import nurgling.NUtils;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Visiting order for bots that walk to many targets (trees, crops, piles).
+ *
+ * Builds one {@link NPFMap} over the player and all targets, runs a grid
+ * Dijkstra from every target's approach cells in parallel to get walking
+ * costs between all pairs, and then orders the targets as an open tour from
+ * the player: nearest neighbour first, improved with 2-opt and Or-opt until
+ * no move helps or the time budget runs out. Pairs the grid cannot connect
+ * (outside the map, walled off) fall back to straight-line distance.
+ *
+ * Cost rows are cached per map snapshot, so asking again while nothing on
+ * the map moved only recomputes the row for the player's position.
+ *
+ * <pre>
+ *     ArrayList&lt;Gob&gt; trees = new RouteOptimizer().order(Finder.findGobs(area, pattern));
+ * </pre>
+ */
+public class RouteOptimizer {
+    public static final long DEFAULT_BUDGET_MS = 300;
+    /** Pair cost when no grid path was found and no fallback applies. */
+    static final int UNREACHABLE = 100000000;
+    private static final int STRAIGHT = 100;
+    private static final int DIAGONAL = 141;
+    private static final int CACHE_SNAPSHOTS = 4;
+
+    /** Map snapshot hash -> source key -> destination key -> cost. */
+    private static final LinkedHashMap<Long, Map<String, Map<String, Integer>>> cache =
+            new LinkedHashMap<Long, Map<String, Map<String, Integer>>>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Map<String, Map<String, Integer>>> eldest) {
+                    return size() > CACHE_SNAPSHOTS;
+                }
+            };
+
+    private long budgetMs = DEFAULT_BUDGET_MS;
+
+    public RouteOptimizer budget(long ms) {
+        this.budgetMs = ms;
+        return this;
+    }
+
+    /** Orders gobs for visiting from the player's current position. */
+    public ArrayList<Gob> order(List<Gob> gobs) {
+        List<Target> targets = new ArrayList<>();
+        for (Gob gob : gobs) {
+            targets.add(new Target("g" + gob.id, gob.rc, gob));
+        }
+        ArrayList<Gob> res = new ArrayList<>();
+        for (int idx : route(targets)) {
+            res.add(gobs.get(idx));
+        }
+        return res;
+    }
+
+    /** Orders world points (tiles to dig, spots to place) from the player's current position. */
+    public ArrayList<Coord2d> orderPoints(List<Coord2d> points) {
+        List<Target> targets = new ArrayList<>();
+        for (Coord2d p : points) {
+            targets.add(new Target("p" + Utils.toPfGrid(p), p, null));
+        }
+        ArrayList<Coord2d> res = new ArrayList<>();
+        for (int idx : route(targets)) {
+            res.add(points.get(idx));
+        }
+        return res;
+    }
+
+    private static class Target {
+        final String key;
+        final Coord2d rc;
+        final Gob gob;
+        int[] cells;
+
+        Target(String key, Coord2d rc, Gob gob) {
+            this.key = key;
+            this.rc = rc;
+            this.gob = gob;
+        }
+    }
+
+    private int[] route(List<Target> targets) {
+        int n = targets.size();
+        Gob player = NUtils.player();
+        if (n < 2 || player == null) {
+            return IntStream.range(0, n).toArray();
+        }
+        long deadline = System.nanoTime() + budgetMs * 1000000L;
+
+        // Node 0 is the player, nodes 1..n the targets
+        List<Target> nodes = new ArrayList<>(n + 1);
+        nodes.add(new Target("s" + Utils.toPfGrid(player.rc), player.rc, null));
+        nodes.addAll(targets);
+
+        Coord2d min = new Coord2d(player.rc.x, player.rc.y);
+        Coord2d max = new Coord2d(player.rc.x, player.rc.y);
+        for (Target t : targets) {
+            min.x = Math.min(min.x, t.rc.x);
+            min.y = Math.min(min.y, t.rc.y);
+            max.x = Math.max(max.x, t.rc.x);
+            max.y = Math.max(max.y, t.rc.y);
+        }
+        NPFMap map = new NPFMap(min, max, 1);
+        map.build();
+        for (Target t : nodes) {
+            t.cells = approachCells(map, t);
+        }
+
+        int[][] cost = costMatrix(map, nodes, deadline);
+        int[] order = solve(cost, deadline);
+        int[] res = new int[n];
+        for (int i = 0; i < n; i++) {
+            res[i] = order[i] - 1;
+        }
+        return res;
+    }
+
+    private static int[][] costMatrix(NPFMap map, List<Target> nodes, long deadline) {
+        int m = nodes.size();
+        long snapshot = snapshotHash(map);
+        Map<String, Map<String, Integer>> rows;
+        synchronized (cache) {
+            rows = cache.computeIfAbsent(snapshot, k -> new HashMap<>());
+        }
+
+        int[][] cost = new int[m][];
+        IntStream.range(0, m).parallel().forEach(i -> {
+            Target src = nodes.get(i);
+            Map<String, Integer> cached;
+            synchronized (cache) {
+                cached = rows.get(src.key);
+            }
+            int[] row = new int[m];
+            boolean hit = cached != null;
+            for (int j = 0; j < m && hit; j++) {
+                Integer c = cached.get(nodes.get(j).key);
+                if (c == null) {
+                    hit = false;
+                } else {
+                    row[j] = c;
+                }
+            }
+            if (!hit) {
+                row = gridRow(map, src, nodes, deadline);
+                Map<String, Integer> fresh = new HashMap<>();
+                for (int j = 0; j < m; j++) {
+                    fresh.put(nodes.get(j).key, row[j]);
+                }
+                if (System.nanoTime() < deadline) {
+                    synchronized (cache) {
+                        rows.put(src.key, fresh);
+                    }
+                }
+            }
+            cost[i] = row;
+        });
+
+        // The grid is undirected; average out approach-cell asymmetry so 2-opt can reverse segments
+        for (int i = 0; i < m; i++) {
+            for (int j = i + 1; j < m; j++) {
+                int c = (int) (((long) cost[i][j] + cost[j][i]) / 2);
+                cost[i][j] = c;
+                cost[j][i] = c;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * Dijkstra from {@code src}'s approach cells over the whole map. Out of
+     * budget or off the map, targets get the straight-line estimate instead.
+     */
+    private static int[] gridRow(NPFMap map, Target src, List<Target> nodes, long deadline) {
+        int m = nodes.size();
+        int[] row = new int[m];
+        for (int j = 0; j < m; j++) {
+            row[j] = straightCost(src.rc, nodes.get(j).rc);
+        }
+        if (src.cells.length == 0 || System.nanoTime() > deadline) {
+            return row;
+        }
+
+        int size = map.size;
+        NPFMap.Cell[][] cells = map.cells;
+        int[] dist = new int[size * size];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        LongHeap heap = new LongHeap(size * 4);
+        for (int c : src.cells) {
+            dist[c] = 0;
+            heap.push(c);
+        }
+        int pops = 0;
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int c = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > dist[c]) continue;
+            if ((++pops & 0xfff) == 0 && System.nanoTime() > deadline) {
+                return row;
+            }
+            int x = c / size;
+            int y = c % size;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if (nx < 0 || ny < 0 || nx >= size || ny >= size || cells[nx][ny].val != 0) continue;
+                    int step = STRAIGHT;
+                    if (dx != 0 && dy != 0) {
+                        // Same corner rule as Graph: no cutting past a blocked side cell
+                        if ((cells[x][ny].val & 3) != 0 || (cells[nx][y].val & 3) != 0) continue;
+                        step = DIAGONAL;
+                    }
+                    int nd = d + step;
+                    int ni = nx * size + ny;
+                    if (nd < dist[ni]) {
+                        dist[ni] = nd;
+                        heap.push(((long) nd << 32) | ni);
+                    }
+                }
+            }
+        }
+
+        for (int j = 0; j < m; j++) {
+            int[] dst = nodes.get(j).cells;
+            if (dst.length == 0) continue;
+            int best = Integer.MAX_VALUE;
+            for (int c : dst) {
+                best = Math.min(best, dist[c]);
+            }
+            row[j] = best == Integer.MAX_VALUE ? UNREACHABLE : best;
+        }
+        return row;
+    }
+
+    private static int straightCost(Coord2d a, Coord2d b) {
+        return (int) Math.round(a.dist(b) / MCache.tilehsz.x * STRAIGHT);
+    }
+
+    /** Free cells next to the target's hitbox, or the free cells nearest its position. */
+    private static int[] approachCells(NPFMap map, Target t) {
+        int size = map.size;
+        NPFMap.Cell[][] cells = map.cells;
+        Set<Integer> res = new LinkedHashSet<>();
+        CellsArray ca = (t.gob != null && t.gob.ngob != null && t.gob.ngob.hitBox != null) ? t.gob.ngob.getCA() : null;
+        if (ca != null) {
+            for (int i = 0; i < ca.x_len; i++) {
+                for (int j = 0; j < ca.y_len; j++) {
+                    if (ca.cells[i][j] == 0) continue;
+                    Coord c = new Coord(i + ca.begin.x - map.begin.x, j + ca.begin.y - map.begin.y);
+                    for (Coord d : Coord.uecw) {
+                        Coord nc = c.add(d);
+                        if (nc.x >= 0 && nc.y >= 0 && nc.x < size && nc.y < size && cells[nc.x][nc.y].val == 0) {
+                            res.add(nc.x * size + nc.y);
+                        }
+                    }
+                }
+            }
+        }
+        if (res.isEmpty()) {
+            Coord c = Utils.toPfGrid(t.rc).sub(map.begin);
+            for (int r = 0; r <= 2 && res.isEmpty(); r++) {
+                for (int dx = -r; dx <= r; dx++) {
+                    for (int dy = -r; dy <= r; dy++) {
+                        if (Math.max(Math.abs(dx), Math.abs(dy)) != r) continue;
+                        int x = c.x + dx;
+                        int y = c.y + dy;
+                        if (x >= 0 && y >= 0 && x < size && y < size && cells[x][y].val == 0) {
+                            res.add(x * size + y);
+                        }
+                    }
+                }
+            }
+        }
+        int[] arr = new int[res.size()];
+        int k = 0;
+        for (int c : res) {
+            arr[k++] = c;
+        }
+        return arr;
+    }
+
+    private static long snapshotHash(NPFMap map) {
+        long h = 1125899906842597L;
+        h = 31 * h + map.begin.x;
+        h = 31 * h + map.begin.y;
+        h = 31 * h + map.size;
+        for (int i = 0; i < map.size; i++) {
+            for (int j = 0; j < map.size; j++) {
+                h = 31 * h + map.cells[i][j].val;
+            }
+        }
+        return h;
+    }
+
+    // =========================================================================
+    // Tour construction
+    // =========================================================================
+
+    /**
+     * Open tour from node 0 through every other node of a symmetric cost
+     * matrix. Returns the visiting order of nodes {@code 1..n-1}.
+     */
+    static int[] solve(int[][] cost, long deadline) {
+        int n = cost.length - 1;
+        int[] route = new int[Math.max(n, 0)];
+        if (n <= 0) return route;
+
+        boolean[] used = new boolean[n + 1];
+        int at = 0;
+        for (int k = 0; k < n; k++) {
+            int best = -1;
+            for (int j = 1; j <= n; j++) {
+                if (!used[j] && (best < 0 || cost[at][j] < cost[at][best])) {
+                    best = j;
+                }
+            }
+            route[k] = best;
+            used[best] = true;
+            at = best;
+        }
+
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(cost, route, deadline) | orOpt(cost, route, deadline);
+        }
+        return route;
+    }
+
+    static long length(int[][] cost, int[] route) {
+        long len = 0;
+        int at = 0;
+        for (int node : route) {
+            len += cost[at][node];
+            at = node;
+        }
+        return len;
+    }
+
+    /** Reverses r[i..j] whenever that shortens the path. */
+    private static boolean twoOpt(int[][] c, int[] r, long deadline) {
+        boolean any = false;
+        int n = r.length;
+        for (int i = 0; i < n - 1; i++) {
+            if (System.nanoTime() > deadline) break;
+            int p = i == 0 ? 0 : r[i - 1];
+            for (int j = i + 1; j < n; j++) {
+                long before = (long) c[p][r[i]] + (j + 1 < n ? c[r[j]][r[j + 1]] : 0);
+                long after = (long) c[p][r[j]] + (j + 1 < n ? c[r[i]][r[j + 1]] : 0);
+                if (after < before) {
+                    for (int a = i, b = j; a < b; a++, b--) {
+                        int t = r[a];
+                        r[a] = r[b];
+                        r[b] = t;
+                    }
+                    any = true;
+                }
+            }
+        }
+        return any;
+    }
+
+    /** Moves segments of one to three nodes, either way round, to a cheaper gap. */
+    private static boolean orOpt(int[][] c, int[] r, long deadline) {
+        boolean any = false;
+        int n = r.length;
+        for (int len = 1; len <= 3 && len < n; len++) {
+            for (int i = 0; i + len <= n; i++) {
+                if (System.nanoTime() > deadline) return any;
+                int p = i == 0 ? 0 : r[i - 1];
+                int a = r[i];
+                int b = r[i + len - 1];
+                boolean hasNext = i + len < n;
+                long gain = (long) c[p][a] + (hasNext ? c[b][r[i + len]] - c[p][r[i + len]] : 0);
+
+                int[] rest = new int[n - len];
+                System.arraycopy(r, 0, rest, 0, i);
+                System.arraycopy(r, i + len, rest, i, n - i - len);
+                int bestGap = -1;
+                boolean bestRev = false;
+                long bestAdd = gain;
+                for (int g = 0; g <= rest.length; g++) {
+                    if (g == i) continue;
+                    int left = g == 0 ? 0 : rest[g - 1];
+                    boolean hasRight = g < rest.length;
+                    long base = hasRight ? c[left][rest[g]] : 0;
+                    long fwd = (long) c[left][a] + (hasRight ? c[b][rest[g]] : 0) - base;
+                    long rev = (long) c[left][b] + (hasRight ? c[a][rest[g]] : 0) - base;
+                    if (fwd < bestAdd) {
+                        bestAdd = fwd;
+                        bestGap = g;
+                        bestRev = false;
+                    }
+                    if (rev < bestAdd) {
+                        bestAdd = rev;
+                        bestGap = g;
+                        bestRev = true;
+                    }
+                }
+                if (bestGap < 0) continue;
+
+                int[] seg = Arrays.copyOfRange(r, i, i + len);
+                if (bestRev) {
+                    for (int x = 0, y = len - 1; x < y; x++, y--) {
+                        int t = seg[x];
+                        seg[x] = seg[y];
+                        seg[y] = t;
+                    }
+                }
+                System.arraycopy(rest, 0, r, 0, bestGap);
+                System.arraycopy(seg, 0, r, bestGap, len);
+                System.arraycopy(rest, bestGap, r, bestGap + len, rest.length - bestGap);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /** Binary min-heap of longs (distance in the high half, cell in the low half). */
+    private static class LongHeap {
+        private long[] data;
+        private int size = 0;
+
+        LongHeap(int capacity) {
+            data = new long[Math.max(capacity, 16)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long v) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >> 1;
+                if (data[parent] <= v) break;
+                data[i] = data[parent];
+                i = parent;
+            }
+            data[i] = v;
+        }
+
+        long pop() {
+            long top = data[0];
+            long last = data[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && data[child + 1] < data[child]) child++;
+                if (data[child] >= last) break;
+                data[i] = data[child];
+                i = child;
+            }
+            data[i] = last;
+            return top;
+        }
+    }
+}
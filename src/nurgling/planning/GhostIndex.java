@@ -0,0 +1,115 @@
+package nurgling.planning;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Planning ghosts bucketed by the grid they are anchored to, and within each
+ * grid by a coarse square cell of their grid-local offset.
+ *
+ * Grid ids are global, so the grid id alone identifies the anchor whatever
+ * segment the grid currently sits in; a consumer only has to walk the grids
+ * it has loaded. Each ghost also carries a reach (the radius its footprint
+ * can extend past its centre) so a point query can widen its search window
+ * just enough to find ghosts whose centre lies in a neighbouring cell.
+ *
+ * Not thread-safe; {@link PlanningLayerManager} only touches it under its
+ * tree lock.
+ */
+class GhostIndex {
+    /** Grid edge in world units (100 tiles of 11). */
+    static final double GRID_SIZE = 1100.0;
+    /** Cells per grid edge. */
+    static final int CELLS = 10;
+    static final double CELL_SIZE = GRID_SIZE / CELLS;
+
+    private static final class GridBucket {
+        @SuppressWarnings("unchecked")
+        final List<PlanningGhost>[] cells = new List[CELLS * CELLS];
+        int size = 0;
+    }
+
+    private final Map<Long, GridBucket> grids = new HashMap<>();
+    private int size = 0;
+    private double maxReach = 0;
+
+    void add(PlanningGhost g, double reach) {
+        GridBucket b = grids.computeIfAbsent(g.gridId, k -> new GridBucket());
+        int c = cell(g.ox, g.oy);
+        List<PlanningGhost> list = b.cells[c];
+        if (list == null) b.cells[c] = list = new ArrayList<>(4);
+        list.add(g);
+        b.size++;
+        size++;
+        if (reach > maxReach) maxReach = reach;
+    }
+
+    boolean remove(PlanningGhost g) {
+        GridBucket b = grids.get(g.gridId);
+        if (b == null) return false;
+        List<PlanningGhost> list = b.cells[cell(g.ox, g.oy)];
+        if (list == null) return false;
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).id.equals(g.id)) {
+                list.remove(i);
+                size--;
+                if (--b.size == 0) grids.remove(g.gridId);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        grids.clear();
+        size = 0;
+        maxReach = 0;
+    }
+
+    int size() { return size; }
+
+    /** Largest reach ever added since the last {@link #clear()}; never shrinks on removal. */
+    double maxReach() { return maxReach; }
+
+    /** Every ghost anchored to {@code gridId}. */
+    void forGrid(long gridId, Consumer<PlanningGhost> action) {
+        GridBucket b = grids.get(gridId);
+        if (b == null) return;
+        for (List<PlanningGhost> list : b.cells) {
+            if (list == null) continue;
+            for (PlanningGhost g : list) action.accept(g);
+        }
+    }
+
+    /**
+     * Ghosts anchored to {@code gridId} whose centre lies in a cell touching
+     * the grid-local rectangle [{@code x0},{@code x1}] x [{@code y0},{@code y1}].
+     * The result is a superset; callers still test the exact geometry.
+     */
+    void query(long gridId, double x0, double y0, double x1, double y1, Consumer<PlanningGhost> action) {
+        GridBucket b = grids.get(gridId);
+        if (b == null) return;
+        // Offsets outside the grid are clamped into its edge cells, and so is the query
+        int cx0 = axis(x0), cx1 = axis(x1);
+        int cy0 = axis(y0), cy1 = axis(y1);
+        for (int cx = cx0; cx <= cx1; cx++) {
+            for (int cy = cy0; cy <= cy1; cy++) {
+                List<PlanningGhost> list = b.cells[cx * CELLS + cy];
+                if (list == null) continue;
+                for (PlanningGhost g : list) action.accept(g);
+            }
+        }
+    }
+
+    private static int cell(double ox, double oy) {
+        return axis(ox) * CELLS + axis(oy);
+    }
+
+    private static int axis(double v) {
+        int c = (int) Math.floor(v / CELL_SIZE);
+        return (c < 0) ? 0 : (c >= CELLS) ? CELLS - 1 : c;
+    }
+}
@@ -60,6 +60,10 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
     private final Map<String, PlanningNode> byId = new HashMap<>();
     private final Map<String, PlanningGhost> ghostById = new HashMap<>();
     private final Map<String, String> layerByGhostId = new HashMap<>();
+    /** Spatial view of {@code ghostById}, kept in step by {@link #indexGhost}/{@link #unindexGhost}. */
+    private final GhostIndex ghostIndex = new GhostIndex();
+    /** Bumped on every ghost index change; tick() re-reconciles when it moves. */
+    private int indexSeq = 0;
     /**
      * Live ghost Gobs, keyed by ghost id. Each entry remembers the exact
      * {@link Glob} it was inserted into so teardown always removes it from the
@@ -91,6 +95,25 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
     /** Coarse lock guarding the tree against concurrent sync-worker mutations. */
     private final Object treeLock = new Object();
 
+    /** Ghost Gobs created per tick at most; the rest stream in over later ticks. */
+    public static final int MATERIALIZE_PER_TICK = 64;
+    /** Camera travel (world units) after which the pending queue is re-sorted. */
+    private static final double RESORT_DISTANCE = 110.0;
+
+    /*
+     * Reconciliation state. tick() only walks the ghosts of loaded grids, and
+     * only when the loaded grid set (MCache.gridseq), the visible layers or
+     * the ghost index changed since the last pass. Ghosts that should be live
+     * but aren't yet queue up in {@code pending}, nearest to the camera first.
+     */
+    private Glob lastGlob;
+    private int lastGridSeq = -1;
+    private int lastIndexSeq = -1;
+    private Set<String> lastVisibleLayers = Collections.emptySet();
+    private final Map<Long, Coord2d> loadedGridOrigins = new HashMap<>();
+    private final ArrayList<PlanningGhost> pending = new ArrayList<>();
+    private Coord2d pendingSortedAt;
+
     public PlanningLayerManager() {
         NConfig cfg = NConfig.getGlobalInstance();
         this.configPath = (cfg != null) ? cfg.getPlanningLayerPath() : null;
@@ -111,8 +134,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
             destroyAllMaterialized();
             roots.clear();
             byId.clear();
-            ghostById.clear();
-            layerByGhostId.clear();
+            clearGhostIndex();
             localVisibility.clear();
             activeLayerId = null;
         }
@@ -155,8 +177,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
         synchronized (treeLock) {
             roots.clear();
             byId.clear();
-            ghostById.clear();
-            layerByGhostId.clear();
+            clearGhostIndex();
             activeLayerId = null;
         }
         if (configPath == null) return;
@@ -272,17 +293,50 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
             for (PlanningLayer layer : ((PlanningFolder) node).layers) {
                 layer.parentId = node.id;
                 byId.put(layer.id, layer);
-                for (PlanningGhost g : layer.ghosts) {
-                    ghostById.put(g.id, g);
-                    layerByGhostId.put(g.id, layer.id);
-                }
+                for (PlanningGhost g : layer.ghosts) indexGhost(g, layer.id);
             }
         } else if (node instanceof PlanningLayer) {
             PlanningLayer layer = (PlanningLayer) node;
-            for (PlanningGhost g : layer.ghosts) {
-                ghostById.put(g.id, g);
-                layerByGhostId.put(g.id, layer.id);
-            }
+            for (PlanningGhost g : layer.ghosts) indexGhost(g, layer.id);
+        }
+    }
+
+    private void indexGhost(PlanningGhost g, String layerId) {
+        PlanningGhost prev = ghostById.put(g.id, g);
+        if (prev != null) ghostIndex.remove(prev);
+        layerByGhostId.put(g.id, layerId);
+        ghostIndex.add(g, ghostReach(g));
+        indexSeq++;
+    }
+
+    /** Drop a ghost from all indexes; returns the layer it belonged to. */
+    private String unindexGhost(String ghostId) {
+        PlanningGhost g = ghostById.remove(ghostId);
+        if (g != null) {
+            ghostIndex.remove(g);
+            indexSeq++;
+        }
+        return layerByGhostId.remove(ghostId);
+    }
+
+    private void clearGhostIndex() {
+        ghostById.clear();
+        layerByGhostId.clear();
+        ghostIndex.clear();
+        pending.clear();
+        indexSeq++;
+    }
+
+    /** How far the footprint of {@code g} can reach from its centre, 0 if unknown. */
+    private static double ghostReach(PlanningGhost g) {
+        try {
+            NHitBox hb = NHitBox.findCustom(g.resName);
+            if (hb == null) return 0;
+            double x = Math.max(Math.abs(hb.begin.x), Math.abs(hb.end.x));
+            double y = Math.max(Math.abs(hb.begin.y), Math.abs(hb.end.y));
+            return Math.hypot(x, y);
+        } catch (Exception e) {
+            return 0;
         }
     }
 
@@ -425,8 +479,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 for (PlanningLayer layer : f.layers) {
                     for (PlanningGhost g : layer.ghosts) {
                         destroyMaterialized(g.id);
-                        ghostById.remove(g.id);
-                        layerByGhostId.remove(g.id);
+                        unindexGhost(g.id);
                         deletedGhostIds.add(g.id);
                     }
                     byId.remove(layer.id);
@@ -441,8 +494,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 PlanningLayer layer = (PlanningLayer) n;
                 for (PlanningGhost g : layer.ghosts) {
                     destroyMaterialized(g.id);
-                    ghostById.remove(g.id);
-                    layerByGhostId.remove(g.id);
+                    unindexGhost(g.id);
                     deletedGhostIds.add(g.id);
                 }
                 if (layer.parentId == null) {
@@ -585,8 +637,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
             layer = getActiveLayer();
             if (layer == null) return null;
             layer.ghosts.add(g);
-            ghostById.put(g.id, g);
-            layerByGhostId.put(g.id, layer.id);
+            indexGhost(g, layer.id);
             markDirty();
             if (effectiveVisibleUnlocked(layer)) materializeOne(g, glob);
         }
@@ -605,8 +656,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
         String layerId;
         boolean removed = false;
         synchronized (treeLock) {
-            layerId = layerByGhostId.remove(g.id);
-            ghostById.remove(g.id);
+            layerId = unindexGhost(g.id);
             destroyMaterialized(g.id);
             if (layerId != null) {
                 PlanningLayer layer = (PlanningLayer) byId.get(layerId);
@@ -631,39 +681,42 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
     }
 
     /**
-     * Hit-test a world position against every visible ghost. Prefers a ghost
-     * whose rotated footprint actually contains the point; only falls back to
-     * nearest-center if no footprint is known for the resource (so unknown
-     * decorative gobs still match within {@code tolerance}).
+     * Hit-test a world position against the visible ghosts near it. Prefers a
+     * ghost whose rotated footprint actually contains the point; only falls
+     * back to nearest-center if no footprint is known for the resource (so
+     * unknown decorative gobs still match within {@code tolerance}).
+     * Candidates come from the ghost index cells of the loaded grids within
+     * reach of the point, not from every ghost of every layer.
      */
     private PlanningGhost findGhostAtInternal(Coord2d worldPos, double tolerance) {
         Glob glob = activeGlob();
         if (glob == null) return null;
         synchronized (treeLock) {
+            Set<String> visible = visibleLayerIds();
+            if (visible.isEmpty()) return null;
+            double r = Math.max(tolerance, ghostIndex.maxReach());
+            List<PlanningGhost> near = new ArrayList<>();
+            List<Coord2d> nearPos = new ArrayList<>();
+            for (MCache.Grid grid : loadedGrids(glob)) {
+                Coord2d ul = grid.ul.mul(MCache.tilesz);
+                double lx = worldPos.x - ul.x, ly = worldPos.y - ul.y;
+                if (lx + r < 0 || ly + r < 0 || lx - r >= GhostIndex.GRID_SIZE || ly - r >= GhostIndex.GRID_SIZE) continue;
+                ghostIndex.query(grid.id, lx - r, ly - r, lx + r, ly + r, g -> {
+                    if (!visible.contains(layerByGhostId.get(g.id))) return;
+                    near.add(g);
+                    nearPos.add(ul.add(g.ox, g.oy));
+                });
+            }
             // Pass 1: footprint containment.
-            for (PlanningNode n : byId.values()) {
-                if (!(n instanceof PlanningLayer)) continue;
-                PlanningLayer layer = (PlanningLayer) n;
-                if (!effectiveVisibleUnlocked(layer)) continue;
-                for (PlanningGhost g : layer.ghosts) {
-                    Coord2d wp = resolveWorldPos(g, glob);
-                    if (wp == null) continue;
-                    if (footprintContains(g, wp, worldPos)) return g;
-                }
+            for (int i = 0; i < near.size(); i++) {
+                if (footprintContains(near.get(i), nearPos.get(i), worldPos)) return near.get(i);
             }
             // Pass 2: nearest-center within tolerance for ghosts without a known footprint.
             PlanningGhost best = null;
             double minDist = tolerance;
-            for (PlanningNode n : byId.values()) {
-                if (!(n instanceof PlanningLayer)) continue;
-                PlanningLayer layer = (PlanningLayer) n;
-                if (!effectiveVisibleUnlocked(layer)) continue;
-                for (PlanningGhost g : layer.ghosts) {
-                    Coord2d wp = resolveWorldPos(g, glob);
-                    if (wp == null) continue;
-                    double d = wp.dist(worldPos);
-                    if (d < minDist) { minDist = d; best = g; }
-                }
+            for (int i = 0; i < near.size(); i++) {
+                double d = nearPos.get(i).dist(worldPos);
+                if (d < minDist) { minDist = d; best = near.get(i); }
             }
             return best;
         }
@@ -705,8 +758,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 if (wp.x >= minWorld.x && wp.x < maxWorld.x && wp.y >= minWorld.y && wp.y < maxWorld.y) {
                     it.remove();
                     destroyMaterialized(g.id);
-                    ghostById.remove(g.id);
-                    layerByGhostId.remove(g.id);
+                    unindexGhost(g.id);
                     removedIds.add(g.id);
                 }
             }
@@ -726,40 +778,126 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
         Glob glob = activeGlob();
         if (glob == null) return;
         synchronized (treeLock) {
-            Set<String> shouldBeVisible = new HashSet<>();
-            for (PlanningNode n : byId.values()) {
-                if (!(n instanceof PlanningLayer)) continue;
-                PlanningLayer layer = (PlanningLayer) n;
-                if (!effectiveVisibleUnlocked(layer)) continue;
-                for (PlanningGhost g : layer.ghosts) {
-                    shouldBeVisible.add(g.id);
-                    Materialized m = materialized.get(g.id);
-                    if (m == null) {
-                        materializeOne(g, glob);
-                    } else {
-                        // Already live — keep it pinned to its true grid, or drop
-                        // it if that grid is no longer loaded in its own world
-                        // (e.g. the player descended into a mine). This is what
-                        // makes the layer self-correcting across segment swaps,
-                        // exactly like the per-grid area overlays.
-                        reanchorOrDrop(g, m);
-                    }
-                }
+            Set<String> visible = visibleLayerIds();
+            int gridSeq = glob.map.gridseq;
+            if (glob != lastGlob || gridSeq != lastGridSeq || indexSeq != lastIndexSeq
+                    || !visible.equals(lastVisibleLayers)) {
+                lastGlob = glob;
+                lastGridSeq = gridSeq;
+                lastIndexSeq = indexSeq;
+                lastVisibleLayers = visible;
+                reconcile(glob, visible);
             }
-            Iterator<Map.Entry<String, Materialized>> it = materialized.entrySet().iterator();
-            while (it.hasNext()) {
-                Map.Entry<String, Materialized> e = it.next();
-                if (!shouldBeVisible.contains(e.getKey())) {
-                    removeFromOwner(e.getValue());
-                    it.remove();
+            drainPending(glob);
+        }
+    }
+
+    /**
+     * Bring the live Gobs in line with the ghosts of visible layers anchored to
+     * currently loaded grids: drop the ones that should no longer be shown,
+     * re-pin the ones that stay, and queue the missing ones for
+     * {@link #drainPending}.
+     */
+    private void reconcile(Glob glob, Set<String> visible) {
+        loadedGridOrigins.clear();
+        pending.clear();
+        Set<String> shouldBeVisible = new HashSet<>();
+        for (MCache.Grid grid : loadedGrids(glob)) {
+            Coord2d ul = grid.ul.mul(MCache.tilesz);
+            loadedGridOrigins.put(grid.id, ul);
+            ghostIndex.forGrid(grid.id, g -> {
+                if (!visible.contains(layerByGhostId.get(g.id))) return;
+                shouldBeVisible.add(g.id);
+                Materialized m = materialized.get(g.id);
+                if (m == null) {
+                    pending.add(g);
+                } else {
+                    // Already live — keep it pinned to its true grid, or drop
+                    // it if that grid is no longer loaded in its own world
+                    // (e.g. the player descended into a mine). This is what
+                    // makes the layer self-correcting across segment swaps,
+                    // exactly like the per-grid area overlays.
+                    reanchorOrDrop(g, m, (m.owner == glob) ? ul.add(g.ox, g.oy) : null);
+                    if (!materialized.containsKey(g.id)) pending.add(g);
                 }
+            });
+        }
+        Iterator<Map.Entry<String, Materialized>> it = materialized.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Materialized> e = it.next();
+            if (!shouldBeVisible.contains(e.getKey())) {
+                removeFromOwner(e.getValue());
+                it.remove();
+            }
+        }
+        pendingSortedAt = null;
+    }
+
+    /** Materialize up to {@link #MATERIALIZE_PER_TICK} queued ghosts, nearest to the camera first. */
+    private void drainPending(Glob glob) {
+        if (pending.isEmpty()) return;
+        Coord2d cam = cameraPos();
+        if (cam != null && (pendingSortedAt == null || pendingSortedAt.dist(cam) > RESORT_DISTANCE)) {
+            // Sorted farthest-first so the nearest ghost pops off the tail.
+            pending.sort((a, b) -> Double.compare(camDist(b, cam), camDist(a, cam)));
+            pendingSortedAt = cam;
+        }
+        List<PlanningGhost> failed = null;
+        for (int n = 0; n < MATERIALIZE_PER_TICK && !pending.isEmpty(); n++) {
+            PlanningGhost g = pending.remove(pending.size() - 1);
+            if (materialized.containsKey(g.id) || ghostById.get(g.id) != g) continue;
+            Coord2d ul = loadedGridOrigins.get(g.gridId);
+            if (ul == null) continue;
+            materializeAt(g, glob, ul.add(g.ox, g.oy));
+            if (!materialized.containsKey(g.id)) {
+                if (failed == null) failed = new ArrayList<>();
+                failed.add(g);
             }
         }
+        // Resources that couldn't load yet go to the far end and retry after the rest.
+        if (failed != null) pending.addAll(0, failed);
+    }
+
+    private double camDist(PlanningGhost g, Coord2d cam) {
+        Coord2d ul = loadedGridOrigins.get(g.gridId);
+        if (ul == null) return Double.MAX_VALUE;
+        double dx = ul.x + g.ox - cam.x, dy = ul.y + g.oy - cam.y;
+        return dx * dx + dy * dy;
+    }
+
+    private static Coord2d cameraPos() {
+        try {
+            Gob pl = NUtils.player();
+            if (pl != null) return pl.rc;
+            nurgling.NGameUI gui = NUtils.getGameUI();
+            return (gui != null && gui.map != null) ? gui.map.cc : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Ids of the layers that are effectively visible right now. Caller holds {@code treeLock}. */
+    private Set<String> visibleLayerIds() {
+        Set<String> res = new HashSet<>();
+        for (PlanningNode n : byId.values()) {
+            if (n instanceof PlanningLayer && effectiveVisibleUnlocked(n)) res.add(n.id);
+        }
+        return res;
+    }
+
+    private static List<MCache.Grid> loadedGrids(Glob glob) {
+        synchronized (glob.map.grids) {
+            return new ArrayList<>(glob.map.grids.values());
+        }
     }
 
     private void materializeOne(PlanningGhost g, Glob glob) {
         Coord2d wp = resolveWorldPos(g, glob);
         if (wp == null) return;
+        materializeAt(g, glob, wp);
+    }
+
+    private void materializeAt(PlanningGhost g, Glob glob, Coord2d wp) {
         try {
             Indir<Resource> res = Resource.remote().load(g.resName);
             Gob ghost = new Gob(glob, wp);
@@ -782,12 +920,13 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
      * loaded in the Gob's own world, remove the Gob and drop the slot instead of
      * leaving it floating at a now-meaningless absolute coordinate (the stale
      * coordinate is what rendered the plan onto the mine / wrong base).
+     * {@code known} is the already-resolved position in the owner world, if any.
      *
      * <p>Must be called under {@code treeLock} (mutates {@code materialized}).</p>
      */
-    private void reanchorOrDrop(PlanningGhost g, Materialized m) {
+    private void reanchorOrDrop(PlanningGhost g, Materialized m, Coord2d known) {
         if (m.owner == null) { materialized.remove(g.id); return; }
-        Coord2d wp = resolveWorldPos(g, m.owner);
+        Coord2d wp = (known != null) ? known : resolveWorldPos(g, m.owner);
         if (wp == null) {
             // True grid trimmed (player left the area / went underground).
             removeFromOwner(m);
@@ -866,8 +1005,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
             destroyAllMaterialized();
             roots.clear();
             byId.clear();
-            ghostById.clear();
-            layerByGhostId.clear();
+            clearGhostIndex();
             for (PlanningFolder f : snap.folders) {
                 roots.add(f);
                 byId.put(f.id, f);
@@ -892,8 +1030,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 PlanningNode parent = byId.get(layerId);
                 if (parent instanceof PlanningLayer) {
                     ((PlanningLayer) parent).ghosts.add(g);
-                    ghostById.put(g.id, g);
-                    layerByGhostId.put(g.id, layerId);
+                    indexGhost(g, layerId);
                 }
             }
             // Overlay this player's local visibility preferences (they're not
@@ -960,13 +1097,12 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 PlanningLayer layer = (PlanningLayer) parent;
                 // Treat as add (existence already checked in computeDelta).
                 layer.ghosts.add(g);
-                ghostById.put(g.id, g);
-                layerByGhostId.put(g.id, layerId);
+                indexGhost(g, layerId);
             }
             // Apply deletes.
             for (String id : delta.deletedGhostIds) {
-                String layerId = layerByGhostId.remove(id);
-                PlanningGhost g = ghostById.remove(id);
+                PlanningGhost g = ghostById.get(id);
+                String layerId = unindexGhost(id);
                 destroyMaterialized(id);
                 if (layerId != null && g != null) {
                     PlanningLayer layer = (PlanningLayer) byId.get(layerId);
@@ -978,8 +1114,7 @@ public class PlanningLayerManager implements ProfileAwareService, PlanningServic
                 if (layer == null) continue;
                 for (PlanningGhost g : layer.ghosts) {
                     destroyMaterialized(g.id);
-                    ghostById.remove(g.id);
-                    layerByGhostId.remove(g.id);
+                    unindexGhost(g.id);
                 }
                 layer.ghosts.clear();
                 removeLayerFromCurrentParent(layer);
@@ -7,23 +7,24 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
 
 /**
  * Tracks explored (visible) area on the minimap.
- * Uses grid-based boolean masks for efficient storage and fast updates.
- * Each grid (100x100 tiles) has its own mask marking explored tiles.
- * 
+ * Uses grid-based bit masks for efficient storage and fast updates.
+ * Each grid (100x100 tiles) has its own mask marking explored tiles,
+ * one bit per tile packed into longs.
+ *
+ * The persistent layer lives in an {@link ExploredStore}: grids are read
+ * a segment at a time when the minimap first shows that segment, and only
+ * grids explored since the last save are written back.
+ *
  * Supports session layers - temporary explored areas that can be created
  * and deleted without affecting the main persistent explored area.
  */
@@ -32,22 +33,23 @@ public class ExploredArea {
     public static volatile long seq = 0;
     // Separate version tracking for session layer
     public static volatile long sessionSeq = 0;
-    
+
     private static final int GRID_SIZE = 100; // MCache.cmaps.x
     private static final int MASK_SIZE = GRID_SIZE * GRID_SIZE;
-    
+    private static final int MASK_WORDS = ExploredStore.WORDS;
+
     /**
      * Key for identifying a grid in a specific segment.
      */
-    private static class GridKey {
+    static class GridKey {
         final long segmentId;
         final Coord gridCoord;  // Grid coordinate at data level 0
-        
+
         GridKey(long segmentId, Coord gridCoord) {
             this.segmentId = segmentId;
             this.gridCoord = gridCoord;
         }
-        
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -55,24 +57,33 @@ public class ExploredArea {
             GridKey key = (GridKey) o;
             return segmentId == key.segmentId && gridCoord.equals(key.gridCoord);
         }
-        
+
         @Override
         public int hashCode() {
             return Objects.hash(segmentId, gridCoord);
         }
     }
-    
+
     final NMiniMap miniMap;
-    
+
     // Main storage: grid-based masks (persistent)
-    private final ConcurrentHashMap<GridKey, boolean[]> gridMasks = new ConcurrentHashMap<>();
-    
+    private final ConcurrentHashMap<GridKey, long[]> gridMasks = new ConcurrentHashMap<>();
+
+    // Grids changed since the last save
+    private final Set<GridKey> dirty = ConcurrentHashMap.newKeySet();
+
+    // Segments whose stored grids have been read into gridMasks
+    private final Set<Long> loadedSegments = ConcurrentHashMap.newKeySet();
+
+    // Persistent store; null until the profile is known
+    private volatile ExploredStore store = null;
+
     // Session layer storage: grid-based masks (temporary, not saved)
-    private final ConcurrentHashMap<GridKey, boolean[]> sessionGridMasks = new ConcurrentHashMap<>();
-    
+    private final ConcurrentHashMap<GridKey, long[]> sessionGridMasks = new ConcurrentHashMap<>();
+
     // Flag indicating if session layer is active
     private volatile boolean sessionActive = false;
-    
+
     /**
      * Get the appropriate NConfig instance (profile-specific if available)
      */
@@ -86,18 +97,36 @@ public class ExploredArea {
         }
         return NConfig.current;
     }
-    
+
     // Track last update position to avoid redundant updates
     private Coord lastTileUL, lastTileBR;
     private long lastSegmentId = -1;
-    
+
     public ExploredArea(NMiniMap miniMap) {
         this.miniMap = miniMap;
         // Note: Don't load from file here! The profile may not be initialized yet.
         // Data is loaded later via reloadFromFile() when the profile is ready.
         // This prevents loading from the wrong path and losing profile-specific data.
     }
-    
+
+    /**
+     * Whether tile (x, y) of a grid mask is explored.
+     */
+    public static boolean isExplored(long[] mask, int x, int y) {
+        int idx = x + y * GRID_SIZE;
+        return (mask[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /**
+     * Check if mask has any explored tiles.
+     */
+    public static boolean hasAnyExploredTiles(long[] mask) {
+        for (long word : mask) {
+            if (word != 0) return true;
+        }
+        return false;
+    }
+
     /**
      * Update explored area with current view bounds.
      * This is called every tick when player moves.
@@ -109,59 +138,66 @@ public class ExploredArea {
         if (Objects.equals(tileUL, lastTileUL) && Objects.equals(tileBR, lastTileBR) && segmentId == lastSegmentId) {
             return;
         }
-        
+
         lastTileUL = tileUL;
         lastTileBR = tileBR;
         lastSegmentId = segmentId;
-        
+        ensureLoaded(segmentId);
+
         // Calculate which grids are affected
         Coord gridUL = tileUL.div(GRID_SIZE);
         Coord gridBR = tileBR.sub(1, 1).div(GRID_SIZE); // Inclusive end
-        
+
         boolean changed = false;
         boolean sessionChanged = false;
-        
+
         // Update each affected grid
         for (int gy = gridUL.y; gy <= gridBR.y; gy++) {
             for (int gx = gridUL.x; gx <= gridBR.x; gx++) {
                 Coord gridCoord = new Coord(gx, gy);
                 GridKey key = new GridKey(segmentId, gridCoord);
-                
+
                 // Get or create mask for this grid (main persistent layer)
-                boolean[] mask = gridMasks.computeIfAbsent(key, k -> new boolean[MASK_SIZE]);
-                
+                long[] mask = gridMasks.computeIfAbsent(key, k -> new long[MASK_WORDS]);
+
                 // Get or create mask for session layer if active
-                boolean[] sessionMask = null;
+                long[] sessionMask = null;
                 if (sessionActive) {
-                    sessionMask = sessionGridMasks.computeIfAbsent(key, k -> new boolean[MASK_SIZE]);
+                    sessionMask = sessionGridMasks.computeIfAbsent(key, k -> new long[MASK_WORDS]);
                 }
-                
+
                 // Calculate tile bounds within this grid
                 Coord gridTileStart = gridCoord.mul(GRID_SIZE);
                 int localULX = Math.max(0, tileUL.x - gridTileStart.x);
                 int localULY = Math.max(0, tileUL.y - gridTileStart.y);
                 int localBRX = Math.min(GRID_SIZE, tileBR.x - gridTileStart.x);
                 int localBRY = Math.min(GRID_SIZE, tileBR.y - gridTileStart.y);
-                
+
                 // Mark tiles as explored
+                boolean gridChanged = false;
                 for (int y = localULY; y < localBRY; y++) {
                     for (int x = localULX; x < localBRX; x++) {
                         int idx = x + y * GRID_SIZE;
+                        long bit = 1L << idx;
                         // Update main layer
-                        if (!mask[idx]) {
-                            mask[idx] = true;
-                            changed = true;
+                        if ((mask[idx >>> 6] & bit) == 0) {
+                            mask[idx >>> 6] |= bit;
+                            gridChanged = true;
                         }
                         // Update session layer if active
-                        if (sessionMask != null && !sessionMask[idx]) {
-                            sessionMask[idx] = true;
+                        if (sessionMask != null && (sessionMask[idx >>> 6] & bit) == 0) {
+                            sessionMask[idx >>> 6] |= bit;
                             sessionChanged = true;
                         }
                     }
                 }
+                if (gridChanged) {
+                    dirty.add(key);
+                    changed = true;
+                }
             }
         }
-        
+
         if (changed) {
             seq++;
             NConfig.needExploredUpdate();
@@ -171,48 +207,83 @@ public class ExploredArea {
             needSessionUpdate = true;
         }
     }
-    
+
     // Flag for session save
     private volatile boolean needSessionUpdate = false;
     private long lastSessionSaveTime = 0;
     private static final long SESSION_SAVE_INTERVAL = 5000; // Save every 5 seconds max
-    
+
     /**
      * Get explored mask for a specific grid at base level (dataLevel 0).
      * Used by MinimapExploredAreaRenderer for rendering.
-     * Very fast - just returns the stored mask.
-     * 
+     * The first call for a segment reads its stored grids.
+     *
      * @param gridCoord Grid coordinate at base level
      * @param segmentId Segment ID
      * @param dataLevel Must be 0 (aggregation is done by renderer)
-     * @return boolean[] mask or null if no data
+     * @return bit mask (see {@link #isExplored}) or null if no data
      */
-    public boolean[] getExploredMaskForGrid(Coord gridCoord, long segmentId, int dataLevel) {
+    public long[] getExploredMaskForGrid(Coord gridCoord, long segmentId, int dataLevel) {
+        ensureLoaded(segmentId);
         GridKey key = new GridKey(segmentId, gridCoord);
         return gridMasks.get(key);
     }
-    
+
+    /**
+     * Read the stored grids of a segment the first time it is needed.
+     * Masks explored before then are ORed with the stored ones.
+     */
+    private void ensureLoaded(long segmentId) {
+        ExploredStore store = this.store;
+        if (store == null || !loadedSegments.add(segmentId)) {
+            return;
+        }
+        try {
+            Map<Coord, long[]> stored = store.load(segmentId);
+            for (Map.Entry<Coord, long[]> entry : stored.entrySet()) {
+                long[] mask = gridMasks.putIfAbsent(new GridKey(segmentId, entry.getKey()), entry.getValue());
+                if (mask != null) {
+                    long[] disk = entry.getValue();
+                    for (int i = 0; i < MASK_WORDS; i++) {
+                        mask[i] |= disk[i];
+                    }
+                }
+            }
+            if (!stored.isEmpty()) {
+                seq++;
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading explored area of segment " + segmentId + ": " + e.getMessage());
+        }
+    }
+
     /**
-     * Clear all explored data.
+     * Clear all explored data, including what is stored on disk.
      */
     public void clear() {
-        if (!gridMasks.isEmpty()) {
-            gridMasks.clear();
-            lastTileUL = null;
-            lastTileBR = null;
-            lastSegmentId = -1;
-            seq++;
-            NConfig.needExploredUpdate();
+        gridMasks.clear();
+        dirty.clear();
+        lastTileUL = null;
+        lastTileBR = null;
+        lastSegmentId = -1;
+        ExploredStore store = this.store;
+        if (store != null) {
+            try {
+                store.clear();
+            } catch (IOException e) {
+                System.err.println("Error clearing explored area: " + e.getMessage());
+            }
         }
+        seq++;
     }
-    
+
     /**
      * Check if session layer is currently active.
      */
     public boolean isSessionActive() {
         return sessionActive;
     }
-    
+
     /**
      * Start a new session layer.
      * Clears any existing session data and starts fresh.
@@ -229,7 +300,7 @@ public class ExploredArea {
         // Save session state
         saveSessionToFile();
     }
-    
+
     /**
      * End and delete the session layer.
      * All session data is discarded.
@@ -241,23 +312,23 @@ public class ExploredArea {
         // Delete session file
         deleteSessionFile();
     }
-    
+
     /**
      * Get session mask for a specific grid at base level (dataLevel 0).
      * Used by MinimapExploredAreaRenderer for rendering session overlay.
-     * 
+     *
      * @param gridCoord Grid coordinate at base level
      * @param segmentId Segment ID
-     * @return boolean[] mask or null if no data or session not active
+     * @return bit mask or null if no data or session not active
      */
-    public boolean[] getSessionMaskForGrid(Coord gridCoord, long segmentId) {
+    public long[] getSessionMaskForGrid(Coord gridCoord, long segmentId) {
         if (!sessionActive) {
             return null;
         }
         GridKey key = new GridKey(segmentId, gridCoord);
         return sessionGridMasks.get(key);
     }
-    
+
     /**
      * Tick method - handles periodic session saving.
      */
@@ -272,150 +343,195 @@ public class ExploredArea {
             }
         }
     }
-    
+
     /**
-     * Reload explored area data from file.
+     * Switch to the profile's explored-area store.
      * Call this after profile initialization to load profile-specific data.
-     * Merges file data with any in-memory data (in case exploration happened before profile init).
+     * Anything explored before then is kept and saved into the store; the
+     * store's own grids are read per segment as they are shown.
      */
     public void reloadFromFile() {
-        // Save current in-memory data before loading
-        Map<GridKey, boolean[]> currentData = new HashMap<>(gridMasks);
-        
-        // Load from file
-        gridMasks.clear();
-        loadFromFile();
-        
-        // Merge in-memory data back (OR operation - keep explored tiles from both)
-        for (Map.Entry<GridKey, boolean[]> entry : currentData.entrySet()) {
-            GridKey key = entry.getKey();
-            boolean[] memoryMask = entry.getValue();
-            
-            boolean[] fileMask = gridMasks.get(key);
-            if (fileMask == null) {
-                // Grid only in memory, add it
-                gridMasks.put(key, memoryMask);
-            } else {
-                // Merge: OR the masks
-                for (int i = 0; i < MASK_SIZE; i++) {
-                    fileMask[i] = fileMask[i] || memoryMask[i];
-                }
-            }
+        NConfig config = getConfig();
+        ExploredStore next = ExploredStore.get(Paths.get(config.getExploredStorePath()));
+        migrateJson(next, config.getExploredPath());
+        store = next;
+        loadedSegments.clear();
+
+        // In-memory data from before the profile was known gets merged on save
+        dirty.addAll(gridMasks.keySet());
+        if (!dirty.isEmpty()) {
+            NConfig.needExploredUpdate();
         }
-        
+
         // Also reload session data (session doesn't need merge - it's temporary)
         sessionGridMasks.clear();
         loadSessionFromFile();
-        
+
         seq++;
     }
-    
+
     /**
-     * Load explored area from JSON file.
+     * Move grids saved in the old JSON file into the store, then set the
+     * file aside so it is not imported again. On failure the file is kept
+     * and the import is tried again next time.
      */
-    private void loadFromFile() {
-        // Use profile-specific config from NCore if available, otherwise fallback to global
-        NConfig config = getConfig();
-
+    static void migrateJson(ExploredStore store, String jsonPath) {
+        Path json = Paths.get(jsonPath);
+        Path backup = Paths.get(jsonPath + ".bak");
+        if (!Files.exists(json) && !Files.exists(backup)) {
+            return;
+        }
         try {
-            String content = NFileUtils.readWithBackupFallback(config.getExploredPath());
-            if (content == null || content.isEmpty()) {
-                return;
+            String content = NFileUtils.readWithBackupFallback(jsonPath);
+            if (content != null && !content.isEmpty()) {
+                Map<Long, Map<Coord, long[]>> bySegment = new HashMap<>();
+                for (Map.Entry<GridKey, long[]> entry : gridsFromJson(content).entrySet()) {
+                    bySegment.computeIfAbsent(entry.getKey().segmentId, k -> new HashMap<>())
+                            .put(entry.getKey().gridCoord, entry.getValue());
+                }
+                for (Map.Entry<Long, Map<Coord, long[]>> entry : bySegment.entrySet()) {
+                    if (!store.save(entry.getKey(), entry.getValue())) {
+                        return;
+                    }
+                }
+            }
+            if (Files.exists(json)) {
+                Files.move(json, Paths.get(jsonPath + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
             }
+            Files.deleteIfExists(backup);
+        } catch (Exception e) {
+            System.err.println("Error migrating explored area from " + jsonPath + ": " + e.getMessage());
+        }
+    }
 
-            JSONObject json = new JSONObject(content);
-            if (!json.has("grids")) {
-                return;
+    /**
+     * Write the grids explored since the last save to the store, merged with
+     * what other clients saved meanwhile. Returns false if the store is not
+     * open yet or some grids could not be saved; those are tried again on
+     * the next save.
+     */
+    public boolean save() {
+        ExploredStore store = this.store;
+        if (store == null) {
+            return false;
+        }
+        List<GridKey> keys = new ArrayList<>(dirty);
+        dirty.removeAll(keys);
+        Map<Long, Map<Coord, long[]>> bySegment = new HashMap<>();
+        for (GridKey key : keys) {
+            long[] mask = gridMasks.get(key);
+            if (mask != null) {
+                bySegment.computeIfAbsent(key.segmentId, k -> new HashMap<>()).put(key.gridCoord, mask);
             }
-            
-            JSONArray gridsArray = json.getJSONArray("grids");
-            for (int i = 0; i < gridsArray.length(); i++) {
-                JSONObject gridJson = gridsArray.getJSONObject(i);
-                
-                long segmentId = gridJson.getLong("seg");
-                int gx = gridJson.getInt("gx");
-                int gy = gridJson.getInt("gy");
-                
-                GridKey key = new GridKey(segmentId, new Coord(gx, gy));
-                
-                // Decode RLE compressed mask
-                String rle = gridJson.getString("mask");
-                boolean[] mask = decodeRLE(rle);
-                
-                if (mask != null) {
-                    gridMasks.put(key, mask);
+        }
+        boolean ok = true;
+        for (Map.Entry<Long, Map<Coord, long[]>> entry : bySegment.entrySet()) {
+            boolean saved;
+            try {
+                saved = store.save(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                System.err.println("Error saving explored area: " + e.getMessage());
+                saved = false;
+            }
+            if (!saved) {
+                for (Coord gc : entry.getValue().keySet()) {
+                    dirty.add(new GridKey(entry.getKey(), gc));
                 }
+                ok = false;
             }
-            
-            seq++;
-        } catch (Exception e) {
-            // Ignore load errors
         }
+        return ok;
     }
-    
+
     /**
-     * Save explored area to JSON file.
+     * Explored area in the old JSON format, for export.
+     * Reads every stored segment first.
      */
     public JSONObject toJson() {
+        ExploredStore store = this.store;
+        if (store != null) {
+            try {
+                for (long segmentId : store.segmentIds()) {
+                    ensureLoaded(segmentId);
+                }
+            } catch (IOException e) {
+                System.err.println("Error listing explored area segments: " + e.getMessage());
+            }
+        }
+        return gridsToJson(gridMasks);
+    }
+
+    /**
+     * Read grids from the JSON format.
+     */
+    static Map<GridKey, long[]> gridsFromJson(String content) {
+        Map<GridKey, long[]> result = new HashMap<>();
+        JSONObject json = new JSONObject(content);
+        if (!json.has("grids")) {
+            return result;
+        }
+
+        JSONArray gridsArray = json.getJSONArray("grids");
+        for (int i = 0; i < gridsArray.length(); i++) {
+            JSONObject gridJson = gridsArray.getJSONObject(i);
+
+            long segmentId = gridJson.getLong("seg");
+            int gx = gridJson.getInt("gx");
+            int gy = gridJson.getInt("gy");
+
+            GridKey key = new GridKey(segmentId, new Coord(gx, gy));
+
+            // Decode RLE compressed mask
+            String rle = gridJson.getString("mask");
+            long[] mask = decodeRLE(rle);
+
+            if (mask != null) {
+                result.put(key, mask);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert given grids to the JSON format.
+     */
+    static JSONObject gridsToJson(Map<GridKey, long[]> data) {
         JSONArray gridsArray = new JSONArray();
-        
-        for (Map.Entry<GridKey, boolean[]> entry : gridMasks.entrySet()) {
+
+        for (Map.Entry<GridKey, long[]> entry : data.entrySet()) {
             GridKey key = entry.getKey();
-            boolean[] mask = entry.getValue();
-            
+            long[] mask = entry.getValue();
+
             // Skip empty masks
             if (!hasAnyExploredTiles(mask)) {
                 continue;
             }
-            
+
             JSONObject gridJson = new JSONObject();
             gridJson.put("seg", key.segmentId);
             gridJson.put("gx", key.gridCoord.x);
             gridJson.put("gy", key.gridCoord.y);
-            
+
             // Encode mask with RLE compression
             gridJson.put("mask", encodeRLE(mask));
-            
+
             gridsArray.put(gridJson);
         }
-        
+
         JSONObject doc = new JSONObject();
         doc.put("grids", gridsArray);
         return doc;
     }
-    
+
     /**
      * Convert session data to JSON for saving.
      */
     private JSONObject sessionToJson() {
-        JSONArray gridsArray = new JSONArray();
-        
-        for (Map.Entry<GridKey, boolean[]> entry : sessionGridMasks.entrySet()) {
-            GridKey key = entry.getKey();
-            boolean[] mask = entry.getValue();
-            
-            // Skip empty masks
-            if (!hasAnyExploredTiles(mask)) {
-                continue;
-            }
-            
-            JSONObject gridJson = new JSONObject();
-            gridJson.put("seg", key.segmentId);
-            gridJson.put("gx", key.gridCoord.x);
-            gridJson.put("gy", key.gridCoord.y);
-            
-            // Encode mask with RLE compression
-            gridJson.put("mask", encodeRLE(mask));
-            
-            gridsArray.put(gridJson);
-        }
-        
-        JSONObject doc = new JSONObject();
+        JSONObject doc = gridsToJson(sessionGridMasks);
         doc.put("active", sessionActive);
-        doc.put("grids", gridsArray);
         return doc;
     }
-    
+
     /**
      * Save session data to file.
      */
@@ -427,7 +543,7 @@ public class ExploredArea {
             // Ignore save errors
         }
     }
-    
+
     /**
      * Load session data from file.
      */
@@ -441,41 +557,20 @@ public class ExploredArea {
             }
 
             JSONObject json = new JSONObject(content);
-            
+
             // Load active state
             if (json.has("active")) {
                 sessionActive = json.getBoolean("active");
             }
-            
-            if (!json.has("grids")) {
-                return;
-            }
-            
-            JSONArray gridsArray = json.getJSONArray("grids");
-            for (int i = 0; i < gridsArray.length(); i++) {
-                JSONObject gridJson = gridsArray.getJSONObject(i);
-                
-                long segmentId = gridJson.getLong("seg");
-                int gx = gridJson.getInt("gx");
-                int gy = gridJson.getInt("gy");
-                
-                GridKey key = new GridKey(segmentId, new Coord(gx, gy));
-                
-                // Decode RLE compressed mask
-                String rle = gridJson.getString("mask");
-                boolean[] mask = decodeRLE(rle);
-                
-                if (mask != null) {
-                    sessionGridMasks.put(key, mask);
-                }
-            }
-            
+
+            sessionGridMasks.putAll(gridsFromJson(content));
+
             sessionSeq++;
         } catch (Exception e) {
             // Ignore load errors
         }
     }
-    
+
     /**
      * Delete session file.
      */
@@ -490,270 +585,70 @@ public class ExploredArea {
             // Ignore delete errors
         }
     }
-    
-    /**
-     * Check if mask has any explored tiles.
-     */
-    private boolean hasAnyExploredTiles(boolean[] mask) {
-        for (boolean tile : mask) {
-            if (tile) return true;
-        }
-        return false;
-    }
-    
+
     /**
-     * Encode boolean mask with RLE (Run-Length Encoding) for compression.
+     * Encode mask with RLE (Run-Length Encoding) for compression.
      * Format: "startBit:count1,count2,count3..." where startBit (0 or 1) indicates first value.
      */
-    private String encodeRLE(boolean[] mask) {
+    static String encodeRLE(long[] mask) {
         StringBuilder sb = new StringBuilder();
-        
+
         // Store the starting value (0 for false, 1 for true)
-        sb.append(mask[0] ? '1' : '0').append(':');
-        
-        boolean currentValue = mask[0];
+        boolean currentValue = (mask[0] & 1L) != 0;
+        sb.append(currentValue ? '1' : '0').append(':');
+
         int count = 1;
-        
-        for (int i = 1; i < mask.length; i++) {
-            if (mask[i] == currentValue) {
+
+        for (int i = 1; i < MASK_SIZE; i++) {
+            boolean value = (mask[i >>> 6] & (1L << i)) != 0;
+            if (value == currentValue) {
                 count++;
             } else {
                 sb.append(count).append(',');
-                currentValue = mask[i];
+                currentValue = value;
                 count = 1;
             }
         }
         sb.append(count); // Last run
-        
+
         return sb.toString();
     }
-    
+
     /**
      * Decode RLE compressed mask.
      */
-    private boolean[] decodeRLE(String rle) {
+    static long[] decodeRLE(String rle) {
         try {
             // Split by colon to get starting bit and run counts
             String[] mainParts = rle.split(":", 2);
             if (mainParts.length != 2) {
                 return null;
             }
-            
+
             // Get starting value (0 = false, 1 = true)
             boolean currentValue = mainParts[0].equals("1");
-            
+
             // Parse run counts
             String[] parts = mainParts[1].split(",");
-            boolean[] mask = new boolean[MASK_SIZE];
-            
+            long[] mask = new long[MASK_WORDS];
+
             int idx = 0;
-            
+
             for (String part : parts) {
                 int count = Integer.parseInt(part.trim());
-                for (int i = 0; i < count && idx < MASK_SIZE; i++) {
-                    mask[idx++] = currentValue;
+                int end = Math.min(idx + count, MASK_SIZE);
+                if (currentValue) {
+                    for (int i = idx; i < end; i++) {
+                        mask[i >>> 6] |= 1L << i;
+                    }
                 }
+                idx = end;
                 currentValue = !currentValue; // Toggle
             }
-            
+
             return mask;
         } catch (Exception e) {
             return null;
         }
     }
-    
-    /**
-     * Merge in-memory data with existing file data and save with file locking.
-     * This prevents data loss when multiple clients run simultaneously.
-     * 
-     * Algorithm:
-     * 1. Acquire exclusive file lock
-     * 2. Read existing data from file
-     * 3. Merge: for each grid, OR the masks together (explored in file OR explored in memory)
-     * 4. Write merged result
-     * 5. Update in-memory data with merged result
-     * 6. Release lock
-     */
-    public void mergeAndSaveToFile(String filePath) throws IOException {
-        File file = new File(filePath);
-        File parentDir = file.getParentFile();
-        if (parentDir != null && !parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-        
-        // Create lock file to coordinate access
-        File lockFile = new File(filePath + ".lock");
-        
-        try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
-             FileChannel channel = raf.getChannel()) {
-            
-            // Acquire exclusive lock (blocks until available)
-            FileLock lock = null;
-            try {
-                lock = channel.tryLock();
-                if (lock == null) {
-                    // Could not acquire lock immediately, wait a bit and try again
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                    lock = channel.tryLock();
-                }
-                
-                if (lock == null) {
-                    // Still no lock, fall back to simple save
-                    System.err.println("Could not acquire file lock, saving without merge");
-                    saveWithoutMerge(filePath);
-                    return;
-                }
-                
-                // Read existing data from file
-                Map<GridKey, boolean[]> diskData = readFromDisk(filePath);
-                
-                // Merge: OR the masks together
-                // First, copy disk data to merged result
-                Map<GridKey, boolean[]> mergedData = new HashMap<>();
-                for (Map.Entry<GridKey, boolean[]> entry : diskData.entrySet()) {
-                    boolean[] copy = new boolean[MASK_SIZE];
-                    System.arraycopy(entry.getValue(), 0, copy, 0, MASK_SIZE);
-                    mergedData.put(entry.getKey(), copy);
-                }
-                
-                // Then, merge in-memory data
-                for (Map.Entry<GridKey, boolean[]> entry : gridMasks.entrySet()) {
-                    GridKey key = entry.getKey();
-                    boolean[] memoryMask = entry.getValue();
-                    
-                    boolean[] existingMask = mergedData.get(key);
-                    if (existingMask == null) {
-                        // New grid, just add it
-                        boolean[] copy = new boolean[MASK_SIZE];
-                        System.arraycopy(memoryMask, 0, copy, 0, MASK_SIZE);
-                        mergedData.put(key, copy);
-                    } else {
-                        // Merge: OR the masks
-                        for (int i = 0; i < MASK_SIZE; i++) {
-                            existingMask[i] = existingMask[i] || memoryMask[i];
-                        }
-                    }
-                }
-                
-                // Write merged result to file
-                JSONObject doc = toJsonFromData(mergedData);
-                NFileUtils.writeAtomically(filePath, doc.toString());
-                
-                // Update in-memory data with merged result (so we have the latest data)
-                // This is important to prevent re-saving stale data
-                for (Map.Entry<GridKey, boolean[]> entry : mergedData.entrySet()) {
-                    GridKey key = entry.getKey();
-                    boolean[] mergedMask = entry.getValue();
-                    boolean[] currentMask = gridMasks.get(key);
-                    
-                    if (currentMask == null) {
-                        // Grid from disk that we didn't have
-                        gridMasks.put(key, mergedMask);
-                    } else {
-                        // Update our mask with merged data
-                        for (int i = 0; i < MASK_SIZE; i++) {
-                            currentMask[i] = mergedMask[i];
-                        }
-                    }
-                }
-                
-            } finally {
-                if (lock != null) {
-                    try {
-                        lock.release();
-                    } catch (Exception e) {
-                        // Ignore
-                    }
-                }
-            }
-        } catch (Exception e) {
-            // If locking fails, fall back to simple save
-            System.err.println("Error during merge-save, falling back to simple save: " + e.getMessage());
-            saveWithoutMerge(filePath);
-        }
-    }
-    
-    /**
-     * Simple save without merge (fallback when locking fails).
-     */
-    private void saveWithoutMerge(String filePath) throws IOException {
-        NFileUtils.writeAtomically(filePath, toJson().toString());
-    }
-    
-    /**
-     * Read grid data from disk file.
-     */
-    private Map<GridKey, boolean[]> readFromDisk(String filePath) {
-        Map<GridKey, boolean[]> result = new HashMap<>();
-
-        try {
-            String content = NFileUtils.readWithBackupFallback(filePath);
-            if (content == null || content.isEmpty()) {
-                return result;
-            }
-
-            JSONObject json = new JSONObject(content);
-            if (!json.has("grids")) {
-                return result;
-            }
-            
-            JSONArray gridsArray = json.getJSONArray("grids");
-            for (int i = 0; i < gridsArray.length(); i++) {
-                JSONObject gridJson = gridsArray.getJSONObject(i);
-                
-                long segmentId = gridJson.getLong("seg");
-                int gx = gridJson.getInt("gx");
-                int gy = gridJson.getInt("gy");
-                
-                GridKey key = new GridKey(segmentId, new Coord(gx, gy));
-                
-                // Decode RLE compressed mask
-                String rle = gridJson.getString("mask");
-                boolean[] mask = decodeRLE(rle);
-                
-                if (mask != null) {
-                    result.put(key, mask);
-                }
-            }
-        } catch (Exception e) {
-            // Ignore load errors, return what we have
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Convert given data to JSON (for saving merged data).
-     */
-    private JSONObject toJsonFromData(Map<GridKey, boolean[]> data) {
-        JSONArray gridsArray = new JSONArray();
-        
-        for (Map.Entry<GridKey, boolean[]> entry : data.entrySet()) {
-            GridKey key = entry.getKey();
-            boolean[] mask = entry.getValue();
-            
-            // Skip empty masks
-            if (!hasAnyExploredTiles(mask)) {
-                continue;
-            }
-            
-            JSONObject gridJson = new JSONObject();
-            gridJson.put("seg", key.segmentId);
-            gridJson.put("gx", key.gridCoord.x);
-            gridJson.put("gy", key.gridCoord.y);
-            
-            // Encode mask with RLE compression
-            gridJson.put("mask", encodeRLE(mask));
-            
-            gridsArray.put(gridJson);
-        }
-        
-        JSONObject doc = new JSONObject();
-        doc.put("grids", gridsArray);
-        return doc;
-    }
 }
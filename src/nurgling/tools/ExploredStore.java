@@ -0,0 +1,227 @@
+package nurgling.tools;
+
+import haven.Coord;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary on-disk store of explored-tile masks, one file per map segment.
+ *
+ * A segment file is a header followed by fixed-size slots, one per grid:
+ * the grid coordinate and its 10,000-bit mask as {@link #WORDS} longs.
+ * Saving a grid rewrites its slot in place, or appends one for a new grid,
+ * so a save costs in proportion to the grids explored since the last one
+ * instead of the whole map. Segments are only read when first asked for.
+ *
+ * Several clients may share a store. Saves run under a file lock and OR the
+ * mask already on disk into the one being saved, so no client overwrites
+ * another's exploration; the caller gets the merged masks back. Slots are
+ * only ever appended, so a client picks up slots added by others by
+ * reading past the end it last saw.
+ */
+public class ExploredStore {
+    public static final int BITS = 100 * 100;
+    public static final int WORDS = (BITS + 63) / 64;
+    private static final int MAGIC = 0x4e455831; // "NEX1"
+    private static final int HEADER = 8;
+    private static final int SLOT = 8 + WORDS * 8;
+
+    /** One instance per directory, so sessions in this process share its file locks. */
+    private static final Map<Path, ExploredStore> open = new ConcurrentHashMap<>();
+
+    private final Path dir;
+    private final Map<Long, Segment> segments = new HashMap<>();
+
+    private static class Segment {
+        final FileChannel ch;
+        final Map<Coord, Long> slots = new HashMap<>();
+        /** Offset after the last slot read. */
+        long end = HEADER;
+
+        Segment(FileChannel ch) {
+            this.ch = ch;
+        }
+    }
+
+    ExploredStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public static ExploredStore get(Path dir) {
+        return open.computeIfAbsent(dir.toAbsolutePath().normalize(), ExploredStore::new);
+    }
+
+    private Path segpath(long seg) {
+        return dir.resolve(String.format("%016x.bin", seg));
+    }
+
+    private Segment segment(long seg, boolean create) throws IOException {
+        Segment s = segments.get(seg);
+        if (s != null)
+            return s;
+        Path p = segpath(seg);
+        if (!create && !Files.exists(p))
+            return null;
+        Files.createDirectories(dir);
+        FileChannel ch = FileChannel.open(p, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer head = ByteBuffer.allocate(HEADER);
+            if (ch.size() < HEADER) {
+                head.putInt(MAGIC).putInt(WORDS).flip();
+                writeFully(ch, head, 0);
+            } else {
+                readFully(ch, head, 0);
+                head.flip();
+                if ((head.getInt() != MAGIC) || (head.getInt() != WORDS))
+                    throw new IOException("not an explored-area segment: " + p);
+            }
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        segments.put(seg, s = new Segment(ch));
+        return s;
+    }
+
+    /**
+     * Index slots appended since the segment was last read, passing their
+     * masks to {@code into} if it is non-null. A torn slot at the end, from
+     * a client that died mid-append, is left for the next append to reuse.
+     */
+    private void scan(Segment s, Map<Coord, long[]> into) throws IOException {
+        long size = s.ch.size();
+        long n = (size - s.end) / SLOT;
+        if (n <= 0)
+            return;
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(n, 1024) * SLOT);
+        while (s.end + SLOT <= size) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), ((size - s.end) / SLOT) * SLOT));
+            readFully(s.ch, buf, s.end);
+            buf.flip();
+            while (buf.remaining() >= SLOT) {
+                Coord gc = new Coord(buf.getInt(), buf.getInt());
+                s.slots.put(gc, s.end);
+                if (into != null) {
+                    long[] mask = new long[WORDS];
+                    buf.asLongBuffer().get(mask);
+                    into.put(gc, mask);
+                }
+                buf.position(buf.position() + (WORDS * 8));
+                s.end += SLOT;
+            }
+        }
+    }
+
+    /** Every grid stored for segment {@code seg}, by grid coordinate. */
+    public synchronized Map<Coord, long[]> load(long seg) throws IOException {
+        Map<Coord, long[]> ret = new HashMap<>();
+        Segment s = segment(seg, false);
+        if (s == null)
+            return ret;
+        s.slots.clear();
+        s.end = HEADER;
+        scan(s, ret);
+        return ret;
+    }
+
+    /**
+     * Save the given grids of segment {@code seg}. Each mask is ORed with
+     * its copy on disk first, and is left holding the merged result.
+     * Returns false without saving if another process holds the segment.
+     */
+    public synchronized boolean save(long seg, Map<Coord, long[]> grids) throws IOException {
+        if (grids.isEmpty())
+            return true;
+        Segment s = segment(seg, true);
+        try (FileLock lock = s.ch.tryLock()) {
+            if (lock == null)
+                return false;
+            scan(s, null);
+            ByteBuffer buf = ByteBuffer.allocate(SLOT);
+            for (Map.Entry<Coord, long[]> e : grids.entrySet()) {
+                Coord gc = e.getKey();
+                long[] mask = e.getValue();
+                Long off = s.slots.get(gc);
+                if (off != null) {
+                    buf.clear();
+                    readFully(s.ch, buf, off);
+                    buf.position(8);
+                    for (int i = 0; i < WORDS; i++)
+                        mask[i] |= buf.getLong();
+                } else {
+                    off = s.end;
+                    s.end += SLOT;
+                    s.slots.put(gc, off);
+                }
+                buf.clear();
+                buf.putInt(gc.x).putInt(gc.y);
+                buf.asLongBuffer().put(mask);
+                buf.position(SLOT).flip();
+                writeFully(s.ch, buf, off);
+            }
+            s.ch.force(false);
+        }
+        return true;
+    }
+
+    /** Ids of the segments with a file in the store. */
+    public synchronized Set<Long> segmentIds() throws IOException {
+        Set<Long> ret = new HashSet<>(segments.keySet());
+        if (!Files.isDirectory(dir))
+            return ret;
+        try (DirectoryStream<Path> ls = Files.newDirectoryStream(dir, "*.bin")) {
+            for (Path p : ls) {
+                String name = p.getFileName().toString();
+                try {
+                    ret.add(Long.parseUnsignedLong(name.substring(0, name.length() - 4), 16));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return ret;
+    }
+
+    /** Delete every segment file. */
+    public synchronized void clear() throws IOException {
+        for (long seg : segmentIds()) {
+            Segment s = segments.remove(seg);
+            if (s != null)
+                s.ch.close();
+            Files.deleteIfExists(segpath(seg));
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        for (Segment s : segments.values())
+            s.ch.close();
+        segments.clear();
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long off) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, off);
+            if (n < 0)
+                throw new IOException("unexpected end of explored-area segment");
+            off += n;
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long off) throws IOException {
+        while (buf.hasRemaining())
+            off += ch.write(buf, off);
+    }
+}
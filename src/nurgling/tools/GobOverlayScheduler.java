@@ -0,0 +1,185 @@
+package nurgling.tools;
+
+import haven.Coord2d;
+import haven.Glob;
+import haven.Gob;
+import haven.MapView;
+import haven.OCache;
+import nurgling.NGameUI;
+import nurgling.sessions.SessionContext;
+import nurgling.sessions.SessionManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the overlay work of one session's gobs (see {@link nurgling.NGob#overlayWork}) once per
+ * frame, instead of every gob polling for it from its own tick.
+ *
+ * <p>Gobs are queued when something their overlays depend on changes - a quest update, a config
+ * toggle, a new Drawable, a pose or a composite finishing loading. Each frame the queued gobs
+ * nearest the camera are worked first, until {@link #FRAME_BUDGET_NS} is spent; the rest wait
+ * for the next frame. A gob whose work could not finish yet (a condition that does not hold, a
+ * resource still loading) is retried after a delay that doubles up to {@link #MAX_DELAY} frames,
+ * and goes straight back to the front as soon as something new is asked of it.
+ *
+ * <p>{@link #enqueue} may be called from any thread; {@link #run} only from the session's tick.
+ */
+public class GobOverlayScheduler {
+    public static final long FRAME_BUDGET_NS = 2_000_000L;
+    public static final int MAX_DELAY = 128;
+
+    private final Glob glob;
+    private final Set<Gob> ready = ConcurrentHashMap.newKeySet();
+    /**
+     * The last retry wait of each gob still retrying. Enqueueing a gob drops its entry, which both
+     * cancels the wait and starts its next one over from the shortest delay.
+     */
+    private final Map<Gob, Wait> waits = new ConcurrentHashMap<>();
+    private final PriorityQueue<Wait> waiting = new PriorityQueue<>(Comparator.comparingLong(w -> w.due));
+    private long frame = 0;
+
+    private volatile int lastProcessed, lastDeferred, lastWaiting;
+    private long totalProcessed = 0, totalDeferred = 0, totalNs = 0;
+
+    private static final class Wait {
+        final Gob gob;
+        final long due;
+        final int delay;
+
+        Wait(Gob gob, long due, int delay) {
+            this.gob = gob;
+            this.due = due;
+            this.delay = delay;
+        }
+    }
+
+    private static final class Item {
+        final Gob gob;
+        final double dist;
+
+        Item(Gob gob, double dist) {
+            this.gob = gob;
+            this.dist = dist;
+        }
+    }
+
+    public GobOverlayScheduler(Glob glob) {
+        this.glob = glob;
+    }
+
+    public void enqueue(Gob gob) {
+        waits.remove(gob);
+        ready.add(gob);
+    }
+
+    /** Asks every gob of this session for the given kinds of overlay work. */
+    public void requestAll(int kinds) {
+        OCache oc = glob.oc;
+        List<Gob> gobs = new ArrayList<>();
+        synchronized (oc) {
+            for (Gob gob : oc)
+                gobs.add(gob);
+        }
+        for (Gob gob : gobs) {
+            if (gob.ngob != null)
+                gob.ngob.overlayWork(kinds);
+        }
+    }
+
+    /** As {@link #requestAll}, for every open session. */
+    public static void requestAllSessions(int kinds) {
+        for (SessionContext ctx : SessionManager.getInstance().getAllSessions()) {
+            if (ctx.session != null && ctx.session.glob != null)
+                ctx.session.glob.oc.overlays.requestAll(kinds);
+        }
+    }
+
+    /** Where on the map the session's view is, or null if it has none. */
+    private Coord2d center() {
+        SessionContext ctx = SessionManager.getInstance().findBySession(glob.sess);
+        NGameUI gui = (ctx == null) ? null : ctx.getGameUI();
+        MapView map = (gui == null) ? null : gui.map;
+        return (map == null) ? null : map.cc;
+    }
+
+    /** Works the queued gobs for one frame. */
+    public void run() {
+        frame++;
+        while (!waiting.isEmpty() && waiting.peek().due <= frame) {
+            Wait w = waiting.poll();
+            if (waits.get(w.gob) == w)
+                ready.add(w.gob);
+        }
+        if (ready.isEmpty()) {
+            lastProcessed = lastDeferred = 0;
+            lastWaiting = waits.size();
+            return;
+        }
+        long start = System.nanoTime();
+        Coord2d cc = center();
+        List<Item> items = new ArrayList<>(ready.size());
+        for (Gob gob : ready)
+            items.add(new Item(gob, (cc == null) ? 0 : gob.rc.dist(cc)));
+        if (cc != null)
+            items.sort(Comparator.comparingDouble(it -> it.dist));
+        int processed = 0;
+        for (Item it : items) {
+            if ((processed > 0) && (System.nanoTime() - start > FRAME_BUDGET_NS))
+                break;
+            Gob gob = it.gob;
+            ready.remove(gob);
+            processed++;
+            if (gob.removed || (gob.ngob == null)) {
+                waits.remove(gob);
+                continue;
+            }
+            boolean again;
+            synchronized (gob) {
+                again = gob.ngob.runOverlayWork();
+            }
+            if (again)
+                retry(gob);
+            else
+                waits.remove(gob);
+        }
+        int deferred = items.size() - processed;
+        lastProcessed = processed;
+        lastDeferred = deferred;
+        lastWaiting = waits.size();
+        synchronized (this) {
+            totalProcessed += processed;
+            totalDeferred += deferred;
+            totalNs += System.nanoTime() - start;
+        }
+    }
+
+    private void retry(Gob gob) {
+        Wait prev = waits.get(gob);
+        int delay = (prev == null) ? 1 : Math.min(prev.delay * 2, MAX_DELAY);
+        Wait w = new Wait(gob, frame + delay, delay);
+        /* Enqueued again while it was being worked: it is ready already. */
+        if (ready.contains(gob))
+            return;
+        if ((prev == null) ? (waits.putIfAbsent(gob, w) == null) : waits.replace(gob, prev, w))
+            waiting.add(w);
+    }
+
+    public int lastProcessed() {
+        return lastProcessed;
+    }
+
+    public int lastDeferred() {
+        return lastDeferred;
+    }
+
+    public synchronized String getStats() {
+        return String.format("GobOverlayScheduler[frame: processed=%d, deferred=%d, waiting=%d; total: processed=%d, deferred=%d, cpu=%.1f ms]",
+                lastProcessed, lastDeferred, lastWaiting, totalProcessed, totalDeferred, totalNs / 1e6);
+    }
+}
@@ -1,6 +1,7 @@
 package nurgling.tools;
 
 import haven.*;
+import nurgling.NGob;
 import nurgling.NUtils;
 
 import java.awt.Color;
@@ -395,6 +396,14 @@ public class HarvestState {
         return cachedYesteryearSeason;
     }
 
+    // Called by Glob when a session's season changes. LP markers are only recomputed when their
+    // gob is asked for them, and which products count as undiscovered depends on the season, so
+    // drop the memoized value and ask every gob of every session again.
+    public static void seasonChanged() {
+        lastSeasonCheck = 0;
+        GobOverlayScheduler.requestAllSessions(NGob.OW_LP);
+    }
+
     // Single-kind rather than varargs: the varargs form allocated an array plus an Arrays.asList
     // wrapper on every call, and this runs per gob per tick through isMatureTreeOrBush().
     private static boolean isSpriteKind(Gob gob, String kind) {
@@ -0,0 +1,139 @@
+package nurgling.tools;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached field and method access for classes loaded from resources
+ * (ItemInfo implementations and their helpers), which we can only reach by name.
+ *
+ * A member is looked up once per class: public (inherited) members first, then
+ * declared members of the class and its superclasses. The result is kept as a
+ * {@link MethodHandle} typed {@code (Object)Object}, so later reads skip the
+ * reflective lookup and access checks. Misses are cached as well.
+ */
+public final class InfoAccessors {
+    private static final MethodHandle MISSING = MethodHandles.constant(Object.class, null);
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ConcurrentHashMap<String, MethodHandle>> fields = new ClassValue<ConcurrentHashMap<String, MethodHandle>>() {
+        protected ConcurrentHashMap<String, MethodHandle> computeValue(Class<?> cl) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final ClassValue<ConcurrentHashMap<String, MethodHandle>> methods = new ClassValue<ConcurrentHashMap<String, MethodHandle>>() {
+        protected ConcurrentHashMap<String, MethodHandle> computeValue(Class<?> cl) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private InfoAccessors() {}
+
+    /**
+     * Read field {@code name} of {@code obj}, boxing primitives.
+     *
+     * @throws NoSuchFieldException if the class has no such field.
+     */
+    public static Object get(Object obj, String name) throws ReflectiveOperationException {
+        MethodHandle h = fields.get(obj.getClass()).computeIfAbsent(name, n -> resolveField(obj.getClass(), n));
+        if (h == MISSING)
+            throw new NoSuchFieldException(obj.getClass().getName() + "." + name);
+        return invoke(h, obj);
+    }
+
+    /** Like {@link #get(Object, String)}, but returns {@code null} when the field is missing or unreadable. */
+    public static Object find(Object obj, String name) {
+        if (obj == null)
+            return null;
+        try {
+            return get(obj, name);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static int getInt(Object obj, String name) throws ReflectiveOperationException {
+        return ((Number) get(obj, name)).intValue();
+    }
+
+    public static double getDouble(Object obj, String name) throws ReflectiveOperationException {
+        return ((Number) get(obj, name)).doubleValue();
+    }
+
+    /**
+     * Call the no-argument method {@code name} of {@code obj}.
+     *
+     * @throws NoSuchMethodException if the class has no such method.
+     */
+    public static Object call(Object obj, String name) throws ReflectiveOperationException {
+        MethodHandle h = methods.get(obj.getClass()).computeIfAbsent(name, n -> resolveMethod(obj.getClass(), n));
+        if (h == MISSING)
+            throw new NoSuchMethodException(obj.getClass().getName() + "." + name + "()");
+        return invoke(h, obj);
+    }
+
+    private static Object invoke(MethodHandle h, Object obj) throws ReflectiveOperationException {
+        try {
+            return (Object) h.invokeExact(obj);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /** Bring a getter or no-argument method to {@code (Object)Object}, ignoring the receiver of static members. */
+    private static MethodHandle adapt(MethodHandle h, boolean isStatic) {
+        if (isStatic)
+            h = MethodHandles.dropArguments(h, 0, Object.class);
+        return h.asType(GETTER);
+    }
+
+    private static MethodHandle resolveField(Class<?> cl, String name) {
+        Field f = null;
+        try {
+            f = cl.getField(name);
+        } catch (NoSuchFieldException e) {
+            for (Class<?> c = cl; c != null && f == null; c = c.getSuperclass()) {
+                try {
+                    f = c.getDeclaredField(name);
+                } catch (NoSuchFieldException ignored) {}
+            }
+        }
+        if (f == null)
+            return MISSING;
+        try {
+            f.setAccessible(true);
+            return adapt(MethodHandles.lookup().unreflectGetter(f), Modifier.isStatic(f.getModifiers()));
+        } catch (Exception e) {
+            return MISSING;
+        }
+    }
+
+    private static MethodHandle resolveMethod(Class<?> cl, String name) {
+        Method m = null;
+        try {
+            m = cl.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            for (Class<?> c = cl; c != null && m == null; c = c.getSuperclass()) {
+                try {
+                    m = c.getDeclaredMethod(name);
+                } catch (NoSuchMethodException ignored) {}
+            }
+        }
+        if (m == null)
+            return MISSING;
+        try {
+            m.setAccessible(true);
+            return adapt(MethodHandles.lookup().unreflect(m), Modifier.isStatic(m.getModifiers()));
+        } catch (Exception e) {
+            return MISSING;
+        }
+    }
+}
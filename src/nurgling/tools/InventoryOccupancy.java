@@ -0,0 +1,265 @@
+package nurgling.tools;
+
+import haven.Coord;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Which cells of an inventory grid are taken, kept as one bit per cell.
+ *
+ * <p>Rows are stored as runs of longs, bit {@code x} of a row standing for column {@code x}. The
+ * owner records each item's footprint as the item appears, changes size or goes away, so the
+ * free-space queries below work on a few words per row instead of rebuilding a cell matrix and
+ * scanning it cell by cell on every call.
+ *
+ * <p>An item can be placed before its size is known (its sprite still loading). Until every
+ * item has a size the grid is not {@link #ready()}, and callers should treat it as unknown,
+ * as they did when the old matrix came back null.
+ */
+public class InventoryOccupancy {
+    private int w, h, words;
+    /** Cells covered by an item. */
+    private long[] taken;
+    /** Cells masked off by the server. */
+    private long[] blocked;
+    private final Map<Object, Footprint> items = new HashMap<>();
+    private int pending = 0;
+
+    private static final class Footprint {
+        final int x, y, w, h;
+
+        Footprint(int x, int y, int w, int h) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+        }
+
+        boolean known() {
+            return (w > 0) && (h > 0);
+        }
+
+        boolean overlaps(Footprint o) {
+            return (x < o.x + o.w) && (o.x < x + w) && (y < o.y + o.h) && (o.y < y + h);
+        }
+    }
+
+    public InventoryOccupancy(int w, int h) {
+        reset(w, h);
+    }
+
+    /** Resize to {@code w} by {@code h}, forgetting every item and the mask. */
+    public synchronized void reset(int w, int h) {
+        this.w = Math.max(w, 0);
+        this.h = Math.max(h, 0);
+        this.words = (this.w + 63) >>> 6;
+        this.taken = new long[this.h * words];
+        this.blocked = new long[this.h * words];
+        items.clear();
+        pending = 0;
+    }
+
+    /** Set the masked cells, by row; null for none. */
+    public synchronized void mask(boolean[] sqmask) {
+        Arrays.fill(blocked, 0);
+        if (sqmask == null)
+            return;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = x + (y * w);
+                if ((i < sqmask.length) && sqmask[i])
+                    blocked[(y * words) + (x >>> 6)] |= 1L << x;
+            }
+        }
+    }
+
+    /**
+     * Record {@code item} as covering {@code iw} by {@code ih} cells from {@code (x, y)}, replacing
+     * where it was before. A size below 1 means it is not known yet.
+     */
+    public synchronized void place(Object item, int x, int y, int iw, int ih) {
+        remove(item);
+        Footprint f = new Footprint(x, y, iw, ih);
+        items.put(item, f);
+        if (f.known())
+            fill(f);
+        else
+            pending++;
+    }
+
+    public synchronized void remove(Object item) {
+        Footprint f = items.remove(item);
+        if (f == null)
+            return;
+        if (!f.known()) {
+            pending--;
+            return;
+        }
+        clear(f);
+        /* Items are not meant to overlap, but the server is not asked. */
+        for (Footprint o : items.values()) {
+            if (o.known() && o.overlaps(f))
+                fill(o);
+        }
+    }
+
+    /** Whether every item's size is known, so the queries below are accurate. */
+    public synchronized boolean ready() {
+        return pending == 0;
+    }
+
+    public synchronized int width() {
+        return w;
+    }
+
+    public synchronized int height() {
+        return h;
+    }
+
+    public synchronized boolean isFree(int x, int y) {
+        if ((x < 0) || (y < 0) || (x >= w) || (y >= h))
+            return false;
+        int i = (y * words) + (x >>> 6);
+        return ((taken[i] | blocked[i]) & (1L << x)) == 0;
+    }
+
+    public synchronized boolean isBlocked(int x, int y) {
+        if ((x < 0) || (y < 0) || (x >= w) || (y >= h))
+            return false;
+        return (blocked[(y * words) + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /** Number of cells neither taken nor masked. */
+    public synchronized int freeCells() {
+        int n = 0;
+        for (int i = 0; i < taken.length; i++)
+            n += Long.bitCount(~(taken[i] | blocked[i]) & valid(i % words));
+        return n;
+    }
+
+    /** Number of cells not masked, counting masked cells an item sits on anyway. */
+    public synchronized int totalCells() {
+        int n = 0;
+        for (int i = 0; i < blocked.length; i++)
+            n += Long.bitCount(~(blocked[i] & ~taken[i]) & valid(i % words));
+        return n;
+    }
+
+    /**
+     * The first place, scanning rows top to bottom and each row left to right, where an
+     * {@code iw} by {@code ih} item fits; null if there is none.
+     */
+    public synchronized Coord findFree(int iw, int ih) {
+        if ((iw < 1) || (ih < 1) || (iw > w) || (ih > h))
+            return null;
+        long[] row = new long[words], fits = new long[words];
+        for (int y = 0; y + ih <= h; y++) {
+            starts(taken, y, iw, ih, row, fits);
+            for (int k = 0; k < words; k++) {
+                if (fits[k] != 0)
+                    return new Coord((k << 6) + Long.numberOfTrailingZeros(fits[k]), y);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * How many {@code iw} by {@code ih} items fit at once, placing each at the first free place
+     * in scan order as {@link #findFree} would.
+     */
+    public synchronized int countFree(int iw, int ih) {
+        if ((iw < 1) || (ih < 1) || (iw > w) || (ih > h))
+            return 0;
+        long[] work = taken.clone();
+        long[] row = new long[words], fits = new long[words];
+        int n = 0;
+        for (int y = 0; y + ih <= h; y++) {
+            starts(work, y, iw, ih, row, fits);
+            for (int k = 0; k < words; k++) {
+                while (fits[k] != 0) {
+                    int x = (k << 6) + Long.numberOfTrailingZeros(fits[k]);
+                    n++;
+                    for (int r = y; r < y + ih; r++)
+                        setRun(work, r, x, iw);
+                    /* Nothing starting before the end of this one fits in this row any more */
+                    clearBelow(fits, x + iw);
+                }
+            }
+        }
+        return n;
+    }
+
+    /** The grid as the old cell matrix: by row, 0 free, 1 taken, 2 masked. */
+    public synchronized short[][] matrix() {
+        short[][] ret = new short[h][w];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = (y * words) + (x >>> 6);
+                long b = 1L << x;
+                ret[y][x] = (short) (((taken[i] & b) != 0) ? 1 : ((blocked[i] & b) != 0) ? 2 : 0);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Into {@code fits}, the columns where an {@code iw} by {@code ih} item placed at row
+     * {@code y} covers only free cells. {@code row} is scratch.
+     */
+    private void starts(long[] taken, int y, int iw, int ih, long[] row, long[] fits) {
+        for (int k = 0; k < words; k++)
+            row[k] = valid(k);
+        for (int r = y; r < y + ih; r++) {
+            int o = r * words;
+            for (int k = 0; k < words; k++)
+                row[k] &= ~(taken[o + k] | blocked[o + k]);
+        }
+        System.arraycopy(row, 0, fits, 0, words);
+        /* A start fits if the iw - 1 cells after it are free too */
+        for (int s = 1; s < iw; s++) {
+            int ws = s >>> 6, bs = s & 63;
+            for (int k = 0; k < words; k++) {
+                long v = (k + ws < words) ? (row[k + ws] >>> bs) : 0;
+                if ((bs != 0) && (k + ws + 1 < words))
+                    v |= row[k + ws + 1] << (64 - bs);
+                fits[k] &= v;
+            }
+        }
+    }
+
+    private long valid(int k) {
+        int bits = w - (k << 6);
+        return (bits >= 64) ? -1L : ((1L << bits) - 1);
+    }
+
+    private static void clearBelow(long[] bits, int x) {
+        for (int k = 0; k < bits.length; k++) {
+            int lo = k << 6;
+            if (x >= lo + 64)
+                bits[k] = 0;
+            else if (x > lo)
+                bits[k] &= -1L << (x - lo);
+        }
+    }
+
+    private void setRun(long[] bits, int y, int x, int n) {
+        for (int c = x; c < x + n; c++)
+            bits[(y * words) + (c >>> 6)] |= 1L << c;
+    }
+
+    private void fill(Footprint f) {
+        for (int y = Math.max(f.y, 0); y < Math.min(f.y + f.h, h); y++) {
+            for (int x = Math.max(f.x, 0); x < Math.min(f.x + f.w, w); x++)
+                taken[(y * words) + (x >>> 6)] |= 1L << x;
+        }
+    }
+
+    private void clear(Footprint f) {
+        for (int y = Math.max(f.y, 0); y < Math.min(f.y + f.h, h); y++) {
+            for (int x = Math.max(f.x, 0); x < Math.min(f.x + f.w, w); x++)
+                taken[(y * words) + (x >>> 6)] &= ~(1L << x);
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package nurgling.tools;
+
+import haven.Coord;
+import haven.MCache;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Embedded store of map locations (saved trees, fish, labeled marks, resource
+ * timers), partitioned by map segment and indexed by map grid within each
+ * segment, so that a segment, an on-screen area or the surroundings of a tile
+ * are found without scanning every recorded location.
+ * <p>
+ * Changes are appended to a journal next to the data file, one JSON line per
+ * change, instead of rewriting the whole file each time. Once the journal has
+ * grown past the number of live entries the data file is rewritten from memory
+ * on a background thread and the journal started over; the data file keeps the
+ * document format the services have always written, so older clients can still
+ * read it. Loading reads the data file and replays the journal over it.
+ * <p>
+ * Reads of a whole segment are lock-free once its immutable view has been
+ * built, since the minimap asks for them every frame.
+ */
+public class LocationStore<T> {
+    /** Fewest journal entries worth compacting for. */
+    private static final int COMPACT_MIN = 256;
+
+    /**
+     * How the entries of a store are identified, placed and serialized.
+     */
+    public interface Codec<T> {
+        String id(T v);
+
+        long segment(T v);
+
+        Coord tile(T v);
+
+        JSONObject toJson(T v);
+
+        T fromJson(JSONObject json);
+
+        /** Whether an entry is still worth keeping when loading or compacting. */
+        default boolean keep(T v) {
+            return true;
+        }
+
+        /** The journal record of an entry; may carry more than {@link #toJson} when the data file shares it between entries. */
+        default JSONObject journal(T v) {
+            return toJson(v);
+        }
+
+        /** Adds shared data to the data file after the entries are written. */
+        default void writeHeader(JSONObject main, Collection<T> entries) {
+        }
+
+        /** Reads shared data from the data file before the entries are read. */
+        default void readHeader(JSONObject main) {
+        }
+    }
+
+    private static class Part<T> {
+        final Map<Coord, List<T>> grids = new HashMap<>();
+        int size;
+    }
+
+    private final String key;
+    private final int version;
+    private final Codec<T> codec;
+    private final Map<String, T> byId = new HashMap<>();
+    private final Map<Long, Part<T>> parts = new HashMap<>();
+    /** Immutable lists of every entry of a segment, built when asked for and dropped when it changes. */
+    private final Map<Long, List<T>> views = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /* Serializes changes and their journal records, so that the journal
+     * holds them in the order they were made. */
+    private final Object fileLock = new Object();
+    /** Serializes compactions, so that an older snapshot never lands over a newer one. */
+    private final Object saveLock = new Object();
+    private String dataFile;
+    private BufferedWriter journal;
+    private int journaled = 0;
+
+    /* Background compaction. compactQueued gates enqueuing, so that
+     * requests made while one is pending collapse into it. */
+    private final Object compactLock = new Object();
+    private Thread compactor;
+    private boolean compactQueued = false;
+    private boolean shutdown = false;
+
+    /**
+     * @param key     name of the entry array in the data file
+     * @param version format version written to the data file
+     */
+    public LocationStore(String key, int version, Codec<T> codec) {
+        this.key = key;
+        this.version = version;
+        this.codec = codec;
+    }
+
+    private static Path journalPath(String dataFile) {
+        return Paths.get(dataFile + ".journal");
+    }
+
+    /* The journal being written out by a running compaction. */
+    private static Path retiredPath(String dataFile) {
+        return Paths.get(dataFile + ".journal.old");
+    }
+
+    private static Coord grid(Coord tc) {
+        return tc.div(MCache.cmaps);
+    }
+
+    /**
+     * Loads the entries of a data file and its journal, replacing any held so far.
+     */
+    public void open(String dataFile) {
+        synchronized (fileLock) {
+            closeJournal();
+            this.dataFile = dataFile;
+            Map<String, T> loaded = new LinkedHashMap<>();
+            String content = NFileUtils.readWithBackupFallback(dataFile);
+            if (content != null && !content.isEmpty()) {
+                try {
+                    JSONObject main = new JSONObject(content);
+                    codec.readHeader(main);
+                    JSONArray array = main.getJSONArray(key);
+                    for (int i = 0; i < array.length(); i++) {
+                        try {
+                            T v = codec.fromJson(array.getJSONObject(i));
+                            loaded.put(codec.id(v), v);
+                        } catch (RuntimeException e) {
+                            System.err.println("Failed to parse " + key + " entry: " + e.getMessage());
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to parse " + key + " JSON: " + e.getMessage());
+                }
+            }
+            journaled = replay(retiredPath(dataFile), loaded) + replay(journalPath(dataFile), loaded);
+            lock.writeLock().lock();
+            try {
+                byId.clear();
+                parts.clear();
+                views.clear();
+                for (T v : loaded.values()) {
+                    if (codec.keep(v))
+                        insert(v);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        maybeCompact();
+    }
+
+    /* Applies the records of a journal; a torn last record, as a crash
+     * mid-write leaves, is skipped. */
+    private int replay(Path path, Map<String, T> into) {
+        if (!Files.exists(path))
+            return 0;
+        int n = 0;
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                try {
+                    JSONObject rec = new JSONObject(line);
+                    if (rec.has("put")) {
+                        T v = codec.fromJson(rec.getJSONObject("put"));
+                        into.remove(codec.id(v));
+                        into.put(codec.id(v), v);
+                    } else if (rec.has("del")) {
+                        into.remove(rec.getString("del"));
+                    }
+                    n++;
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping bad " + key + " journal record: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + key + " journal: " + e.getMessage());
+        }
+        return n;
+    }
+
+    private void insert(T v) {
+        T prev = byId.put(codec.id(v), v);
+        if (prev != null)
+            unindex(prev);
+        long seg = codec.segment(v);
+        Part<T> part = parts.computeIfAbsent(seg, k -> new Part<>());
+        part.grids.computeIfAbsent(grid(codec.tile(v)), k -> new ArrayList<>(4)).add(v);
+        part.size++;
+        views.remove(seg);
+    }
+
+    private void unindex(T v) {
+        long seg = codec.segment(v);
+        Part<T> part = parts.get(seg);
+        if (part == null)
+            return;
+        Coord gc = grid(codec.tile(v));
+        List<T> in = part.grids.get(gc);
+        if (in == null || !in.remove(v))
+            return;
+        if (in.isEmpty())
+            part.grids.remove(gc);
+        views.remove(seg);
+        if (--part.size == 0)
+            parts.remove(seg);
+    }
+
+    /**
+     * Adds or replaces an entry, by its id.
+     */
+    public void put(T v) {
+        synchronized (fileLock) {
+            lock.writeLock().lock();
+            try {
+                insert(v);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            append(new JSONObject().put("put", codec.journal(v)));
+        }
+        maybeCompact();
+    }
+
+    /**
+     * Removes an entry by id, returning it, or null if there was none.
+     */
+    public T remove(String id) {
+        T prev;
+        synchronized (fileLock) {
+            lock.writeLock().lock();
+            try {
+                prev = byId.remove(id);
+                if (prev != null)
+                    unindex(prev);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (prev != null)
+                append(new JSONObject().put("del", id));
+        }
+        if (prev != null)
+            maybeCompact();
+        return prev;
+    }
+
+    public T get(String id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A copy of every entry.
+     */
+    public List<T> all() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(byId.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every entry of a segment, as an immutable list that is safe to iterate
+     * without copying.
+     */
+    public List<T> inSegment(long seg) {
+        List<T> view = views.get(seg);
+        if (view != null)
+            return view;
+        lock.readLock().lock();
+        try {
+            Part<T> part = parts.get(seg);
+            if (part == null)
+                return Collections.emptyList();
+            List<T> all = new ArrayList<>(part.size);
+            for (List<T> in : part.grids.values())
+                all.addAll(in);
+            view = Collections.unmodifiableList(all);
+            /* Published under the read lock, so that no change can
+             * come between building it and publishing it. */
+            views.put(seg, view);
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Entries of a segment whose tile lies in the rectangle from ul to br,
+     * both inclusive.
+     */
+    public List<T> inArea(long seg, Coord ul, Coord br) {
+        List<T> ret = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Part<T> part = parts.get(seg);
+            if (part == null)
+                return ret;
+            Coord gul = grid(ul), gbr = grid(br);
+            long span = (long) (gbr.x - gul.x + 1) * (gbr.y - gul.y + 1);
+            if (span > part.grids.size()) {
+                for (Map.Entry<Coord, List<T>> e : part.grids.entrySet()) {
+                    Coord gc = e.getKey();
+                    if (gc.x >= gul.x && gc.x <= gbr.x && gc.y >= gul.y && gc.y <= gbr.y)
+                        clip(e.getValue(), ul, br, ret);
+                }
+            } else {
+                for (int gy = gul.y; gy <= gbr.y; gy++) {
+                    for (int gx = gul.x; gx <= gbr.x; gx++) {
+                        List<T> in = part.grids.get(Coord.of(gx, gy));
+                        if (in != null)
+                            clip(in, ul, br, ret);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ret;
+    }
+
+    private void clip(List<T> in, Coord ul, Coord br, List<T> into) {
+        for (T v : in) {
+            Coord tc = codec.tile(v);
+            if (tc.x >= ul.x && tc.x <= br.x && tc.y >= ul.y && tc.y <= br.y)
+                into.add(v);
+        }
+    }
+
+    /**
+     * Entries of a segment no further than radius tiles from tc.
+     */
+    public List<T> within(long seg, Coord tc, double radius) {
+        int r = (int) Math.ceil(radius);
+        List<T> ret = inArea(seg, tc.sub(r, r), tc.add(r, r));
+        ret.removeIf(v -> codec.tile(v).dist(tc) > radius);
+        return ret;
+    }
+
+    /**
+     * The entry of a segment nearest to tc that passes the filter, no further
+     * than maxdist tiles away, or null if there is none.
+     */
+    public T nearest(long seg, Coord tc, double maxdist, Predicate<? super T> filter) {
+        lock.readLock().lock();
+        try {
+            Part<T> part = parts.get(seg);
+            if (part == null)
+                return null;
+            /* Grids nearest first, stopping once none further out can hold a nearer entry. */
+            List<Map.Entry<Coord, List<T>>> grids = new ArrayList<>(part.grids.entrySet());
+            double[] gd = new double[grids.size()];
+            Integer[] order = new Integer[grids.size()];
+            for (int i = 0; i < order.length; i++) {
+                Coord ul = grids.get(i).getKey().mul(MCache.cmaps);
+                double dx = Math.max(Math.max(ul.x - tc.x, tc.x - (ul.x + MCache.cmaps.x - 1)), 0);
+                double dy = Math.max(Math.max(ul.y - tc.y, tc.y - (ul.y + MCache.cmaps.y - 1)), 0);
+                gd[i] = Math.sqrt((dx * dx) + (dy * dy));
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(gd[a], gd[b]));
+            T best = null;
+            double bestd = maxdist;
+            for (int i : order) {
+                if (gd[i] > bestd)
+                    break;
+                for (T v : grids.get(i).getValue()) {
+                    double d = codec.tile(v).dist(tc);
+                    if (d <= bestd && (best == null || d < bestd) && (filter == null || filter.test(v))) {
+                        best = v;
+                        bestd = d;
+                    }
+                }
+            }
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* Called holding fileLock. */
+    private void append(JSONObject rec) {
+        if (dataFile == null)
+            return;
+        try {
+            if (journal == null) {
+                Path path = journalPath(dataFile);
+                boolean torn = endsTorn(path);
+                journal = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                /* Start past a record torn by a crash, which replay skips. */
+                if (torn)
+                    journal.newLine();
+            }
+            journal.write(rec.toString());
+            journal.newLine();
+            journal.flush();
+            journaled++;
+        } catch (IOException e) {
+            System.err.println("Failed to append to " + key + " journal: " + e.getMessage());
+        }
+    }
+
+    private static boolean endsTorn(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0)
+            return false;
+        try (RandomAccessFile f = new RandomAccessFile(path.toFile(), "r")) {
+            f.seek(f.length() - 1);
+            return f.read() != '\n';
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close " + key + " journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private void maybeCompact() {
+        int live = size();
+        boolean due;
+        synchronized (fileLock) {
+            due = journaled > Math.max(COMPACT_MIN, live);
+        }
+        if (!due)
+            return;
+        synchronized (compactLock) {
+            if (shutdown || compactQueued)
+                return;
+            compactQueued = true;
+            if (compactor == null) {
+                compactor = new Thread(this::compactLoop, key + "-compactor");
+                compactor.setDaemon(true);
+                compactor.start();
+            }
+            compactLock.notifyAll();
+        }
+    }
+
+    private void compactLoop() {
+        while (true) {
+            synchronized (compactLock) {
+                while (!compactQueued && !shutdown) {
+                    try {
+                        compactLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (shutdown)
+                    return;
+                compactQueued = false;
+            }
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the data file from memory and starts the journal over. Changes
+     * made while the file is written go to a fresh journal, so they are not
+     * held up by it.
+     */
+    public void compact() {
+        synchronized (saveLock) {
+            String file;
+            List<T> entries;
+            Path retired;
+            synchronized (fileLock) {
+                if (dataFile == null)
+                    return;
+                file = dataFile;
+                closeJournal();
+                retired = retiredPath(file);
+                try {
+                    Path live = journalPath(file);
+                    /* A retired journal left by an interrupted compaction is
+                     * already in memory, and so in the snapshot below. */
+                    if (Files.exists(live)) {
+                        if (Files.exists(retired)) {
+                            Files.write(retired, Files.readAllBytes(live), StandardOpenOption.APPEND);
+                            Files.delete(live);
+                        } else {
+                            Files.move(live, retired);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Failed to retire " + key + " journal: " + e.getMessage());
+                    return;
+                }
+                journaled = 0;
+                entries = all();
+            }
+            try {
+                JSONObject main = new JSONObject();
+                JSONArray array = new JSONArray();
+                for (T v : entries) {
+                    if (codec.keep(v))
+                        array.put(codec.toJson(v));
+                }
+                main.put(key, array);
+                codec.writeHeader(main, entries);
+                main.put("version", version);
+                main.put("lastSaved", java.time.Instant.now().toString());
+                NFileUtils.writeAtomically(file, main.toString());
+                Files.deleteIfExists(retired);
+            } catch (IOException | JSONException e) {
+                System.err.println("Failed to save " + key + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops background compaction and writes the data file a last time.
+     */
+    public void close() {
+        synchronized (compactLock) {
+            shutdown = true;
+            compactor = null;
+            compactLock.notifyAll();
+        }
+        compact();
+    }
+}
@@ -467,6 +467,14 @@ public class LpExplorer {
         return (now - timedClickAt) < HARVEST_CLICK_WINDOW;
     }
 
+    /**
+     * Whether the character's discovery list is available yet. Without it every product counts
+     * as discovered, so callers that cache their answer should try again later instead.
+     */
+    public static boolean hasCharInfo() {
+        return charInfo() != null;
+    }
+
     private static NCharacterInfo charInfo() {
         NGameUI gui = NUtils.getGameUI();
         return gui != null ? gui.getCharInfo() : null;
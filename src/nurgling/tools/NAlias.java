@@ -1,7 +1,6 @@
 package nurgling.tools;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class NAlias {
     /**
@@ -25,14 +24,9 @@ public class NAlias {
     private Set<String> lowercaseExceptions;
     
     /**
-     * Cache for string matching results.
+     * Automaton over the lowercase keys and exceptions, compiled on first match.
      */
-    private static final Map<String, Map<NAlias, Boolean>> MATCH_CACHE = new ConcurrentHashMap<>();
-    
-    /**
-     * Maximum size of match cache.
-     */
-    private static final int MAX_CACHE_SIZE = 1000;
+    private volatile NameMatcher matcher;
 
     public NAlias() {
         keys = new ArrayList<String> ();
@@ -110,36 +104,22 @@ public class NAlias {
                 }
             }
         }
+        matcher = null;
     }
     
     /**
-     * Fast matching using cached lowercase strings for better performance.
+     * Matches a name against all keys and exceptions in one scan, with
+     * results remembered per name by the compiled matcher.
      *
      * @param name the string to match against.
      * @return true if name matches this alias, false otherwise.
      */
     public boolean matches(String name) {
         if (name == null) return false;
-        
-        String lowerName = name.toLowerCase();
-        
-        // Check cache first
-        Map<NAlias, Boolean> nameCache = MATCH_CACHE.get(lowerName);
-        if (nameCache != null) {
-            Boolean cachedResult = nameCache.get(this);
-            if (cachedResult != null) {
-                return cachedResult;
-            }
-        }
-        
-        boolean result = matchesInternal(lowerName);
-        
-        // Cache the result
-        if (MATCH_CACHE.size() < MAX_CACHE_SIZE) {
-            MATCH_CACHE.computeIfAbsent(lowerName, k -> new ConcurrentHashMap<>()).put(this, result);
-        }
-        
-        return result;
+        NameMatcher m = matcher;
+        if (m == null)
+            matcher = m = NameMatcher.of(lowercaseKeys, lowercaseExceptions);
+        return m.matches(NameMatcher.intern(name));
     }
     
     public boolean matchesExact(String name) {
@@ -163,31 +143,6 @@ public class NAlias {
         return false;
     }
     
-    private boolean matchesInternal(String lowerName) {
-        // Check if any key matches
-        if (!lowercaseKeys.isEmpty()) {
-            boolean keyMatched = false;
-            for (String key : lowercaseKeys) {
-                if (lowerName.contains(key)) {
-                    keyMatched = true;
-                    break;
-                }
-            }
-            if (!keyMatched) {
-                return false;
-            }
-        }
-        
-        // Check exceptions
-        for (String exception : lowercaseExceptions) {
-            if (lowerName.contains(exception)) {
-                return false;
-            }
-        }
-        
-        return true;
-    }
-    
     /**
      * Get cached lowercase keys for external use.
      *
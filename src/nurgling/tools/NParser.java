@@ -4,7 +4,10 @@ import haven.*;
 import haven.res.ui.barterbox.Shopbox;
 import nurgling.*;
 import nurgling.tasks.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,7 +16,7 @@ public class NParser
     /**
      * Cache for frequently used NAlias objects.
      */
-    private static final Map<String, NAlias> ALIAS_CACHE = new ConcurrentHashMap<>();
+    private static final Map<List<String>, NAlias> ALIAS_CACHE = new ConcurrentHashMap<>();
     
     /**
      * Maximum size of alias cache.
@@ -31,14 +34,7 @@ public class NParser
             final NAlias regEx
     ) {
         if (regEx == null || name == null) return false;
-        String lowerName = name.toLowerCase();
-
-        // Check if cached match result exists
-        if (regEx.matches(lowerName)) {
-            return true;
-        }
-
-        return false;
+        return regEx.matches(name);
     }
 
     /**
@@ -99,30 +95,39 @@ public class NParser
     ) {
         if(name==null)
             return false;
-        for (String arg : args) {
-            NAlias alias = getCachedAlias(arg);
-            if (alias != null && alias.matches(name)) {
-                return true;
-            }
-        }
-        return false;
+        NAlias alias = getCachedAlias(args);
+        return alias != null && alias.matches(name);
     }
     
     /**
-     * Get cached NAlias object or create and cache a new one.
+     * Get cached NAlias object matching any of the given strings, or create
+     * and cache a new one, so that a name is scanned once for all of them.
      *
-     * @param key the string key for the alias.
-     * @return cached or new NAlias object.
+     * @param args the string keys for the alias.
+     * @return cached or new NAlias object, or null if all keys are null.
      */
-    private static NAlias getCachedAlias(String key) {
-        if (key == null) {
-            return null;
-        }
-        NAlias cached = ALIAS_CACHE.get(key);
+    private static NAlias getCachedAlias(String... args) {
+        List<String> id = Arrays.asList(args);
+        NAlias cached = ALIAS_CACHE.get(id);
         if (cached == null) {
-            cached = new NAlias(key);
+            ArrayList<String> keys = new ArrayList<>();
+            boolean any = false;
+            for (String arg : args) {
+                if (arg == null)
+                    continue;
+                any = true;
+                // An empty key on its own matches every name
+                if (arg.isEmpty()) {
+                    keys.clear();
+                    break;
+                }
+                keys.add(arg);
+            }
+            if (!any)
+                return null;
+            cached = new NAlias(keys);
             if (ALIAS_CACHE.size() < MAX_ALIAS_CACHE_SIZE) {
-                ALIAS_CACHE.put(key, cached);
+                ALIAS_CACHE.put(Arrays.asList(args.clone()), cached);
             }
         }
         return cached;
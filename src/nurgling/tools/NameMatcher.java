@@ -0,0 +1,256 @@
+package nurgling.tools;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiled form of an {@link NAlias}: an Aho-Corasick automaton over its
+ * lower-cased keys and exceptions, so that a name is scanned once for all
+ * of them instead of once per key and exception. Aliases of only a few
+ * patterns are searched pattern by pattern instead, which is faster at
+ * that size.
+ * <p>
+ * Names are interned into a bounded table, from which the least recently
+ * used ones age out, keeping each name's lower-cased form and an id; every
+ * matcher remembers its last results by id in a small direct-mapped table.
+ * Matchers are shared between aliases with the same keys and exceptions
+ * through a bounded LRU table, so that the aliases most call sites build
+ * per call reuse both the automaton and its results.
+ */
+final class NameMatcher {
+    private static final int KEY = 1, EXC = 2;
+    private static final int MATCHERS = 1024;
+    private static final int NAMES = 8192;
+    private static final int MEMO = 256;
+    /** Most patterns searched one by one, which is faster than the automaton for so few. */
+    private static final int SMALL = 3;
+    private static final int MAXID = (1 << 30) - 1;
+
+    /**
+     * A name as seen by the matchers.
+     */
+    static final class Name {
+        final String lower;
+        final int id;
+
+        Name(String lower, int id) {
+            this.lower = lower;
+            this.id = id;
+        }
+    }
+
+    /* Two generations of interned names: lookups that hit the old one
+     * move the name to the young one, and once the young one is full it
+     * replaces the old one, so names in use stay and the rest age out. */
+    private static volatile Map<String, Name> young = new ConcurrentHashMap<>(), old = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    private static final Map<List<Set<String>>, NameMatcher> matchers = new LinkedHashMap<List<Set<String>>, NameMatcher>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Set<String>>, NameMatcher> eldest) {
+            return size() > MATCHERS;
+        }
+    };
+
+    private final boolean hasKeys, hasExceptions;
+    /** Patterns of aliases too small to be worth an automaton, or null. */
+    private final String[] keys, exceptions;
+    /** Character classes of ASCII characters; 0 for characters in no pattern. */
+    private final short[] ascii = new short[128];
+    /** Sorted non-ASCII characters of the patterns, classed after the ASCII ones. */
+    private final char[] wide;
+    private final int wideBase;
+    private final int width;
+    /** Transition table, {@link #width} entries per state, holding the offsets of the next states; null for small aliases. */
+    private final int[] delta;
+    /** KEY and EXC flags of the patterns ending at each state, at the state's offset. */
+    private final byte[] out;
+    /** Recent results, as id << 1 | result, indexed by the low bits of the id. */
+    private final int[] memo = new int[MEMO];
+
+    /**
+     * Interns a name, lower-casing it once for as long as it stays in the table.
+     */
+    static Name intern(String name) {
+        Name ret = young.get(name);
+        if (ret != null)
+            return ret;
+        ret = old.get(name);
+        if (ret == null)
+            ret = new Name(name.toLowerCase(), nextId.getAndUpdate(id -> (id % MAXID) + 1));
+        Map<String, Name> y = young;
+        y.put(name, ret);
+        if (y.size() > NAMES / 2) {
+            synchronized (NameMatcher.class) {
+                if (young == y) {
+                    old = y;
+                    young = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the matcher of the given lower-cased keys and exceptions,
+     * compiling it unless it is still shared. The sets must not change
+     * afterwards.
+     */
+    static NameMatcher of(Set<String> keys, Set<String> exceptions) {
+        List<Set<String>> id = Arrays.asList(keys, exceptions);
+        synchronized (matchers) {
+            NameMatcher ret = matchers.get(id);
+            if (ret != null)
+                return ret;
+        }
+        NameMatcher ret = new NameMatcher(keys, exceptions);
+        synchronized (matchers) {
+            NameMatcher prev = matchers.putIfAbsent(id, ret);
+            return (prev != null) ? prev : ret;
+        }
+    }
+
+    NameMatcher(Collection<String> keys, Collection<String> exceptions) {
+        hasKeys = !keys.isEmpty();
+        hasExceptions = !exceptions.isEmpty();
+        if (keys.size() + exceptions.size() <= SMALL) {
+            this.keys = keys.toArray(new String[0]);
+            this.exceptions = exceptions.toArray(new String[0]);
+            wide = null;
+            wideBase = width = 0;
+            delta = null;
+            out = null;
+            return;
+        }
+        this.keys = this.exceptions = null;
+
+        TreeSet<Character> wideChars = new TreeSet<>();
+        int nascii = 0, total = 1;
+        for (Collection<String> pats : Arrays.asList(keys, exceptions)) {
+            for (String p : pats) {
+                total += p.length();
+                for (int i = 0; i < p.length(); i++) {
+                    char c = p.charAt(i);
+                    if (c < 128) {
+                        if (ascii[c] == 0)
+                            ascii[c] = (short) ++nascii;
+                    } else {
+                        wideChars.add(c);
+                    }
+                }
+            }
+        }
+        wide = new char[wideChars.size()];
+        int n = 0;
+        for (char c : wideChars)
+            wide[n++] = c;
+        wideBase = nascii + 1;
+        width = wideBase + wide.length;
+
+        /* Build the trie; a zero transition means none yet, as no edge
+         * leads back to the root. */
+        int[] delta = new int[total * width];
+        byte[] out = new byte[total];
+        int states = 1;
+        for (int f = 0; f < 2; f++) {
+            for (String p : (f == 0) ? keys : exceptions) {
+                int st = 0;
+                for (int i = 0; i < p.length(); i++) {
+                    int t = st * width + cls(p.charAt(i));
+                    if (delta[t] == 0)
+                        delta[t] = states++;
+                    st = delta[t];
+                }
+                out[st] |= (f == 0) ? KEY : EXC;
+            }
+        }
+
+        /* Turn it into a DFA breadth-first, filling in missing
+         * transitions from the failure links. */
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        for (int c = 0; c < width; c++) {
+            if (delta[c] != 0)
+                queue[tail++] = delta[c];
+        }
+        while (head < tail) {
+            int u = queue[head++];
+            out[u] |= out[fail[u]];
+            for (int c = 0; c < width; c++) {
+                int v = delta[u * width + c];
+                int fv = delta[fail[u] * width + c];
+                if (v != 0) {
+                    fail[v] = fv;
+                    queue[tail++] = v;
+                } else {
+                    delta[u * width + c] = fv;
+                }
+            }
+        }
+        /* Store transitions premultiplied by the width, and the flags
+         * of a state at its offset. */
+        this.delta = Arrays.copyOf(delta, states * width);
+        for (int i = 0; i < this.delta.length; i++)
+            this.delta[i] *= width;
+        this.out = new byte[states * width];
+        for (int i = 0; i < states; i++)
+            this.out[i * width] = out[i];
+    }
+
+    private int cls(char c) {
+        if (c < 128)
+            return ascii[c];
+        int i = Arrays.binarySearch(wide, c);
+        return (i < 0) ? 0 : wideBase + i;
+    }
+
+    /**
+     * Whether a lower-cased name contains one of the keys, or there are no
+     * keys, and none of the exceptions.
+     */
+    boolean scan(String lower) {
+        if (delta == null)
+            return contains(lower);
+        int fl = out[0];
+        if ((fl & EXC) != 0)
+            return false;
+        for (int i = 0, st = 0; i < lower.length(); i++) {
+            st = delta[st + cls(lower.charAt(i))];
+            fl |= out[st];
+            if ((fl & EXC) != 0)
+                return false;
+            if (!hasExceptions && (fl & KEY) != 0)
+                return true;
+        }
+        return !hasKeys || (fl & KEY) != 0;
+    }
+
+    private boolean contains(String lower) {
+        boolean any = keys.length == 0;
+        for (String k : keys) {
+            if (lower.contains(k)) {
+                any = true;
+                break;
+            }
+        }
+        if (!any)
+            return false;
+        for (String e : exceptions) {
+            if (lower.contains(e))
+                return false;
+        }
+        return true;
+    }
+
+    boolean matches(Name name) {
+        int slot = name.id & (MEMO - 1);
+        int m = memo[slot];
+        if ((m >>> 1) == name.id)
+            return (m & 1) != 0;
+        boolean ret = scan(name.lower);
+        memo[slot] = (name.id << 1) | (ret ? 1 : 0);
+        return ret;
+    }
+}
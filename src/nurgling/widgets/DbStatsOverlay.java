@@ -106,6 +106,11 @@ public class DbStatsOverlay extends Widget {
                     stats.skippedContainer, stats.skippedRecipe, stats.skippedSearch), TEXT_COLOR);
                 addLine(String.format("Cache: C:%d Q:%d R:%d", 
                     containerCacheSize, quickCacheSize, recipeCacheSize), TEXT_COLOR);
+                addLine(String.format("Sync: %s | Q/min: %d | Lat: %s",
+                    stats.changeFeedMode, stats.queriesPerMinute,
+                    stats.syncLatencyMs < 0 ? "-" : stats.syncLatencyMs + "ms"), TEXT_COLOR);
+                addLine(String.format("Wake: push:%d poll:%d | Notify: %d",
+                    stats.syncPushWakeups, stats.syncPollWakeups, stats.changeNotifications), TEXT_COLOR);
             } else {
                 addLine("--- DATABASE: OFF ---", WARN_COLOR);
             }
@@ -13,6 +13,7 @@ import nurgling.actions.ReadJsonAction;
 import nurgling.sessions.BotExecutor;
 import nurgling.cookbook.FavoriteRecipeManager;
 import nurgling.cookbook.Recipe;
+import nurgling.cookbook.RecipeStore;
 import nurgling.cookbook.connection.RecipeHashFetcher;
 import nurgling.i18n.L10n;
 
@@ -45,6 +46,9 @@ public class NCookBook extends Window {
 
     private TextEntry searchF;
     RecipeHashFetcher rhf = null;
+    // Set while browsing without a search filter: pages come straight from the
+    // in-memory recipe store instead of a full SQL fetch and a Java sort.
+    private RecipeStore store = null;
     private FavoriteRecipeManager favoriteManager = null;
 
     private ICheckBox onetwo; // Добавляем поле для хранения кнопки onetwo
@@ -86,6 +90,10 @@ public class NCookBook extends Window {
                     if (ui.core.databaseManager == null || !ui.core.databaseManager.isReady()) {
                         return res; // Database not ready
                     }
+                    if (searchF.text().trim().isEmpty() && useStore()) {
+                        return res;
+                    }
+                    store = null;
                     rhf = new RecipeHashFetcher(ui.core.databaseManager, searchF.text());
                     ui.core.databaseManager.submitTask(rhf);
                     disable();
@@ -364,7 +372,7 @@ public class NCookBook extends Window {
                 Resource.loadsimg("nurgling/hud/buttons/cookbook/right/h")) {
             @Override
             public void click() {
-                int maxPage = (sortedRecipes.size() + PAGE_SIZE - 1) / PAGE_SIZE - 1;
+                int maxPage = (recipeCount() + PAGE_SIZE - 1) / PAGE_SIZE - 1;
                 if (currentPage < maxPage) {
                     currentPage++;
                     updateDisplayedRecipes();
@@ -377,6 +385,13 @@ public class NCookBook extends Window {
     private final ArrayList<RecieptItem> items = new ArrayList<>();
 
     private void sortRecipes(String fepType, boolean desc) {
+        if (store != null) {
+            currentSortType = fepType;
+            currentSortDesc = desc;
+            currentPage = 0;
+            updateDisplayedRecipes();
+            return;
+        }
         sortedRecipes = new ArrayList<>(allRecipes);
         sortedRecipes.sort((r1, r2) -> {
             // First, sort by favorite status (favorites first)
@@ -396,6 +411,16 @@ public class NCookBook extends Window {
 
     private void updateDisplayedRecipes() {
         int startIdx = currentPage * PAGE_SIZE;
+        if (store != null) {
+            List<Recipe> top = store.topK(new RecipeStore.Query()
+                    .weight(currentSortType, 1f)
+                    .ascending(!currentSortDesc), startIdx + PAGE_SIZE);
+            items.clear();
+            for (int i = startIdx; i < top.size(); i++) {
+                items.add(new RecieptItem(top.get(i)));
+            }
+            return;
+        }
         int endIdx = Math.min(startIdx + PAGE_SIZE, sortedRecipes.size());
 
         items.clear();
@@ -404,6 +429,28 @@ public class NCookBook extends Window {
         }
     }
 
+    private int recipeCount() {
+        return store != null ? store.size() : sortedRecipes.size();
+    }
+
+    /**
+     * Switch to browsing the in-memory recipe store if it has finished
+     * loading. Asking for it starts the load, so the next open is instant.
+     */
+    private boolean useStore() {
+        if (ui.core.databaseManager.getRecipeService() == null) {
+            return false;
+        }
+        RecipeStore s = ui.core.databaseManager.getRecipeService().getStore();
+        if (s == null) {
+            return false;
+        }
+        store = s;
+        rhf = null;
+        sortRecipes(currentSortType, currentSortDesc);
+        return true;
+    }
+
     @Override
     public void tick(double dt) {
         super.tick(dt);
@@ -421,6 +468,9 @@ public class NCookBook extends Window {
             if (favoriteManager == null) {
                 favoriteManager = new FavoriteRecipeManager(ui.core.databaseManager);
             }
+            if (searchF.text().trim().isEmpty() && useStore()) {
+                return super.show(show);
+            }
             rhf = new RecipeHashFetcher(ui.core.databaseManager,
                     RecipeHashFetcher.genFep(currentSortType, currentSortDesc));
             ui.core.databaseManager.submitTask(rhf);
@@ -673,6 +723,9 @@ public class NCookBook extends Window {
                                 if (finalCookbook.favoriteManager != null) {
                                     finalCookbook.favoriteManager.toggleFavorite(recipe.getHash());
                                     recipe.setFavorite(!recipe.isFavorite());
+                                    if (finalCookbook.store != null) {
+                                        finalCookbook.store.setFavorite(recipe.getHash(), recipe.isFavorite());
+                                    }
                                     // Re-sort to update display
                                     finalCookbook.sortRecipes(finalCookbook.currentSortType, finalCookbook.currentSortDesc);
                                 }
@@ -1413,12 +1413,13 @@ NMiniMap extends MiniMap {
         if(settings != null && !settings.master)
             return;
 
-        java.util.List<LabeledMinimapMark> marks = gui.labeledMarkService.getMarksForSegment(dloc.seg.id);
-        if(marks.isEmpty())
-            return;
-
         Coord hsz = sz.div(2);
         float scale = scalef();
+        /* Only the marks of the grids on screen, not every sample of the segment. */
+        Coord half = hsz.mul(scale).add(1, 1);
+        java.util.List<LabeledMinimapMark> marks = gui.labeledMarkService.getMarksInArea(dloc.seg.id, dloc.tc.sub(half), dloc.tc.add(half));
+        if(marks.isEmpty())
+            return;
 
         for(LabeledMinimapMark mark : marks) {
             if(settings != null && !settings.shows(mark.kind, mark.quality))
@@ -1950,9 +1951,9 @@ NMiniMap extends MiniMap {
         NGameUI gui = NUtils.getGameUI();
         if(gui == null || gui.localizedResourceTimerService == null) return;
 
-        java.util.List<LocalizedResourceTimer> timers = gui.localizedResourceTimerService.getTimersForSegment(dloc.seg.id);
-
         Coord hsz = sz.div(2);
+        Coord half = hsz.mul(scalef()).add(1, 1);
+        java.util.List<LocalizedResourceTimer> timers = gui.localizedResourceTimerService.getTimersInArea(dloc.seg.id, dloc.tc.sub(half), dloc.tc.add(half));
 
         // Create bordered text furnaces for timer display (like barrel names and character nicknames)
         Text.Furnace readyTimerFurnace = new PUtils.BlurFurn(
@@ -2013,11 +2014,12 @@ NMiniMap extends MiniMap {
             parentWidget = parentWidget.parent;
         }
 
-        // Use sessloc.seg.id like waypoints and markers do
-        java.util.List<nurgling.FishLocation> fishLocations = gui.fishLocationService.getFishLocationsForSegment(sessloc.seg.id);
-
         Coord hsz = sz.div(2);
 
+        // Use sessloc.seg.id like waypoints and markers do; only the grids on screen are looked at
+        Coord half = hsz.mul(scalef()).add(1, 1);
+        java.util.List<nurgling.FishLocation> fishLocations = gui.fishLocationService.getFishLocationsInArea(sessloc.seg.id, dloc.tc.sub(half), dloc.tc.add(half));
+
         for(nurgling.FishLocation fishLoc : fishLocations) {
             // Apply marker search pattern filter to fish names
             if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
@@ -2092,11 +2094,12 @@ NMiniMap extends MiniMap {
             parentWidget = parentWidget.parent;
         }
 
-        // Use sessloc.seg.id like waypoints and markers do
-        java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsForSegment(sessloc.seg.id);
-
         Coord hsz = sz.div(2);
 
+        // Use sessloc.seg.id like waypoints and markers do; only the grids on screen are looked at
+        Coord half = hsz.mul(scalef()).add(1, 1);
+        java.util.List<nurgling.TreeLocation> treeLocations = gui.treeLocationService.getTreeLocationsInArea(sessloc.seg.id, dloc.tc.sub(half), dloc.tc.add(half));
+
         for(nurgling.TreeLocation treeLoc : treeLocations) {
             // Apply marker search pattern filter to tree names
             if(markerSearchPattern != null && !markerSearchPattern.trim().isEmpty()) {
@@ -2156,15 +2159,9 @@ NMiniMap extends MiniMap {
         NGameUI gui = NUtils.getGameUI();
         if(gui == null || gui.fishLocationService == null || dloc == null) return null;
 
-        java.util.List<nurgling.FishLocation> locations = gui.fishLocationService.getFishLocationsForSegment(dloc.seg.id);
         int threshold = UI.scale(10); // Click radius
-
-        for(nurgling.FishLocation loc : locations) {
-            if(loc.getTileCoords().dist(tc) < threshold) {
-                return loc;
-            }
-        }
-        return null;
+        nurgling.FishLocation loc = gui.fishLocationService.getNearestFishLocation(dloc.seg.id, tc, threshold);
+        return (loc != null && loc.getTileCoords().dist(tc) < threshold) ? loc : null;
     }
     
     /**
@@ -4,6 +4,7 @@ import haven.*;
 import nurgling.NConfig;
 import nurgling.NGameUI;
 import nurgling.NGItem;
+import nurgling.NGob;
 import nurgling.NStyle;
 import nurgling.NUI;
 import nurgling.conf.FontSettings;
@@ -43,8 +44,8 @@ public class NQuestInfo extends Widget
     /* ------------------------------------------------------------------ overlay API */
 
     /**
-     * Bumped whenever the tracked set changes. {@link nurgling.NGob} and {@link NGItem}
-     * poll this to know when to re-evaluate their cached quest highlighting.
+     * Bumped whenever the tracked set changes, through {@link #changed()}. {@link NGItem} polls
+     * this to know when to re-evaluate its cached quest highlighting; gobs are asked directly.
      */
     public final AtomicInteger lastUpdate = new AtomicInteger(0);
 
@@ -280,7 +281,7 @@ public class NQuestInfo extends Widget
         // Only wake the gob overlays when what they read actually changed - collapsing a group
         // is a view change, and should not make every gob in the world re-evaluate itself.
         if(overlays)
-            lastUpdate.incrementAndGet();
+            changed();
     }
 
     /** Should this quest be considered at all, before per-group filtering? */
@@ -1096,7 +1097,15 @@ public class NQuestInfo extends Widget
             }
             markers.add(new MarkerInfo(nm, tmp, seg));
         }
+        changed();
+    }
+
+    /** Bumps {@link #lastUpdate} and has this session's gobs re-check their quest markers. */
+    private void changed()
+    {
         lastUpdate.incrementAndGet();
+        if(ui != null && ui.sess != null)
+            ui.sess.glob.oc.overlays.requestAll(NGob.OW_QUEST);
     }
 
     public MarkerInfo getMarkerInfo(NGameUI gui, Gob gob)
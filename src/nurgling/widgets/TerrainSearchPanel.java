@@ -13,6 +13,8 @@ import java.util.*;
 public class TerrainSearchPanel extends Widget {
     private static final int PANEL_WIDTH = UI.scale(450);
     private static final int PANEL_HEIGHT = UI.scale(500);
+    /** How far, in tiles, the nearest-tile search looks. */
+    private static final int NEAREST_RANGE = 10000;
     
     private TextEntry terrainSearchField;
     private CategoryList categoryList;
@@ -69,6 +71,14 @@ public class TerrainSearchPanel extends Widget {
             }
         }, margin, y);
         
+        // Center the big map on the nearest highlighted tile
+        add(new Button(UI.scale(90), L10n.get("terrain.nearest")) {
+            @Override
+            public void click() {
+                findNearest();
+            }
+        }, margin * 2 + UI.scale(90), y);
+        
         // Clear search button
         add(new Button(UI.scale(80), L10n.get("terrain.clear")) {
             @Override
@@ -231,6 +241,40 @@ public class TerrainSearchPanel extends Widget {
         }
     }
 
+    /**
+     * Find the highlighted tile nearest to the player among the recorded
+     * map grids of the current segment and center the big map on it.
+     */
+    private void findNearest() {
+        GameUI gui = NUtils.getGameUI();
+        if(gui == null || gui.mmap == null || gui.mmap.sessloc == null || gui.map == null)
+            return;
+        Gob player = gui.map.player();
+        if(player == null)
+            return;
+        MiniMap.Location sessloc = gui.mmap.sessloc;
+        Coord tc = player.rc.floor(MCache.tilesz).add(sessloc.tc);
+        MapTileIndex tindex = gui.mmap.file.tindex;
+        Coord best = null;
+        for(String set : TileHighlight.getHighlighted()) {
+            int maxdist = (best == null) ? NEAREST_RANGE : (int)Math.ceil(best.dist(tc));
+            Coord c = tindex.nearest(sessloc.seg.id, set, tc, maxdist);
+            if(c != null && (best == null || c.dist(tc) < best.dist(tc)))
+                best = c;
+        }
+        if(best == null) {
+            gui.msg(L10n.get(tindex.complete ? "terrain.nearest_none" : "terrain.nearest_indexing"));
+            return;
+        }
+        if(gui.mapfile != null) {
+            if(!gui.mapfile.visible())
+                gui.togglewnd(gui.mapfile);
+            gui.mapfile.view.center(new MiniMap.Location(sessloc.seg, best));
+            gui.mapfile.view.follow(null);
+        }
+        gui.msg(L10n.get("terrain.nearest_found", (int)Math.round(best.dist(tc))));
+    }
+
     private void selectAllInCategory() {
         if(selectedCategory != null) {
             for(TerrainPreset preset : selectedCategory.presets) {
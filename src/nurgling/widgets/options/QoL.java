@@ -2,11 +2,13 @@ package nurgling.widgets.options;
 
 import haven.*;
 import nurgling.NConfig;
+import nurgling.NGob;
 import nurgling.NMapView;
 import nurgling.NUtils;
 import nurgling.i18n.L10n;
 import nurgling.overlays.NLPassistant;
 import nurgling.overlays.NObjHarvestOl;
+import nurgling.tools.GobOverlayScheduler;
 import nurgling.tools.HarvestSpecs;
 import nurgling.widgets.nsettings.Panel;
 
@@ -533,6 +535,9 @@ public class QoL extends Panel {
                         }
                     }
                 }
+            } else {
+                // LP assistant was enabled - have every session's gobs look for undiscovered products
+                GobOverlayScheduler.requestAllSessions(NGob.OW_LP);
             }
             // Force update config cache in all NGob instances to reflect the change immediately
             if(NUtils.getGameUI() != null && NUtils.getGameUI().ui != null && NUtils.getGameUI().ui.sess != null) {
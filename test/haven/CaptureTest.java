@@ -0,0 +1,105 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureTest {
+    static class Log implements Transport.Callback {
+        final List<String> events = new ArrayList<>();
+
+        public void closed() {
+            events.add("close");
+        }
+
+        public void handle(PMessage msg) {
+            events.add("rmsg " + msg.type + " " + Arrays.toString(msg.bytes()));
+        }
+
+        public void handle(OCache.ObjDelta d) {
+            StringBuilder buf = new StringBuilder();
+            buf.append("objd ").append(d.fl).append(' ').append(d.id).append(' ').append(d.frame)
+                .append(' ').append(d.initframe).append(' ').append(d.rem);
+            for (OCache.AttrDelta attr : d.attrs)
+                buf.append(' ').append(attr.type).append(':').append(Arrays.toString(attr.bytes()));
+            events.add(buf.toString());
+        }
+
+        public void mapdata(Message msg) {
+            events.add("map " + Arrays.toString(msg.bytes()));
+        }
+    }
+
+    private static OCache.ObjDelta delta(int fl, long id, int frame, int initframe, boolean rem) {
+        OCache.ObjDelta d = new OCache.ObjDelta(fl, id, frame);
+        d.initframe = initframe;
+        d.rem = rem;
+        d.attrs.add(new OCache.AttrDelta(d, 3, new byte[] {1, 2, 3}));
+        d.attrs.add(new OCache.AttrDelta(d, 200, new byte[300]));
+        return d;
+    }
+
+    @Test
+    void replay_delivers_what_was_captured() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        Capture.Writer w = new Capture.Writer(buf);
+        Log expected = new Log();
+        Transport.Callback[] both = {w, expected};
+        for (Transport.Callback cb : both) {
+            cb.handle(new PMessage(7, new byte[] {9, 8, 7}));
+            cb.handle(delta(2, 1L << 40, 123456, 0, false));
+            cb.handle(delta(4, 5, -1, 17, true));
+            cb.mapdata(new MessageBuf(new byte[] {4, 5}));
+            cb.closed();
+        }
+        Log got = new Log();
+        Capture.Replay r = new Capture.Replay(new ByteArrayInputStream(buf.toByteArray()));
+        r.add(got);
+        assertFalse(r.advance(1e6));
+        assertEquals(expected.events, got.events);
+        assertEquals(1, r.rmsgs);
+        assertEquals(2, r.objds);
+        assertEquals(1, r.maps);
+    }
+
+    @Test
+    void advance_stops_at_the_given_capture_time() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        Capture.Writer w = new Capture.Writer(buf);
+        w.handle(new PMessage(1, new byte[0]));
+        Thread.sleep(200);
+        w.handle(new PMessage(2, new byte[0]));
+        w.closed();
+        Log got = new Log();
+        Capture.Replay r = new Capture.Replay(new ByteArrayInputStream(buf.toByteArray()));
+        r.add(got);
+        assertTrue(r.advance(0.1));
+        assertEquals(1, got.events.size());
+        assertTrue(r.advance(0.1));
+        assertEquals(1, got.events.size());
+        assertFalse(r.advance(10));
+        assertEquals(Arrays.asList("rmsg 1 []", "rmsg 2 []", "close"), got.events);
+        assertTrue(r.time() >= 0.2);
+    }
+
+    @Test
+    void a_capture_cut_short_ends_the_replay() throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        Capture.Writer w = new Capture.Writer(buf);
+        w.handle(new PMessage(1, new byte[] {1}));
+        w.out.flush();
+        Log got = new Log();
+        Capture.Replay r = new Capture.Replay(new ByteArrayInputStream(buf.toByteArray()));
+        r.add(got);
+        assertFalse(r.advance(10));
+        assertEquals(Arrays.asList("rmsg 1 [1]", "close"), got.events);
+    }
+}
@@ -0,0 +1,28 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatArchiveTest {
+    @Test
+    void reads_back_any_run_of_messages() throws Exception {
+        try (ChatArchive a = new ChatArchive()) {
+            for (int i = 0; i < 1000; i++)
+                assertEquals(i, a.add("line " + i + ((i % 7 == 0) ? " \u00e5\u00e4\u00f6" : ""), (i % 3 == 0) ? null : new Color(i % 256, 255 - (i % 256), 7, 200)));
+            assertEquals(1000, a.size());
+            List<ChatArchive.Entry> got = a.get(990, 2000);
+            assertEquals(10, got.size());
+            assertEquals("line 991", got.get(1).text);
+            assertEquals(new Color(991 % 256, 255 - (991 % 256), 7, 200), got.get(1).col);
+            assertNull(got.get(3).col);
+            got = a.get(0, 1);
+            assertEquals("line 0 \u00e5\u00e4\u00f6", got.get(0).text);
+            assertEquals(0, a.get(500, 500).size());
+        }
+    }
+}
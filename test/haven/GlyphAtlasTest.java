@@ -0,0 +1,145 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlyphAtlasTest {
+    private static final String[] LABELS = {
+        "Q42", "12 tiles \u00b7 31s", "Wild Onion", "gjpqy|[]{}", "", "  ", "\u0416\u0438\u0442\u043e \u00e5\u00e4\u00f6", "Tree (87%)",
+    };
+
+    /**
+     * Largest difference of any channel of any pixel, premultiplied: AWT un-premultiplies faint
+     * pixels with a lot of rounding, which is invisible once blended.
+     */
+    private static int diff(BufferedImage a, BufferedImage b) {
+        assertEquals(a.getWidth(), b.getWidth());
+        assertEquals(a.getHeight(), b.getHeight());
+        Raster ra = a.getRaster(), rb = b.getRaster();
+        int max = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                int aa = ra.getSample(x, y, 3), ab = rb.getSample(x, y, 3);
+                max = Math.max(max, Math.abs(aa - ab));
+                for (int c = 0; c < 3; c++)
+                    max = Math.max(max, Math.abs((ra.getSample(x, y, c) * aa) - (rb.getSample(x, y, c) * ab)) / 255);
+            }
+        }
+        return max;
+    }
+
+    /** Mean difference of all channels of all pixels, premultiplied as in diff(). */
+    private static double mean(BufferedImage a, BufferedImage b) {
+        assertEquals(a.getWidth(), b.getWidth());
+        assertEquals(a.getHeight(), b.getHeight());
+        Raster ra = a.getRaster(), rb = b.getRaster();
+        long sum = 0;
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                int aa = ra.getSample(x, y, 3), ab = rb.getSample(x, y, 3);
+                sum += Math.abs(aa - ab);
+                for (int c = 0; c < 3; c++)
+                    sum += Math.abs((ra.getSample(x, y, c) * aa) - (rb.getSample(x, y, c) * ab)) / 255;
+            }
+        }
+        return (double) sum / (a.getWidth() * a.getHeight() * 4);
+    }
+
+    /**
+     * What Text.Foundry.render draws, done with plain AWT here so the test does not depend on
+     * Text's static fonts, which come from the client configuration.
+     */
+    private static BufferedImage awt(Font font, boolean aa, String s, Color col) {
+        FontMetrics m = TexI.mkbuf(new Coord(1, 1)).createGraphics().getFontMetrics(font);
+        BufferedImage img = TexI.mkbuf(new Coord(Math.max(m.stringWidth(s), 1), m.getHeight()));
+        Graphics2D g = img.createGraphics();
+        if (aa)
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setFont(font);
+        g.setColor(col);
+        g.drawString(s, 0, m.getLeading() + m.getAscent());
+        g.dispose();
+        return img;
+    }
+
+    private static void matches_awt(Font font, boolean aa, Color col) {
+        GlyphAtlas atlas = new GlyphAtlas(font, aa);
+        for (String s : LABELS) {
+            GlyphAtlas.Layout l = atlas.layout(s);
+            assertNotNull(l, s);
+            assertTrue(diff(awt(font, aa, s, col), atlas.compose(l, col)) <= 2, s);
+        }
+    }
+
+    @Test
+    void composed_labels_match_awt_rendering() {
+        matches_awt(new Font("SansSerif", Font.PLAIN, 12), true, Color.WHITE);
+        matches_awt(new Font("Serif", Font.ITALIC, 17), true, new Color(215, 235, 240));
+        matches_awt(new Font("SansSerif", Font.BOLD, 11), false, new Color(255, 64, 0, 160));
+    }
+
+    /** What PUtils.BlurFurn draws over a plain rendering of s. */
+    private static BufferedImage outlined(Font font, boolean aa, String s, Color col, int grad, int brad, Color ocol) {
+        return PUtils.rasterimg(PUtils.blurmask2(awt(font, aa, s, col).getRaster(), grad, brad, ocol));
+    }
+
+    /**
+     * Outlines are blurred per glyph rather than over the whole string, so they differ from
+     * BlurFurn's between glyphs whose outlines overlap, and where AWT clips a glyph at the edge of
+     * the string; the images as a whole come close.
+     */
+    @Test
+    void outlined_labels_match_blurred_rendering() {
+        Font font = new Font("SansSerif", Font.BOLD, 16);
+        Color col = new Color(215, 235, 240), ocol = new Color(36, 25, 25);
+        for (int[] r : new int[][] {{1, 1}, {2, 1}}) {
+            GlyphAtlas atlas = new GlyphAtlas(font, true, r[0], r[1]);
+            for (String s : LABELS) {
+                GlyphAtlas.Layout l = atlas.layout(s);
+                assertNotNull(l, s);
+                assertTrue(mean(outlined(font, true, s, col, r[0], r[1], ocol), atlas.compose(l, col, ocol)) <= 3, s);
+            }
+        }
+    }
+
+    @Test
+    void outlined_layouts_include_the_margin() {
+        Font font = new Font("SansSerif", Font.PLAIN, 12);
+        GlyphAtlas atlas = new GlyphAtlas(font, true, 2, 1);
+        GlyphAtlas.Layout l = atlas.layout("Q42");
+        assertEquals(atlas.m.stringWidth("Q42") + 6, l.sz.x);
+        assertEquals(atlas.m.getHeight() + 6, l.sz.y);
+        /* Without an outline color, the same glyphs come out plain, inset by the margin. */
+        BufferedImage plain = atlas.compose(l, Color.WHITE);
+        assertTrue(diff(awt(font, true, "Q42", Color.WHITE), plain.getSubimage(3, 3, l.sz.x - 6, l.sz.y - 6)) <= 2);
+    }
+
+    @Test
+    void layouts_are_cached_per_string() {
+        GlyphAtlas atlas = new GlyphAtlas(new Font("SansSerif", Font.PLAIN, 12), true);
+        GlyphAtlas.Layout l = atlas.layout("31s");
+        assertSame(l, atlas.layout("31s"));
+        assertEquals(atlas.m.stringWidth("31s"), l.sz.x);
+        assertSame(l.glyphs[0], atlas.layout("3").glyphs[0]);
+    }
+
+    @Test
+    void complex_text_is_left_to_awt() {
+        GlyphAtlas atlas = new GlyphAtlas(new Font("SansSerif", Font.PLAIN, 12), true);
+        assertNull(atlas.layout("\u0645\u0631\u062d\u0628\u0627"));
+        assertNull(atlas.layout("\ud83d\ude00"));
+    }
+}
@@ -0,0 +1,35 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GridDeltaTest {
+    @Test
+    void refills_reach_only_nearby_cuts() {
+        int n = MCache.cmaps.x * MCache.cmaps.y;
+        int[] tiles = new int[n];
+        float[] z = new float[n];
+        MCache.GridDelta same = new MCache.GridDelta(tiles, z, tiles.clone(), z.clone());
+        assertFalse(same.any());
+        int[] nt = tiles.clone();
+        /* Last row and column of the first cut */
+        nt[24 + (24 * MCache.cmaps.x)] = 1;
+        MCache.GridDelta d = new MCache.GridDelta(tiles, z, nt, z);
+        assertTrue(d.any());
+        assertTrue(d.affects(Coord.z, Coord.of(0, 0)));
+        assertTrue(d.affects(Coord.z, Coord.of(1, 1)));
+        assertFalse(d.affects(Coord.z, Coord.of(2, 0)));
+        assertFalse(d.affects(Coord.of(-1, 0), Coord.of(3, 0)));
+        float[] nz = z.clone();
+        nz[0] = 1;
+        d = new MCache.GridDelta(tiles, z, tiles, nz);
+        assertTrue(d.affects(Coord.of(-1, -1), Coord.of(3, 3)));
+        assertTrue(d.affects(Coord.of(0, -1), Coord.of(0, 3)));
+        assertFalse(d.affects(Coord.of(0, -1), Coord.of(1, 3)));
+        assertFalse(d.affects(Coord.of(1, 0), Coord.of(0, 0)));
+        assertTrue(MCache.GridDelta.all().affects(Coord.of(1, 0), Coord.of(0, 2)));
+        assertFalse(MCache.GridDelta.all().affects(Coord.of(1, 0), Coord.of(1, 2)));
+    }
+}
@@ -0,0 +1,100 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GridPainterTest {
+    static final Coord SZ = Coord.of(32, 32);
+    static final int IDS = 6;
+    static final TileTexCache.Tex[] TEXES = new TileTexCache.Tex[IDS];
+    static {
+        Random rnd = new Random(2);
+        for (int t = 0; t < IDS; t++) {
+            int[] px = new int[8 * 8];
+            for (int i = 0; i < px.length; i++)
+                px[i] = 0xff000000 | rnd.nextInt(0x1000000);
+            TEXES[t] = new TileTexCache.Tex(8, 8, px);
+        }
+    }
+
+    @Test
+    void incremental_paint_matches_full_paint() {
+        Random rnd = new Random(1);
+        int[] tiles = randomTiles(rnd);
+        float[] z = randomHeights(rnd);
+        GridPainter.Painted prev = GridPainter.paint(sample(tiles, z), null);
+        for (int round = 0; round < 50; round++) {
+            for (int k = 0; k < 3; k++) {
+                tiles[rnd.nextInt(tiles.length)] = rnd.nextInt(IDS);
+                z[rnd.nextInt(z.length)] += (rnd.nextFloat() - 0.5f) * 40;
+            }
+            GridPainter.Painted inc = GridPainter.paint(sample(tiles, z), prev);
+            GridPainter.Painted full = GridPainter.paint(sample(tiles, z), null);
+
+            assertArrayEquals(full.px, inc.px);
+            assertTrue(inc.painted < full.painted);
+            prev = inc;
+        }
+    }
+
+    @Test
+    void unchanged_sample_reuses_previous_pixels() {
+        Random rnd = new Random(3);
+        int[] tiles = randomTiles(rnd);
+        float[] z = randomHeights(rnd);
+        GridPainter.Painted prev = GridPainter.paint(sample(tiles, z), null);
+
+        GridPainter.Painted again = GridPainter.paint(sample(tiles, z), prev);
+
+        assertSame(prev.px, again.px);
+        assertEquals(0, again.painted);
+    }
+
+    @Test
+    void changed_tile_info_forces_full_paint() {
+        Random rnd = new Random(4);
+        int[] tiles = randomTiles(rnd);
+        float[] z = randomHeights(rnd);
+        GridPainter.Painted prev = GridPainter.paint(sample(tiles, z), null);
+
+        GridPainter.Sample s = sample(tiles, z);
+        s.tileinfo(0, TEXES[1], 0, Double.NaN);
+        GridPainter.Painted next = GridPainter.paint(s, prev);
+
+        assertEquals(SZ.x * SZ.y, next.painted);
+        assertArrayEquals(GridPainter.paint(s, null).px, next.px);
+    }
+
+    private static int[] randomTiles(Random rnd) {
+        int[] tiles = new int[(SZ.x + 2) * (SZ.y + 2)];
+        for (int i = 0; i < tiles.length; i++)
+            tiles[i] = rnd.nextInt(IDS + 1) - 1;
+        return tiles;
+    }
+
+    private static float[] randomHeights(Random rnd) {
+        float[] z = new float[SZ.x * SZ.y];
+        for (int i = 0; i < z.length; i++)
+            z[i] = rnd.nextFloat() * 20;
+        return z;
+    }
+
+    /* Even ids are ridge tiles, and id 5 has no texture. */
+    private static GridPainter.Sample sample(int[] tiles, float[] z) {
+        GridPainter.Sample s = new GridPainter.Sample(SZ, Coord.of(3, 5), false, 0);
+        for (int y = -1; y <= SZ.y; y++) {
+            for (int x = -1; x <= SZ.x; x++)
+                s.tile(x, y, tiles[(x + 1) + ((y + 1) * (SZ.x + 2))]);
+        }
+        s.heights(z);
+        for (int t : s.ids())
+            s.tileinfo(t, (t == 5) ? null : TEXES[t], t, ((t % 2) == 0) ? 4.0 + t : Double.NaN);
+        return s;
+    }
+}
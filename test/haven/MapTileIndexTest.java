@@ -0,0 +1,100 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MapTileIndexTest {
+    static final String[] SETS = {"gfx/tiles/grass", "gfx/tiles/rocks/galena", "gfx/tiles/water"};
+    static final int W = MCache.cmaps.x, H = MCache.cmaps.y;
+
+    @Test
+    void queries_agree_with_brute_force() {
+        Random rnd = new Random(7);
+        Map<Long, MapTileIndex.Tiles> stored = new HashMap<>();
+        MapTileIndex idx = new MapTileIndex(stored::get);
+        Map<Coord, Long> layout = new HashMap<>();
+        long id = 1;
+        for (int gx = -1; gx <= 1; gx++) {
+            for (int gy = -1; gy <= 1; gy++) {
+                MapTileIndex.Tiles t = grid(rnd);
+                stored.put(id, t);
+                layout.put(Coord.of(gx, gy), id);
+                idx.put(id++, 5, Coord.of(gx, gy), t);
+            }
+        }
+        for (int round = 0; round < 200; round++) {
+            String set = SETS[1 + rnd.nextInt(2)];
+            Coord tc = Coord.of(rnd.nextInt(W * 5) - (W * 5 / 2), rnd.nextInt(H * 5) - (H * 5 / 2));
+            int r = rnd.nextInt(150);
+            Set<Coord> within = new HashSet<>();
+            long best = Long.MAX_VALUE;
+            for (Map.Entry<Coord, Long> e : layout.entrySet()) {
+                MapTileIndex.Tiles t = stored.get(e.getValue());
+                Coord ul = e.getKey().mul(MCache.cmaps);
+                for (int i = 0; i < t.tiles.length; i++) {
+                    if (!t.sets[t.tiles[i]].equals(set))
+                        continue;
+                    Coord c = ul.add(i % W, i / W);
+                    long dx = c.x - tc.x, dy = c.y - tc.y, d = (dx * dx) + (dy * dy);
+                    if (d <= (long) r * r)
+                        within.add(c);
+                    best = Math.min(best, d);
+                }
+            }
+            assertEquals(within, new HashSet<>(idx.within(5, set, tc, r)));
+            Coord near = idx.nearest(5, set, tc, r);
+            if (best > (long) r * r) {
+                assertNull(near);
+            } else {
+                long dx = near.x - tc.x, dy = near.y - tc.y;
+                assertEquals(best, (dx * dx) + (dy * dy));
+            }
+        }
+        assertNull(idx.nearest(6, SETS[1], Coord.z, 1000));
+    }
+
+    @Test
+    void saved_index_answers_the_same() {
+        Random rnd = new Random(3);
+        Map<Long, MapTileIndex.Tiles> stored = new HashMap<>();
+        MapTileIndex idx = new MapTileIndex(stored::get);
+        for (long id = 1; id <= 4; id++) {
+            stored.put(id, grid(rnd));
+            idx.put(id, 1, Coord.of((int) id, 0), stored.get(id));
+        }
+        idx.move(4, 2, Coord.of(0, 0));
+        MessageBuf buf = new MessageBuf();
+        idx.save(buf);
+        MapTileIndex copy = new MapTileIndex(stored::get);
+        copy.load(new MessageBuf(buf.fin()));
+        assertEquals(idx.size(), copy.size());
+        for (long seg = 1; seg <= 2; seg++) {
+            for (String set : SETS) {
+                Coord tc = Coord.of(W * 2, H / 2);
+                assertEquals(idx.nearest(seg, set, tc, 1000), copy.nearest(seg, set, tc, 1000));
+                assertEquals(idx.grids(seg, set).size(), copy.grids(seg, set).size());
+                assertEquals(idx.get(4).count(set), copy.get(4).count(set));
+            }
+        }
+    }
+
+    /* Mostly grass, with a few veins of the other sets; the sets are
+     * listed twice over, as grids may. */
+    static MapTileIndex.Tiles grid(Random rnd) {
+        String[] sets = {SETS[0], SETS[1], SETS[2], SETS[1]};
+        int[] tiles = new int[W * H];
+        for (int v = rnd.nextInt(4); v > 0; v--) {
+            int x = rnd.nextInt(W), y = rnd.nextInt(H), s = 1 + rnd.nextInt(3);
+            for (int k = 0; k < 30; k++) {
+                tiles[x + (y * W)] = s;
+                x = Math.max(0, Math.min(W - 1, x + rnd.nextInt(3) - 1));
+                y = Math.max(0, Math.min(H - 1, y + rnd.nextInt(3) - 1));
+            }
+        }
+        return new MapTileIndex.Tiles(sets, tiles);
+    }
+}
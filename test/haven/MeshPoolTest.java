@@ -0,0 +1,41 @@
+package haven;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MeshPoolTest {
+    @Test
+    void arrays_come_in_power_of_two_classes() {
+        assertEquals(1 << MeshPool.MINCLASS, MeshPool.floats(1).length);
+        assertEquals(2048, MeshPool.floats(2000).length);
+        assertEquals(4096, MeshPool.shorts(4096).length);
+        assertEquals((1 << MeshPool.MAXCLASS) + 1, MeshPool.floats((1 << MeshPool.MAXCLASS) + 1).length);
+    }
+
+    @Test
+    void released_arrays_are_reused() {
+        short[] a = MeshPool.shorts(3000);
+        MeshPool.release(a);
+        assertSame(a, MeshPool.shorts(2500));
+        assertNotSame(a, MeshPool.shorts(2500));
+        float[] odd = new float[1000];
+        MeshPool.release(odd);
+        assertNotSame(odd, MeshPool.floats(1000));
+    }
+
+    @Test
+    void growing_keeps_the_used_part() {
+        float[] a = MeshPool.floats(64);
+        for (int i = 0; i < 64; i++)
+            a[i] = i;
+        assertSame(a, MeshPool.grow(a, 64, 64));
+        float[] b = MeshPool.grow(a, 50, 65);
+        assertEquals(128, b.length);
+        for (int i = 0; i < 50; i++)
+            assertEquals(i, b[i], 0);
+        assertSame(a, MeshPool.floats(64));
+    }
+}
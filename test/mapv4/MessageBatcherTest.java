@@ -0,0 +1,56 @@
+package mapv4;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageBatcherTest {
+    @Test
+    void position_updates_merge_into_the_latest_positions() {
+        List<JSONObject> out = MessageBatcher.coalesce(Arrays.asList(
+                msg("TRACKING", "/positionUpdate", new JSONObject().put("1", "a").put("2", "b")),
+                msg("TRACKING", "/positionUpdate", new JSONObject().put("1", "c"))));
+
+        assertEquals(1, out.size());
+        JSONObject data = out.get(0).getJSONObject("data");
+        assertEquals("c", data.getString("1"));
+        assertEquals("b", data.getString("2"));
+    }
+
+    @Test
+    void marker_updates_are_concatenated() {
+        List<JSONObject> out = MessageBatcher.coalesce(Arrays.asList(
+                msg("SMARKER", "/markerUpdate", new JSONArray().put("a")),
+                msg("PMARKER", "/markerUpdate", new JSONArray().put("b").put("c"))));
+
+        assertEquals(1, out.size());
+        assertEquals("MARKERS", out.get(0).getString("header"));
+        assertEquals(3, out.get(0).getJSONArray("data").length());
+    }
+
+    @Test
+    void single_grid_messages_keep_only_the_latest_per_grid_in_first_order() {
+        JSONObject a1 = msg("GRIDUPLOAD", "/gridUpload", new JSONObject().put("gridID", "1"));
+        JSONObject b = msg("GRIDUPLOAD", "/gridUpload", new JSONObject().put("gridID", "2"));
+        JSONObject a2 = msg("GRIDUPLOAD", "/gridUpload", new JSONObject().put("gridID", "1"));
+        JSONObject other = msg("LOCATE", "/locate", new JSONObject());
+
+        List<JSONObject> out = MessageBatcher.coalesce(Arrays.asList(a1, other, b, a2, other));
+
+        assertEquals(Arrays.asList(a2, other, b, other), out);
+    }
+
+    private static JSONObject msg(String header, String url, Object data) {
+        JSONObject msg = new JSONObject();
+        msg.put("header", header);
+        msg.put("url", url);
+        msg.put("reqMethod", "POST");
+        msg.put("data", data);
+        return msg;
+    }
+}
@@ -0,0 +1,179 @@
+package mapv4;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("outbox");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void entries_survive_reopening() throws IOException {
+        try (Outbox box = open()) {
+            box.put(null, "{\"a\":1}", null);
+            long b = box.put("IMG 7", "{\"b\":2}", new byte[] {1, 2, 3});
+            box.put(null, "{\"c\":3}", null);
+            box.remove(b + 1);
+        }
+        try (Outbox box = open()) {
+            assertEquals(Arrays.asList("{\"a\":1}", "{\"b\":2}"), jsons(box));
+            assertArrayEquals(new byte[] {1, 2, 3}, box.get("IMG 7").blob);
+            // New ids continue past the replayed ones
+            assertTrue(box.put(null, "{}", null) > 3);
+        }
+    }
+
+    @Test
+    void a_later_entry_supersedes_the_same_key() throws IOException {
+        try (Outbox box = open()) {
+            box.put("IMG 7", "old", null);
+            box.put(null, "other", null);
+            box.put("IMG 7", "new", null);
+            assertEquals(Arrays.asList("other", "new"), jsons(box));
+        }
+        try (Outbox box = open()) {
+            assertEquals("new", box.get("IMG 7").json);
+            assertEquals(2, box.size());
+        }
+    }
+
+    @Test
+    void a_torn_tail_is_discarded() throws IOException {
+        try (Outbox box = open()) {
+            box.put(null, "kept", null);
+            box.put(null, "torn", null);
+        }
+        Path seg = dir.resolve("outbox-0.log");
+        try (RandomAccessFile f = new RandomAccessFile(seg.toFile(), "rw")) {
+            f.setLength(f.length() - 3);
+        }
+        try (Outbox box = open()) {
+            assertEquals(Collections.singletonList("kept"), jsons(box));
+            box.put(null, "after", null);
+        }
+        try (Outbox box = open()) {
+            assertEquals(Arrays.asList("kept", "after"), jsons(box));
+        }
+    }
+
+    @Test
+    void a_corrupt_record_fails_its_checksum() throws IOException {
+        try (Outbox box = open()) {
+            box.put(null, "kept", null);
+            box.put(null, "flipped", null);
+        }
+        Path seg = dir.resolve("outbox-0.log");
+        byte[] data = Files.readAllBytes(seg);
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        data[text.indexOf("flipped")] ^= 1;
+        Files.write(seg, data);
+        try (Outbox box = open()) {
+            assertEquals(Collections.singletonList("kept"), jsons(box));
+        }
+    }
+
+    @Test
+    void removed_entries_are_compacted_away() throws IOException {
+        try (Outbox box = open()) {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                ids.add(box.put(null, pad(i), null));
+            for (int i = 0; i < 95; i++)
+                box.remove(ids.get(i));
+            assertEquals(5, box.size());
+            assertTrue(box.totalBytes() < 2 * box.liveBytes() + 1024, box.totalBytes() + " stored for " + box.liveBytes());
+        }
+        try (Outbox box = open()) {
+            assertEquals(Arrays.asList(pad(95), pad(96), pad(97), pad(98), pad(99)), jsons(box));
+        }
+    }
+
+    @Test
+    void the_oldest_entries_are_dropped_past_the_cap() throws IOException {
+        try (Outbox box = new Outbox(dir, 3 * 210, 1024)) {
+            for (int i = 0; i < 5; i++)
+                box.put(null, pad(i), null);
+            assertEquals(Arrays.asList(pad(2), pad(3), pad(4)), jsons(box));
+            assertEquals(2, box.dropped());
+        }
+    }
+
+    @Test
+    void oldest_filters_by_key_and_skips_in_flight_ids() throws IOException {
+        try (Outbox box = open()) {
+            long a = box.put(null, "a", null);
+            box.put("IMG 1", "img", null);
+            box.put(null, "b", null);
+            box.put(null, "c", null);
+            List<Outbox.Entry> got = box.oldest(2, k -> (k == null) || !k.startsWith("IMG "), Collections.singleton(a));
+            assertEquals("b", got.get(0).json);
+            assertEquals("c", got.get(1).json);
+            assertNull(box.get("IMG 2"));
+        }
+    }
+
+    @Test
+    void sessions_share_one_instance_and_others_are_locked_out() throws IOException {
+        Outbox a = Outbox.open(dir, 1 << 20, 1024);
+        Outbox b = Outbox.open(dir.resolve("."), 1 << 20, 1024);
+        assertSame(a, b);
+        assertThrows(IOException.class, this::open);
+        a.put(null, "kept", null);
+        a.close();
+        assertEquals(1, b.size());
+        b.close();
+        try (Outbox box = open()) {
+            assertEquals(Collections.singletonList("kept"), jsons(box));
+        }
+    }
+
+    private Outbox open() throws IOException {
+        return new Outbox(dir, 1 << 20, 1024);
+    }
+
+    /** A payload making records of about 206 bytes, so 4 fill a 1 KB segment. */
+    private static String pad(int i) {
+        StringBuilder buf = new StringBuilder("entry " + i + " ");
+        while (buf.length() < 180)
+            buf.append('.');
+        return buf.toString();
+    }
+
+    private static List<String> jsons(Outbox box) throws IOException {
+        List<String> ret = new ArrayList<>();
+        for (Outbox.Entry e : box.oldest(Integer.MAX_VALUE, k -> true, Collections.emptySet()))
+            ret.add(e.json);
+        return ret;
+    }
+}
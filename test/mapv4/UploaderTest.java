@@ -0,0 +1,123 @@
+package mapv4;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploaderTest {
+    private HttpServer server;
+    private ExecutorService handlers;
+    private String base;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger failFirst = new AtomicInteger();
+    private final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+    private final Set<Integer> ports = Collections.synchronizedSet(new HashSet<>());
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(handlers = Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        int now = active.incrementAndGet();
+        maxActive.accumulateAndGet(now, Math::max);
+        ports.add(ex.getRemoteAddress().getPort());
+        try (InputStream in = ex.getRequestBody()) {
+            bodies.add(new String(readAll(in), StandardCharsets.UTF_8));
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int status = (failFirst.getAndDecrement() > 0) ? 503 : 200;
+        byte[] resp = "ok".getBytes(StandardCharsets.UTF_8);
+        active.decrementAndGet();
+        ex.sendResponseHeaders(status, resp.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(resp);
+        }
+    }
+
+    @Test
+    void concurrency_is_bounded_and_connections_are_reused() throws Exception {
+        Uploader up = new Uploader(3, 10);
+        List<CompletableFuture<HttpResponse<String>>> sent = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String body = "{\"n\":" + i + "}";
+            sent.add(up.submit(() -> Uploader.json(base + "/positionUpdate", body), 1));
+        }
+        for (CompletableFuture<HttpResponse<String>> f : sent)
+            assertEquals(200, f.get(10, TimeUnit.SECONDS).statusCode());
+        up.close();
+
+        assertEquals(30, bodies.size());
+        assertTrue(maxActive.get() <= 3, "max concurrent " + maxActive.get());
+        assertTrue(ports.size() <= 3, "connections " + ports.size());
+        assertEquals(30, up.stats.sent.get());
+        assertEquals(0, up.stats.inflight.get());
+    }
+
+    @Test
+    void server_errors_are_retried() throws Exception {
+        failFirst.set(2);
+        Uploader up = new Uploader(1, 10);
+        HttpResponse<String> resp = up.submit(() -> Uploader.json(base + "/gridUpdate", "{}"), 3).get(10, TimeUnit.SECONDS);
+        up.close();
+
+        assertEquals(200, resp.statusCode());
+        assertEquals(3, bodies.size());
+        assertEquals(2, up.stats.retried.get());
+        assertEquals(1, up.stats.sent.get());
+    }
+
+    @Test
+    void the_last_failed_answer_is_returned_when_retries_run_out() throws Exception {
+        failFirst.set(5);
+        Uploader up = new Uploader(1, 10);
+        HttpResponse<String> resp = up.submit(() -> Uploader.json(base + "/gridUpdate", "{}"), 2).get(10, TimeUnit.SECONDS);
+        up.close();
+
+        assertEquals(503, resp.statusCode());
+        assertEquals(1, up.stats.failed.get());
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        java.io.ByteArrayOutputStream buf = new java.io.ByteArrayOutputStream();
+        byte[] b = new byte[4096];
+        for (int n; (n = in.read(b)) >= 0; )
+            buf.write(b, 0, n);
+        return buf.toByteArray();
+    }
+}
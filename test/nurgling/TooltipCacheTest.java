@@ -0,0 +1,67 @@
+package nurgling;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TooltipCacheTest {
+    @Test
+    void keys_compare_raw_info_deeply() {
+        TooltipCache.Key a = new TooltipCache.Key("gfx/invobjs/board", new Object[] {"q", new Object[] {10, 1.5f}}, false);
+        TooltipCache.Key b = new TooltipCache.Key("gfx/invobjs/board", new Object[] {"q", new Object[] {10, 1.5f}}, false);
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, new TooltipCache.Key("gfx/invobjs/board", new Object[] {"q", new Object[] {10, 1.5f}}, true));
+        assertNotEquals(a, new TooltipCache.Key("gfx/invobjs/board", new Object[] {"q", new Object[] {11, 1.5f}}, false));
+    }
+
+    @Test
+    void hits_and_misses_are_counted() {
+        TooltipCache cache = new TooltipCache(1 << 20);
+        BufferedImage img = image(10, 10);
+        cache.put(key("a"), img);
+
+        assertSame(img, cache.get(key("a")));
+        assertNull(cache.get(key("b")));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void least_recently_used_images_are_evicted_past_the_memory_cap() {
+        // Room for two 10x10 images
+        TooltipCache cache = new TooltipCache(2 * 400);
+        cache.put(key("a"), image(10, 10));
+        cache.put(key("b"), image(10, 10));
+        cache.get(key("a"));
+
+        cache.put(key("c"), image(10, 10));
+
+        assertEquals(2, cache.size());
+        assertEquals(800, cache.bytes());
+        assertNull(cache.get(key("b")));
+        assertEquals(10, cache.get(key("a")).getWidth());
+    }
+
+    @Test
+    void images_larger_than_the_cap_are_not_kept() {
+        TooltipCache cache = new TooltipCache(100);
+        cache.put(key("a"), image(10, 10));
+
+        assertEquals(0, cache.size());
+    }
+
+    private static TooltipCache.Key key(String res) {
+        return new TooltipCache.Key(res, new Object[0], false);
+    }
+
+    private static BufferedImage image(int w, int h) {
+        return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    }
+}
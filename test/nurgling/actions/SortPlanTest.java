@@ -0,0 +1,44 @@
+package nurgling.actions;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortPlanTest {
+    @Test
+    void sorted_layout_needs_no_moves() {
+        SortPlan plan = SortPlan.compute(new int[]{0, 1, 2}, new int[]{0, 1, 2}, new int[]{0, 1, 2});
+
+        assertEquals(0, plan.moves);
+        assertTrue(plan.chains.isEmpty());
+    }
+
+    @Test
+    void equal_items_keep_their_cells() {
+        // Two interchangeable items in each other's target cells stay put
+        SortPlan plan = SortPlan.compute(new int[]{1, 0}, new int[]{0, 0}, new int[]{0, 1});
+
+        assertEquals(0, plan.moves);
+    }
+
+    @Test
+    void swap_is_one_cycle_through_the_hand() {
+        SortPlan plan = SortPlan.compute(new int[]{1, 0}, new int[]{0, 1}, new int[]{0, 1});
+
+        assertEquals(2, plan.moves);
+        assertEquals(1, plan.chains.size());
+        assertArrayEquals(new int[]{1, 0, 1}, plan.chains.get(0));
+    }
+
+    @Test
+    void chain_ends_on_an_empty_cell() {
+        // Item 0 sits in 1, item 1 sits in 2; cell 0 is empty
+        SortPlan plan = SortPlan.compute(new int[]{1, 2}, new int[]{0, 1}, new int[]{0, 1});
+
+        assertEquals(2, plan.moves);
+        assertEquals(1, plan.chains.size());
+        assertArrayEquals(new int[]{2, 1, 0}, plan.chains.get(0));
+    }
+}
@@ -0,0 +1,226 @@
+package nurgling.cookbook;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeStoreTest {
+    static final String[] FEPS = {"Strength +1", "Agility +1", "Intelligence +1", "Constitution +1", "Perception +2"};
+    static final String[] INGREDIENTS = {"Wild Onion", "Carrot", "Beef", "Fox Meat", "Chicken", "Bread"};
+
+    @Test
+    void top_k_matches_brute_force_ranking() {
+        Random rnd = new Random(11);
+        RecipeStore store = new RecipeStore();
+        Map<String, Recipe> live = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            Recipe r = random(rnd, "r" + i);
+            r.setFavorite(rnd.nextInt(10) == 0);
+            store.put(r);
+            live.put(r.getHash(), r);
+        }
+        for (int round = 0; round < 200; round++) {
+            RecipeStore.Query q = new RecipeStore.Query()
+                    .perHunger(rnd.nextBoolean())
+                    .ascending(rnd.nextInt(4) == 0)
+                    .favoritesFirst(rnd.nextBoolean());
+            for (int w = rnd.nextInt(3); w > 0; w--)
+                q.weight(FEPS[rnd.nextInt(FEPS.length)], 1 + rnd.nextInt(3));
+            if (rnd.nextInt(3) == 0)
+                q.withIngredient(INGREDIENTS[rnd.nextInt(INGREDIENTS.length)].substring(0, 3));
+            if (rnd.nextInt(3) == 0)
+                q.withoutIngredient(INGREDIENTS[rnd.nextInt(INGREDIENTS.length)].toUpperCase());
+            int k = 1 + rnd.nextInt(40);
+
+            List<Recipe> expected = live.values().stream().filter(r -> accepts(q, r))
+                    .sorted(Comparator.comparing((Recipe r) -> rank(q, r)).reversed())
+                    .collect(Collectors.toList());
+            assertEquals(expected.size(), store.count(q));
+            List<Recipe> got = store.topK(q, k);
+            assertEquals(Math.min(k, expected.size()), got.size());
+            /* Equal scores may come in any order, so compare ranks rather than recipes. */
+            for (int i = 0; i < got.size(); i++) {
+                assertTrue(accepts(q, got.get(i)));
+                assertEquals(rank(q, expected.get(i)), rank(q, got.get(i)));
+            }
+        }
+    }
+
+    @Test
+    void per_hunger_ranks_by_efficiency() {
+        RecipeStore store = new RecipeStore();
+        store.put(recipe("big", "Roast", 10, map("Strength +1", 10.0), map("Beef")));
+        store.put(recipe("small", "Snack", 2, map("Strength +1", 6.0), map("Carrot")));
+        store.put(recipe("none", "Water", 0, map("Strength +1", 1.0), map()));
+
+        RecipeStore.Query q = new RecipeStore.Query().weight("Strength +1", 1);
+        assertEquals(Arrays.asList("big", "small", "none"), hashes(store.topK(q, 3)));
+        assertEquals(Arrays.asList("small", "big", "none"), hashes(store.topK(q.perHunger(true), 3)));
+        assertEquals(Arrays.asList("none", "big", "small"), hashes(store.topK(q.ascending(true), 3)));
+    }
+
+    @Test
+    void favorites_rank_first_unless_disabled() {
+        RecipeStore store = new RecipeStore();
+        store.put(recipe("a", "A", 1, map("Agility +1", 9.0), map()));
+        store.put(recipe("b", "B", 1, map("Agility +1", 3.0), map()));
+        store.setFavorite("b", true);
+
+        assertEquals(Arrays.asList("b", "a"), hashes(store.topK(new RecipeStore.Query(), 2)));
+        assertEquals(Arrays.asList("a", "b"), hashes(store.topK(new RecipeStore.Query().favoritesFirst(false), 2)));
+    }
+
+    @Test
+    void name_and_ingredient_filters() {
+        RecipeStore store = new RecipeStore();
+        store.put(recipe("1", "Onion Soup", 3, map("Strength +1", 1.0), map("Wild Onion", "Carrot")));
+        store.put(recipe("2", "Fox Stew", 4, map("Strength +1", 2.0), map("Fox Meat", "Wild Onion")));
+        store.put(recipe("3", "Beef Roast", 5, map("Strength +1", 3.0), map("Beef")));
+        store.put(recipe("4", "Bread", 1, map("Strength +1", 4.0), map()));
+
+        assertEquals(set("1"), all(store, new RecipeStore.Query().nameContains("SOUP")));
+        assertEquals(set("1", "2", "3", "4"), all(store, new RecipeStore.Query().nameContains("")));
+        assertEquals(set("1", "2"), all(store, new RecipeStore.Query().withIngredient("onion")));
+        assertEquals(set("2"), all(store, new RecipeStore.Query().withIngredient("onion").withIngredient("meat")));
+        assertEquals(set("3", "4"), all(store, new RecipeStore.Query().withoutIngredient("Onion")));
+        assertEquals(set("2"), all(store, new RecipeStore.Query().nameContains("st").withoutIngredient("beef")));
+        assertEquals(set(), all(store, new RecipeStore.Query().withIngredient("truffle")));
+        assertEquals(2, store.count(new RecipeStore.Query().withIngredient("onion")));
+    }
+
+    @Test
+    void index_stays_consistent_after_saves_and_deletes() {
+        Random rnd = new Random(5);
+        RecipeStore store = new RecipeStore();
+        Map<String, Recipe> live = new HashMap<>();
+        Set<String> favorites = new HashSet<>();
+        /* Enough rows to grow past the initial capacity. */
+        for (int i = 0; i < 5000; i++) {
+            String hash = "h" + rnd.nextInt(1500);
+            int op = rnd.nextInt(10);
+            if (op < 3) {
+                store.remove(hash);
+                live.remove(hash);
+                favorites.remove(hash);
+            } else if (op == 3) {
+                store.setFavorite(hash, true);
+                if (live.containsKey(hash))
+                    favorites.add(hash);
+            } else {
+                /* Saving again keeps the favorite flag and replaces everything else. */
+                Recipe r = random(rnd, hash);
+                store.put(r);
+                live.put(hash, r);
+            }
+        }
+        assertEquals(live.size(), store.size());
+        for (int i = 0; i < 1500; i++)
+            assertEquals(live.containsKey("h" + i), store.contains("h" + i));
+
+        List<String> ask = new ArrayList<>(live.keySet());
+        ask.add("missing");
+        List<Recipe> got = store.get(ask);
+        assertEquals(live.size(), got.size());
+        for (Recipe r : got) {
+            Recipe exp = live.get(r.getHash());
+            assertEquals(exp.getName(), r.getName());
+            assertEquals(exp.getResourceName(), r.getResourceName());
+            assertEquals(exp.getHunger(), r.getHunger(), 1e-6);
+            assertEquals(exp.getEnergy(), r.getEnergy());
+            assertEquals(favorites.contains(r.getHash()), r.isFavorite());
+            assertEquals(exp.getIngredients().keySet(), r.getIngredients().keySet());
+            for (Map.Entry<String, Recipe.IngredientInfo> e : exp.getIngredients().entrySet())
+                assertEquals(e.getValue().percentage, r.getIngredients().get(e.getKey()).percentage, 1e-6);
+            assertEquals(exp.getFeps().keySet(), r.getFeps().keySet());
+            for (Map.Entry<String, Recipe.Fep> e : exp.getFeps().entrySet())
+                assertEquals(e.getValue().val, r.getFeps().get(e.getKey()).val, 1e-6);
+        }
+        assertEquals(live.keySet(), new HashSet<>(hashes(store.topK(new RecipeStore.Query(), live.size() + 10))));
+    }
+
+    /* ---------- brute-force model ---------- */
+
+    /** Same float arithmetic as the store, so equal inputs give equal scores. */
+    static float score(RecipeStore.Query q, Recipe r) {
+        float score = 0;
+        if (q.weights.isEmpty()) {
+            for (Recipe.Fep f : r.getFeps().values())
+                score += (float) f.val;
+        } else {
+            for (Map.Entry<String, Float> w : q.weights.entrySet()) {
+                Recipe.Fep f = r.getFeps().get(w.getKey());
+                if (f != null)
+                    score += w.getValue() * (float) f.val;
+            }
+        }
+        if (q.perHunger) {
+            float h = (float) r.getHunger();
+            score = (h > 0) ? score / h : 0;
+        }
+        return q.ascending ? -score : score;
+    }
+
+    /** Favorites first when asked, then by score; larger ranks first. */
+    static Double rank(RecipeStore.Query q, Recipe r) {
+        return ((q.favoritesFirst && r.isFavorite()) ? 1e9 : 0) + score(q, r);
+    }
+
+    static boolean accepts(RecipeStore.Query q, Recipe r) {
+        if ((q.nameContains != null) && !r.getName().toLowerCase().contains(q.nameContains))
+            return false;
+        for (String t : q.withIngredients) {
+            if (r.getIngredients().keySet().stream().noneMatch(i -> i.toLowerCase().contains(t)))
+                return false;
+        }
+        for (String t : q.withoutIngredients) {
+            if (r.getIngredients().keySet().stream().anyMatch(i -> i.toLowerCase().contains(t)))
+                return false;
+        }
+        return true;
+    }
+
+    /* Small integer values keep the float sums exact whatever order they are added in. */
+    static Recipe random(Random rnd, String hash) {
+        Map<String, Recipe.Fep> feps = new HashMap<>();
+        for (String f : FEPS) {
+            if (rnd.nextInt(3) > 0)
+                feps.put(f, new Recipe.Fep(rnd.nextInt(50), 1 + rnd.nextInt(3)));
+        }
+        Map<String, Recipe.IngredientInfo> ings = new HashMap<>();
+        for (int n = rnd.nextInt(4); n > 0; n--)
+            ings.put(INGREDIENTS[rnd.nextInt(INGREDIENTS.length)], new Recipe.IngredientInfo(rnd.nextInt(100), rnd.nextBoolean() ? null : "gfx/invobjs/x"));
+        return new Recipe(hash, "Dish " + rnd.nextInt(100), "gfx/invobjs/dish", rnd.nextInt(12), rnd.nextInt(1000), ings, feps);
+    }
+
+    static Recipe recipe(String hash, String name, double hunger, Map<String, Recipe.Fep> feps, Map<String, Recipe.IngredientInfo> ings) {
+        return new Recipe(hash, name, "gfx/invobjs/" + hash, hunger, 100, ings, feps);
+    }
+
+    static Map<String, Recipe.Fep> map(String fep, double val) {
+        Map<String, Recipe.Fep> ret = new HashMap<>();
+        ret.put(fep, new Recipe.Fep(val, 1));
+        return ret;
+    }
+
+    static Map<String, Recipe.IngredientInfo> map(String... ings) {
+        Map<String, Recipe.IngredientInfo> ret = new HashMap<>();
+        for (String i : ings)
+            ret.put(i, new Recipe.IngredientInfo(100.0 / ings.length));
+        return ret;
+    }
+
+    static Set<String> all(RecipeStore store, RecipeStore.Query q) {
+        return new HashSet<>(hashes(store.topK(q, 100)));
+    }
+
+    static List<String> hashes(List<Recipe> recipes) {
+        return recipes.stream().map(Recipe::getHash).collect(Collectors.toList());
+    }
+
+    static Set<String> set(String... hashes) {
+        return new HashSet<>(Arrays.asList(hashes));
+    }
+}
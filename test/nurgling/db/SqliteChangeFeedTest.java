@@ -0,0 +1,152 @@
+package nurgling.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqliteChangeFeedTest {
+    private Connection conn;
+    private SqliteAdapter adapter;
+    private SqliteChangeFeed feed;
+    private final List<String> received = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SqliteChangeFeed.CREATE_TABLE);
+        }
+        adapter = new SqliteAdapter(conn);
+        feed = new SqliteChangeFeed(null);
+        feed.addListener((channel, payload) -> received.add(channel + "/" + payload));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void first_check_only_records_baseline() throws SQLException {
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+
+        feed.checkVersions(adapter);
+
+        assertTrue(feed.isLive());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void dispatches_each_changed_profile_once() throws SQLException {
+        feed.checkVersions(adapter);
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        adapter.notifyChange(ChangeFeed.PLANNING, "other");
+
+        feed.checkVersions(adapter);
+        feed.checkVersions(adapter);
+
+        assertEquals(2, received.size());
+        assertTrue(received.contains(ChangeFeed.AREAS + "/genus"));
+        assertTrue(received.contains(ChangeFeed.PLANNING + "/other"));
+    }
+
+    @Test
+    void first_check_creates_a_missing_version_table() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE change_feed");
+        }
+
+        feed.checkVersions(adapter);
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        feed.checkVersions(adapter);
+
+        assertTrue(feed.isLive());
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void queues_changes_for_in_process_delivery() throws SQLException {
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+
+        List<DatabaseAdapter.Change> pending = adapter.drainPendingChanges();
+
+        assertEquals(1, pending.size());
+        assertEquals(ChangeFeed.AREAS, pending.get(0).channel);
+        assertEquals(1, pending.get(0).version);
+        assertTrue(adapter.drainPendingChanges().isEmpty());
+    }
+
+    /** What DatabaseManager does after the writing transaction commits. */
+    private void publish() {
+        for (DatabaseAdapter.Change c : adapter.drainPendingChanges())
+            feed.publishLocal(c.channel, c.payload, c.version);
+    }
+
+    @Test
+    void own_writes_are_not_dispatched_again() throws SQLException {
+        feed.checkVersions(adapter);
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        publish();
+        assertEquals(2, received.size());
+
+        feed.checkVersions(adapter);
+
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void foreign_writes_between_own_ones_are_dispatched() throws SQLException {
+        feed.checkVersions(adapter);
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        publish();
+        /* Another client, which this feed knows nothing of. */
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        adapter.drainPendingChanges();
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        publish();
+        received.clear();
+
+        feed.checkVersions(adapter);
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void own_writes_seen_before_they_were_published_are_forgotten() throws SQLException {
+        feed.checkVersions(adapter);
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        feed.checkVersions(adapter);
+        publish();
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+        adapter.drainPendingChanges();
+        received.clear();
+
+        feed.checkVersions(adapter);
+
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    void write_without_version_table_does_not_fail() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DROP TABLE change_feed");
+        }
+
+        adapter.notifyChange(ChangeFeed.AREAS, "genus");
+
+        assertFalse(adapter.drainPendingChanges().isEmpty());
+    }
+}
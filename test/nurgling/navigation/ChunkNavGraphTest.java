@@ -0,0 +1,135 @@
+package nurgling.navigation;
+
+import org.junit.jupiter.api.Test;
+
+import static nurgling.navigation.ChunkNavConfig.CELLS_PER_EDGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkNavGraphTest {
+    @Test
+    void adjacency_lists_every_walkable_run() {
+        ChunkNavGraph graph = new ChunkNavGraph();
+        ChunkNavData west = chunk(1);
+        ChunkNavData east = chunk(2);
+        link(west, east);
+        // West side of the border is observed blocked except two openings;
+        // the east side was never observed and counts as passable
+        for (int y = 0; y < CELLS_PER_EDGE; y++) {
+            west.setObserved(CELLS_PER_EDGE - 1, y, true);
+        }
+        open(west, CELLS_PER_EDGE - 1, 10, 19);
+        open(west, CELLS_PER_EDGE - 1, 150, 159);
+        add(graph, west, east);
+
+        ChunkNavGraph.Adjacency adj = graph.getAdjacency(1);
+
+        assertEquals(1, adj.edgeCount());
+        assertEquals(2L, adj.edgeTo(0));
+        assertEquals(ChunkNavData.Direction.EAST, adj.edgeDirection(0));
+        assertEquals(2, adj.runCount(0));
+        assertEquals(10, adj.runStart(0, 0));
+        assertEquals(19, adj.runEnd(0, 0));
+        assertEquals(150, adj.runStart(0, 1));
+        assertEquals(159, adj.runEnd(0, 1));
+        assertEquals(150, adj.crossingCell(0));
+    }
+
+    @Test
+    void tile_crossings_follow_the_entered_chunk() {
+        ChunkNavGraph graph = new ChunkNavGraph();
+        ChunkNavData west = chunk(1);
+        ChunkNavData east = chunk(2);
+        link(west, east);
+        // Tile (0, 5) of the east chunk is walkable through its lower cell
+        east.walkability[0][11] = 0;
+        add(graph, west, east);
+
+        ChunkNavGraph.Adjacency adj = graph.getAdjacency(1);
+
+        assertEquals(2L, adj.crossTo(1, 0));
+        assertTrue(adj.crossWalkable(1, 0, 5));
+        assertFalse(adj.crossWalkable(1, 0, 6));
+        assertEquals(-1L, adj.crossTo(-1, 0));
+    }
+
+    @Test
+    void interior_changes_keep_the_cached_adjacency() {
+        ChunkNavGraph graph = new ChunkNavGraph();
+        ChunkNavData west = chunk(1);
+        ChunkNavData east = chunk(2);
+        link(west, east);
+        add(graph, west, east);
+        ChunkNavGraph.Adjacency before = graph.getAdjacency(1);
+
+        west.walkability[100][100] = 0;
+        add(graph, west);
+
+        assertSame(before, graph.getAdjacency(1));
+    }
+
+    @Test
+    void interior_changes_update_edge_costs() {
+        ChunkNavGraph graph = new ChunkNavGraph();
+        ChunkNavData west = chunk(1);
+        ChunkNavData east = chunk(2);
+        link(west, east);
+        add(graph, west, east);
+        float before = graph.getEdges(1).get(0).cost;
+
+        for (int x = 50; x < 150; x++) {
+            open(west, x, 50, 149);
+        }
+        add(graph, west);
+
+        assertTrue(graph.getEdges(1).get(0).cost < before);
+        assertTrue(graph.getEdges(2).get(0).cost < before);
+    }
+
+    @Test
+    void neighbour_edge_changes_invalidate_the_adjacency() {
+        ChunkNavGraph graph = new ChunkNavGraph();
+        ChunkNavData west = chunk(1);
+        ChunkNavData east = chunk(2);
+        link(west, east);
+        add(graph, west, east);
+        ChunkNavGraph.Adjacency before = graph.getAdjacency(1);
+        assertFalse(before.crossWalkable(1, 0, 5));
+
+        east.walkability[0][10] = 0;
+        add(graph, east);
+
+        ChunkNavGraph.Adjacency after = graph.getAdjacency(1);
+        assertNotSame(before, after);
+        assertTrue(after.crossWalkable(1, 0, 5));
+    }
+
+    private static ChunkNavData chunk(long gridId) {
+        ChunkNavData chunk = new ChunkNavData(gridId);
+        chunk.instanceId = 7;
+        return chunk;
+    }
+
+    private static void link(ChunkNavData west, ChunkNavData east) {
+        west.neighborEast = east.gridId;
+        east.neighborWest = west.gridId;
+    }
+
+    private static void open(ChunkNavData chunk, int x, int from, int to) {
+        for (int y = from; y <= to; y++) {
+            chunk.walkability[x][y] = 0;
+        }
+    }
+
+    private static void add(ChunkNavGraph graph, ChunkNavData... chunks) {
+        for (ChunkNavData chunk : chunks) {
+            graph.addChunk(chunk);
+        }
+        for (ChunkNavData chunk : chunks) {
+            graph.updateConnections(chunk);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package nurgling.navigation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nurgling.navigation.ChunkNavConfig.CELLS_PER_EDGE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirtyRegionsTest {
+    @Test
+    void first_pass_samples_the_whole_window() {
+        DirtyRegions regions = new DirtyRegions();
+
+        long[] dirty = regions.advance(10, 10, 19, 19, Collections.emptyMap(), true);
+
+        assertEquals(100, count(dirty));
+        assertTrue(get(dirty, 10, 10));
+        assertFalse(get(dirty, 20, 10));
+    }
+
+    @Test
+    void unchanged_pass_samples_nothing() {
+        DirtyRegions regions = new DirtyRegions();
+        Map<Long, DirtyRegions.Footprint> gobs = gobs(1L, new DirtyRegions.Footprint(7, 12, 12, 13, 13));
+        regions.advance(10, 10, 19, 19, gobs, true);
+
+        long[] dirty = regions.advance(10, 10, 19, 19, gobs(1L, new DirtyRegions.Footprint(7, 12, 12, 13, 13)), false);
+
+        assertEquals(0, count(dirty));
+    }
+
+    @Test
+    void moving_the_window_samples_only_the_new_strip() {
+        DirtyRegions regions = new DirtyRegions();
+        regions.advance(10, 10, 19, 19, Collections.emptyMap(), true);
+
+        long[] dirty = regions.advance(12, 10, 21, 19, Collections.emptyMap(), false);
+
+        assertEquals(20, count(dirty));
+        assertTrue(get(dirty, 20, 15));
+        assertTrue(get(dirty, 21, 15));
+        assertFalse(get(dirty, 19, 15));
+    }
+
+    @Test
+    void moved_gob_dirties_old_and_new_footprint() {
+        DirtyRegions regions = new DirtyRegions();
+        regions.advance(0, 0, 49, 49, gobs(1L, new DirtyRegions.Footprint(1, 5, 5, 6, 6)), true);
+
+        long[] dirty = regions.advance(0, 0, 49, 49, gobs(1L, new DirtyRegions.Footprint(2, 8, 5, 9, 6)), false);
+
+        assertEquals(8, count(dirty));
+        assertTrue(get(dirty, 5, 5));
+        assertTrue(get(dirty, 9, 6));
+    }
+
+    @Test
+    void removed_gob_and_retries_are_sampled_inside_the_window() {
+        DirtyRegions regions = new DirtyRegions();
+        regions.advance(0, 0, 49, 49, gobs(1L, new DirtyRegions.Footprint(1, 40, 40, 60, 40)), true);
+        set(regions.retry, 3, 3);
+        set(regions.retry, 100, 100);
+
+        long[] dirty = regions.advance(0, 0, 49, 49, Collections.emptyMap(), false);
+
+        // Footprint clipped to the window (x 40..49) plus the retry inside it
+        assertEquals(11, count(dirty));
+        assertTrue(get(dirty, 3, 3));
+        assertFalse(get(dirty, 100, 100));
+    }
+
+    @Test
+    void next_set_bit_stops_at_the_limit() {
+        long[] bits = new long[DirtyRegions.GRID_WORDS];
+        set(bits, 0, 70);
+        set(bits, 0, 150);
+
+        assertEquals(70, DirtyRegions.nextSetBit(bits, 0, 100));
+        assertEquals(-1, DirtyRegions.nextSetBit(bits, 71, 150));
+        assertEquals(150, DirtyRegions.nextSetBit(bits, 71, 151));
+    }
+
+    private static Map<Long, DirtyRegions.Footprint> gobs(long id, DirtyRegions.Footprint fp) {
+        Map<Long, DirtyRegions.Footprint> gobs = new HashMap<>();
+        gobs.put(id, fp);
+        return gobs;
+    }
+
+    private static void set(long[] bits, int x, int y) {
+        int i = x * CELLS_PER_EDGE + y;
+        bits[i >> 6] |= 1L << i;
+    }
+
+    private static boolean get(long[] bits, int x, int y) {
+        int i = x * CELLS_PER_EDGE + y;
+        return (bits[i >> 6] & (1L << i)) != 0;
+    }
+
+    private static int count(long[] bits) {
+        int n = 0;
+        for (long w : bits) {
+            n += Long.bitCount(w);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,54 @@
+package nurgling.pf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteOptimizerTest {
+    @Test
+    void visits_points_on_a_line_in_order() {
+        // Start at 0, targets at 3, 1, 2 along a line
+        int[][] cost = line(0, 3, 1, 2);
+
+        int[] route = RouteOptimizer.solve(cost, System.nanoTime() + 1000000000L);
+
+        assertArrayEquals(new int[]{2, 3, 1}, route);
+        assertEquals(3, RouteOptimizer.length(cost, route));
+    }
+
+    @Test
+    void improves_on_nearest_neighbour() {
+        // Nearest neighbour takes -2 and -3, crosses over to 2, then walks back to -9
+        int[][] cost = line(0, -2, -9, 2, -3);
+
+        int[] nearest = RouteOptimizer.solve(cost, 0);
+        int[] route = RouteOptimizer.solve(cost, System.nanoTime() + 1000000000L);
+
+        assertEquals(19, RouteOptimizer.length(cost, nearest));
+        assertEquals(13, RouteOptimizer.length(cost, route));
+    }
+
+    @Test
+    void every_target_is_visited_once() {
+        int[][] cost = line(0, 5, -5, 7, 1, -2, 3);
+
+        int[] route = RouteOptimizer.solve(cost, System.nanoTime() + 1000000000L);
+
+        int[] sorted = route.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6}, sorted);
+    }
+
+    private static int[][] line(int... xs) {
+        int[][] cost = new int[xs.length][xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            for (int j = 0; j < xs.length; j++) {
+                cost[i][j] = Math.abs(xs[i] - xs[j]);
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,81 @@
+package nurgling.planning;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GhostIndexTest {
+    @Test
+    void ghosts_are_grouped_by_grid() {
+        GhostIndex index = new GhostIndex();
+        index.add(ghost("a", 1, 10, 10), 0);
+        index.add(ghost("b", 1, 900, 500), 0);
+        index.add(ghost("c", 2, 10, 10), 0);
+
+        assertEquals(Arrays.asList("a", "b"), sorted(grid(index, 1)));
+        assertEquals(Arrays.asList("c"), grid(index, 2));
+        assertTrue(grid(index, 3).isEmpty());
+    }
+
+    @Test
+    void query_only_returns_touched_cells() {
+        GhostIndex index = new GhostIndex();
+        index.add(ghost("near", 1, 500, 500), 0);
+        index.add(ghost("far", 1, 50, 50), 0);
+
+        List<String> hits = new ArrayList<>();
+        index.query(1, 480, 480, 520, 520, g -> hits.add(g.id));
+
+        assertEquals(Arrays.asList("near"), hits);
+    }
+
+    @Test
+    void offsets_outside_the_grid_land_in_edge_cells() {
+        GhostIndex index = new GhostIndex();
+        index.add(ghost("edge", 1, 1105, -3), 0);
+
+        List<String> hits = new ArrayList<>();
+        index.query(1, 1080, 0, 1200, 20, g -> hits.add(g.id));
+
+        assertEquals(Arrays.asList("edge"), hits);
+    }
+
+    @Test
+    void remove_drops_the_ghost_and_empty_grids() {
+        GhostIndex index = new GhostIndex();
+        PlanningGhost a = ghost("a", 1, 10, 10);
+        index.add(a, 5);
+        index.add(ghost("b", 2, 10, 10), 20);
+
+        assertTrue(index.remove(a));
+        assertFalse(index.remove(a));
+        assertEquals(1, index.size());
+        assertTrue(grid(index, 1).isEmpty());
+        assertEquals(20.0, index.maxReach());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(0.0, index.maxReach());
+    }
+
+    private static PlanningGhost ghost(String id, long gridId, double ox, double oy) {
+        return new PlanningGhost(id, "gfx/terobjs/fake", null, gridId, ox, oy, 0);
+    }
+
+    private static List<String> grid(GhostIndex index, long gridId) {
+        List<String> ids = new ArrayList<>();
+        index.forGrid(gridId, g -> ids.add(g.id));
+        return ids;
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        ids.sort(null);
+        return ids;
+    }
+}
@@ -0,0 +1,119 @@
+package nurgling.tools;
+
+import haven.Coord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExploredStoreTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("explored");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void grids_survive_reopening_per_segment() throws IOException {
+        ExploredStore store = new ExploredStore(dir);
+        store.save(1, grids(new Coord(0, 0), mask(0, 9999), new Coord(-3, 7), mask(64)));
+        store.save(2, grids(new Coord(0, 0), mask(5)));
+        store.close();
+
+        ExploredStore reopened = new ExploredStore(dir);
+        Map<Coord, long[]> seg1 = reopened.load(1);
+        assertEquals(2, seg1.size());
+        assertArrayEquals(mask(0, 9999), seg1.get(new Coord(0, 0)));
+        assertArrayEquals(mask(64), seg1.get(new Coord(-3, 7)));
+        assertArrayEquals(mask(5), reopened.load(2).get(new Coord(0, 0)));
+        assertTrue(reopened.load(3).isEmpty());
+        assertEquals(2, reopened.segmentIds().size());
+        reopened.close();
+    }
+
+    @Test
+    void saving_a_grid_again_rewrites_its_slot() throws IOException {
+        ExploredStore store = new ExploredStore(dir);
+        store.save(1, grids(new Coord(1, 1), mask(1)));
+        long size = Files.size(dir.resolve(String.format("%016x.bin", 1L)));
+
+        store.save(1, grids(new Coord(1, 1), mask(2)));
+
+        assertEquals(size, Files.size(dir.resolve(String.format("%016x.bin", 1L))));
+        assertArrayEquals(mask(1, 2), store.load(1).get(new Coord(1, 1)));
+        store.close();
+    }
+
+    @Test
+    void saves_from_two_clients_are_merged() throws IOException {
+        ExploredStore a = new ExploredStore(dir);
+        ExploredStore b = new ExploredStore(dir);
+        a.save(1, grids(new Coord(0, 0), mask(1)));
+        // b has not seen a's slot yet, and must find it rather than add a second one
+        Map<Coord, long[]> mine = grids(new Coord(0, 0), mask(2));
+        b.save(1, mine);
+        a.save(1, grids(new Coord(4, 4), mask(3)));
+
+        assertArrayEquals(mask(1, 2), mine.get(new Coord(0, 0)));
+        Map<Coord, long[]> all = new ExploredStore(dir).load(1);
+        assertEquals(2, all.size());
+        assertArrayEquals(mask(1, 2), all.get(new Coord(0, 0)));
+        assertArrayEquals(mask(3), all.get(new Coord(4, 4)));
+        a.close();
+        b.close();
+    }
+
+    @Test
+    void torn_slot_at_the_end_is_ignored_and_reused() throws IOException {
+        ExploredStore store = new ExploredStore(dir);
+        store.save(1, grids(new Coord(0, 0), mask(1)));
+        store.close();
+        Path file = dir.resolve(String.format("%016x.bin", 1L));
+        long size = Files.size(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size + 100);
+        }
+
+        ExploredStore reopened = new ExploredStore(dir);
+        assertEquals(Collections.singleton(new Coord(0, 0)), reopened.load(1).keySet());
+        reopened.save(1, grids(new Coord(1, 0), mask(2)));
+        reopened.close();
+
+        assertEquals(2, new ExploredStore(dir).load(1).size());
+    }
+
+    private static Map<Coord, long[]> grids(Object... kv) {
+        Map<Coord, long[]> ret = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2)
+            ret.put((Coord) kv[i], (long[]) kv[i + 1]);
+        return ret;
+    }
+
+    private static long[] mask(int... tiles) {
+        long[] ret = new long[ExploredStore.WORDS];
+        for (int t : tiles)
+            ret[t >>> 6] |= 1L << t;
+        return ret;
+    }
+}
@@ -0,0 +1,115 @@
+package nurgling.tools;
+
+import haven.Coord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryOccupancyTest {
+    @Test
+    void queries_match_a_cell_matrix_scan() {
+        Random rnd = new Random(1);
+        for (int round = 0; round < 500; round++) {
+            int w = 1 + rnd.nextInt((round % 5 == 0) ? 100 : 16), h = 1 + rnd.nextInt(12);
+            InventoryOccupancy occ = new InventoryOccupancy(w, h);
+            boolean[] mask = new boolean[w * h];
+            for (int i = 0; i < mask.length; i++)
+                mask[i] = rnd.nextInt(10) == 0;
+            occ.mask(mask);
+            for (int i = rnd.nextInt(w * h / 2 + 1); i > 0; i--)
+                occ.place(i, rnd.nextInt(w), rnd.nextInt(h), 1 + rnd.nextInt(3), 1 + rnd.nextInt(3));
+            for (int i = rnd.nextInt(5); i > 0; i--)
+                occ.remove(1 + rnd.nextInt(w * h / 2 + 1));
+            short[][] m = occ.matrix();
+            int free = 0, total = 0;
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    assertEquals(m[y][x] == 0, occ.isFree(x, y));
+                    if (m[y][x] == 0)
+                        free++;
+                    if (m[y][x] != 2)
+                        total++;
+                }
+            }
+            assertEquals(free, occ.freeCells());
+            assertEquals(total, occ.totalCells());
+            for (int iw = 1; iw <= 3; iw++) {
+                for (int ih = 1; ih <= 3; ih++) {
+                    assertEquals(scanFind(m, iw, ih), occ.findFree(iw, ih));
+                    assertEquals(scanCount(m, iw, ih), occ.countFree(iw, ih));
+                }
+            }
+        }
+    }
+
+    @Test
+    void removing_an_item_frees_only_its_own_cells() {
+        InventoryOccupancy occ = new InventoryOccupancy(4, 4);
+        occ.place("a", 0, 0, 2, 2);
+        occ.place("b", 1, 1, 2, 2);
+        occ.remove("a");
+        assertTrue(occ.isFree(0, 0));
+        assertFalse(occ.isFree(1, 1));
+        occ.place("b", 3, 3, 1, 1);
+        assertEquals(15, occ.freeCells());
+    }
+
+    @Test
+    void unknown_sizes_hold_the_grid_back() {
+        InventoryOccupancy occ = new InventoryOccupancy(2, 2);
+        occ.place("a", 0, 0, 0, 0);
+        assertFalse(occ.ready());
+        occ.place("a", 0, 0, 1, 2);
+        assertTrue(occ.ready());
+        assertEquals(new Coord(1, 0), occ.findFree(1, 2));
+        assertNull(occ.findFree(2, 1));
+        occ.reset(1, 1);
+        assertTrue(occ.ready());
+        assertEquals(1, occ.matrix().length);
+        assertEquals(1, occ.freeCells());
+    }
+
+    private static Coord scanFind(short[][] m, int iw, int ih) {
+        for (int y = 0; y + ih <= m.length; y++) {
+            for (int x = 0; x + iw <= m[y].length; x++) {
+                if (fits(m, x, y, iw, ih))
+                    return new Coord(x, y);
+            }
+        }
+        return null;
+    }
+
+    private static int scanCount(short[][] m, int iw, int ih) {
+        short[][] work = new short[m.length][];
+        for (int y = 0; y < m.length; y++)
+            work[y] = m[y].clone();
+        int n = 0;
+        for (int y = 0; y + ih <= work.length; y++) {
+            for (int x = 0; x + iw <= work[y].length; x++) {
+                if (fits(work, x, y, iw, ih)) {
+                    n++;
+                    for (int r = y; r < y + ih; r++) {
+                        for (int c = x; c < x + iw; c++)
+                            work[r][c] = 1;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    private static boolean fits(short[][] m, int x, int y, int iw, int ih) {
+        for (int r = y; r < y + ih; r++) {
+            for (int c = x; c < x + iw; c++) {
+                if (m[r][c] != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+}
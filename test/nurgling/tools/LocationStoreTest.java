@@ -0,0 +1,167 @@
+package nurgling.tools;
+
+import haven.Coord;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationStoreTest {
+    private Path dir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("locations");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    static final class Spot {
+        final String id;
+        final long seg;
+        final Coord tc;
+
+        Spot(String id, long seg, Coord tc) {
+            this.id = id;
+            this.seg = seg;
+            this.tc = tc;
+        }
+    }
+
+    static final LocationStore.Codec<Spot> CODEC = new LocationStore.Codec<Spot>() {
+        @Override
+        public String id(Spot v) {
+            return v.id;
+        }
+
+        @Override
+        public long segment(Spot v) {
+            return v.seg;
+        }
+
+        @Override
+        public Coord tile(Spot v) {
+            return v.tc;
+        }
+
+        @Override
+        public JSONObject toJson(Spot v) {
+            return new JSONObject().put("id", v.id).put("seg", v.seg).put("x", v.tc.x).put("y", v.tc.y);
+        }
+
+        @Override
+        public Spot fromJson(JSONObject json) {
+            return new Spot(json.getString("id"), json.getLong("seg"), Coord.of(json.getInt("x"), json.getInt("y")));
+        }
+    };
+
+    @Test
+    void queries_agree_with_brute_force() {
+        Random rnd = new Random(5);
+        LocationStore<Spot> store = new LocationStore<>("spots", 1, CODEC);
+        Map<String, Spot> live = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String id = "s" + rnd.nextInt(1500);
+            if (rnd.nextInt(4) == 0) {
+                assertEquals(live.remove(id) != null, store.remove(id) != null);
+            } else {
+                /* Moving an entry between segments and grids must reindex it. */
+                Spot s = new Spot(id, rnd.nextInt(3), Coord.of(rnd.nextInt(1000) - 500, rnd.nextInt(1000) - 500));
+                store.put(s);
+                live.put(id, s);
+            }
+        }
+        assertEquals(live.size(), store.size());
+        for (int round = 0; round < 300; round++) {
+            long seg = rnd.nextInt(4);
+            Coord tc = Coord.of(rnd.nextInt(1200) - 600, rnd.nextInt(1200) - 600);
+            int r = rnd.nextInt(300);
+            Coord ul = tc.sub(r, r / 2), br = tc.add(r / 2, r);
+            Set<String> area = new HashSet<>(), near = new HashSet<>(), all = new HashSet<>();
+            double best = Double.MAX_VALUE;
+            for (Spot s : live.values()) {
+                if (s.seg != seg)
+                    continue;
+                all.add(s.id);
+                if (s.tc.x >= ul.x && s.tc.x <= br.x && s.tc.y >= ul.y && s.tc.y <= br.y)
+                    area.add(s.id);
+                double d = s.tc.dist(tc);
+                if (d <= r)
+                    near.add(s.id);
+                best = Math.min(best, d);
+            }
+            assertEquals(all, ids(store.inSegment(seg)));
+            assertEquals(area, ids(store.inArea(seg, ul, br)));
+            assertEquals(near, ids(store.within(seg, tc, r)));
+            Spot n = store.nearest(seg, tc, r, null);
+            if (best > r)
+                assertNull(n);
+            else
+                assertEquals(best, n.tc.dist(tc), 1e-9);
+        }
+    }
+
+    @Test
+    void journal_and_compaction_restore_the_same_entries() throws Exception {
+        String file = dir.resolve("spots.json").toString();
+        Path journal = dir.resolve("spots.json.journal");
+        LocationStore<Spot> store = new LocationStore<>("spots", 1, CODEC);
+        store.open(file);
+        for (int i = 0; i < 50; i++)
+            store.put(new Spot("s" + i, i % 2, Coord.of(i * 37, -i * 11)));
+        store.remove("s3");
+        store.put(new Spot("s4", 7, Coord.of(1, 2)));
+        assertTrue(Files.exists(journal));
+
+        LocationStore<Spot> reopened = new LocationStore<>("spots", 1, CODEC);
+        reopened.open(file);
+        assertEquals(snapshot(store), snapshot(reopened));
+
+        store.compact();
+        assertFalse(Files.exists(journal));
+        assertTrue(new JSONObject(new String(Files.readAllBytes(Path.of(file)), StandardCharsets.UTF_8)).has("spots"));
+        store.remove("s5");
+
+        /* A record torn by a crash mid-write is skipped. */
+        Files.write(journal, "{\"put\":{\"id\":\"torn".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        reopened = new LocationStore<>("spots", 1, CODEC);
+        reopened.open(file);
+        assertEquals(snapshot(store), snapshot(reopened));
+        assertNull(reopened.get("s5"));
+        assertEquals(7, reopened.get("s4").seg);
+        /* and later records land on a line of their own. */
+        reopened.put(new Spot("s6", 2, Coord.of(-40, 9)));
+        LocationStore<Spot> again = new LocationStore<>("spots", 1, CODEC);
+        again.open(file);
+        assertEquals(snapshot(reopened), snapshot(again));
+        store.close();
+        reopened.close();
+    }
+
+    static Set<String> ids(Collection<Spot> spots) {
+        return spots.stream().map(s -> s.id).collect(Collectors.toSet());
+    }
+
+    static Map<String, String> snapshot(LocationStore<Spot> store) {
+        Map<String, String> ret = new HashMap<>();
+        for (Spot s : store.all())
+            ret.put(s.id, s.seg + " " + s.tc);
+        return ret;
+    }
+}
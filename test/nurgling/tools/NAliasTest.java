@@ -0,0 +1,75 @@
+package nurgling.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NAliasTest {
+    static final String[] WORDS = {"oak", "oaklog", "log", "stump", "trees", "bush", "bushes", "a", "ab", "ba", "aba", "gfx/", "/", "\u00e4rt", "Cheese", "tray", "ee"};
+
+    @Test
+    void matches_agree_with_substring_checks() {
+        Random rnd = new Random(1);
+        for (int round = 0; round < 2000; round++) {
+            List<String> keys = pick(rnd, rnd.nextInt(4));
+            List<String> exceptions = pick(rnd, rnd.nextInt(3));
+            NAlias alias = new NAlias(keys, exceptions);
+            for (int i = 0; i < 20; i++) {
+                StringBuilder name = new StringBuilder();
+                for (int w = rnd.nextInt(4); w >= 0; w--)
+                    name.append(WORDS[rnd.nextInt(WORDS.length)]);
+                String n = (rnd.nextBoolean() ? "gfx/terobjs/" : "") + name;
+                assertEquals(naive(keys, exceptions, n), alias.matches(n), keys + " " + exceptions + " " + n);
+                /* Again, now from the matcher's remembered results. */
+                assertEquals(naive(keys, exceptions, n), alias.matches(n), keys + " " + exceptions + " " + n);
+            }
+        }
+    }
+
+    @Test
+    void rebuilt_caches_see_changed_keys() {
+        NAlias alias = new NAlias("oak");
+        assertTrue(alias.matches("gfx/terobjs/trees/oak"));
+        assertFalse(alias.matches("gfx/terobjs/trees/birch"));
+        alias.keys.add("birch");
+        alias.exceptions.add("oak");
+        alias.buildCaches();
+        assertFalse(alias.matches("gfx/terobjs/trees/oak"));
+        assertTrue(alias.matches("gfx/terobjs/trees/birch"));
+    }
+
+    @Test
+    void empty_exception_excludes_everything() {
+        NAlias alias = new NAlias(Arrays.asList("oak"), Arrays.asList(""));
+        assertFalse(alias.matches("oak"));
+        assertTrue(new NAlias().matches("anything"));
+    }
+
+    static List<String> pick(Random rnd, int n) {
+        List<String> ret = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            ret.add(WORDS[rnd.nextInt(WORDS.length)]);
+        return ret;
+    }
+
+    static boolean naive(List<String> keys, List<String> exceptions, String name) {
+        String lower = name.toLowerCase();
+        boolean any = false;
+        for (String k : keys)
+            any |= lower.contains(k.toLowerCase());
+        if (!keys.isEmpty() && !any)
+            return false;
+        for (String e : exceptions) {
+            if (lower.contains(e.toLowerCase()))
+                return false;
+        }
+        return true;
+    }
+}